@@ -18,6 +18,7 @@ import org.csstudio.apputil.args.ArgParser;
 import org.csstudio.apputil.args.BooleanOption;
 import org.csstudio.apputil.args.IntegerOption;
 import org.csstudio.apputil.args.StringOption;
+import org.csstudio.apputil.time.BenchmarkTimer;
 import org.csstudio.archive.config.EngineConfig;
 import org.csstudio.archive.config.XMLExport;
 import org.csstudio.archive.config.XMLImport;
@@ -212,7 +213,10 @@ public class ArchiveConfigApplication implements IApplication
                         replace_engine.get(), steal_channels.get());
                 try
                 {
+                    final BenchmarkTimer timer = new BenchmarkTimer();
                     importer.parse(stream, engine_name.get(), engine_description.get(), engine_url);
+                    timer.stop();
+                    System.out.println("Imported " + importer.getChannelCount() + " channels in " + timer);
                 }
                 catch (XMLImportException ex)
                 {    // Print message
@@ -17,7 +17,10 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.csstudio.archive.config.ArchiveConfig;
 import org.csstudio.archive.config.ChannelConfig;
@@ -54,9 +57,49 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
     /** Numeric ID of 'scan' mode stored in RDB */
     private int scan_mode_id = -1;
 
+    /** Numeric IDs of the sample reduction modes stored in RDB, if defined */
+    final private Map<SampleMode.Reduction, Integer> reduction_mode_ids = new EnumMap<>(SampleMode.Reduction.class);
+
     /** Re-used statement for selecting time of last archived sample of a channel */
     private PreparedStatement last_sample_time_statement;
 
+    /** Number of rows to fetch resp. to insert or update per batch
+     *  when reading or importing a complete engine configuration.
+     *  An import still commits all batches in one transaction.
+     */
+    final private static int BATCH_SIZE = 1000;
+
+    /** Channel known to an import */
+    private static class ImportChannel
+    {
+        final int id;
+        int group_id;
+
+        ImportChannel(final int id, final int group_id)
+        {
+            this.id = id;
+            this.group_id = group_id;
+        }
+    }
+
+    /** All channels by name while importing, otherwise <code>null</code> */
+    private Map<String, ImportChannel> import_channels = null;
+
+    /** All groups by ID while importing */
+    private Map<Integer, RDBGroupConfig> import_groups;
+
+    /** Engines of all groups by group ID while importing */
+    private Map<Integer, EngineConfig> import_engines;
+
+    /** Next channel ID to use while importing */
+    private int import_next_channel_id;
+
+    /** Batched statements while importing */
+    private PreparedStatement import_channel_insert, import_channel_update, import_enable_update;
+
+    /** Number of batched statements while importing */
+    private int import_pending;
+
     /** Initialize.
      *  This constructor will be invoked when an {@link ArchiveConfig}
      *  is created via the extension point.
@@ -114,7 +157,10 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
             while (result.next())
             {
                 final String name = result.getString(2);
-                if (RDBSampleMode.determineMonitor(name))
+                final SampleMode.Reduction reduction = RDBSampleMode.determineReduction(name);
+                if (reduction != null)
+                    reduction_mode_ids.put(reduction, result.getInt(1));
+                else if (RDBSampleMode.determineMonitor(name))
                     monitor_mode_id = result.getInt(1);
                 else
                     scan_mode_id = result.getInt(1);
@@ -133,6 +179,9 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
      */
     private RDBSampleMode getSampleMode(final int sample_mode_id, final double sample_value, final double period) throws Exception
     {
+        for (Map.Entry<SampleMode.Reduction, Integer> entry : reduction_mode_ids.entrySet())
+            if (entry.getValue() == sample_mode_id)
+                return new RDBSampleMode(sample_mode_id, sample_value, period, entry.getKey());
         return new RDBSampleMode(sample_mode_id, sample_mode_id == monitor_mode_id, sample_value, period);
     }
 
@@ -149,6 +198,26 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         return new RDBSampleMode(monitor ? monitor_mode_id : scan_mode_id, monitor, sample_value, period);
     }
 
+    /** Determine sample mode with sample reduction
+     *  @param monitor Monitor/subscription or active scan?
+     *  @param sample_value Sample value, i.e. deadband in percent or error bound
+     *  @param period Estimated monitor period resp. aggregation period
+     *  @param reduction Sample reduction
+     *  @return {@link SampleMode}
+     *  @throws Exception if the RDB does not define the sample mode for the reduction
+     */
+    @Override
+    public RDBSampleMode getSampleMode(final boolean monitor, final double sample_value, final double period,
+                                       final SampleMode.Reduction reduction) throws Exception
+    {
+        if (reduction == SampleMode.Reduction.NONE)
+            return getSampleMode(monitor, sample_value, period);
+        final Integer id = reduction_mode_ids.get(reduction);
+        if (id == null)
+            throw new Exception("RDB lacks sample mode for " + reduction + ", see smpl_mode table in schema");
+        return new RDBSampleMode(id, sample_value, period, reduction);
+    }
+
     /** @return Next available engine ID */
     private int getNextEngineId() throws Exception
     {
@@ -230,6 +299,8 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
     public EngineConfig getEngine(final GroupConfig the_group) throws Exception
     {
         RDBGroupConfig group = (RDBGroupConfig) the_group;
+        if (import_channels != null)
+            return import_engines.get(group.getId());
         try
         (
             final PreparedStatement statement = rdb.getConnection().prepareStatement(sql.smpl_eng_sel_by_group_id);
@@ -255,6 +326,8 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
     @Override
     public void deleteEngine(final EngineConfig engine) throws Exception
     {
+        if (import_channels != null)
+            throw new Exception("Cannot delete engine while importing");
         // Unlink all channels from engine's groups
         final int engine_id = ((RDBEngineConfig)engine).getId();
         final Connection connection = rdb.getConnection();
@@ -330,16 +403,18 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
     {
         final Connection connection = rdb.getConnection();
         final int group_id = getNextGroupId();
+        if (import_channels != null)
+        {   // Part of the import transaction
+            insertGroup(connection, group_id, name, engine);
+            final RDBGroupConfig group = new RDBGroupConfig(group_id, name, null);
+            import_groups.put(group_id, group);
+            import_engines.put(group_id, engine);
+            return group;
+        }
         connection.setAutoCommit(false);
         try
-        (
-            final PreparedStatement statement = connection.prepareStatement(sql.chan_grp_insert);
-        )
         {
-            statement.setInt(1, group_id);
-            statement.setString(2, name);
-            statement.setInt(3, ((RDBEngineConfig)engine).getId());
-            statement.executeUpdate();
+            insertGroup(connection, group_id, name, engine);
             connection.commit();
         }
         catch (Exception ex)
@@ -354,6 +429,27 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         return new RDBGroupConfig(group_id, name, null);
     }
 
+    /** @param connection Connection
+     *  @param group_id ID of new group
+     *  @param name Name of new group
+     *  @param engine Engine to which to add group
+     *  @throws Exception on error
+     */
+    private void insertGroup(final Connection connection, final int group_id, final String name,
+                             final EngineConfig engine) throws Exception
+    {
+        try
+        (
+            final PreparedStatement statement = connection.prepareStatement(sql.chan_grp_insert);
+        )
+        {
+            statement.setInt(1, group_id);
+            statement.setString(2, name);
+            statement.setInt(3, ((RDBEngineConfig)engine).getId());
+            statement.executeUpdate();
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public GroupConfig[] getGroups(final EngineConfig engine) throws Exception
@@ -408,6 +504,11 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
     @Override
     public RDBGroupConfig getChannelGroup(final String channel_name) throws Exception
     {
+        if (import_channels != null)
+        {
+            final ImportChannel channel = import_channels.get(channel_name);
+            return channel == null ? null : import_groups.get(channel.group_id);
+        }
         try
         (
             final PreparedStatement statement = rdb.getConnection().prepareStatement(sql.chan_grp_sel_by_channel);
@@ -436,6 +537,17 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         RDBGroupConfig group = (RDBGroupConfig) the_group;
         RDBChannelConfig channel = (RDBChannelConfig) the_channel;
 
+        if (import_channels != null)
+        {   // Batched after the channel inserts and updates
+            if (channel == null)
+                import_enable_update.setNull(1, Types.INTEGER);
+            else
+                import_enable_update.setInt(1, channel.getId());
+            import_enable_update.setInt(2, group.getId());
+            import_enable_update.addBatch();
+            ++import_pending;
+            return;
+        }
         final Connection connection = rdb.getConnection();
         connection.setAutoCommit(false);
         try
@@ -500,6 +612,34 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         RDBGroupConfig group = (RDBGroupConfig) the_group;
         RDBSampleMode mode = (RDBSampleMode) the_mode;
 
+        if (import_channels != null)
+        {
+            ImportChannel channel = import_channels.get(name);
+            final PreparedStatement statement;
+            if (channel == null)
+            {
+                channel = new ImportChannel(import_next_channel_id++, group.getId());
+                import_channels.put(name, channel);
+                statement = import_channel_insert;
+            }
+            else
+            {
+                channel.group_id = group.getId();
+                statement = import_channel_update;
+            }
+            // grp_id, name, smpl_mode_id, smpl_val, smpl_per, channel_id
+            statement.setInt(1, group.getId());
+            statement.setString(2, name);
+            statement.setInt(3, mode.getId());
+            statement.setDouble(4, mode.getDelta());
+            statement.setDouble(5, mode.getPeriod());
+            statement.setInt(6, channel.id);
+            statement.addBatch();
+            if (++import_pending >= BATCH_SIZE)
+                flushImport();
+            return new RDBChannelConfig(channel.id, name, mode, null);
+        }
+
         boolean new_channel = true;
         int channel_id = -1;
 
@@ -555,6 +695,199 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         return new RDBChannelConfig(channel_id, name, mode, null);
     }
 
+    /** Start import of an engine configuration.
+     *
+     *  <p>Reads the IDs of all channels and groups once,
+     *  so that adding channels does not need to query them,
+     *  then batches the channel inserts and updates
+     *  in one transaction that {@link #endImport()} commits
+     *  and {@link #abortImport()} rolls back.
+     *
+     *  @throws Exception on error
+     */
+    @Override
+    public void startImport() throws Exception
+    {
+        if (import_channels != null)
+            throw new Exception("Import already started");
+        final Connection connection = rdb.getConnection();
+        final Map<String, ImportChannel> channels = new HashMap<>();
+        import_groups = new HashMap<>();
+        import_engines = new HashMap<>();
+        try
+        (
+            final Statement statement = connection.createStatement();
+        )
+        {
+            statement.setFetchSize(BATCH_SIZE);
+            try
+            (
+                final ResultSet result = statement.executeQuery(sql.channel_sel_all);
+            )
+            {   // channel_id, name, grp_id
+                while (result.next())
+                    channels.put(result.getString(2), new ImportChannel(result.getInt(1), result.getInt(3)));
+            }
+            try
+            (
+                final ResultSet result = statement.executeQuery(sql.chan_grp_sel_all);
+            )
+            {   // grp_id, name, engine name, descr, url
+                while (result.next())
+                {
+                    final int group_id = result.getInt(1);
+                    import_groups.put(group_id, new RDBGroupConfig(group_id, result.getString(2), null));
+                    import_engines.put(group_id,
+                        new EngineConfig(result.getString(3), result.getString(4), result.getString(5)));
+                }
+            }
+        }
+        import_next_channel_id = getNextChannelId();
+        connection.setAutoCommit(false);
+        import_channel_insert = connection.prepareStatement(sql.channel_insert);
+        import_channel_update = connection.prepareStatement(sql.channel_update);
+        import_enable_update = connection.prepareStatement(sql.chan_grp_set_enable_channel);
+        import_pending = 0;
+        import_channels = channels;
+    }
+
+    /** Execute batched changes of the import, without committing them
+     *  @throws Exception on error
+     */
+    private void flushImport() throws Exception
+    {
+        try
+        {
+            // Channels before the enabling channels that refer to them
+            import_channel_insert.executeBatch();
+            import_channel_update.executeBatch();
+            for (int rows : import_enable_update.executeBatch())
+                if (rows == 0)
+                    throw new Exception("Setting enabling channel of group did not change any row");
+        }
+        finally
+        {
+            // Don't execute a failed batch again
+            import_pending = 0;
+        }
+    }
+
+    /** Commit the import in one transaction, rolling back on error
+     *  {@inheritDoc}
+     */
+    @Override
+    public void endImport() throws Exception
+    {
+        if (import_channels == null)
+            return;
+        final Connection connection = rdb.getConnection();
+        try
+        {
+            if (import_pending > 0)
+                flushImport();
+            connection.commit();
+        }
+        catch (Exception ex)
+        {
+            try
+            {
+                connection.rollback();
+            }
+            catch (Exception rollback_ex)
+            {
+                ex.addSuppressed(rollback_ex);
+            }
+            throw ex;
+        }
+        finally
+        {
+            closeImport();
+        }
+    }
+
+    /** Roll back all changes of the import
+     *  {@inheritDoc}
+     */
+    @Override
+    public void abortImport() throws Exception
+    {
+        if (import_channels == null)
+            return;
+        try
+        {
+            rdb.getConnection().rollback();
+        }
+        finally
+        {
+            closeImport();
+        }
+    }
+
+    /** Release resources of the import
+     *  @throws Exception on error
+     */
+    private void closeImport() throws Exception
+    {
+        import_pending = 0;
+        import_channels = null;
+        import_groups = null;
+        import_engines = null;
+        try
+        {
+            import_channel_insert.close();
+            import_channel_update.close();
+            import_enable_update.close();
+        }
+        finally
+        {
+            rdb.getConnection().setAutoCommit(true);
+        }
+    }
+
+    /** Read all groups and channels of an engine with one query
+     *  {@inheritDoc}
+     */
+    @Override
+    public void readEngineConfig(final EngineConfig engine, final boolean skip_last,
+                                 final EngineConfigHandler handler) throws Exception
+    {
+        final int engine_id = ((RDBEngineConfig) engine).getId();
+        try
+        (
+            final PreparedStatement statement = rdb.getConnection().prepareStatement(
+                skip_last ? sql.channel_sel_by_engine_id : sql.channel_sel_by_engine_id_with_last);
+        )
+        {
+            statement.setFetchSize(BATCH_SIZE);
+            statement.setInt(1, engine_id);
+            try
+            (
+                final ResultSet result = statement.executeQuery();
+            )
+            {
+                RDBGroupConfig group = null;
+                while (result.next())
+                {   // grp_id, name, enabling channel name,
+                    // channel_id, name, smpl_mode_id, smpl_val, smpl_per[, last sample time]
+                    final int group_id = result.getInt(1);
+                    if (group == null  ||  group.getId() != group_id)
+                    {
+                        group = new RDBGroupConfig(group_id, result.getString(2), result.getString(3));
+                        handler.handleGroup(group);
+                    }
+                    final int channel_id = result.getInt(4);
+                    if (result.wasNull())
+                        continue; // Group without channels
+                    final SampleMode sample_mode =
+                        getSampleMode(result.getInt(6), result.getDouble(7), result.getDouble(8));
+                    final Instant last_sample_time = skip_last ? null : toLastSampleTime(result.getTimestamp(9));
+                    handler.handleChannel(group,
+                        new RDBChannelConfig(channel_id, result.getString(5), sample_mode, last_sample_time));
+                }
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public ChannelConfig[] getChannels(final GroupConfig group, final boolean skip_last) throws Exception
@@ -639,25 +972,30 @@ public class RDBArchiveConfig implements ImportableArchiveConfig
         )
         {
             if (result.next())
-            {
-                final Timestamp stamp = result.getTimestamp(1);
-                if (stamp == null)
-                    return null;
-
-                if (rdb.getDialect() != Dialect.Oracle)
-                {
-                    // For Oracle, the time stamp is indeed the last time.
-                    // For others, it's only the seconds, not the nanoseconds.
-                    // Since this time stamp is only used to avoid going back in time,
-                    // add a second to assert that we are _after_ the last sample
-                    stamp.setTime(stamp.getTime() + 1000);
-                }
-                return TimestampHelper.fromSQLTimestamp(stamp);
-            }
+                return toLastSampleTime(result.getTimestamp(1));
         }
         return null;
     }
 
+    /** @param stamp Time stamp of last sample from RDB or <code>null</code>
+     *  @return Time stamp that is not before the last sample or <code>null</code>
+     */
+    private Instant toLastSampleTime(final Timestamp stamp)
+    {
+        if (stamp == null)
+            return null;
+
+        if (rdb.getDialect() != Dialect.Oracle)
+        {
+            // For Oracle, the time stamp is indeed the last time.
+            // For others, it's only the seconds, not the nanoseconds.
+            // Since this time stamp is only used to avoid going back in time,
+            // add a second to assert that we are _after_ the last sample
+            stamp.setTime(stamp.getTime() + 1000);
+        }
+        return TimestampHelper.fromSQLTimestamp(stamp);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void close()
@@ -29,6 +29,18 @@ public class RDBSampleMode extends SampleMode
         this.id = id;
     }
 
+    /** Initialize
+     *  @param id RDB ID
+     *  @param delta Deadband in percent or error bound, depending on reduction
+     *  @param period Estimated monitor period resp. aggregation period in seconds
+     *  @param reduction Sample reduction of a monitored channel
+     */
+    public RDBSampleMode(final int id, final double delta, final double period, final Reduction reduction)
+    {
+        super(true, delta, period, reduction);
+        this.id = id;
+    }
+
     /** @param name Scan mode name
      *  @return <code>true</code> if it's the 'Monitor' mode
      */
@@ -37,6 +49,21 @@ public class RDBSampleMode extends SampleMode
         return "Monitor".equalsIgnoreCase(name);
     }
 
+    /** @param name Scan mode name
+     *  @return Sample reduction of a monitored channel for 'Deadband', 'SwingingDoor' resp. 'Aggregate',
+     *          <code>null</code> for other modes
+     */
+    public static Reduction determineReduction(final String name)
+    {
+        if ("Deadband".equalsIgnoreCase(name))
+            return Reduction.DEADBAND;
+        if ("SwingingDoor".equalsIgnoreCase(name))
+            return Reduction.SWINGING_DOOR;
+        if ("Aggregate".equalsIgnoreCase(name))
+            return Reduction.AGGREGATE;
+        return null;
+    }
+
     /** @return RDB ID */
     public int getId()
     {
@@ -31,6 +31,7 @@ public class SQL
     final public String chan_grp_next_id;
     final public String chan_grp_sel_by_channel;
     final public String chan_grp_set_enable_channel;
+    final public String chan_grp_sel_all;
 
     // 'channel' table
     final public String channel_sel_by_group_id;
@@ -40,6 +41,9 @@ public class SQL
     final public String channel_next_id;
     final public String channel_insert;
     final public String channel_update;
+    final public String channel_sel_all;
+    final public String channel_sel_by_engine_id;
+    final public String channel_sel_by_engine_id_with_last;
 
     // 'sample mode' table
     final public String sample_mode_sel;
@@ -74,6 +78,8 @@ public class SQL
                                   "JOIN " + schema + "channel c ON g.grp_id = c.grp_id " +
                                   "WHERE c.name=?";
         chan_grp_set_enable_channel = "UPDATE " + schema + "chan_grp SET enabling_chan_id=? WHERE grp_id=?";
+        chan_grp_sel_all = "SELECT g.grp_id, g.name, e.name, e.descr, e.url FROM " + schema + "chan_grp g " +
+                           "JOIN " + schema + "smpl_eng e ON e.eng_id = g.eng_id";
 
         // 'channel' table
         channel_sel_by_group_id = "SELECT channel_id, name, smpl_mode_id, smpl_val, smpl_per FROM " + schema + "channel WHERE grp_id=? ORDER BY name";
@@ -85,6 +91,21 @@ public class SQL
         channel_next_id = "SELECT MAX(channel_id) FROM " + schema + "channel";
         channel_insert = "INSERT INTO " + schema + "channel(grp_id, name, smpl_mode_id, smpl_val, smpl_per, channel_id) VALUES (?,?,?,?,?,?)";
         channel_update = "UPDATE " + schema + "channel SET grp_id=?, name=?, smpl_mode_id=?, smpl_val=?, smpl_per=? WHERE channel_id=?";
+        channel_sel_all = "SELECT channel_id, name, grp_id FROM " + schema + "channel";
+        // All groups of an engine with their channels, ordered by group,
+        // optionally with the last sample time of each channel
+        final String engine_channels =
+            " FROM " + schema + "chan_grp g" +
+            " LEFT JOIN " + schema + "channel e ON e.channel_id = g.enabling_chan_id" +
+            " LEFT JOIN " + schema + "channel c ON c.grp_id = g.grp_id" +
+            " WHERE g.eng_id=? ORDER BY g.name, g.grp_id, c.name";
+        channel_sel_by_engine_id =
+            "SELECT g.grp_id, g.name, e.name, c.channel_id, c.name, c.smpl_mode_id, c.smpl_val, c.smpl_per" +
+            engine_channels;
+        channel_sel_by_engine_id_with_last =
+            "SELECT g.grp_id, g.name, e.name, c.channel_id, c.name, c.smpl_mode_id, c.smpl_val, c.smpl_per," +
+            " (SELECT MAX(s.smpl_time) FROM " + schema + "sample s WHERE s.channel_id = c.channel_id)" +
+            engine_channels;
 
         // 'sample mode' table
         sample_mode_sel = "SELECT smpl_mode_id, name FROM " + schema + "smpl_mode";
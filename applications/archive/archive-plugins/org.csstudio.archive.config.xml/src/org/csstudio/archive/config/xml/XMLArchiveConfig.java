@@ -110,6 +110,21 @@ public class XMLArchiveConfig implements ImportableArchiveConfig
         return new SampleMode(monitor, sample_value, period);
     }
 
+    /** Determine sample mode with sample reduction
+     *  @param monitor Monitor/subscription or active scan?
+     *  @param sample_value Sample value, i.e. deadband in percent or error bound
+     *  @param period Estimated monitor period resp. aggregation period
+     *  @param reduction Sample reduction
+     *  @return {@link SampleMode}
+     *  @throws Exception
+     */
+    @Override
+    public SampleMode getSampleMode(final boolean monitor, final double sample_value, final double period,
+            final SampleMode.Reduction reduction) throws Exception
+    {
+        return new SampleMode(monitor, sample_value, period, reduction);
+    }
+
     /** Create new engine config in InfluxDB
      *  @param engine_name
      *  @param description
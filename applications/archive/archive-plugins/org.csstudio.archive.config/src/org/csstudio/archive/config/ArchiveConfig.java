@@ -41,6 +41,45 @@ public interface ArchiveConfig
      */
     public ChannelConfig[] getChannels(GroupConfig group, boolean skip_last) throws Exception;
 
+    /** Handler for the groups and channels of an engine,
+     *  see {@link ArchiveConfig#readEngineConfig(EngineConfig, boolean, EngineConfigHandler)}
+     */
+    public interface EngineConfigHandler
+    {
+        /** @param group Group of the engine
+         *  @throws Exception on error
+         */
+        public void handleGroup(GroupConfig group) throws Exception;
+
+        /** @param group Group, previously passed to {@link #handleGroup(GroupConfig)}
+         *  @param channel Channel of that group
+         *  @throws Exception on error
+         */
+        public void handleChannel(GroupConfig group, ChannelConfig channel) throws Exception;
+    }
+
+    /** Read all groups of an engine, each followed by its channels
+     *
+     *  <p>Default implementation calls {@link #getGroups(EngineConfig)}
+     *  and {@link #getChannels(GroupConfig, boolean)} for each group.
+     *  Implementations may read the complete configuration in one pass.
+     *
+     *  @param engine Engine for which to read the configuration
+     *  @param skip_last Skip reading last sample time
+     *  @param handler Handler that is called for each group and channel
+     *  @throws Exception on error, e.g. RDB access problem
+     */
+    public default void readEngineConfig(final EngineConfig engine, final boolean skip_last,
+                                         final EngineConfigHandler handler) throws Exception
+    {
+        for (GroupConfig group : getGroups(engine))
+        {
+            handler.handleGroup(group);
+            for (ChannelConfig channel : getChannels(group, skip_last))
+                handler.handleChannel(group, channel);
+        }
+    }
+
     /** Must be called when configuration is no longer used to release resources */
     public void close();
 }
@@ -55,7 +55,42 @@ public interface ImportableArchiveConfig extends ArchiveConfig
      */
     public SampleMode getSampleMode(boolean monitor, double sample_value, double period) throws Exception;
 
+    /**
+     * Get the sample mode indicated by the monitor, sample value, period and sample reduction.
+     * Configurations that only support the basic sample modes keep this default.
+     */
+    @SuppressWarnings("nls")
+    public default SampleMode getSampleMode(boolean monitor, double sample_value, double period,
+            SampleMode.Reduction reduction) throws Exception
+    {
+        if (reduction != SampleMode.Reduction.NONE)
+            throw new Exception("Sample reduction " + reduction + " is not supported by " + getClass().getSimpleName());
+        return getSampleMode(monitor, sample_value, period);
+    }
+
     /** Set the enabling channel for this group configuration */
     public void setEnablingChannel(GroupConfig group, ChannelConfig channel) throws Exception;
 
+    /**
+     * Start importing a complete engine configuration.
+     * Until {@link #endImport()} or {@link #abortImport()}, implementations may buffer
+     * the added groups and channels and write them in batches.
+     */
+    public default void startImport() throws Exception
+    {
+        // NOP
+    }
+
+    /** Write all buffered changes of a successful import and commit them */
+    public default void endImport() throws Exception
+    {
+        // NOP
+    }
+
+    /** Discard all buffered and uncommitted changes of a failed import */
+    public default void abortImport() throws Exception
+    {
+        // NOP
+    }
+
 }
@@ -13,12 +13,35 @@ package org.csstudio.archive.config;
 @SuppressWarnings("nls")
 public class SampleMode
 {
+    /** Sample reduction that the engine applies to monitored values */
+    public enum Reduction
+    {
+        /** Store every received update, or updates beyond the 'delta' threshold */
+        NONE,
+
+        /** Store updates that differ from the last stored value
+         *  by more than 'delta' percent
+         */
+        DEADBAND,
+
+        /** Swinging door compression:
+         *  Store only the samples needed to reconstruct all received values
+         *  by linear interpolation within an error bound of 'delta'
+         */
+        SWINGING_DOOR,
+
+        /** Store the minimum, maximum and mean of each 'period' */
+        AGGREGATE
+    }
+
     final private boolean monitor;
 
     final private double delta;
 
     final private double period;
 
+    final private Reduction reduction;
+
     /** Initialize
      *  @param monitor Monitor/subscription or active scan?
      *  @param delta Value change threshold
@@ -26,7 +49,22 @@ public class SampleMode
      */
     public SampleMode(final boolean monitor, final double delta, final double period)
     {
+        this(monitor, delta, period, Reduction.NONE);
+    }
+
+    /** Initialize
+     *  @param monitor Monitor/subscription or active scan?
+     *  @param delta Value change threshold, deadband in percent or error bound, depending on reduction
+     *  @param period (Expected) update period resp. aggregation period in seconds
+     *  @param reduction Sample reduction for monitored mode
+     */
+    public SampleMode(final boolean monitor, final double delta, final double period,
+                      final Reduction reduction)
+    {
+        if (reduction != Reduction.NONE  &&  !monitor)
+            throw new IllegalArgumentException("Sample reduction " + reduction + " requires monitored mode");
         this.monitor = monitor;
+        this.reduction = reduction;
         this.delta = delta;
         // Enforce minimum sample period.
         // Must be >0 to avoid divide-by-0 and other errors
@@ -44,12 +82,20 @@ public class SampleMode
         return monitor;
     }
 
-    /** @return Sample delta for monitored mode */
+    /** @return Sample delta for monitored mode,
+     *          deadband in percent or error bound, depending on reduction
+     */
     public double getDelta()
     {
         return delta;
     }
 
+    /** @return Sample reduction for monitored mode */
+    public Reduction getReduction()
+    {
+        return reduction;
+    }
+
     /** @return Scan period resp. expected monitor period in seconds */
     public double getPeriod()
     {
@@ -62,6 +108,12 @@ public class SampleMode
     {
         if (monitor)
         {
+            if (reduction == Reduction.DEADBAND)
+                return "Monitor [deadband " + delta + " %] @ min. period " + period + " sec";
+            if (reduction == Reduction.SWINGING_DOOR)
+                return "Monitor [swinging door " + delta + "] @ min. period " + period + " sec";
+            if (reduction == Reduction.AGGREGATE)
+                return "Monitor [min/max/mean] @ " + period + " sec";
             if (delta > 0.0)
                 return "Monitor [threshold " + delta + "] @ min. period " + period + " sec";
             else
@@ -75,7 +75,13 @@ public class XMLExport
         out.print("<name>" + channel.getName() + "</name>");
         final SampleMode mode = channel.getSampleMode();
         out.print("<period>" + SecondsParser.formatSeconds(mode.getPeriod()) + "</period>");
-        if (mode.isMonitor())
+        if (mode.getReduction() == SampleMode.Reduction.DEADBAND)
+            out.print("<deadband>" + mode.getDelta() + "</deadband>");
+        else if (mode.getReduction() == SampleMode.Reduction.SWINGING_DOOR)
+            out.print("<swinging_door>" + mode.getDelta() + "</swinging_door>");
+        else if (mode.getReduction() == SampleMode.Reduction.AGGREGATE)
+            out.print("<aggregate/>");
+        else if (mode.isMonitor())
         {
             if (mode.getDelta() != 0.0)
                 out.print("<monitor>" + mode.getDelta() + "</monitor>");
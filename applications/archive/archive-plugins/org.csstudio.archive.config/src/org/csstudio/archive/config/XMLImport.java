@@ -46,6 +46,15 @@ public class XMLImport extends DefaultHandler
     /** XML tag */
     final private static String TAG_SCAN = "scan";
 
+    /** XML tag */
+    final private static String TAG_DEADBAND = "deadband";
+
+    /** XML tag */
+    final private static String TAG_SWINGING_DOOR = "swinging_door";
+
+    /** XML tag */
+    final private static String TAG_AGGREGATE = "aggregate";
+
     /** XML tag */
     final private static String TAG_DISABLE = "disable";
 
@@ -98,6 +107,9 @@ public class XMLImport extends DefaultHandler
     /** Most recent sample mode value, for example the optional monitor delta */
     private double sample_value;
 
+    /** Most recent sample reduction, from 'deadband', 'swinging_door' or 'aggregate' tag */
+    private SampleMode.Reduction reduction;
+
     /** Is current channel enabling the group ? */
     private boolean is_enabling;
 
@@ -110,6 +122,9 @@ public class XMLImport extends DefaultHandler
     /** Most recent 'retain' tag (contents) */
     private String retain = null;
 
+    /** Number of channels that were added */
+    private int channel_count = 0;
+
     /**
      * Initialize
      *
@@ -134,7 +149,31 @@ public class XMLImport extends DefaultHandler
         engine = config.createEngine(engine_name, description, engine_url);
 
         final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
-        parser.parse(stream, this);
+        config.startImport();
+        try
+        {
+            parser.parse(stream, this);
+        }
+        catch (Exception ex)
+        {
+            // Keep the original error, not a follow-up error of the abort
+            try
+            {
+                config.abortImport();
+            }
+            catch (Exception abort_ex)
+            {
+                ex.addSuppressed(abort_ex);
+            }
+            throw ex;
+        }
+        config.endImport();
+    }
+
+    /** @return Number of channels that were added */
+    public int getChannelCount()
+    {
+        return channel_count;
     }
 
     /**
@@ -196,6 +235,7 @@ public class XMLImport extends DefaultHandler
             period = 1.0;
             sample_value = 0.0;
             monitor = false;
+            reduction = SampleMode.Reduction.NONE;
             is_enabling = false;
         }
         else if (element.equals(TAG_RETAIN))
@@ -290,6 +330,28 @@ public class XMLImport extends DefaultHandler
         {
             checkStateForTag(State.CHANNEL, element);
             monitor = false;
+            reduction = SampleMode.Reduction.NONE;
+        }
+        else if (element.equals(TAG_DEADBAND))
+        {
+            checkStateForTag(State.CHANNEL, element);
+            sample_value = parseReductionValue(element);
+            monitor = true;
+            reduction = SampleMode.Reduction.DEADBAND;
+        }
+        else if (element.equals(TAG_SWINGING_DOOR))
+        {
+            checkStateForTag(State.CHANNEL, element);
+            sample_value = parseReductionValue(element);
+            monitor = true;
+            reduction = SampleMode.Reduction.SWINGING_DOOR;
+        }
+        else if (element.equals(TAG_AGGREGATE))
+        {
+            checkStateForTag(State.CHANNEL, element);
+            sample_value = 0.0;
+            monitor = true;
+            reduction = SampleMode.Reduction.AGGREGATE;
         }
         else if (element.equals(TAG_ENABLE))
         {
@@ -336,8 +398,11 @@ public class XMLImport extends DefaultHandler
                     }
                 }
 
-                final SampleMode mode = config.getSampleMode(monitor, sample_value, period);
+                final SampleMode mode = reduction == SampleMode.Reduction.NONE
+                    ? config.getSampleMode(monitor, sample_value, period)
+                    : config.getSampleMode(monitor, sample_value, period, reduction);
                 final ChannelConfig channel = config.addChannel(group, name, mode);
+                ++channel_count;
                 if (is_enabling)
                 {
                     config.setEnablingChannel(group, channel);
@@ -373,6 +438,26 @@ public class XMLImport extends DefaultHandler
         // else: Ignore the unknown element
     }
 
+    /** @param tag Current sample reduction tag
+     *  @return Deadband or error bound of the tag
+     *  @throws SAXException on error
+     */
+    private double parseReductionValue(final String tag) throws SAXException
+    {
+        final String arg = accumulator.toString().trim();
+        try
+        {
+            final double value = Double.parseDouble(arg);
+            if (value > 0.0)
+                return value;
+        }
+        catch (NumberFormatException ex)
+        {
+            // Fall through to error
+        }
+        throw new XMLImportException("Invalid '" + tag + "' value '" + arg + "' for channel " + name);
+    }
+
     /** Check if we are in the correct state
      *  @param expected Expected state
      *  @param tag Current tag
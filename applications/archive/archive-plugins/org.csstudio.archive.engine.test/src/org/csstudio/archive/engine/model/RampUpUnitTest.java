@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link RampUp}
+ */
+@SuppressWarnings("nls")
+public class RampUpUnitTest
+{
+    private static long run(final double rate, final int count) throws Exception
+    {
+        final long start = System.currentTimeMillis();
+        final RampUp ramp = new RampUp(rate, () -> false);
+        for (int i=0; i<count; ++i)
+            ramp.next();
+        return System.currentTimeMillis() - start;
+    }
+
+    @Test
+    public void testUnlimited() throws Exception
+    {
+        final long ms = run(0, 100000);
+        System.out.println("Unlimited: " + ms + " ms");
+        assertTrue(ms < 500);
+    }
+
+    @Test
+    public void testRate() throws Exception
+    {
+        // 201 events at 1000 per second: Last one is due after 200 ms
+        final long ms = run(1000, 201);
+        System.out.println("1000 per second: " + ms + " ms");
+        assertTrue(ms >= 199);
+        assertTrue(ms < 1000);
+    }
+
+    @Test
+    public void testStop() throws Exception
+    {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final RampUp ramp = new RampUp(10, stop::get);
+        assertTrue(ramp.next());
+        assertTrue(ramp.next());
+        stop.set(true);
+        assertFalse(ramp.next());
+    }
+}
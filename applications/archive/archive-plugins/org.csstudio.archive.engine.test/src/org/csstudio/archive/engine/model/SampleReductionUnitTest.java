@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link SampleReduction} policies
+ *
+ *  <p>Feeds values directly into the policies,
+ *  without PVs or {@link ReducedArchiveChannel}.
+ */
+@SuppressWarnings("nls")
+public class SampleReductionUnitTest
+{
+    private static final Instant START = Instant.parse("2017-01-01T00:00:00Z");
+
+    /** Values written by a policy */
+    private final List<VType> archived = new ArrayList<>();
+
+    private static VType newValue(final double seconds, final double number, final AlarmSeverity severity)
+    {
+        return new ArchiveVNumber(START.plusMillis(Math.round(seconds * 1000)), severity, severity.name(),
+                                  ValueFactory.displayNone(), number);
+    }
+
+    private static VType newValue(final double seconds, final double number)
+    {
+        return newValue(seconds, number, AlarmSeverity.NONE);
+    }
+
+    /** Add value to policy like the {@link ReducedArchiveChannel} */
+    private void add(final SampleReduction reduction, final VType value)
+    {
+        final VType last = archived.isEmpty() ? null : archived.get(archived.size()-1);
+        reduction.add(value, last, archived::add);
+    }
+
+    /** @param seconds Time
+     *  @return Linear interpolation between archived values
+     */
+    private double interpolate(final double seconds)
+    {
+        final Instant time = START.plusMillis(Math.round(seconds * 1000));
+        for (int i=1; i<archived.size(); ++i)
+        {
+            final Instant t1 = VTypeHelper.getTimestamp(archived.get(i));
+            if (t1.isBefore(time))
+                continue;
+            final Instant t0 = VTypeHelper.getTimestamp(archived.get(i-1));
+            final double v0 = VTypeHelper.toDouble(archived.get(i-1));
+            final double v1 = VTypeHelper.toDouble(archived.get(i));
+            final double dt = (t1.toEpochMilli() - t0.toEpochMilli()) / 1000.0;
+            return v0 + (v1 - v0) * (time.toEpochMilli() - t0.toEpochMilli()) / 1000.0 / dt;
+        }
+        throw new IllegalArgumentException("No archived values around " + time);
+    }
+
+    @Test
+    public void testDeadband()
+    {
+        final SampleReduction reduction = new DeadbandReduction(10.0);
+        add(reduction, newValue(0, 100.0));
+        add(reduction, newValue(1, 105.0));
+        add(reduction, newValue(2, 109.0));
+        add(reduction, newValue(3, 111.0));
+        add(reduction, newValue(4, 121.0));
+        add(reduction, newValue(5, Double.NaN));
+        add(reduction, newValue(6, 1.0));
+        add(reduction, newValue(7, 1.05));
+        System.out.println("Deadband: 8 values reduced to " + archived.size());
+        assertEquals(4, archived.size());
+        assertEquals(111.0, VTypeHelper.toDouble(archived.get(1)), 0.0);
+        assertTrue(Double.isNaN(VTypeHelper.toDouble(archived.get(2))));
+        assertEquals(1.0, VTypeHelper.toDouble(archived.get(3)), 0.0);
+    }
+
+    @Test
+    public void testSwingingDoor()
+    {
+        final double error = 0.1;
+        final SampleReduction reduction = new SwingingDoorReduction(error);
+        // Ramp, plateau, noisy sine
+        final List<VType> received = new ArrayList<>();
+        for (int i=0; i<100; ++i)
+            received.add(newValue(i, i * 0.5));
+        for (int i=100; i<200; ++i)
+            received.add(newValue(i, 50.0 + ((i % 2) == 0 ? 0.05 : -0.05)));
+        for (int i=200; i<400; ++i)
+            received.add(newValue(i, 50.0 + 10.0*Math.sin(i / 10.0)));
+        for (VType value : received)
+            add(reduction, value);
+        reduction.flush(archived::add);
+        System.out.println("Swinging door: " + received.size() + " values reduced to " + archived.size());
+
+        // First and last value are archived
+        assertEquals(received.get(0), archived.get(0));
+        assertEquals(received.get(received.size()-1), archived.get(archived.size()-1));
+        // Ramp and plateau need few values, the sine more
+        assertTrue(archived.size() < received.size() / 4);
+        // Interpolation stays within the error bound
+        for (int i=0; i<received.size(); ++i)
+            assertEquals("Value " + i, VTypeHelper.toDouble(received.get(i)), interpolate(i), error + 1e-9);
+    }
+
+    @Test
+    public void testAggregate()
+    {
+        final SampleReduction reduction = new AggregateReduction(10.0);
+        // Period 0..10: 2, 5, 1, 3 with a MINOR alarm
+        add(reduction, newValue(0, 2.0));
+        add(reduction, newValue(1, 5.0));
+        add(reduction, newValue(2, 1.0, AlarmSeverity.MINOR));
+        add(reduction, newValue(3, 3.0));
+        assertEquals(0, archived.size());
+        // Period 10..20: Single value
+        add(reduction, newValue(15, 7.0));
+        // Max, min in time order, then mean at end of period
+        assertEquals(3, archived.size());
+        assertEquals(5.0, VTypeHelper.toDouble(archived.get(0)), 0.0);
+        assertEquals(1.0, VTypeHelper.toDouble(archived.get(1)), 0.0);
+        assertEquals(2.75, VTypeHelper.toDouble(archived.get(2)), 0.0);
+        assertEquals(AlarmSeverity.MINOR, VTypeHelper.getSeverity(archived.get(2)));
+        assertTrue(VTypeHelper.getTimestamp(archived.get(2)).isBefore(START.plusSeconds(10)));
+        assertTrue(VTypeHelper.getTimestamp(archived.get(2)).isAfter(START.plusSeconds(9)));
+
+        // Flush writes the single value of the second period as is
+        reduction.flush(archived::add);
+        assertEquals(4, archived.size());
+        assertEquals(7.0, VTypeHelper.toDouble(archived.get(3)), 0.0);
+        reduction.flush(archived::add);
+        assertEquals(4, archived.size());
+    }
+
+    /** Disconnect within a period, then reconnect in the same period */
+    @Test
+    public void testAggregateDisconnect()
+    {
+        final SampleReduction reduction = new AggregateReduction(10.0);
+        add(reduction, newValue(0, 2.0));
+        add(reduction, newValue(1, 5.0));
+        add(reduction, newValue(2, 1.0));
+        add(reduction, newValue(3, 3.0));
+
+        // Channel flushes, then adds 'disconnected' info
+        reduction.flush(archived::add);
+        assertEquals(3, archived.size());
+        // Mean is stamped at the last received value, not the end of the period
+        assertEquals(2.75, VTypeHelper.toDouble(archived.get(2)), 0.0);
+        assertEquals(START.plusSeconds(3), VTypeHelper.getTimestamp(archived.get(2)));
+        archived.add(newValue(4, Double.NaN, AlarmSeverity.UNDEFINED));
+
+        // Values after reconnect in the same period are not back in time
+        add(reduction, newValue(6, 4.0));
+        add(reduction, newValue(7, 6.0));
+        add(reduction, newValue(8, 5.0));
+        reduction.flush(archived::add);
+        assertEquals(7, archived.size());
+        assertEquals(4.0, VTypeHelper.toDouble(archived.get(4)), 0.0);
+        assertEquals(6.0, VTypeHelper.toDouble(archived.get(5)), 0.0);
+        assertEquals(5.0, VTypeHelper.toDouble(archived.get(6)), 0.0);
+        for (int i=1; i<archived.size(); ++i)
+            assertTrue(VTypeHelper.getTimestamp(archived.get(i)).isAfter(VTypeHelper.getTimestamp(archived.get(i-1))));
+    }
+}
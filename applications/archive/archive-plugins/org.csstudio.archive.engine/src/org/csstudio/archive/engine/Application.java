@@ -237,7 +237,11 @@ public class Application implements IApplication
                 // Run until model gets stopped via HTTPD or #stop()
                 logger.info("Running, CA addr list: "
                     + System.getProperty("com.cosylab.epics.caj.CAJContext.addr_list"));
+                timer.start();
                 model.start();
+                timer.stop();
+                logger.info("Started " + model.getChannelCount() +
+                            " channels in " + timer.toString());
                 while (true)
                 {
                     Thread.sleep(1000);
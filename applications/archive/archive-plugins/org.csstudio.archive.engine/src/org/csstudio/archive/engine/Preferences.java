@@ -58,5 +58,14 @@ public class Preferences
         return prefs.getDouble(Activator.ID, "buffer_reserve", buffer_reserve, null);
     }
 
+    public static double getChannelStartRate()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        final double channel_start_rate = 0.0;
+        if (prefs == null)
+            return channel_start_rate;
+        return prefs.getDouble(Activator.ID, "channel_start_rate", channel_start_rate, null);
+    }
+
 
 }
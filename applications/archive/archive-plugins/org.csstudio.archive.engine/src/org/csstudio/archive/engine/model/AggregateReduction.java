@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import org.csstudio.apputil.time.PeriodFormat;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VType;
+
+/** Sample reduction that writes the minimum, maximum and mean
+ *  of the values received within each period.
+ *
+ *  <p>Periods are aligned to multiples of the period since 1970.
+ *  The minimum and maximum are written as received, in time order.
+ *  When the period contained more values, their mean is written
+ *  using the most severe alarm of the period.
+ *
+ *  <p>The values of a period are written when the first value
+ *  of a later period arrives, with the mean stamped at the end of the period.
+ *  When the channel disconnects, is disabled or stopped within the period,
+ *  or a value that cannot be reduced arrives,
+ *  the mean is stamped at the time of the last received value
+ *  so that it is not ahead of the values that follow.
+ *  Values that are not finite numbers are written as received.
+ */
+@SuppressWarnings("nls")
+public class AggregateReduction implements SampleReduction
+{
+    /** Period in milliseconds */
+    final private long period_ms;
+
+    /** Index of the current period */
+    private long period_index;
+
+    /** Values of the current period */
+    private VType min, max, most_severe, last;
+
+    /** Sum of the values of the current period */
+    private double sum;
+
+    /** Number of values in the current period */
+    private int count = 0;
+
+    /** @param period Aggregation period in seconds */
+    public AggregateReduction(final double period)
+    {
+        period_ms = Math.max(1, Math.round(period * 1000));
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "min/max/mean per " + PeriodFormat.formatSeconds(period_ms / 1000.0);
+    }
+
+    @Override
+    public void add(final VType value, final VType last_archived, final Consumer<VType> archive)
+    {
+        if (! SampleReduction.isReducible(value))
+        {
+            flush(archive, false);
+            archive.accept(value);
+            return;
+        }
+        final Instant time = VTypeHelper.getTimestamp(value);
+        if (last_archived != null  &&
+            VTypeHelper.getTimestamp(last_archived).compareTo(time) >= 0)
+            return; // Back in time, cannot be archived
+        final long index = Math.floorDiv(time.toEpochMilli(), period_ms);
+        if (count > 0  &&  index != period_index)
+            flush(archive, true);
+        final double number = VTypeHelper.toDouble(value);
+        if (count == 0)
+        {
+            period_index = index;
+            min = max = most_severe = value;
+            sum = 0.0;
+        }
+        else
+        {
+            if (number < VTypeHelper.toDouble(min))
+                min = value;
+            if (number > VTypeHelper.toDouble(max))
+                max = value;
+            if (VTypeHelper.getSeverity(value).compareTo(VTypeHelper.getSeverity(most_severe)) > 0)
+                most_severe = value;
+        }
+        last = value;
+        sum += number;
+        ++count;
+    }
+
+    @Override
+    public void flush(final Consumer<VType> archive)
+    {
+        flush(archive, false);
+    }
+
+    /** @param archive Receives the values of the current period
+     *  @param end_of_period Stamp mean at end of period? Otherwise at time of last value
+     */
+    private void flush(final Consumer<VType> archive, final boolean end_of_period)
+    {
+        if (count <= 0)
+            return;
+        int written;
+        if (min == max)
+        {
+            archive.accept(min);
+            written = 1;
+        }
+        else
+        {
+            final boolean min_first = VTypeHelper.getTimestamp(min).isBefore(VTypeHelper.getTimestamp(max));
+            archive.accept(min_first ? min : max);
+            archive.accept(min_first ? max : min);
+            written = 2;
+        }
+        if (count > written)
+        {
+            final Instant time;
+            if (end_of_period)
+                time = Instant.ofEpochMilli((period_index + 1) * period_ms).minusNanos(1);
+            else if (last == min  ||  last == max)
+                // Must be after the value that was just written
+                time = VTypeHelper.getTimestamp(last).plusNanos(1);
+            else
+                time = VTypeHelper.getTimestamp(last);
+            final AlarmSeverity severity = VTypeHelper.getSeverity(most_severe);
+            archive.accept(new ArchiveVNumber(time, severity, VTypeHelper.getMessage(most_severe),
+                                              (Display) last, sum / count));
+        }
+        count = 0;
+        min = max = most_severe = last = null;
+    }
+}
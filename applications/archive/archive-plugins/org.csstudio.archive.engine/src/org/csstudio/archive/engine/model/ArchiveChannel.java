@@ -101,6 +101,12 @@ abstract public class ArchiveChannel extends PVListenerAdapter
     /** Counter for received values (monitor updates) */
     private long received_value_count = 0;
 
+    /** Counter for values added to the sample buffer.
+     *  <p>
+     *  SYNC: Lock on <code>this</code> for access.
+     */
+    private long archived_value_count = 0;
+
     /** Last value in the archive, i.e. the one most recently written.
      *  <p>
      *  SYNC: Lock on <code>this</code> for access.
@@ -288,6 +294,7 @@ abstract public class ArchiveChannel extends PVListenerAdapter
         }
         safe_pv.removeListener(this);
         PVPool.releasePV(safe_pv);
+        flushHeldValues();
         addInfoToBuffer(ValueButcher.createOff());
     }
 
@@ -309,6 +316,20 @@ abstract public class ArchiveChannel extends PVListenerAdapter
         return received_value_count;
     }
 
+    /** @return Count of values added to the sample buffer */
+    final public synchronized long getArchivedValues()
+    {
+        return archived_value_count;
+    }
+
+    /** @return Ratio of received to archived values, 0 if nothing was archived */
+    final public synchronized double getReductionRatio()
+    {
+        if (archived_value_count <= 0)
+            return 0.0;
+        return (double) received_value_count / archived_value_count;
+    }
+
     /** @return Last value written to archive*/
     final public synchronized VType getLastArchivedValue()
     {
@@ -334,6 +355,7 @@ abstract public class ArchiveChannel extends PVListenerAdapter
         synchronized (this)
         {
             received_value_count = 0;
+            archived_value_count = 0;
         }
     }
 
@@ -415,11 +437,22 @@ abstract public class ArchiveChannel extends PVListenerAdapter
         {
             most_recent_value = null;
         }
+        flushHeldValues();
         Activator.getLogger().log(Level.FINE, "Wrote disconnect sample for {0}", getName());
         addInfoToBuffer(ValueButcher.createDisconnected());
         need_first_sample = true;
     }
 
+    /** Called before the channel adds a 'disconnected', 'disabled' or 'off' info sample.
+     *  <p>
+     *  Derived classes that hold back received values must add them to the buffer,
+     *  since they would be back-in-time after the info sample.
+     */
+    protected void flushHeldValues()
+    {
+        // NOP
+    }
+
     /** Add given info value to buffer, tweaking its time stamp if necessary
      *  @param value Value to archive
      *  @return Value that was actually added, which may have adjusted time stamp
@@ -486,6 +519,7 @@ abstract public class ArchiveChannel extends PVListenerAdapter
             }
             // else ...
             last_archived_value = value;
+            ++archived_value_count;
         }
         buffer.add(value);
         if (SampleBuffer.isInErrorState())
@@ -540,7 +574,10 @@ abstract public class ArchiveChannel extends PVListenerAdapter
             }
         }
         else
+        {
+            flushHeldValues();
             addInfoToBuffer(ValueButcher.createDisabled());
+        }
     }
 
     @Override
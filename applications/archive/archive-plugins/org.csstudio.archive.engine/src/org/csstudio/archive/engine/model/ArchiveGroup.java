@@ -121,8 +121,13 @@ public class ArchiveGroup
         return enabled ;
     }
 
-    /** Start all the channels in group */
-    final void start() throws Exception
+    /** Start all the channels in group
+     *  @param ramp Rate limit for starting the channels.
+     *              Channels that are not started because a stop
+     *              was requested remain stopped.
+     *  @throws Exception on error
+     */
+    final void start(final RampUp ramp) throws Exception
     {
         if (is_running)
             return;
@@ -133,7 +138,11 @@ public class ArchiveGroup
             enabling_channel.getEnablement() == Enablement.Enabling)
             enable(false);
         for (ArchiveChannel channel : channels)
+        {
+            if (! ramp.next())
+                break;
             channel.start();
+        }
     }
 
     /** Stop all the channels in group */
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.function.Consumer;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VType;
+
+/** Sample reduction that writes values which differ from the last
+ *  archived value by more than a percentage of that value.
+ *
+ *  <p>Unlike the absolute delta of the {@link DeltaArchiveChannel},
+ *  the deadband scales with the magnitude of the value.
+ *  Values that are not finite numbers are always written.
+ */
+@SuppressWarnings("nls")
+public class DeadbandReduction implements SampleReduction
+{
+    /** Deadband in percent */
+    final private double percent;
+
+    /** @param percent Deadband in percent of the last archived value */
+    public DeadbandReduction(final double percent)
+    {
+        this.percent = percent;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "deadband " + percent + " %";
+    }
+
+    @Override
+    public void add(final VType value, final VType last_archived, final Consumer<VType> archive)
+    {
+        if (! SampleReduction.isReducible(value)  ||
+            ! SampleReduction.isReducible(last_archived))
+        {
+            archive.accept(value);
+            return;
+        }
+        final double previous = VTypeHelper.toDouble(last_archived);
+        final double number = VTypeHelper.toDouble(value);
+        if (Math.abs(number - previous) > Math.abs(previous) * percent / 100.0)
+            archive.accept(value);
+    }
+
+    @Override
+    public void flush(final Consumer<VType> archive)
+    {
+        // Nothing held back
+    }
+}
@@ -103,6 +103,9 @@ public class EngineModel
     /** Samples with time stamps this far ahead of the local time are ignored */
     final private static long ignored_future = Preferences.getIgnoredFutureSecs();
 
+    /** Channels per second to start, 0 for no limit */
+    final private static double channel_start_rate = Preferences.getChannelStartRate();
+
     /** Construct model that writes to archive */
     public EngineModel()
     {
@@ -276,8 +279,15 @@ public class EngineModel
         if (buffer_capacity < buffer_reserve)
             buffer_capacity = (int)buffer_reserve;
 
+        if (sample_mode.getReduction() == SampleMode.Reduction.AGGREGATE)
+            buffer_capacity *= 3; // Min, max and mean per period
+
         // Create new channel
-        if (sample_mode.isMonitor())
+        if (sample_mode.getReduction() != SampleMode.Reduction.NONE)
+            channel = new ReducedArchiveChannel(name, retention, enablement,
+                    buffer_capacity, last_sample, sample_mode.getPeriod(),
+                    ReducedArchiveChannel.createReduction(sample_mode));
+        else if (sample_mode.isMonitor())
         {
             if (sample_mode.getDelta() > 0)
                 channel = new DeltaArchiveChannel(name, retention, enablement,
@@ -314,12 +324,12 @@ public class EngineModel
         start_time = Instant.now();
         state = State.RUNNING;
         writer.start(write_period, batch_size);
+        // Ramp checks for stop request before starting each channel
+        final RampUp ramp = new RampUp(channel_start_rate,
+                                       () -> state == State.SHUTDOWN_REQUESTED);
         for (ArchiveGroup group : groups)
         {
-            group.start();
-            // Check for stop request.
-            // Unfortunately, we don't check inside group.start(),
-            // which could have run for some time....
+            group.start(ramp);
             if (state == State.SHUTDOWN_REQUESTED)
                 break;
         }
@@ -424,14 +434,20 @@ public class EngineModel
             throw new Exception("Engine running on port " + port +
                 " while configuration requires " + engine.getURL().toString());
 
-        // Get groups
-        final GroupConfig[] engine_groups = config.getGroups(engine);
-        for (GroupConfig group_config : engine_groups)
+        // Get groups, each followed by its channels
+        config.readEngineConfig(engine, skip_last, new ArchiveConfig.EngineConfigHandler()
         {
-            final ArchiveGroup group = addGroup(group_config.getName());
-            // Add channels to group
-            final ChannelConfig[] channel_configs = config.getChannels(group_config, skip_last);
-            for (ChannelConfig channel_config : channel_configs)
+            private ArchiveGroup group;
+
+            @Override
+            public void handleGroup(final GroupConfig group_config) throws Exception
+            {
+                group = addGroup(group_config.getName());
+            }
+
+            @Override
+            public void handleChannel(final GroupConfig group_config, final ChannelConfig channel_config)
+                    throws Exception
             {
                 Enablement enablement = Enablement.Passive;
                 if (channel_config.getName().equals(group_config.getEnablingChannel()))
@@ -441,7 +457,7 @@ public class EngineModel
                 addChannel(channel_config.getName(), channel_config.getRetention(), group, enablement,
                            mode, channel_config.getLastSampleTime());
             }
-        }
+        });
     }
 
     /** Remove all channels and groups. */
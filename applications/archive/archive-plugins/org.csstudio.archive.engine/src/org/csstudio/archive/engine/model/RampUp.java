@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/** Limit the rate at which channels are started,
+ *  so that the PV connections of a large engine
+ *  do not all start at once.
+ */
+class RampUp
+{
+    /** Events per second, 0 for no limit */
+    final private double rate;
+
+    /** Check for a request to stop the ramp */
+    final private BooleanSupplier stop_requested;
+
+    /** Start time [nanos] */
+    final private long start = System.nanoTime();
+
+    /** Number of events so far */
+    private long count = 0;
+
+    /** @param rate Events per second, 0 for no limit
+     *  @param stop_requested Check for a request to stop, called for each event
+     */
+    RampUp(final double rate, final BooleanSupplier stop_requested)
+    {
+        this.rate = rate;
+        this.stop_requested = stop_requested;
+    }
+
+    /** Wait until the next event is permitted
+     *  @return <code>false</code> if stop was requested, so no more events should follow
+     *  @throws InterruptedException when interrupted while waiting
+     */
+    boolean next() throws InterruptedException
+    {
+        if (stop_requested.getAsBoolean())
+            return false;
+        if (rate <= 0)
+            return true;
+        final long due = start + (long) (count++ / rate * 1e9);
+        final long wait = due - System.nanoTime();
+        // Sleeping below a millisecond is not worth it,
+        // let those events pass right away
+        if (wait > 1000000)
+        {
+            TimeUnit.NANOSECONDS.sleep(wait);
+            // Stop may have been requested while waiting
+            return !stop_requested.getAsBoolean();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.logging.Level;
+
+import org.csstudio.apputil.time.PeriodFormat;
+import org.csstudio.archive.config.SampleMode;
+import org.csstudio.archive.engine.Activator;
+import org.diirt.vtype.VType;
+
+/** An ArchiveChannel that stores the incoming values selected
+ *  by a {@link SampleReduction}.
+ */
+@SuppressWarnings("nls")
+public class ReducedArchiveChannel extends ArchiveChannel
+{
+    /** Sample reduction policy.
+     *  <p>
+     *  SYNC: Lock on the policy for access.
+     */
+    final private SampleReduction reduction;
+
+    /** Estimated period of change in seconds */
+    final private double period_estimate;
+
+    /** @param name Name of the channel (PV)
+     *  @param retention Retention policy; may be null for default/not supported
+     *  @param enablement How channel affects its groups
+     *  @param buffer_capacity Size of sample buffer
+     *  @param last_archived_value Last value from storage, or <code>null</code>.
+     *  @param period_estimate Estimated change period [seconds]
+     *  @param reduction Policy that selects the values to store
+     *  @throws Exception On error in PV setup
+     */
+    public ReducedArchiveChannel(final String name,
+                                 final String retention,
+                                 final Enablement enablement,
+                                 final int buffer_capacity,
+                                 final VType last_archived_value,
+                                 final double period_estimate,
+                                 final SampleReduction reduction) throws Exception
+    {
+        super(name, retention, enablement, buffer_capacity, last_archived_value);
+        this.reduction = reduction;
+        this.period_estimate = period_estimate;
+    }
+
+    /** @param sample_mode Sample mode with reduction
+     *  @return {@link SampleReduction} for the sample mode
+     *  @throws Exception if sample mode has no reduction
+     */
+    public static SampleReduction createReduction(final SampleMode sample_mode) throws Exception
+    {
+        switch (sample_mode.getReduction())
+        {
+        case DEADBAND:
+            return new DeadbandReduction(sample_mode.getDelta());
+        case SWINGING_DOOR:
+            return new SwingingDoorReduction(sample_mode.getDelta());
+        case AGGREGATE:
+            return new AggregateReduction(sample_mode.getPeriod());
+        default:
+            throw new Exception("No sample reduction for " + sample_mode);
+        }
+    }
+
+    @Override
+    public String getMechanism()
+    {
+        return "reduced [" + PeriodFormat.formatSeconds(period_estimate) +
+               ", " + reduction.getDescription() + "]";
+    }
+
+    /** Add the values selected by the sample reduction to the buffer. */
+    @Override
+    protected boolean handleNewValue(final VType value)
+    {
+        if (super.handleNewValue(value))
+        {
+            Activator.getLogger().log(Level.FINE, "Wrote first sample for {0}: {1}", new Object[] { getName(), value });
+            return true;
+        }
+        if (! isEnabled())
+            return false;
+        final long archived = getArchivedValues();
+        synchronized (reduction)
+        {
+            reduction.add(value, getLastArchivedValue(), this::archive);
+        }
+        return getArchivedValues() > archived;
+    }
+
+    /** Add values that the sample reduction holds back */
+    @Override
+    protected void flushHeldValues()
+    {
+        synchronized (reduction)
+        {
+            reduction.flush(this::archive);
+        }
+    }
+
+    /** @param value Value selected by the sample reduction */
+    private void archive(final VType value)
+    {
+        Activator.getLogger().log(Level.FINE, "Wrote sample for {0}: {1}", new Object[] { getName(), value });
+        addValueToBuffer(value);
+    }
+}
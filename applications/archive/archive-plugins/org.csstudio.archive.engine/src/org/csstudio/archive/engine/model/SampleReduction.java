@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.util.function.Consumer;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VType;
+
+/** Policy that decides which of the received values
+ *  of a {@link ReducedArchiveChannel} are written to the archive.
+ *
+ *  <p>Policies are called by one thread at a time.
+ *  They may hold back received values until {@link #flush(Consumer)}.
+ */
+public interface SampleReduction
+{
+    /** @return Description of the policy and its parameters */
+    public String getDescription();
+
+    /** Handle a received value
+     *  @param value Received value
+     *  @param last_archived Value most recently written to the archive,
+     *                       maybe by the channel itself, or <code>null</code>
+     *  @param archive Receives each value that should be written, in time order
+     */
+    public void add(VType value, VType last_archived, Consumer<VType> archive);
+
+    /** Write values that are held back,
+     *  called before the channel adds 'disconnected', 'disabled' or 'off' info
+     *  @param archive Receives each value that should be written, in time order
+     */
+    public void flush(Consumer<VType> archive);
+
+    /** @param value Value
+     *  @return <code>true</code> for a finite scalar number that can be reduced
+     */
+    public static boolean isReducible(final VType value)
+    {
+        if (! (value instanceof VNumber))
+            return false;
+        final double number = VTypeHelper.toDouble(value);
+        return !Double.isNaN(number)  &&  !Double.isInfinite(number);
+    }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.engine.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VType;
+
+/** Swinging door compression.
+ *
+ *  <p>Starting at the last archived value, the 'anchor',
+ *  the policy tracks the range of slopes for a line from the anchor
+ *  that passes within the error bound of all values received since.
+ *  The most recent value is held back as long as the line from
+ *  the anchor to that value stays within that range.
+ *  When a new value closes the 'door', the held value is written
+ *  and becomes the new anchor.
+ *
+ *  <p>Linear interpolation between the archived values thus
+ *  reproduces every received value within the error bound.
+ *  A slowly ramping value can be held back for a long time,
+ *  it is written at the latest when the channel disconnects,
+ *  is disabled or stopped.
+ */
+@SuppressWarnings("nls")
+public class SwingingDoorReduction implements SampleReduction
+{
+    /** Error bound */
+    final private double error;
+
+    /** Last archived value from which the door swings, or <code>null</code> */
+    private VType anchor = null;
+
+    /** Most recent value, not written, or <code>null</code> */
+    private VType held = null;
+
+    /** Range of slopes from the anchor that stay within error bound */
+    private double low_slope, high_slope;
+
+    /** @param error Maximum error of the linear interpolation between archived values */
+    public SwingingDoorReduction(final double error)
+    {
+        this.error = error;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return "swinging door " + error;
+    }
+
+    @Override
+    public void add(final VType value, final VType last_archived, final Consumer<VType> archive)
+    {
+        if (! SampleReduction.isReducible(value))
+        {
+            flush(archive);
+            archive.accept(value);
+            anchor = null;
+            return;
+        }
+        if (anchor != last_archived)
+        {   // Channel wrote a value, for example the first value after reconnect,
+            // or a value that we wrote was not accepted
+            held = null;
+            anchor = SampleReduction.isReducible(last_archived) ? last_archived : null;
+            open();
+        }
+        if (anchor == null)
+        {
+            archive.accept(value);
+            anchor = value;
+            open();
+            return;
+        }
+        final double dt = getSeconds(anchor, value);
+        if (dt <= 0.0)
+            return; // Back in time, cannot be archived
+        final double v0 = VTypeHelper.toDouble(anchor);
+        final double v = VTypeHelper.toDouble(value);
+        final double low = Math.max(low_slope, (v - error - v0) / dt);
+        final double high = Math.min(high_slope, (v + error - v0) / dt);
+        final double slope = (v - v0) / dt;
+        if (low <= slope  &&  slope <= high)
+        {   // Line to this value passes all values since the anchor
+            low_slope = low;
+            high_slope = high;
+            held = value;
+            return;
+        }
+        // Door closed: Write the held value, which becomes the new anchor
+        flush(archive);
+        final double dt_held = getSeconds(anchor, value);
+        if (dt_held <= 0.0)
+            return;
+        final double v_held = VTypeHelper.toDouble(anchor);
+        low_slope = (v - error - v_held) / dt_held;
+        high_slope = (v + error - v_held) / dt_held;
+        held = value;
+    }
+
+    @Override
+    public void flush(final Consumer<VType> archive)
+    {
+        if (held == null)
+            return;
+        archive.accept(held);
+        anchor = held;
+        held = null;
+        open();
+    }
+
+    /** Open the door to all slopes */
+    private void open()
+    {
+        low_slope = Double.NEGATIVE_INFINITY;
+        high_slope = Double.POSITIVE_INFINITY;
+    }
+
+    /** @param start Start value
+     *  @param end End value
+     *  @return Seconds between the time stamps of the values
+     */
+    private static double getSeconds(final VType start, final VType end)
+    {
+        final Instant t0 = VTypeHelper.getTimestamp(start);
+        final Instant t1 = VTypeHelper.getTimestamp(end);
+        final Duration span = Duration.between(t0, t1);
+        return span.getSeconds() + span.getNano() * 1e-9;
+    }
+}
@@ -61,6 +61,20 @@ public class HTMLChannelResponse extends AbstractChannelResponse
         html.tableLine(new String[]
         { Messages.HTTP_LastArchivedValue, channel.getLastArchivedValueAsString() });
 
+        html.tableLine(new String[]
+        { Messages.HTTP_ReceivedValues, Long.toString(channel.getReceivedValues()) });
+
+        html.tableLine(new String[]
+        { Messages.HTTP_ArchivedValues, Long.toString(channel.getArchivedValues()) });
+
+        html.tableLine(new String[]
+        {
+            Messages.HTTP_ReductionRatio,
+            channel.getArchivedValues() > 0
+            ? String.format("%.1f : 1", channel.getReductionRatio())
+            : "-"
+        });
+
         html.tableLine(new String[]
         { Messages.HTTP_Enablement, channel.getEnablement().toString() });
 
@@ -73,6 +73,8 @@ public class JSONHelper extends JSONObject {
         JSONchannel.writeObjectEntry(Messages.HTTP_LastArchivedValue, lastValue);
 
         JSONchannel.writeObjectEntry(Messages.HTTP_ReceivedValues, channel.getReceivedValues());
+        JSONchannel.writeObjectEntry(Messages.HTTP_ArchivedValues, channel.getArchivedValues());
+        JSONchannel.writeObjectEntry(Messages.HTTP_ReductionRatio, channel.getReductionRatio());
 
         JSONchannel.writeObjectEntry(Messages.HTTP_State, channel.isEnabled());
 
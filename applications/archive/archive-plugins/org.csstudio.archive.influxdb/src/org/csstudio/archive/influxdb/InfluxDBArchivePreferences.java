@@ -7,6 +7,11 @@
  ******************************************************************************/
 package org.csstudio.archive.influxdb;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+
 import org.csstudio.security.preferences.SecurePreferences;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
@@ -29,6 +34,7 @@ public class InfluxDBArchivePreferences
     public static final String DFLT_DB = "default_db";
     public static final String DFLT_META_DB = "default_meta_db";
     public static final String DB_PREFIX = "db_prefix";
+    public static final String ROLLUP_TIERS = "rollup_tiers";
 
     public static String getDBName() {
         final String ret = getString(DFLT_DB);
@@ -78,6 +84,23 @@ public class InfluxDBArchivePreferences
         return prefs.getInt(Activator.ID, TIMEOUT, 0, null);
     }
 
+    /** @return Rollup tiers, sorted from fine to coarse. Empty to disable rollups */
+    public static List<Duration> getRollupTiers()
+    {
+        String spec = getString(ROLLUP_TIERS);
+        if (spec == null)
+            spec = "1m, 15m, 1h";
+        try
+        {
+            return InfluxDBRollups.parseTiers(spec);
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Ignoring " + ROLLUP_TIERS + " '" + spec + "'", ex);
+            return Collections.emptyList();
+        }
+    }
+
     /** Get string preference
      *  @param key Preference key
      *  @return String or <code>null</code>
@@ -380,6 +380,50 @@ public class InfluxDBQueries
                 dbnames.getDataDBName(channel_name));
     }
 
+    ///////////////////////////// ROLLUP QUERIES
+
+    private static String getRollupFromClause(final String channel_name, final Duration tier)
+    {
+        return '"' + InfluxDBRollups.getMeasurement(channel_name, tier) + '"';
+    }
+
+    public QueryResult get_oldest_rollup_sample(final String channel_name, final Duration tier) throws Exception
+    {
+        return makeQuery(
+                influxdb,
+                get_channel_points("*", getRollupFromClause(channel_name, tier), null, null, null, null, 1L),
+                dbnames.getDataDBName(channel_name));
+    }
+
+    public QueryResult get_newest_rollup_samples(final String channel_name, final Duration tier, final Instant starttime,
+            final Instant endtime, Long num) throws Exception
+    {
+        return makeQuery(
+                influxdb,
+                get_channel_points("*", getRollupFromClause(channel_name, tier), starttime, endtime, null, null, -num),
+                dbnames.getDataDBName(channel_name));
+    }
+
+    public QueryResult get_newest_rollup_count_in_intervals(final String channel_name, final Duration tier, final Instant starttime,
+            final Instant endtime, Long numIntervals, Long numResults) throws Exception
+    {
+        // Sum of the sample counts stored in the rollup points of each interval
+        return makeQuery(
+                influxdb,
+                get_channel_points("SUM(/^" + InfluxDBRollups.COUNT + "/)", getRollupFromClause(channel_name, tier), starttime, endtime, null,
+                        getGroupByTimeClause(starttime, endtime, numIntervals), -numResults),
+                dbnames.getDataDBName(channel_name));
+    }
+
+    public void chunk_get_rollup_samples(final int chunkSize, final String channel_name, final Duration tier,
+            final Instant starttime, final Instant endtime, Consumer<QueryResult> consumer) throws Exception
+    {
+        makeChunkQuery(
+                chunkSize, consumer, influxdb,
+                get_channel_points("*", getRollupFromClause(channel_name, tier), starttime, endtime, null, null, null),
+                dbnames.getDataDBName(channel_name));
+    }
+
     ///////////////////////////// META DATA ARCHIVE QUERIES
 
     public QueryResult get_newest_meta_data(final String channel_name, final Instant starttime, final Instant endtime,
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.influxdb;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Rollup tiers
+ *
+ *  <p>The writer maintains statistics (mean, min, max, stddev, count)
+ *  of each numeric channel over fixed time buckets, for example
+ *  1 minute, 15 minutes and 1 hour.
+ *  Each tier is stored as a separate measurement
+ *  "<i>channel</i>__rollup_<i>seconds</i>s" in the data database,
+ *  one point per bucket, time stamped with the start of the bucket.
+ *
+ *  <p>The fields use the names of the statistics queries,
+ *  for example "mean_double.0", "count_double.0",
+ *  so the reader can decode them like the result of
+ *  a "GROUP BY time(..)" query over raw samples.
+ *
+ *  <p>Rollups are not stored as retention policies of the channel measurement,
+ *  because the raw data queries read from all retention policies.
+ */
+@SuppressWarnings("nls")
+public class InfluxDBRollups
+{
+    /** Suffix added to channel name for rollup measurement */
+    final private static String SUFFIX = "__rollup_";
+
+    /** Field prefixes of the statistics */
+    final public static String MEAN = "mean_", MIN = "min_", MAX = "max_", STDDEV = "stddev_", COUNT = "count_";
+
+    /** @param channel_name Channel name
+     *  @param tier Duration of rollup buckets
+     *  @return Name of the measurement for the rollup tier
+     */
+    public static String getMeasurement(final String channel_name, final Duration tier)
+    {
+        return channel_name + SUFFIX + tier.getSeconds() + "s";
+    }
+
+    /** @param stamp Time stamp
+     *  @param tier Duration of rollup buckets
+     *  @return Start of the bucket that contains the time stamp
+     */
+    public static Instant getBucketStart(final Instant stamp, final Duration tier)
+    {
+        final long secs = tier.getSeconds();
+        return Instant.ofEpochSecond(Math.floorDiv(stamp.getEpochSecond(), secs) * secs);
+    }
+
+    /** Parse tier specification
+     *  @param spec Comma-separated durations like "1m, 15m, 1h",
+     *              using units 's', 'm', 'h' or 'd'
+     *  @return Tiers sorted from fine to coarse
+     *  @throws Exception on error
+     */
+    public static List<Duration> parseTiers(final String spec) throws Exception
+    {
+        final List<Duration> tiers = new ArrayList<>();
+        if (spec == null)
+            return tiers;
+        for (String item : spec.split(","))
+        {
+            item = item.trim();
+            if (item.isEmpty())
+                continue;
+            final long number;
+            try
+            {
+                number = Long.parseLong(item.substring(0, item.length()-1).trim());
+            }
+            catch (NumberFormatException ex)
+            {
+                throw new Exception("Invalid rollup tier '" + item + "'");
+            }
+            final Duration tier;
+            switch (item.charAt(item.length()-1))
+            {
+            case 's': tier = Duration.ofSeconds(number);  break;
+            case 'm': tier = Duration.ofMinutes(number);  break;
+            case 'h': tier = Duration.ofHours(number);    break;
+            case 'd': tier = Duration.ofDays(number);     break;
+            default:
+                throw new Exception("Invalid unit in rollup tier '" + item + "'");
+            }
+            if (tier.getSeconds() <= 0)
+                throw new Exception("Invalid rollup tier '" + item + "'");
+            if (! tiers.contains(tier))
+                tiers.add(tier);
+        }
+        Collections.sort(tiers);
+        return tiers;
+    }
+
+    /** Select rollup tier for a request
+     *
+     *  <p>The selected tier may have more buckets than 'count' in the time range.
+     *  Use {@link #getSampleDuration(Duration, Instant, Instant, long)}
+     *  to merge them into at most 'count' samples.
+     *
+     *  @param tiers Available tiers, sorted from fine to coarse
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Desired number of samples
+     *  @return Coarsest tier that still provides at least 'count' buckets in the time range,
+     *          or <code>null</code> if even the finest tier is too coarse
+     */
+    public static Duration selectTier(final List<Duration> tiers, final Instant start, final Instant end, final long count)
+    {
+        if (count <= 0)
+            return null;
+        final Duration bucket = Duration.between(start, end).dividedBy(count);
+        for (int i=tiers.size()-1; i>=0; --i)
+            if (tiers.get(i).compareTo(bucket) <= 0)
+                return tiers.get(i);
+        return null;
+    }
+
+    /** Determine duration of the samples returned for a request
+     *
+     *  <p>Consecutive buckets of the tier are merged into samples
+     *  that span a multiple of the tier, long enough for the time range
+     *  to hold no more than 'count' of them.
+     *  Since samples are aligned to multiples of their duration,
+     *  the time range may touch one more sample.
+     *
+     *  @param tier Tier selected by {@link #selectTier(List, Instant, Instant, long)}
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Desired number of samples
+     *  @return Duration of the returned samples, a multiple of the tier
+     */
+    public static Duration getSampleDuration(final Duration tier, final Instant start, final Instant end, final long count)
+    {
+        final long range = Duration.between(start, end).toNanos();
+        final long nanos = tier.toNanos();
+        final long buckets = (range + nanos*count - 1) / (nanos*count);
+        return tier.multipliedBy(Math.max(1, buckets));
+    }
+
+    /** Check if a rollup tier covers the time range
+     *  @param queries Queries
+     *  @param channel_name Channel name
+     *  @param tier Rollup tier
+     *  @param rollup_starttime Start of the first bucket
+     *  @param end End time
+     *  @return Time of the last rollup point in the range,
+     *          or <code>null</code> if the tier does not have data from the start of the range,
+     *          for example because the data was written before rollups were enabled
+     *  @throws Exception on error
+     */
+    public static Instant getRollupEndTime(final InfluxDBQueries queries, final String channel_name, final Duration tier,
+            final Instant rollup_starttime, final Instant end) throws Exception
+    {
+        final Instant oldest = InfluxDBResults.getTimestamp(queries.get_oldest_rollup_sample(channel_name, tier));
+        if (oldest == null  ||  oldest.isAfter(rollup_starttime))
+            return null;
+        return InfluxDBResults.getTimestamp(queries.get_newest_rollup_samples(channel_name, tier, rollup_starttime, end, 1L));
+    }
+}
@@ -0,0 +1,134 @@
+package org.csstudio.archive.reader.appliance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.reader.appliance.testClasses.TestApplianceServer;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.diirt.vtype.AlarmSeverity;
+import org.junit.Test;
+
+/**
+ *
+ * <code>ApplianceArchiveReaderHttpTest</code> tests the data retrieval over http, using a local stand-in for the
+ * appliance that serves canned pb data. The stand-in takes some time for each request, so that the test also shows
+ * the effect of sending the requests for many pvs in parallel.
+ *
+ */
+public class ApplianceArchiveReaderHttpTest {
+
+    private static final int PVS = 24;
+    private static final long DELAY = 50;
+
+    private static final Instant YEAR_START = LocalDate.of(TestApplianceServer.YEAR, 1, 1)
+        .atStartOfDay().toInstant(ZoneOffset.UTC);
+
+    /**
+     * Reads the raw data of the given number of pvs concurrently, as done by the data browser or the export when
+     * loading many pvs.
+     *
+     * @param reader the reader to use
+     * @return the time it took in milliseconds
+     * @throws Exception on error
+     */
+    private long readPVs(ApplianceArchiveReader reader) throws Exception {
+        Instant start = YEAR_START;
+        Instant end = YEAR_START.plusSeconds(86400);
+        ExecutorService pool = Executors.newFixedThreadPool(PVS);
+        try {
+            long begin = System.currentTimeMillis();
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < PVS; i++) {
+                final String name = "test:pv" + i;
+                results.add(pool.submit(() -> checkValues(reader.getRawValues(0, name, start, end), name)));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals("Number of values", TestApplianceServer.SAMPLES, result.get().intValue());
+            }
+            return System.currentTimeMillis() - begin;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private int checkValues(ValueIterator iterator, String name) throws Exception {
+        int i = 0;
+        try {
+            while (iterator.hasNext()) {
+                ArchiveVNumber value = (ArchiveVNumber) iterator.next();
+                assertEquals("Value", TestApplianceServer.getValue(name, i), value.getValue().doubleValue(), 0.0);
+                assertEquals("Timestamp", YEAR_START.plusSeconds(TestApplianceServer.FIRST_SECOND + i),
+                    value.getTimestamp());
+                assertEquals("Severity", ApplianceValueIterator.getSeverity(i % 3), value.getAlarmSeverity());
+                assertEquals("Status", String.valueOf(i % 3), value.getAlarmName());
+                assertEquals("Units", "mA", value.getUnits());
+                assertEquals("Upper display limit", 100.0, value.getUpperDisplayLimit().doubleValue(), 0.0);
+                i++;
+            }
+        } finally {
+            iterator.close();
+        }
+        return i;
+    }
+
+    /**
+     * Tests that the requests for different pvs are sent in parallel, limited to the maximum number of concurrent
+     * requests, and that the connections are reused.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelRequests() throws Exception {
+        try (TestApplianceServer server = new TestApplianceServer(DELAY)) {
+            ApplianceArchiveReader reader = new ApplianceArchiveReader(server.getURL(), false, false, 4);
+            long time = readPVs(reader);
+            System.out.println("Read " + PVS + " PVs with 4 concurrent requests in " + time + " ms, using "
+                + server.getConnections() + " connections");
+            assertEquals("Requests", PVS, server.getRequests());
+            assertTrue("Requests in parallel", server.getMaxActive() > 1);
+            assertTrue("Limit of concurrent requests", server.getMaxActive() <= 4);
+            assertTrue("Connections are reused", server.getConnections() < PVS);
+        }
+    }
+
+    /**
+     * Tests that the requests are sent one after the other if the maximum number of concurrent requests is 1, and
+     * compares the time to the parallel requests.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSequentialRequests() throws Exception {
+        try (TestApplianceServer server = new TestApplianceServer(DELAY)) {
+            ApplianceArchiveReader reader = new ApplianceArchiveReader(server.getURL(), false, false, 1);
+            long time = readPVs(reader);
+            System.out.println("Read " + PVS + " PVs with 1 concurrent request in " + time + " ms");
+            assertEquals("Requests", PVS, server.getRequests());
+            assertEquals("Requests one after the other", 1, server.getMaxActive());
+        }
+    }
+
+    /**
+     * Tests the decoding of the alarm severity and status.
+     */
+    @Test
+    public void testAlarm() {
+        assertEquals(AlarmSeverity.NONE, ApplianceValueIterator.getSeverity(0));
+        assertEquals(AlarmSeverity.MAJOR, ApplianceValueIterator.getSeverity(2));
+        assertEquals("5", ApplianceValueIterator.getStatus(5));
+        assertSame("Status strings are reused", ApplianceValueIterator.getStatus(5),
+            ApplianceValueIterator.getStatus(5));
+        assertEquals("1000", ApplianceValueIterator.getStatus(1000));
+    }
+}
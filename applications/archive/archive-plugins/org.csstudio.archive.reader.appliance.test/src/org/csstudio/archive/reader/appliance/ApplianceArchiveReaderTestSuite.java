@@ -19,7 +19,8 @@ import org.junit.runners.Suite.SuiteClasses;
         ApplianceArchiveReaderRawTest.class,
         ApplianceArchiveReaderRawWaveformTest.class,
         ApplianceArchiveReaderOptimizedWaveformTest.class,
-        ApplianceArchiveReaderNewOptimizedTest.class})
+        ApplianceArchiveReaderNewOptimizedTest.class,
+        ApplianceArchiveReaderHttpTest.class})
 public class ApplianceArchiveReaderTestSuite {
 
 }
@@ -0,0 +1,243 @@
+package org.csstudio.archive.reader.appliance.testClasses;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.ByteString;
+
+import edu.stanford.slac.archiverappliance.PB.EPICSEvent.FieldValue;
+import edu.stanford.slac.archiverappliance.PB.EPICSEvent.PayloadInfo;
+import edu.stanford.slac.archiverappliance.PB.EPICSEvent.PayloadType;
+import edu.stanford.slac.archiverappliance.PB.EPICSEvent.ScalarDouble;
+
+/**
+ * <code>TestApplianceServer</code> is a local http stand-in for the appliance retrieval service. It answers every
+ * data request with canned scalar double samples in the pb/http format and keeps the connections alive, so that the
+ * reader can be tested and benchmarked with real http requests, but without an appliance installation.
+ */
+public class TestApplianceServer implements AutoCloseable {
+
+    /** The year of the samples */
+    public static final int YEAR = 2017;
+    /** The number of samples per request */
+    public static final int SAMPLES = 1000;
+    /** The seconds into the year of the first sample */
+    public static final int FIRST_SECOND = 1000;
+
+    private static final byte ESCAPE_CHAR = 0x1B;
+    private static final byte NEWLINE_CHAR = '\n';
+    private static final byte CARRIAGERETURN_CHAR = '\r';
+
+    private final ServerSocket socket;
+    private final long delay;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    /**
+     * Starts the server on a free local port.
+     *
+     * @param delay the time in milliseconds that the server takes for each request, simulating the lookup of the data
+     * @throws IOException if the server could not be started
+     */
+    public TestApplianceServer(long delay) throws IOException {
+        this.delay = delay;
+        socket = new ServerSocket(0);
+        Thread thread = new Thread(this::accept, "TestApplianceServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the url to use for the archive reader
+     */
+    public String getURL() {
+        return "pbraw://localhost:" + socket.getLocalPort() + "/retrieval";
+    }
+
+    /**
+     * @return the number of requests that were answered
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of connections that were opened to the server
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @return the maximum number of requests that were handled at the same time
+     */
+    public int getMaxActive() {
+        return maxActive.get();
+    }
+
+    /**
+     * Returns the value of the sample with the given index for the given pv.
+     *
+     * @param pvName the name of the pv
+     * @param index the index of the sample
+     * @return the value
+     */
+    public static double getValue(String pvName, int index) {
+        return pvName.length() + index * 0.5;
+    }
+
+    /**
+     * Creates the response for the given pv in the pb/http format: a line with the payload info followed by one line
+     * per sample, with the special characters escaped.
+     *
+     * @param pvName the name of the pv
+     * @return the response body
+     * @throws IOException on error
+     */
+    public static byte[] createData(String pvName) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        PayloadInfo info = PayloadInfo.newBuilder()
+            .setType(PayloadType.SCALAR_DOUBLE)
+            .setPvname(pvName)
+            .setYear(YEAR)
+            .addHeaders(FieldValue.newBuilder().setName("EGU").setVal("mA"))
+            .addHeaders(FieldValue.newBuilder().setName("PREC").setVal("2"))
+            .addHeaders(FieldValue.newBuilder().setName("LOPR").setVal("0"))
+            .addHeaders(FieldValue.newBuilder().setName("HOPR").setVal("100"))
+            .build();
+        writeLine(data, info.toByteString());
+        for (int i = 0; i < SAMPLES; i++) {
+            ScalarDouble sample = ScalarDouble.newBuilder()
+                .setSecondsintoyear(FIRST_SECOND + i)
+                .setNano(0)
+                .setVal(getValue(pvName, i))
+                .setSeverity(i % 3)
+                .setStatus(i % 3)
+                .build();
+            writeLine(data, sample.toByteString());
+        }
+        return data.toByteArray();
+    }
+
+    private static void writeLine(OutputStream out, ByteString line) throws IOException {
+        for (byte b : line.toByteArray()) {
+            if (b == ESCAPE_CHAR) {
+                out.write(ESCAPE_CHAR);
+                out.write(1);
+            } else if (b == NEWLINE_CHAR) {
+                out.write(ESCAPE_CHAR);
+                out.write(2);
+            } else if (b == CARRIAGERETURN_CHAR) {
+                out.write(ESCAPE_CHAR);
+                out.write(3);
+            } else {
+                out.write(b);
+            }
+        }
+        out.write(NEWLINE_CHAR);
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                connections.incrementAndGet();
+                Thread thread = new Thread(() -> serve(client), "TestApplianceServer Connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                //closed
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket s = client) {
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+            String request;
+            //keep the connection alive for as many requests as the client sends
+            while ((request = readRequest(in)) != null) {
+                max(active.incrementAndGet());
+                try {
+                    Thread.sleep(delay);
+                    String pvName = getPVName(request);
+                    byte[] body = createData(pvName);
+                    String header = "HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/x-protobuf\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n";
+                    ByteArrayOutputStream response = new ByteArrayOutputStream();
+                    response.write(header.getBytes(StandardCharsets.US_ASCII));
+                    response.write(body);
+                    requests.incrementAndGet();
+                    out.write(response.toByteArray());
+                    out.flush();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            //connection closed by the client
+        }
+    }
+
+    private void max(int value) {
+        int current;
+        do {
+            current = maxActive.get();
+        } while (value > current && !maxActive.compareAndSet(current, value));
+    }
+
+    /**
+     * Reads the request line and headers of the next request.
+     *
+     * @param in the stream to read from
+     * @return the request line or null if the client closed the connection
+     * @throws IOException on error
+     */
+    private static String readRequest(InputStream in) throws IOException {
+        String requestLine = null;
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                if (line.length() == 0) {
+                    return requestLine;
+                }
+                if (requestLine == null) {
+                    requestLine = line.toString();
+                }
+                line.setLength(0);
+            } else if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return null;
+    }
+
+    private static String getPVName(String request) throws IOException {
+        //GET /retrieval/data/getData.raw?pv=name&from=...&to=... HTTP/1.1
+        int start = request.indexOf("pv=") + 3;
+        int end = request.indexOf('&', start);
+        return URLDecoder.decode(request.substring(start, end), "UTF-8");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
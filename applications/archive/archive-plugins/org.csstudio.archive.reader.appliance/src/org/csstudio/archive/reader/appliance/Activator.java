@@ -18,6 +18,7 @@ public class Activator extends Plugin {
 
     private Boolean useStatistics;
     private Boolean useNewOptimizedOperator;
+    private Integer maxConcurrentRequests;
 
     /**
      * The constructor
@@ -86,4 +87,21 @@ public class Activator extends Plugin {
         }
         return useNewOptimizedOperator;
     }
+
+    /**
+     * @return the maximum number of data requests that are concurrently sent to one appliance. Requests for
+     *              different PVs (e.g. when loading many PVs into a plot) are sent in parallel up to this limit
+     */
+    public int getMaxConcurrentRequests() {
+        if (maxConcurrentRequests == null) {
+            final IPreferencesService prefs = Platform.getPreferencesService();
+            if (prefs == null) {
+                maxConcurrentRequests = ApplianceArchiveReaderConstants.DEFAULT_MAX_CONCURRENT_REQUESTS;
+            } else {
+                maxConcurrentRequests = prefs.getInt(Activator.PLUGIN_ID, "maxConcurrentRequests",
+                        ApplianceArchiveReaderConstants.DEFAULT_MAX_CONCURRENT_REQUESTS, null);
+            }
+        }
+        return maxConcurrentRequests;
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package org.csstudio.archive.reader.appliance;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
@@ -12,6 +13,11 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.csstudio.apputil.text.RegExHelper;
 import org.csstudio.archive.reader.ArchiveInfo;
@@ -35,6 +41,9 @@ public class ApplianceArchiveReader implements ArchiveReader, IteratorListener {
     private final String pbrawURL;
     private final boolean useStatistics;
     private final boolean useNewOptimizedOperator;
+    private final Semaphore requests;
+
+    private static ExecutorService executor;
 
     private Map<ApplianceValueIterator, ApplianceArchiveReader> iterators = Collections.synchronizedMap(
                new WeakHashMap<ApplianceValueIterator, ApplianceArchiveReader>());
@@ -63,6 +72,22 @@ public class ApplianceArchiveReader implements ArchiveReader, IteratorListener {
      *              it will fall back to the old system)
      */
     public ApplianceArchiveReader(String url, boolean useStatistics, boolean useNewOptimizedOperator) {
+        this(url, useStatistics, useNewOptimizedOperator, ApplianceArchiveReaderConstants.DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Constructor that sets appliance archiver reader url and other parameters that define how the data loading will
+     * be done.
+     *
+     * @param url appliance archiver reader url (with specific prefix)
+     * @param useStatistics true if statistics type data should be returned when optimized data is requested
+     * @param useNewOptimizedOperator true if the optimized operator should be used when fetching optimized data or
+     *              false the reader should use the old mechanism of loading the number of points and the data
+     *              separately
+     * @param maxConcurrentRequests the maximum number of data requests that are concurrently sent to the appliance
+     */
+    public ApplianceArchiveReader(String url, boolean useStatistics, boolean useNewOptimizedOperator,
+            int maxConcurrentRequests) {
         //if the url ends with /, strip the url of the last character
         if (url.charAt(url.length()-1) == '/') {
             url = url.substring(0,url.length()-1);
@@ -71,6 +96,7 @@ public class ApplianceArchiveReader implements ArchiveReader, IteratorListener {
         this.useNewOptimizedOperator = useNewOptimizedOperator;
         this.pbrawURL = url;
         this.httpURL = pbrawURL.replace("pbraw://", "http://");
+        this.requests = new Semaphore(Math.max(1, maxConcurrentRequests), true);
     }
 
     /* (non-Javadoc)
@@ -239,6 +265,111 @@ public class ApplianceArchiveReader implements ArchiveReader, IteratorListener {
         return new RawDataRetrieval(dataRetrievalURL);
     }
 
+    /**
+     * Requests the data for the given pv from the appliance.
+     * The requests of all iterators are sent concurrently, limited to the maximum number of concurrent requests of
+     * this reader. Once the request has been answered, the data is streamed without holding on to the limit. The
+     * underlying http connections are kept alive and reused for subsequent requests to the same appliance.
+     *
+     * @param pvName the name of the pv as used in the request made to the server
+     * @param start the start of the time window of the data
+     * @param end the end of the time window of the data
+     * @return the data stream or null if there is no data for the pv
+     * @throws InterruptedIOException if the thread was interrupted while waiting to send the request
+     */
+    GenMsgIterator getDataForPV(String pvName, Instant start, Instant end) throws InterruptedIOException {
+        java.sql.Timestamp sqlStartTimestamp = TimestampHelper.toSQLTimestamp(start);
+        java.sql.Timestamp sqlEndTimestamp = TimestampHelper.toSQLTimestamp(end);
+        DataRetrieval dataRetrieval = createDataRetriveal(getDataRetrievalURL());
+        try {
+            requests.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while requesting data for " + pvName);
+        }
+        try {
+            return dataRetrieval.getDataForPV(pvName, sqlStartTimestamp, sqlEndTimestamp);
+        } finally {
+            requests.release();
+        }
+    }
+
+    /**
+     * Requests the data for all given pvs in parallel, for example the same pv with different post processors.
+     * If any of the requests fails, the streams that were already opened are closed.
+     *
+     * @param pvNames the names of the pvs as used in the requests made to the server
+     * @param start the start of the time window of the data
+     * @param end the end of the time window of the data
+     * @return the data streams in the same order as the names; an element is null if there is no data for that pv
+     * @throws IOException if any of the requests failed or the thread was interrupted
+     */
+    GenMsgIterator[] getDataForPVs(String[] pvNames, Instant start, Instant end) throws IOException {
+        ExecutorService pool = getExecutor();
+        @SuppressWarnings("unchecked")
+        Future<GenMsgIterator>[] futures = new Future[pvNames.length];
+        for (int i = 0; i < pvNames.length; i++) {
+            final String pvName = pvNames[i];
+            futures[i] = pool.submit(() -> getDataForPV(pvName, start, end));
+        }
+        GenMsgIterator[] streams = new GenMsgIterator[pvNames.length];
+        Throwable error = null;
+        boolean interrupted = false;
+        //wait for all requests, also after an error, so that none of the opened streams is left behind
+        for (int i = 0; i < futures.length; i++) {
+            while (true) {
+                try {
+                    streams[i] = futures[i].get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            if (error == null) {
+                error = new InterruptedIOException("Interrupted while requesting data for " + pvNames[0]);
+            }
+        }
+        if (error != null) {
+            for (GenMsgIterator stream : streams) {
+                if (stream != null) {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        //ignore, report the original error
+                    }
+                }
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            throw new IOException(error);
+        }
+        return streams;
+    }
+
+    /**
+     * @return the executor that sends the parallel requests
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ApplianceArchiveReader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
     /**
      * Returns data retrieval URL. A data retrieval URL looks like
      * http://domain:port/retrieval/data/getData.raw where /data/getData is
@@ -302,10 +433,7 @@ public class ApplianceArchiveReader implements ArchiveReader, IteratorListener {
      */
     private int getNumberOfPoints(String pvName, Instant start, Instant end) throws IOException {
         String countName = new StringBuilder().append(ApplianceArchiveReaderConstants.OP_NCOUNT).append('(').append(pvName).append(')').toString();
-        DataRetrieval dataRetrieval = createDataRetriveal(getDataRetrievalURL());
-        java.sql.Timestamp sqlStartTimestamp = TimestampHelper.toSQLTimestamp(start);
-        java.sql.Timestamp sqlEndTimestamp = TimestampHelper.toSQLTimestamp(end);
-        GenMsgIterator iterator = dataRetrieval.getDataForPV(countName, sqlStartTimestamp, sqlEndTimestamp);
+        GenMsgIterator iterator = getDataForPV(countName, start, end);
 
         if (iterator != null) {
             try {
@@ -336,10 +464,7 @@ public class ApplianceArchiveReader implements ArchiveReader, IteratorListener {
     private int getNumberOfPointsLegacy(String pvName, Instant start, Instant end) throws IOException {
         int interval = Math.max(1,(int)(end.getEpochSecond() - start.getEpochSecond()));
         String countName = new StringBuilder().append(ApplianceArchiveReaderConstants.OP_COUNT).append(interval).append('(').append(pvName).append(')').toString();
-        DataRetrieval dataRetrieval = createDataRetriveal(getDataRetrievalURL());
-        java.sql.Timestamp sqlStartTimestamp = TimestampHelper.toSQLTimestamp(start);
-        java.sql.Timestamp sqlEndTimestamp = TimestampHelper.toSQLTimestamp(end);
-        GenMsgIterator iterator = dataRetrieval.getDataForPV(countName, sqlStartTimestamp, sqlEndTimestamp);
+        GenMsgIterator iterator = getDataForPV(countName, start, end);
 
         if (iterator != null) {
             try {
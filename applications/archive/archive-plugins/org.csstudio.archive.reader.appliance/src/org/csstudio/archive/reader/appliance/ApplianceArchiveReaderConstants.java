@@ -13,6 +13,8 @@ public class ApplianceArchiveReaderConstants {
     public static final String ARCHIVER_DESCRIPTION = "http://epicsarchiverap.sourceforge.net/";
     /** The version of the appliance reader */
     public static final int VERSION = 1;
+    /** The default maximum number of requests that are concurrently sent to one appliance */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
     /** The path from which the data is collected */
     public static final String RETRIEVAL_PATH = "/data/getData.raw";
     /** The path to retrieve the list of archived PVs from */
@@ -22,7 +22,8 @@ public class ApplianceArchiveReaderFactory implements ArchiveReaderFactory{
         ApplianceArchiveReader result = cache.get(url);
         if( result == null ) {
             final ApplianceArchiveReader reader = new ApplianceArchiveReader(url,
-                    Activator.getDefault().isUseStatistics(), Activator.getDefault().isUseNewOptimizedOperator());
+                    Activator.getDefault().isUseStatistics(), Activator.getDefault().isUseNewOptimizedOperator(),
+                    Activator.getDefault().getMaxConcurrentRequests());
             result = cache.putIfAbsent(url, reader);
           if( result == null ) {
             result = reader;
@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.Iterator;
 
-import org.csstudio.archive.vtype.TimestampHelper;
-import org.epics.archiverappliance.retrieval.client.DataRetrieval;
 import org.epics.archiverappliance.retrieval.client.EpicsMessage;
 import org.epics.archiverappliance.retrieval.client.GenMsgIterator;
 import org.diirt.util.text.NumberFormats;
@@ -74,9 +72,7 @@ public class ApplianceMeanValueIterator extends ApplianceValueIterator {
     private Display determineDisplay(ApplianceArchiveReader reader, String name, Instant time)
             throws ArchiverApplianceInvalidTypeException,IOException {
         //to retrieve the display, request the raw data for the end timestamp
-        java.sql.Timestamp timestamp = TimestampHelper.toSQLTimestamp(time);
-        DataRetrieval dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        GenMsgIterator genMsgIterator = dataRetrieval.getDataForPV(name, timestamp, timestamp);
+        GenMsgIterator genMsgIterator = reader.getDataForPV(name, time, time);
         if (genMsgIterator != null) {
             try {
                 PayloadInfo payloadInfo = null;
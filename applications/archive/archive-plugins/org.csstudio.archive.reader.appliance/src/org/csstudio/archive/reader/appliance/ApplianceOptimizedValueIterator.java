@@ -7,7 +7,6 @@ import java.util.Iterator;
 import org.csstudio.archive.vtype.ArchiveVNumber;
 import org.csstudio.archive.vtype.ArchiveVStatistics;
 import org.csstudio.archive.vtype.TimestampHelper;
-import org.epics.archiverappliance.retrieval.client.DataRetrieval;
 import org.epics.archiverappliance.retrieval.client.EpicsMessage;
 import org.epics.archiverappliance.retrieval.client.GenMsgIterator;
 import org.diirt.util.text.NumberFormats;
@@ -83,9 +82,7 @@ public class ApplianceOptimizedValueIterator extends ApplianceValueIterator {
     private Display determineDisplay(ApplianceArchiveReader reader, String name, Instant time)
             throws ArchiverApplianceInvalidTypeException, IOException {
         // to retrieve the display, request the raw data for the end timestamp
-        java.sql.Timestamp timestamp = TimestampHelper.toSQLTimestamp(time);
-        DataRetrieval dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        GenMsgIterator genMsgIterator = dataRetrieval.getDataForPV(name, timestamp, timestamp);
+        GenMsgIterator genMsgIterator = reader.getDataForPV(name, time, time);
         if (genMsgIterator != null) {
             try {
                 PayloadInfo payloadInfo = null;
@@ -146,7 +143,7 @@ public class ApplianceOptimizedValueIterator extends ApplianceValueIterator {
                 return new ArchiveVStatistics(
                         TimestampHelper.fromSQLTimestamp(message.getTimestamp()),
                         getSeverity(message.getSeverity()),
-                        String.valueOf(message.getStatus()),
+                        getStatus(message.getStatus()),
                         display,
                         message.getNumberAt(0).doubleValue(),
                         message.getNumberAt(2).doubleValue(),
@@ -157,7 +154,7 @@ public class ApplianceOptimizedValueIterator extends ApplianceValueIterator {
                 return new ArchiveVNumber(
                         TimestampHelper.fromSQLTimestamp(message.getTimestamp()),
                         getSeverity(message.getSeverity()),
-                        String.valueOf(message.getStatus()),
+                        getStatus(message.getStatus()),
                         display,
                         message.getNumberAt(0).doubleValue());
             }
@@ -6,7 +6,6 @@ import java.util.Iterator;
 
 import org.csstudio.archive.vtype.ArchiveVStatistics;
 import org.csstudio.archive.vtype.TimestampHelper;
-import org.epics.archiverappliance.retrieval.client.DataRetrieval;
 import org.epics.archiverappliance.retrieval.client.EpicsMessage;
 import org.epics.archiverappliance.retrieval.client.GenMsgIterator;
 import org.diirt.vtype.VType;
@@ -59,50 +58,51 @@ public class ApplianceStatisticsValueIterator extends ApplianceMeanValueIterator
      */
     @Override
     protected void fetchDataInternal(String pvName) throws ArchiverApplianceException {
-        super.fetchDataInternal(pvName);
         int interval = Math.max(1, (int) ((end.getEpochSecond() - start.getEpochSecond()) / requestedPoints));
-        java.sql.Timestamp sqlStartTimestamp = TimestampHelper.toSQLTimestamp(start);
-        java.sql.Timestamp sqlEndTimestamp = TimestampHelper.toSQLTimestamp(end);
-
-        String std = new StringBuilder().append(ApplianceArchiveReaderConstants.OP_STD).append(interval).append('(')
-            .append(pvName).append(')').toString();
-        DataRetrieval dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        stdStream = dataRetrieval.getDataForPV(std, sqlStartTimestamp, sqlEndTimestamp);
-        if (stdStream != null) {
-            stdIterator = stdStream.iterator();
-        } else {
-            throw new ArchiverApplianceException("Could not fetch standard deviation data.");
+        String[] names = new String[] {
+            ApplianceArchiveReaderConstants.OP_MEAN, ApplianceArchiveReaderConstants.OP_STD,
+            ApplianceArchiveReaderConstants.OP_MIN, ApplianceArchiveReaderConstants.OP_MAX,
+            ApplianceArchiveReaderConstants.OP_COUNT };
+        for (int i = 0; i < names.length; i++) {
+            names[i] = new StringBuilder().append(names[i]).append(interval).append('(').append(pvName).append(')')
+                .toString();
         }
 
-        String min = new StringBuilder().append(ApplianceArchiveReaderConstants.OP_MIN).append(interval).append('(')
-            .append(pvName).append(')').toString();
-        dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        minStream = dataRetrieval.getDataForPV(min, sqlStartTimestamp, sqlEndTimestamp);
-        if (minStream != null) {
-            minIterator = minStream.iterator();
-        } else {
-            throw new ArchiverApplianceException("Could not fetch minimum data.");
+        //request all statistics at once instead of waiting for one response after the other
+        GenMsgIterator[] streams;
+        try {
+            streams = reader.getDataForPVs(names, start, end);
+        } catch (IOException e) {
+            throw new ArchiverApplianceException("Could not fetch data.", e);
         }
-
-        String max = new StringBuilder().append(ApplianceArchiveReaderConstants.OP_MAX).append(interval).append('(')
-            .append(pvName).append(')').toString();
-        dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        maxStream = dataRetrieval.getDataForPV(max, sqlStartTimestamp, sqlEndTimestamp);
-        if (maxStream != null) {
-            maxIterator = maxStream.iterator();
-        } else {
-            throw new ArchiverApplianceException("Could not fetch maximum data.");
+        synchronized (this) {
+            mainStream = streams[0];
+            stdStream = streams[1];
+            minStream = streams[2];
+            maxStream = streams[3];
+            countStream = streams[4];
         }
-
-        String count = new StringBuilder().append(ApplianceArchiveReaderConstants.OP_COUNT).append(interval).append('(')
-            .append(pvName).append(')').toString();
-        dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        countStream = dataRetrieval.getDataForPV(count, sqlStartTimestamp, sqlEndTimestamp);
-        if (countStream != null) {
-            countIterator = countStream.iterator();
-        } else {
-            throw new ArchiverApplianceException("Could not fetch count data.");
+        String error = null;
+        if (mainStream == null) {
+            error = "Could not fetch data.";
+        } else if (stdStream == null) {
+            error = "Could not fetch standard deviation data.";
+        } else if (minStream == null) {
+            error = "Could not fetch minimum data.";
+        } else if (maxStream == null) {
+            error = "Could not fetch maximum data.";
+        } else if (countStream == null) {
+            error = "Could not fetch count data.";
+        }
+        if (error != null) {
+            close();
+            throw new ArchiverApplianceException(error);
         }
+        mainIterator = mainStream.iterator();
+        stdIterator = stdStream.iterator();
+        minIterator = minStream.iterator();
+        maxIterator = maxStream.iterator();
+        countIterator = countStream.iterator();
     }
 
     /*
@@ -147,7 +147,7 @@ public class ApplianceStatisticsValueIterator extends ApplianceMeanValueIterator
                 EpicsMessage meanResult = mainIterator.next();
                 return new ArchiveVStatistics(TimestampHelper.fromSQLTimestamp(meanResult.getTimestamp()),
                     getSeverity(meanResult.getSeverity()),
-                    String.valueOf(meanResult.getStatus()),
+                    getStatus(meanResult.getStatus()),
                     display,
                     meanResult.getNumberValue().doubleValue(),
                     minIterator.next().getNumberValue().doubleValue(),
@@ -13,7 +13,6 @@ import org.csstudio.archive.vtype.ArchiveVNumber;
 import org.csstudio.archive.vtype.ArchiveVNumberArray;
 import org.csstudio.archive.vtype.ArchiveVString;
 import org.csstudio.archive.vtype.TimestampHelper;
-import org.epics.archiverappliance.retrieval.client.DataRetrieval;
 import org.epics.archiverappliance.retrieval.client.EpicsMessage;
 import org.epics.archiverappliance.retrieval.client.GenMsgIterator;
 import org.diirt.util.array.ArrayByte;
@@ -54,7 +53,18 @@ public abstract class ApplianceValueIterator implements ValueIterator {
 
     protected boolean closed = false;
 
-    private static Object lock = new Object();
+    /** The payload info from which {@link #infoDisplay} was extracted */
+    private PayloadInfo displayInfo;
+    /** The display extracted from the headers of {@link #displayInfo} */
+    private Display infoDisplay;
+
+    /** The status strings of the common alarm status values */
+    private static final String[] STATUS = new String[32];
+    static {
+        for (int i = 0; i < STATUS.length; i++) {
+            STATUS[i] = String.valueOf(i);
+        }
+    }
 
     /**
      * Constructs a new ApplianceValueIterator.
@@ -90,12 +100,10 @@ public abstract class ApplianceValueIterator implements ValueIterator {
      * @throws ArchiverApplianceException if the data for the pv could not be loaded
      */
     protected void fetchDataInternal(String pvName) throws ArchiverApplianceException {
-        java.sql.Timestamp sqlStartTimestamp = TimestampHelper.toSQLTimestamp(start);
-        java.sql.Timestamp sqlEndTimestamp = TimestampHelper.toSQLTimestamp(end);
-
-        DataRetrieval dataRetrieval = reader.createDataRetriveal(reader.getDataRetrievalURL());
-        synchronized(lock){
-            mainStream = dataRetrieval.getDataForPV(pvName, sqlStartTimestamp, sqlEndTimestamp);
+        try {
+            mainStream = reader.getDataForPV(pvName, start, end);
+        } catch (IOException e) {
+            throw new ArchiverApplianceException("Could not fetch data.", e);
         }
         if (mainStream != null) {
             mainIterator = mainStream.iterator();
@@ -147,14 +155,14 @@ public abstract class ApplianceValueIterator implements ValueIterator {
             return new ArchiveVNumber(
                     TimestampHelper.fromSQLTimestamp(dataMessage.getTimestamp()),
                     getSeverity(dataMessage.getSeverity()),
-                    String.valueOf(dataMessage.getStatus()),
-                    display == null ? getDisplay(mainStream.getPayLoadInfo()) : display,
+                    getStatus(dataMessage.getStatus()),
+                    getDisplay(),
                     dataMessage.getNumberValue());
         } else if (type == PayloadType.SCALAR_ENUM) {
             return new ArchiveVEnum(
                     TimestampHelper.fromSQLTimestamp(dataMessage.getTimestamp()),
                     getSeverity(dataMessage.getSeverity()),
-                    String.valueOf(dataMessage.getStatus()),
+                    getStatus(dataMessage.getStatus()),
                      null, //TODO get the labels from somewhere
                     dataMessage.getNumberValue().intValue());
         } else if (type == PayloadType.SCALAR_STRING) {
@@ -164,7 +172,7 @@ public abstract class ApplianceValueIterator implements ValueIterator {
             return new ArchiveVString(
                     TimestampHelper.fromSQLTimestamp(dataMessage.getTimestamp()),
                     getSeverity(dataMessage.getSeverity()),
-                    String.valueOf(dataMessage.getStatus()),
+                    getStatus(dataMessage.getStatus()),
                     String.valueOf(dataMessage.getMessage().getField(valDescriptor)));
         } else if (type == PayloadType.WAVEFORM_DOUBLE
                 || type == PayloadType.WAVEFORM_FLOAT){
@@ -188,8 +196,8 @@ public abstract class ApplianceValueIterator implements ValueIterator {
             return new ArchiveVNumberArray(
                     TimestampHelper.fromSQLTimestamp(dataMessage.getTimestamp()),
                     getSeverity(dataMessage.getSeverity()),
-                    String.valueOf(dataMessage.getStatus()),
-                    display == null ? getDisplay(mainStream.getPayLoadInfo()) : display,
+                    getStatus(dataMessage.getStatus()),
+                    getDisplay(),
                     val);
         } else if (type == PayloadType.WAVEFORM_INT
                 || type == PayloadType.WAVEFORM_SHORT) {
@@ -207,8 +215,8 @@ public abstract class ApplianceValueIterator implements ValueIterator {
             return new ArchiveVNumberArray(
                     TimestampHelper.fromSQLTimestamp(dataMessage.getTimestamp()),
                     getSeverity(dataMessage.getSeverity()),
-                    String.valueOf(dataMessage.getStatus()),
-                    display == null ? getDisplay(mainStream.getPayLoadInfo()) : display,
+                    getStatus(dataMessage.getStatus()),
+                    getDisplay(),
                     val);
         } else if (type == PayloadType.WAVEFORM_BYTE) {
             if (valDescriptor == null) {
@@ -218,8 +226,8 @@ public abstract class ApplianceValueIterator implements ValueIterator {
             return new ArchiveVNumberArray(
                     TimestampHelper.fromSQLTimestamp(dataMessage.getTimestamp()),
                     getSeverity(dataMessage.getSeverity()),
-                    String.valueOf(dataMessage.getStatus()),
-                    display == null ? getDisplay(mainStream.getPayLoadInfo()) : display,
+                    getStatus(dataMessage.getStatus()),
+                    getDisplay(),
                     new ArrayByte(((ByteString)dataMessage.getMessage().getField(valDescriptor)).toByteArray()));
         }
         throw new UnsupportedOperationException("PV type " + type + " is not supported.");
@@ -263,6 +271,25 @@ public abstract class ApplianceValueIterator implements ValueIterator {
         listener.finished(this);
     }
 
+    /**
+     * Returns the display for the samples of the main stream. The display is either the one that was determined up
+     * front or the one extracted from the headers of the current payload info, which is only parsed again when the
+     * stream moves on to a new payload info.
+     *
+     * @return the display
+     */
+    protected Display getDisplay() {
+        if (display != null) {
+            return display;
+        }
+        PayloadInfo info = mainStream.getPayLoadInfo();
+        if (info != displayInfo) {
+            infoDisplay = getDisplay(info);
+            displayInfo = info;
+        }
+        return infoDisplay;
+    }
+
     /**
      * Extract the display properties (min, max, alarm limits) from the given payloadinfo.
      *
@@ -300,6 +327,20 @@ public abstract class ApplianceValueIterator implements ValueIterator {
     }
 
 
+    /**
+     * Returns the status string for the given numerical status without creating a new string for the common values.
+     *
+     * @param status numerical representation of the alarm status
+     *
+     * @return the status string
+     */
+    protected static String getStatus(int status) {
+        if (status >= 0 && status < STATUS.length) {
+            return STATUS[status];
+        }
+        return String.valueOf(status);
+    }
+
     /**
      * Determines alarm severity from the given numerical representation.
      *
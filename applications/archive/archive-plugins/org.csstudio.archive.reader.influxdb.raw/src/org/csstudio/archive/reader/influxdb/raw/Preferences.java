@@ -26,6 +26,7 @@ public class Preferences
     // final public static String STORED_PROCEDURE = "use_stored_procedure";
     // final public static String STARTTIME_FUNCTION = "use_starttime_function";
     final public static String USE_STD_DEV = "use_std_dev";
+    final public static String PARALLEL_QUERIES = "parallel_queries";
 
     public static int getChunkSize()
     {
@@ -59,6 +60,16 @@ public class Preferences
     // return prefs.getString(Activator.ID, key, default_value, null);
     // }
 
+    /** @return Number of sub-range queries to run in parallel for long raw data requests */
+    public static int getParallelQueries()
+    {
+        int parallel = 4;
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return parallel;
+        return prefs.getInt(Activator.ID, PARALLEL_QUERIES, parallel, null);
+    }
+
     public static boolean getUseStdDev()
     {
         boolean use_std_dev = false;
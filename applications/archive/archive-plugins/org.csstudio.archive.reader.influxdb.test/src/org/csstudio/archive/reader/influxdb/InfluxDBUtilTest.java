@@ -1,11 +1,17 @@
 package org.csstudio.archive.reader.influxdb;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 
 import org.csstudio.archive.influxdb.InfluxDBDataSource;
 import org.csstudio.archive.influxdb.InfluxDBQueries;
+import org.csstudio.archive.influxdb.InfluxDBRollups;
 import org.csstudio.archive.influxdb.InfluxDBSeriesInfo;
 import org.csstudio.archive.influxdb.InfluxDBUtil;
 import org.junit.Test;
@@ -66,4 +72,19 @@ public class InfluxDBUtilTest {
         System.out.println("db = " + ds.getArgRequired("db"));
     }
 
+    @Test
+    public void testRollupTiers() throws Exception {
+        final List<Duration> tiers = InfluxDBRollups.parseTiers("1h, 1m,15m");
+        assertEquals(Arrays.asList(Duration.ofMinutes(1), Duration.ofMinutes(15), Duration.ofHours(1)), tiers);
+        assertEquals("pv__rollup_900s", InfluxDBRollups.getMeasurement("pv", tiers.get(1)));
+
+        final Instant start = Instant.parse("2017-01-19T16:57:11Z");
+        assertEquals(Instant.parse("2017-01-19T16:45:00Z"), InfluxDBRollups.getBucketStart(start, tiers.get(1)));
+
+        // Coarsest tier that still provides 'count' buckets
+        assertEquals(Duration.ofHours(1), InfluxDBRollups.selectTier(tiers, start, start.plus(Duration.ofDays(30)), 500));
+        assertEquals(Duration.ofMinutes(15), InfluxDBRollups.selectTier(tiers, start, start.plus(Duration.ofDays(1)), 50));
+        assertEquals(Duration.ofMinutes(1), InfluxDBRollups.selectTier(tiers, start, start.plus(Duration.ofDays(1)), 800));
+        assertNull(InfluxDBRollups.selectTier(tiers, start, start.plus(Duration.ofHours(1)), 800));
+    }
 }
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ParallelSampleIterator}
+ *
+ *  <p>Uses a simulated archive with one sample per minute
+ *  instead of an InfluxDB server.
+ */
+@SuppressWarnings("nls")
+public class ParallelSampleIteratorUnitTest
+{
+    private static final Instant START = Instant.parse("2017-01-01T00:00:00Z");
+
+    /** Simulated sub-range queries, one sample per minute */
+    private static class SimulatedArchive implements ParallelSampleIterator.SubRangeReader
+    {
+        final AtomicInteger queries = new AtomicInteger(), running = new AtomicInteger(), max_running = new AtomicInteger();
+
+        @Override
+        public ValueIterator read(final Instant start, final Instant end, final boolean preceding) throws Exception
+        {
+            queries.incrementAndGet();
+            max_running.accumulateAndGet(running.incrementAndGet(), Math::max);
+            long sec = start.getEpochSecond();
+            if (preceding)
+                sec -= sec % 60;
+            else
+                sec += (60 - sec % 60) % 60;
+            final long first = sec;
+            return new ValueIterator()
+            {
+                long next = first;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return ! Instant.ofEpochSecond(next).isAfter(end);
+                }
+
+                @Override
+                public VType next() throws Exception
+                {
+                    final VType value = new ArchiveVNumber(Instant.ofEpochSecond(next), AlarmSeverity.NONE, "",
+                                                           ValueFactory.displayNone(), next);
+                    next += 60;
+                    return value;
+                }
+
+                @Override
+                public void close()
+                {
+                    running.decrementAndGet();
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testSubRanges() throws Exception
+    {
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final SimulatedArchive archive = new SimulatedArchive();
+        final Instant end = START.plus(Duration.ofDays(2));
+        final ParallelSampleIterator iter = new ParallelSampleIterator(archive, pool, START.plusSeconds(30), end, 4);
+        assertEquals(16, iter.getSubRangeCount());
+
+        // Samples are complete and in order, without duplicates at the sub-range boundaries
+        long expected = START.getEpochSecond();
+        while (iter.hasNext())
+        {
+            assertEquals(expected, VTypeHelper.getTimestamp(iter.next()).getEpochSecond());
+            expected += 60;
+        }
+        iter.close();
+        assertEquals(end.getEpochSecond() + 60, expected);
+        assertEquals(16, archive.queries.get());
+        assertTrue(archive.max_running.get() <= 4);
+        pool.shutdown();
+    }
+
+    @Test
+    public void testShortRange() throws Exception
+    {
+        assertEquals(1, ParallelSampleIterator.getSubRangeCount(START, START.plus(Duration.ofMinutes(90)), 4));
+        assertEquals(1, ParallelSampleIterator.getSubRangeCount(START, START.plus(Duration.ofDays(10)), 1));
+        assertEquals(3, ParallelSampleIterator.getSubRangeCount(START, START.plus(Duration.ofHours(3)), 4));
+    }
+
+    @Test
+    public void testError() throws Exception
+    {
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final ParallelSampleIterator iter = new ParallelSampleIterator((start, end, preceding) ->
+        {
+            if (preceding)
+                throw new Exception("Test error");
+            return new SimulatedArchive().read(start, end, preceding);
+        }, pool, START, START.plus(Duration.ofDays(1)), 2);
+        assertTrue(iter.hasNext());
+        try
+        {
+            iter.next();
+            fail("Expected error");
+        }
+        catch (Exception ex)
+        {
+            assertEquals("Test error", ex.getMessage());
+        }
+        iter.close();
+        pool.shutdown();
+    }
+
+    @Test(timeout=10000)
+    public void testCancel() throws Exception
+    {
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        // Sub-range that never delivers data
+        final ParallelSampleIterator iter = new ParallelSampleIterator((start, end, preceding) ->
+        {
+            blocked.countDown();
+            return new ValueIterator()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    try
+                    {
+                        Thread.sleep(100000);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        // Ignore
+                    }
+                    return false;
+                }
+
+                @Override
+                public VType next() throws Exception
+                {
+                    return null;
+                }
+
+                @Override
+                public void close()
+                {
+                    // NOP
+                }
+            };
+        }, pool, START, START.plus(Duration.ofDays(1)), 2);
+
+        // Cancel from another thread while hasNext() waits for data
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        pool.execute(() ->
+        {
+            try
+            {
+                Thread.sleep(500);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+            iter.close();
+        });
+        assertFalse(iter.hasNext());
+        pool.shutdownNow();
+    }
+}
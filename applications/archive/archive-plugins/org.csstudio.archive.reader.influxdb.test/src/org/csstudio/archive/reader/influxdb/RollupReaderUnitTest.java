@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.csstudio.archive.influxdb.InfluxDBQueries;
+import org.csstudio.archive.influxdb.InfluxDBRollups;
+import org.csstudio.archive.influxdb.InfluxDBUtil;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.influxdb.InfluxDB;
+import org.influxdb.dto.Query;
+import org.influxdb.dto.QueryResult;
+import org.junit.Test;
+
+/** JUnit test of reading rollup tiers
+ *
+ *  <p>Uses a stand-in for the InfluxDB server
+ *  that answers the time range queries for rollup points.
+ */
+@SuppressWarnings("nls")
+public class RollupReaderUnitTest
+{
+    private static final Instant START = Instant.parse("2017-01-01T00:00:00Z");
+
+    private static final List<Duration> TIERS = Arrays.asList(Duration.ofMinutes(1), Duration.ofMinutes(15), Duration.ofHours(1));
+
+    /** Stand-in InfluxDB with points of rollup measurements
+     *  @param measurements Time stamps of points by measurement name
+     *  @return {@link InfluxDB} that supports "SELECT * FROM .. WHERE time .. LIMIT .." queries
+     */
+    private static InfluxDB createStandIn(final Map<String, List<Instant>> measurements)
+    {
+        final Pattern from = Pattern.compile("FROM \"([^\"]+)\"");
+        final Pattern after = Pattern.compile("time >= (\\d+)");
+        final Pattern before = Pattern.compile("time <= (\\d+)");
+        final Pattern limit = Pattern.compile("(DESC )?LIMIT (\\d+)");
+        return (InfluxDB) Proxy.newProxyInstance(InfluxDB.class.getClassLoader(), new Class<?>[] { InfluxDB.class }, (proxy, method, args) ->
+        {
+            if (! method.getName().equals("query")  ||  args.length != 1)
+                throw new UnsupportedOperationException(method.toString());
+            final String command = ((Query) args[0]).getCommand();
+            Matcher matcher = from.matcher(command);
+            assertTrue(command, matcher.find());
+            final String name = matcher.group(1);
+            final List<Instant> times = new ArrayList<>(measurements.getOrDefault(name, Collections.emptyList()));
+            matcher = after.matcher(command);
+            if (matcher.find())
+            {
+                final long nano = Long.parseLong(matcher.group(1));
+                times.removeIf(time -> InfluxDBUtil.toNanoLong(time) < nano);
+            }
+            matcher = before.matcher(command);
+            if (matcher.find())
+            {
+                final long nano = Long.parseLong(matcher.group(1));
+                times.removeIf(time -> InfluxDBUtil.toNanoLong(time) > nano);
+            }
+            matcher = limit.matcher(command);
+            if (matcher.find())
+            {
+                if (matcher.group(1) != null)
+                    Collections.reverse(times);
+                final int n = Integer.parseInt(matcher.group(2));
+                while (times.size() > n)
+                    times.remove(times.size() - 1);
+            }
+
+            final QueryResult.Series series = new QueryResult.Series();
+            series.setName(name);
+            series.setColumns(Arrays.asList("time"));
+            final List<List<Object>> values = new ArrayList<>();
+            for (Instant time : times)
+                values.add(Arrays.asList(InfluxDBUtil.toInfluxDBTimeFormat(time)));
+            series.setValues(values);
+            final QueryResult.Result result = new QueryResult.Result();
+            result.setSeries(times.isEmpty() ? Collections.emptyList() : Arrays.asList(series));
+            final QueryResult results = new QueryResult();
+            results.setResults(Arrays.asList(result));
+            return results;
+        });
+    }
+
+    /** @param measurements Points of the stand-in InfluxDB
+     *  @return Queries for the stand-in
+     */
+    private static InfluxDBQueries createQueries(final Map<String, List<Instant>> measurements)
+    {
+        return new InfluxDBQueries(createStandIn(measurements), new InfluxDBQueries.DBNameMap()
+        {
+            @Override
+            public String getDataDBName(final String channel_name)
+            {
+                return "data";
+            }
+
+            @Override
+            public String getMetaDBName(final String channel_name)
+            {
+                return "meta";
+            }
+
+            @Override
+            public List<String> getAllDBNames()
+            {
+                return Arrays.asList("data", "meta");
+            }
+        });
+    }
+
+    /** @param time Time stamp
+     *  @param value Value of the only sample in the bucket
+     *  @return Rollup statistics
+     */
+    private static ArchiveVStatistics createBucket(final Instant time, final double value)
+    {
+        return new ArchiveVStatistics(time, AlarmSeverity.NONE, "", ValueFactory.displayNone(),
+                                      value, value, value, 0.0, 1);
+    }
+
+    /** Rollup tier is only used when it has data from the start of the range */
+    @Test
+    public void testRollupEndTime() throws Exception
+    {
+        final Duration tier = Duration.ofMinutes(1);
+        final Map<String, List<Instant>> measurements = new HashMap<>();
+        final InfluxDBQueries queries = createQueries(measurements);
+        final Instant end = START.plus(Duration.ofHours(1));
+
+        // No rollup data at all
+        assertNull(InfluxDBRollups.getRollupEndTime(queries, "pv", tier, START, end));
+
+        // Rollups written from 10 minutes into the range
+        final List<Instant> points = new ArrayList<>();
+        for (int i=10; i<120; ++i)
+            points.add(START.plus(tier.multipliedBy(i)));
+        measurements.put(InfluxDBRollups.getMeasurement("pv", tier), points);
+        assertNull(InfluxDBRollups.getRollupEndTime(queries, "pv", tier, START, end));
+
+        // Rollups that reach back to the start of the range:
+        // Last point at or before the end of the range
+        final Instant later = START.plus(tier.multipliedBy(10));
+        assertEquals(end, InfluxDBRollups.getRollupEndTime(queries, "pv", tier, later, end));
+        assertEquals(end.minusSeconds(60), InfluxDBRollups.getRollupEndTime(queries, "pv", tier, later, end.minusSeconds(1)));
+
+        // Other channels and tiers are not affected
+        assertNull(InfluxDBRollups.getRollupEndTime(queries, "other", tier, later, end));
+        assertNull(InfluxDBRollups.getRollupEndTime(queries, "pv", Duration.ofMinutes(15), later, end));
+    }
+
+    /** Selected tier, merged as needed, returns no more than about 'count' samples */
+    @Test
+    public void testTierSelection() throws Exception
+    {
+        for (Duration range : Arrays.asList(Duration.ofHours(2), Duration.ofHours(20), Duration.ofDays(3), Duration.ofDays(30)))
+            for (int count : new int[] { 10, 50, 99, 800, 1000 })
+            {
+                final Instant end = START.plus(range);
+                final Duration tier = InfluxDBRollups.selectTier(TIERS, START, end, count);
+                if (tier == null)
+                    continue;
+                final Duration duration = InfluxDBRollups.getSampleDuration(tier, START, end, count);
+                assertEquals(0, duration.toNanos() % tier.toNanos());
+
+                // Read all buckets of the tier in the range
+                final RollupMerger merger = new RollupMerger(duration);
+                int samples = 0;
+                for (Instant time = START;  !time.isAfter(end);  time = time.plus(tier))
+                {
+                    merger.add(createBucket(time, 1.0));
+                    while (merger.poll() != null)
+                        ++samples;
+                }
+                merger.flush();
+                while (merger.poll() != null)
+                    ++samples;
+
+                final String info = range + " in " + count + " samples using " + tier + " tier: " + samples;
+                assertTrue(info, samples <= count + 1);
+                assertTrue(info, samples >= count / 2);
+            }
+
+        // Tier matches requested resolution, no need to merge
+        final Instant end = START.plus(Duration.ofDays(1));
+        assertEquals(Duration.ofMinutes(15), InfluxDBRollups.selectTier(TIERS, START, end, 96));
+        assertEquals(Duration.ofMinutes(15), InfluxDBRollups.getSampleDuration(Duration.ofMinutes(15), START, end, 96));
+        // 14 minute buckets requested, uses 1 minute tier merged into 14 minute samples
+        assertEquals(Duration.ofMinutes(1), InfluxDBRollups.selectTier(TIERS, START, START.plus(Duration.ofMinutes(14*100)), 100));
+        assertEquals(Duration.ofMinutes(14), InfluxDBRollups.getSampleDuration(Duration.ofMinutes(1), START, START.plus(Duration.ofMinutes(14*100)), 100));
+        // 14.5 minute buckets use 15 minute samples to stay within 'count'
+        assertEquals(Duration.ofMinutes(15), InfluxDBRollups.getSampleDuration(Duration.ofMinutes(1), START, START.plus(Duration.ofSeconds(870*100)), 100));
+    }
+
+    /** Merged statistics match those of all raw samples */
+    @Test
+    public void testMerge() throws Exception
+    {
+        final Random random = new Random(42);
+        final Duration tier = Duration.ofMinutes(1);
+        final RollupMerger merger = new RollupMerger(Duration.ofMinutes(5));
+        final List<Double> all = new ArrayList<>();
+        for (int bucket=0; bucket<5; ++bucket)
+        {
+            final List<Double> raw = new ArrayList<>();
+            for (int i=0; i<10+bucket; ++i)
+                raw.add(random.nextGaussian() * 3 + bucket);
+            all.addAll(raw);
+            final double[] stats = statistics(raw);
+            merger.add(new ArchiveVStatistics(START.plus(tier.multipliedBy(bucket)),
+                                              bucket == 3 ? AlarmSeverity.MINOR : AlarmSeverity.NONE, bucket == 3 ? "LOW" : "",
+                                              ValueFactory.displayNone(), stats[0], stats[1], stats[2], stats[3], raw.size()));
+            assertNull(merger.poll());
+        }
+        // Value without time stamp completes the merged sample and is passed on
+        final VType other = createBucket(null, 0);
+        merger.add(other);
+        final ArchiveVStatistics merged = (ArchiveVStatistics) merger.poll();
+        assertEquals(other, merger.poll());
+        assertNull(merger.poll());
+
+        final double[] expected = statistics(all);
+        assertEquals(START, merged.getTimestamp());
+        assertEquals(all.size(), merged.getNSamples().intValue());
+        assertEquals(expected[0], merged.getAverage(), 1e-9);
+        assertEquals(expected[1], merged.getMin(), 0.0);
+        assertEquals(expected[2], merged.getMax(), 0.0);
+        assertEquals(expected[3], merged.getStdDev(), 1e-9);
+        assertEquals(AlarmSeverity.MINOR, merged.getAlarmSeverity());
+        assertEquals("LOW", merged.getAlarmName());
+    }
+
+    /** @param values Values
+     *  @return Mean, min, max, standard deviation using N-1
+     */
+    private static double[] statistics(final List<Double> values)
+    {
+        double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (double value : values)
+        {
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final double mean = sum / values.size();
+        double sq = 0;
+        for (double value : values)
+            sq += (value - mean) * (value - mean);
+        return new double[] { mean, min, max, Math.sqrt(sq / (values.size() - 1)) };
+    }
+}
@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.archive.reader.influxdb;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.eclipse.core.runtime.Plugin;
@@ -22,6 +25,9 @@ public class Activator extends Plugin
     final public static String ID = "org.csstudio.archive.reader.influxdb";
 
     private static Activator instance = new Activator();
+
+    /** Thread pool for parallel queries, created on first use */
+    private static ExecutorService thread_pool = null;
     // private final Logger logger;
 
     /** {@inheritDoc} */
@@ -52,6 +58,22 @@ public class Activator extends Plugin
         //        logger.addHandler(handler);
     // }
 
+    /** @return Thread pool for decoding sub-range queries */
+    public static synchronized ExecutorService getThreadPool()
+    {
+        if (thread_pool == null)
+        {
+            final AtomicInteger threads = new AtomicInteger();
+            thread_pool = Executors.newCachedThreadPool(runnable ->
+            {
+                final Thread thread = new Thread(runnable, "InfluxDBReader" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return thread_pool;
+    }
+
     /** @return Logger for plugin ID */
     public static Logger getLogger()
     {
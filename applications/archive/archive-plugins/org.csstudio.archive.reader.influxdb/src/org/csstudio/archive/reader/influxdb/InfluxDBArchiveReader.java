@@ -12,6 +12,11 @@ package org.csstudio.archive.reader.influxdb;
 //import java.sql.ResultSet;
 //import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 
 import org.csstudio.archive.influxdb.InfluxDBArchivePreferences;
@@ -26,6 +31,7 @@ import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.UnknownChannelException;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.reader.influxdb.raw.ConnectionCache;
+import org.csstudio.archive.reader.influxdb.raw.Preferences;
 import org.influxdb.InfluxDB;
 import org.influxdb.dto.QueryResult;
 
@@ -49,6 +55,9 @@ public class InfluxDBArchiveReader implements ArchiveReader
 
     final static private DBNameMap dbnames = new DefaultDBNameMap();
 
+    /** Iterators that run parallel queries, closed on cancel() */
+    final private Set<ValueIterator> cancellable_iterators = Collections.newSetFromMap(new WeakHashMap<>());
+
     ///** Map of status IDs to Status strings */
     // don't need this for influx, just store the status strings as tags
     //final private HashMap<Integer, String> stati;
@@ -225,6 +234,16 @@ public class InfluxDBArchiveReader implements ArchiveReader
     public ValueIterator getRawValues(final String channel_name,
             final Instant start, final Instant end) throws Exception
     {
+        final int parallel = Preferences.getParallelQueries();
+        if (ParallelSampleIterator.getSubRangeCount(start, end, parallel) > 1)
+        {
+            final ValueIterator iter = new ParallelSampleIterator(this, channel_name, start, end, parallel);
+            synchronized (cancellable_iterators)
+            {
+                cancellable_iterators.add(iter);
+            }
+            return iter;
+        }
         return new SampleIterator(this, channel_name, start, end);
     }
 
@@ -366,6 +385,14 @@ public class InfluxDBArchiveReader implements ArchiveReader
     @Override
     public void cancel()
     {
+        final List<ValueIterator> iterators;
+        synchronized (cancellable_iterators)
+        {
+            iterators = new ArrayList<>(cancellable_iterators);
+            cancellable_iterators.clear();
+        }
+        for (ValueIterator iter : iterators)
+            iter.close();
     }
 
     /** {@inheritDoc} */
@@ -378,7 +405,7 @@ public class InfluxDBArchiveReader implements ArchiveReader
 
     @Override
     public void enableConcurrency(boolean concurrency) {
-        //TODO: does enable concurrency mean anything for InfluxDB?
+        // Parallel sub-range queries are configured by the parallel_queries preference
     }
 
 
@@ -1,11 +1,14 @@
 package org.csstudio.archive.reader.influxdb;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Consumer;
 
+import org.csstudio.archive.influxdb.InfluxDBArchivePreferences;
 import org.csstudio.archive.influxdb.InfluxDBResults;
+import org.csstudio.archive.influxdb.InfluxDBRollups;
 import org.csstudio.archive.reader.influxdb.raw.AbstractInfluxDBValueIterator;
 import org.csstudio.archive.reader.influxdb.raw.Preferences;
 import org.diirt.vtype.VType;
@@ -31,6 +34,11 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
 
     private final ChunkReader samples;
 
+    /** Merges rollup buckets into samples that respect the requested count,
+     *  or <code>null</code> when not reading rollups
+     */
+    private RollupMerger merger = null;
+
     final private int sample_chunk_size;
     final private int metadata_chunk_size;
 
@@ -68,15 +76,6 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
             }
         }
 
-        //TODO: More efficient to get total sample count for whole time range, then
-        //get counts by time for last_sample_time?
-        //Get the sample intervals ("buckets") in the range
-        final QueryResult interval_results = reader.getQueries().get_newest_channel_sample_count_in_intervals(channel_name, sample_starttime, end, count, count);
-        // Does the data fill 'count' intervals ("buckets"), or is the number of samples
-        //        at least twice the desired number of "buckets"?
-        final boolean isEnoughValues = InfluxDBResults.getValueCount(interval_results) >= count ||
-                InfluxDBResults.getValueSum(interval_results) >= count*2;
-
         //Find the last timestamp of the metadata before the end time
         metadata_endtime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_meta_data(channel_name, null, end, 1L));
         //Get the timestamp of the last metadata at or before the sample start time.
@@ -88,7 +87,37 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
         reader.getQueries().chunk_get_channel_metadata(metadata_chunk_size, channel_name, metadata_starttime,
                 end, null, meta_consumer);
 
-        if (isEnoughValues)
+        //Use rollup tier written by the archive engine, if it covers the range
+        final Duration tier = InfluxDBRollups.selectTier(InfluxDBArchivePreferences.getRollupTiers(), start, end, count);
+        final Instant rollup_starttime = tier == null ? null : InfluxDBRollups.getBucketStart(sample_starttime, tier);
+        final Instant rollup_endtime = rollup_starttime == null ? null
+                : InfluxDBRollups.getRollupEndTime(reader.getQueries(), channel_name, tier, rollup_starttime, end);
+
+        //TODO: More efficient to get total sample count for whole time range, then
+        //get counts by time for last_sample_time?
+        //Get the sample intervals ("buckets") in the range.
+        //With rollups, their sample counts tell how many raw samples there are.
+        final QueryResult interval_results = rollup_endtime != null
+            ? reader.getQueries().get_newest_rollup_count_in_intervals(channel_name, tier, rollup_starttime, end, count, count)
+            : reader.getQueries().get_newest_channel_sample_count_in_intervals(channel_name, sample_starttime, end, count, count);
+        // Does the data fill 'count' intervals ("buckets"), or is the number of samples
+        //        at least twice the desired number of "buckets"?
+        final boolean isEnoughValues = InfluxDBResults.getValueCount(interval_results) >= count ||
+                InfluxDBResults.getValueSum(interval_results) >= count*2;
+
+        if (isEnoughValues  &&  rollup_endtime != null)
+        {
+            reader.getQueries().chunk_get_rollup_samples(sample_chunk_size, channel_name, tier, rollup_starttime,
+                    end, sample_consumer);
+
+            samples = new AggregatedChunkReader(sample_queue, rollup_endtime, metadata_queue, metadata_endtime,
+                    reader.getTimeout(), new ArchiveStatisticsDecoder.Factory(true));
+            //Finer tier may have many more buckets than 'count'
+            final Duration duration = InfluxDBRollups.getSampleDuration(tier, start, end, count);
+            if (duration.compareTo(tier) > 0)
+                merger = new RollupMerger(duration);
+        }
+        else if (isEnoughValues)
         {
             final boolean stdDev = Preferences.getUseStdDev();
 
@@ -112,12 +141,31 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
                     reader.getTimeout(), new ArchiveDecoder.Factory());
         }
 
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
+        next_value = readSample();
+        if (next_value == null)
             close();
     }
 
+    /** @return Next sample or <code>null</code> at end of data
+     *  @throws Exception on error
+     */
+    private VType readSample() throws Exception
+    {
+        if (merger == null)
+            return samples.step() ? samples.decodeSampleValue() : null;
+        VType value = merger.poll();
+        while (value == null  &&  samples.step())
+        {
+            merger.add(samples.decodeSampleValue());
+            value = merger.poll();
+        }
+        if (value == null)
+        {
+            merger.flush();
+            value = merger.poll();
+        }
+        return value;
+    }
 
     /** {@inheritDoc} */
     @Override
@@ -140,9 +188,8 @@ public class OptimizedSampleIterator extends AbstractInfluxDBValueIterator
         final VType result = next_value;
 
         // ... and prepare next value
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
+        next_value = readSample();
+        if (next_value == null)
             close();
 
         return result;
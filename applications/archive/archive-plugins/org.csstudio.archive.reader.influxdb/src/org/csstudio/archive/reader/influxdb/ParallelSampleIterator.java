@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+
+import org.csstudio.archive.reader.PrefetchValueIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.diirt.vtype.VType;
+
+/** Value Iterator that reads raw samples of a long time range
+ *  in parallel sub-range queries.
+ *
+ *  <p>The time range is split into sub-ranges.
+ *  Up to 'parallel' of them are queried and decoded concurrently
+ *  on a thread pool, each into a bounded number of sample blocks.
+ *  The iterator returns the samples of one sub-range after the other,
+ *  and starts the next sub-range whenever one is completed.
+ *
+ *  <p>Closing the iterator stops the decoding,
+ *  but InfluxDB queries that are already running
+ *  continue to deliver their remaining chunks.
+ */
+@SuppressWarnings("nls")
+public class ParallelSampleIterator implements ValueIterator
+{
+    /** Minimum duration of a sub-range */
+    final public static Duration MIN_SUBRANGE = Duration.ofHours(1);
+
+    /** Number of sub-ranges per parallel query.
+     *  Smaller sub-ranges limit the amount of data that the
+     *  InfluxDB client buffers ahead of the iterator.
+     */
+    final private static int SUBRANGES_PER_QUERY = 4;
+
+    /** Number of decoded samples per block */
+    final private static int BLOCK_SIZE = 1000;
+
+    /** Number of decoded blocks to buffer per sub-range */
+    final private static int BLOCK_COUNT = 4;
+
+    /** Reader for a sub-range */
+    @FunctionalInterface
+    interface SubRangeReader
+    {
+        /** @param start Start time
+         *  @param end End time, inclusive
+         *  @param preceding Start with the last sample at or before the start time?
+         *  @return Samples
+         *  @throws Exception on error
+         */
+        ValueIterator read(Instant start, Instant end, boolean preceding) throws Exception;
+    }
+
+    /** Sub-range that creates its iterator, i.e. runs its queries,
+     *  when first used by the background reader
+     */
+    private static class SubRange implements ValueIterator
+    {
+        final private SubRangeReader reader;
+        final private Instant start, end;
+        final private boolean preceding;
+        private ValueIterator samples = null;
+        private Exception error = null;
+
+        SubRange(final SubRangeReader reader, final Instant start, final Instant end, final boolean preceding)
+        {
+            this.reader = reader;
+            this.start = start;
+            this.end = end;
+            this.preceding = preceding;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (error != null)
+                return true;
+            if (samples == null)
+            {
+                try
+                {
+                    samples = reader.read(start, end, preceding);
+                }
+                catch (Exception ex)
+                {
+                    error = ex;
+                    return true;
+                }
+            }
+            return samples.hasNext();
+        }
+
+        @Override
+        public VType next() throws Exception
+        {
+            if (error != null)
+                throw error;
+            return samples.next();
+        }
+
+        @Override
+        public void close()
+        {
+            if (samples != null)
+                samples.close();
+        }
+    }
+
+    final private SubRangeReader reader;
+    final private ExecutorService executor;
+    final private Instant[] boundaries;
+    final private int parallel;
+
+    /** Sub-ranges that are being read, in time order.
+     *  SYNC on access
+     */
+    final private Deque<ValueIterator> active = new ArrayDeque<>();
+
+    /** Index of the next sub-range to start */
+    private int next_range = 0;
+
+    /** @param start Start time
+     *  @param end End time
+     *  @param parallel Number of parallel queries
+     *  @return Number of sub-ranges to use, 1 for a single query
+     */
+    public static int getSubRangeCount(final Instant start, final Instant end, final int parallel)
+    {
+        if (parallel <= 1)
+            return 1;
+        final long ranges = Duration.between(start, end).getSeconds() / MIN_SUBRANGE.getSeconds();
+        return (int) Math.max(1, Math.min(ranges, parallel * SUBRANGES_PER_QUERY));
+    }
+
+    /** Initialize
+     *  @param reader InfluxDBArchiveReader
+     *  @param channel_name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @param parallel Number of parallel queries
+     */
+    public ParallelSampleIterator(final InfluxDBArchiveReader reader, final String channel_name,
+                                  final Instant start, final Instant end, final int parallel)
+    {
+        this((sub_start, sub_end, preceding) -> new SampleIterator(reader, channel_name, sub_start, sub_end, preceding),
+             Activator.getThreadPool(), start, end, parallel);
+    }
+
+    /** Initialize
+     *  @param reader Reader for sub-ranges
+     *  @param executor Executor for decoding the sub-ranges
+     *  @param start Start time
+     *  @param end End time
+     *  @param parallel Number of parallel queries
+     */
+    ParallelSampleIterator(final SubRangeReader reader, final ExecutorService executor,
+                           final Instant start, final Instant end, final int parallel)
+    {
+        this.reader = reader;
+        this.executor = executor;
+        this.parallel = Math.max(1, parallel);
+        final int count = getSubRangeCount(start, end, parallel);
+        final Duration span = Duration.between(start, end);
+        boundaries = new Instant[count + 1];
+        for (int i=0; i<count; ++i)
+            boundaries[i] = start.plus(span.multipliedBy(i).dividedBy(count));
+        boundaries[count] = end;
+        synchronized (active)
+        {
+            while (active.size() < this.parallel  &&  startNext())
+            {
+                // Start the first sub-ranges
+            }
+        }
+    }
+
+    /** @return Number of sub-ranges */
+    int getSubRangeCount()
+    {
+        return boundaries.length - 1;
+    }
+
+    /** Start reading the next sub-range.
+     *  Caller must synchronize on <code>active</code>.
+     *  @return <code>true</code> if there was another sub-range
+     */
+    private boolean startNext()
+    {
+        if (next_range >= boundaries.length - 1)
+            return false;
+        final Instant start = boundaries[next_range];
+        // Sub-ranges exclude their end, which is the start of the next sub-range
+        final Instant end = next_range < boundaries.length - 2
+                          ? boundaries[next_range + 1].minusNanos(1)
+                          : boundaries[next_range + 1];
+        active.add(new PrefetchValueIterator(new SubRange(reader, start, end, next_range == 0),
+                                             executor, BLOCK_SIZE, BLOCK_COUNT));
+        ++next_range;
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        while (true)
+        {
+            final ValueIterator current;
+            synchronized (active)
+            {
+                current = active.peek();
+            }
+            if (current == null)
+                return false;
+            // Wait for data without holding the lock, so close() can cancel
+            if (current.hasNext())
+                return true;
+            current.close();
+            synchronized (active)
+            {
+                if (active.peek() == current)
+                {
+                    active.poll();
+                    startNext();
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        ValueIterator current = null;
+        if (hasNext())
+            synchronized (active)
+            {
+                current = active.peek();
+            }
+        if (current == null)
+            throw new Exception("ParallelSampleIterator.next() called after end");
+        return current.next();
+    }
+
+    /** Stop reading all sub-ranges.
+     *  OK to call more than once,
+     *  also from another thread to cancel.
+     */
+    @Override
+    public void close()
+    {
+        final ValueIterator[] to_close;
+        synchronized (active)
+        {
+            next_range = boundaries.length;
+            to_close = active.toArray(new ValueIterator[active.size()]);
+            active.clear();
+        }
+        for (ValueIterator iter : to_close)
+            iter.close();
+    }
+}
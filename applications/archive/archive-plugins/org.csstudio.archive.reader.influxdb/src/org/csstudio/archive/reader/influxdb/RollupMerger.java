@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader.influxdb;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.csstudio.archive.influxdb.InfluxDBRollups;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.diirt.vtype.VType;
+
+/** Merge consecutive rollup buckets into samples of a longer duration
+ *
+ *  <p>Statistics of buckets within the same sample period are combined
+ *  like statistics over all their raw samples.
+ *  The standard deviation uses N-1 like the rollups written by the engine.
+ *  Other values are passed on as they are.
+ */
+class RollupMerger
+{
+    /** Duration of merged samples */
+    final private Duration duration;
+
+    /** Sample that is being merged, or <code>null</code> */
+    private ArchiveVStatistics current = null;
+
+    /** Start of the period of the current sample */
+    private Instant period;
+
+    /** Completed samples */
+    final private Queue<VType> ready = new ArrayDeque<>();
+
+    /** @param duration Duration of merged samples, multiple of the rollup tier */
+    RollupMerger(final Duration duration)
+    {
+        this.duration = duration;
+    }
+
+    /** @param value Next value read from the rollup tier */
+    void add(final VType value)
+    {
+        if (! (value instanceof ArchiveVStatistics)  ||  ((ArchiveVStatistics) value).getTimestamp() == null)
+        {   // Pass value on after the sample that is being merged
+            flush();
+            ready.add(value);
+            return;
+        }
+        final ArchiveVStatistics stats = (ArchiveVStatistics) value;
+        final Instant stats_period = InfluxDBRollups.getBucketStart(stats.getTimestamp(), duration);
+        if (current != null  &&  stats_period.equals(period))
+            current = merge(current, stats);
+        else
+        {
+            flush();
+            current = stats;
+            period = stats_period;
+        }
+    }
+
+    /** Complete the sample that is being merged, at end of data */
+    void flush()
+    {
+        if (current != null)
+            ready.add(current);
+        current = null;
+    }
+
+    /** @return Next completed sample, or <code>null</code> */
+    VType poll()
+    {
+        return ready.poll();
+    }
+
+    /** @param a Statistics of earlier bucket
+     *  @param b Statistics of following bucket
+     *  @return Statistics of both buckets, time stamped like the first bucket
+     */
+    static ArchiveVStatistics merge(final ArchiveVStatistics a, final ArchiveVStatistics b)
+    {
+        final int na = a.getNSamples(), nb = b.getNSamples();
+        final ArchiveVStatistics alarm = b.getAlarmSeverity().compareTo(a.getAlarmSeverity()) > 0 ? b : a;
+        if (nb <= 0)
+            return new ArchiveVStatistics(a.getTimestamp(), alarm.getAlarmSeverity(), alarm.getAlarmName(), a,
+                                          a.getAverage(), a.getMin(), a.getMax(), a.getStdDev(), na);
+        if (na <= 0)
+            return new ArchiveVStatistics(a.getTimestamp(), alarm.getAlarmSeverity(), alarm.getAlarmName(), a,
+                                          b.getAverage(), b.getMin(), b.getMax(), b.getStdDev(), nb);
+        final int n = na + nb;
+        final double delta = b.getAverage() - a.getAverage();
+        final double mean = a.getAverage() + delta * nb / n;
+        // Sums of squared differences from the mean, combined as in Welford's algorithm
+        final double m2 = m2(a) + m2(b) + delta * delta * na * nb / n;
+        return new ArchiveVStatistics(a.getTimestamp(), alarm.getAlarmSeverity(), alarm.getAlarmName(), a,
+                                      mean, Math.min(a.getMin(), b.getMin()), Math.max(a.getMax(), b.getMax()),
+                                      Math.sqrt(m2 / (n - 1)), n);
+    }
+
+    /** @param stats Statistics
+     *  @return Sum of squared differences from the mean, NaN if standard deviation is unknown
+     */
+    private static double m2(final ArchiveVStatistics stats)
+    {
+        final int n = stats.getNSamples();
+        return n > 1 ? stats.getStdDev() * stats.getStdDev() * (n - 1) : 0.0;
+    }
+}
@@ -10,7 +10,9 @@ package org.csstudio.archive.reader.influxdb;
 import java.time.Instant;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 
 import org.csstudio.archive.influxdb.InfluxDBResults;
 import org.csstudio.archive.reader.influxdb.raw.AbstractInfluxDBValueIterator;
@@ -40,6 +42,15 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
     final private int sample_chunk_size;
     final private int metadata_chunk_size;
 
+    /** Time range, for timing log */
+    final private Instant start, end;
+
+    /** Nanoseconds spent in initial queries, waiting for chunks of data, decoding */
+    private long query_nanos, wait_nanos, decode_nanos;
+
+    /** Number of samples returned */
+    private long count = 0;
+
     /** Initialize
      *  @param reader InfluxDBArchiveReader
      *  @param channel_name ID of channel
@@ -50,16 +61,37 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
     public SampleIterator(final InfluxDBArchiveReader reader,
             final String channel_name, final Instant start,
             final Instant end) throws Exception
+    {
+        this(reader, channel_name, start, end, true);
+    }
+
+    /** Initialize
+     *  @param reader InfluxDBArchiveReader
+     *  @param channel_name ID of channel
+     *  @param start Start time
+     *  @param end End time
+     *  @param preceding Start with the last sample at or before the start time?
+     *                   Otherwise start with the first sample in the range.
+     *  @throws Exception on error
+     */
+    SampleIterator(final InfluxDBArchiveReader reader,
+            final String channel_name, final Instant start,
+            final Instant end, final boolean preceding) throws Exception
     {
         super(reader, channel_name);
         Instant sample_endtime, sample_starttime, metadata_endtime, metadata_starttime;
         // QueryResult results = null;
+        this.start = start;
+        this.end = end;
+        final long t0 = System.nanoTime();
 
         sample_chunk_size = Preferences.getChunkSize();
         metadata_chunk_size = Preferences.getChunkSize();
 
         //Get the timestamp of the last sample at or before the indicated start time.
-        sample_starttime = InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, null, start, 1L));
+        sample_starttime = preceding
+            ? InfluxDBResults.getTimestamp(reader.getQueries().get_newest_channel_samples(channel_name, null, start, 1L))
+            : null;
         if (sample_starttime == null)
         {
             //No samples at or before start, find oldest sample in range
@@ -88,7 +120,6 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
             public void accept(QueryResult result) {
                 sample_queue.add(result);
                 //Activator.getLogger().log(Level.FINE, () -> "Got chunk of sample vals size " + InfluxDBResults.getValueCount(result) + " for total size: " + sample_queue.size());
-                sample_queue.add(result);
             }});
 
         reader.getQueries().chunk_get_channel_metadata(metadata_chunk_size, channel_name, metadata_starttime, end, null,
@@ -100,11 +131,27 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
 
         samples = new ChunkReader(sample_queue, sample_endtime, metadata_queue, metadata_endtime, reader.getTimeout(),
                 new ArchiveDecoder.Factory());
+        query_nanos = System.nanoTime() - t0;
+
+        step();
+    }
 
+    /** Read next value from chunks, or close at end */
+    private void step() throws Exception
+    {
+        final long t0 = System.nanoTime();
         if (samples.step())
+        {
+            final long t1 = System.nanoTime();
             next_value = samples.decodeSampleValue();
+            wait_nanos += t1 - t0;
+            decode_nanos += System.nanoTime() - t1;
+        }
         else
+        {
+            wait_nanos += System.nanoTime() - t0;
             close();
+        }
     }
 
 
@@ -129,10 +176,8 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
         final VType result = next_value;
 
         // ... and prepare next value
-        if (samples.step())
-            next_value = samples.decodeSampleValue();
-        else
-            close();
+        ++count;
+        step();
 
         return result;
     }
@@ -143,6 +188,16 @@ public class SampleIterator extends AbstractInfluxDBValueIterator
     @Override
     public void close()
     {
+        if (samples != null  &&  query_nanos > 0)
+        {
+            Activator.getLogger().log(Level.FINE,
+                "{0} {1} - {2}: {3} samples, {4} ms queries, {5} ms waiting for data, {6} ms decoding",
+                new Object[] { measurement, start, end, count,
+                               TimeUnit.NANOSECONDS.toMillis(query_nanos),
+                               TimeUnit.NANOSECONDS.toMillis(wait_nanos),
+                               TimeUnit.NANOSECONDS.toMillis(decode_nanos) });
+            query_nanos = 0;
+        }
         super.close();
         next_value = null;
     }
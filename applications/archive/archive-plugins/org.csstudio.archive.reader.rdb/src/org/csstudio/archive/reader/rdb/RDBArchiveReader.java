@@ -19,6 +19,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.csstudio.archive.rdb.RDBArchivePreferences;
+import org.csstudio.archive.reader.ArchiveCoverage;
 import org.csstudio.archive.reader.ArchiveInfo;
 import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.UnknownChannelException;
@@ -418,6 +419,34 @@ public class RDBArchiveReader implements ArchiveReader
         return new AveragedValueIterator(raw_data, seconds);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveCoverage getCoverage(final int key, final String name) throws UnknownChannelException, Exception
+    {
+        final int channel_id = getChannelID(name);
+        try
+        (
+            final PreparedStatement statement =
+                rdb.getConnection().prepareStatement(sql.sample_sel_time_range);
+        )
+        {
+            if (timeout > 0)
+                statement.setQueryTimeout(timeout);
+            statement.setInt(1, channel_id);
+            statement.setInt(2, channel_id);
+            final ResultSet result = statement.executeQuery();
+            final java.sql.Timestamp first = result.next() ? result.getTimestamp(1) : null;
+            final java.sql.Timestamp last = result.next() ? result.getTimestamp(1) : null;
+            if (first == null  ||  last == null)
+                return ArchiveCoverage.NONE;
+            Instant end = TimestampHelper.fromSQLTimestamp(last);
+            // Without Oracle, smpl_time lacks the 'nanosecs' of the last sample
+            if (! is_oracle)
+                end = end.plusNanos(999999999);
+            return new ArchiveCoverage(TimestampHelper.fromSQLTimestamp(first), end);
+        }
+    }
+
     /** @param name Channel name
      *  @return Numeric channel ID
      *  @throws UnknownChannelException when channel not known
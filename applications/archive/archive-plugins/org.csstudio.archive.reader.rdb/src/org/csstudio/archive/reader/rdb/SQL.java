@@ -38,6 +38,7 @@ public class SQL
     final public String sample_sel_by_id_start_end_with_blob;
     final public String sample_sel_array_vals;
     final public String sample_count_by_id_start_end;
+    final public String sample_sel_time_range;
 
     /** Initialize SQL statements
      *  @param dialect RDB dialect
@@ -131,5 +132,10 @@ public class SQL
         // Rough count, ignoring nanosecs for the non-Oracle dialects
         sample_count_by_id_start_end = "SELECT COUNT(*) FROM " + prefix + "sample" +
           "   WHERE channel_id=? AND smpl_time BETWEEN ? AND ?";
+        // Separate MIN and MAX so each can use the (channel_id, smpl_time) index
+        sample_sel_time_range =
+            "SELECT MIN(smpl_time) FROM " + prefix + "sample WHERE channel_id=?" +
+            " UNION ALL " +
+            "SELECT MAX(smpl_time) FROM " + prefix + "sample WHERE channel_id=?";
     }
 }
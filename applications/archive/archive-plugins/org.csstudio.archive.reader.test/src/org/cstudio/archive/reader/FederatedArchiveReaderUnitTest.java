@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.reader.ArchiveCoverage;
+import org.csstudio.archive.reader.ArchiveCoverageCache;
+import org.csstudio.archive.reader.ArchiveInfo;
+import org.csstudio.archive.reader.ArchiveReader;
+import org.csstudio.archive.reader.FederatedArchiveReader;
+import org.csstudio.archive.reader.FederatedArchiveReader.Member;
+import org.csstudio.archive.reader.FederatedArchiveReader.Segment;
+import org.csstudio.archive.reader.UnknownChannelException;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link FederatedArchiveReader}
+ */
+@SuppressWarnings("nls")
+public class FederatedArchiveReaderUnitTest
+{
+    /** Archive with one sample per second within its coverage */
+    private static class DemoArchive implements ArchiveReader
+    {
+        final private String name;
+        final private ArchiveCoverage coverage;
+        final AtomicInteger requests = new AtomicInteger();
+
+        DemoArchive(final String name, final ArchiveCoverage coverage)
+        {
+            this.name = name;
+            this.coverage = coverage;
+        }
+
+        @Override
+        public String getServerName()
+        {
+            return name;
+        }
+
+        @Override
+        public String getURL()
+        {
+            return "demo:" + name;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return name;
+        }
+
+        @Override
+        public int getVersion()
+        {
+            return 1;
+        }
+
+        @Override
+        public ArchiveInfo[] getArchiveInfos()
+        {
+            return new ArchiveInfo[] { new ArchiveInfo(name, name, 1) };
+        }
+
+        @Override
+        public String[] getNamesByPattern(final int key, final String glob_pattern) throws Exception
+        {
+            return new String[] { name };
+        }
+
+        @Override
+        public String[] getNamesByRegExp(final int key, final String reg_exp) throws Exception
+        {
+            return new String[] { name };
+        }
+
+        @Override
+        public ArchiveCoverage getCoverage(final int key, final String channel) throws Exception
+        {
+            if (! channel.equals("pv"))
+                throw new UnknownChannelException(channel);
+            return coverage;
+        }
+
+        @Override
+        public ValueIterator getRawValues(final int key, final String channel,
+                final Instant start, final Instant end) throws Exception
+        {
+            requests.incrementAndGet();
+            final long first = Math.max(start.getEpochSecond(), coverage.getStart().getEpochSecond());
+            final long last = Math.min(end.getEpochSecond(), coverage.getEnd().getEpochSecond());
+            final List<VType> values = new ArrayList<>();
+            for (long sec = first; sec <= last; ++sec)
+                values.add(new ArchiveVString(Instant.ofEpochSecond(sec), AlarmSeverity.NONE, "OK", name + " " + sec));
+            return new DemoDataIterator(values.toArray(new VType[values.size()]));
+        }
+
+        @Override
+        public ValueIterator getOptimizedValues(final int key, final String channel,
+                final Instant start, final Instant end, final int count) throws Exception
+        {
+            return getRawValues(key, channel, start, end);
+        }
+
+        @Override
+        public void cancel()
+        {
+            // NOP
+        }
+
+        @Override
+        public void close()
+        {
+            // NOP
+        }
+    }
+
+    /** Archive with slow samples that checks if iterators are open when closed */
+    private static class SlowArchive extends DemoArchive
+    {
+        final AtomicInteger open = new AtomicInteger();
+        volatile boolean closed_while_reading = false;
+
+        SlowArchive(final String name, final ArchiveCoverage coverage)
+        {
+            super(name, coverage);
+        }
+
+        @Override
+        public ValueIterator getRawValues(final int key, final String channel,
+                final Instant start, final Instant end) throws Exception
+        {
+            open.incrementAndGet();
+            return new ValueIterator()
+            {
+                private long sec = start.getEpochSecond();
+                private volatile boolean closed = false;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return !closed  &&  sec <= end.getEpochSecond();
+                }
+
+                @Override
+                public VType next() throws Exception
+                {
+                    Thread.sleep(100);
+                    return new ArchiveVString(Instant.ofEpochSecond(sec++), AlarmSeverity.NONE, "OK", "slow");
+                }
+
+                @Override
+                public void close()
+                {
+                    closed = true;
+                    open.decrementAndGet();
+                }
+            };
+        }
+
+        @Override
+        public void close()
+        {
+            if (open.get() > 0)
+                closed_while_reading = true;
+        }
+    }
+
+    private static ArchiveCoverage range(final long start, final long end)
+    {
+        return new ArchiveCoverage(Instant.ofEpochSecond(start), Instant.ofEpochSecond(end));
+    }
+
+    /** Each sub-range is routed to the last member that covers it */
+    @Test
+    public void testRoute() throws Exception
+    {
+        List<Segment> segments = FederatedArchiveReader.route(Instant.ofEpochSecond(5), Instant.ofEpochSecond(40),
+                new ArchiveCoverage[] { range(0, 10), range(10, 20), range(20, 30) });
+        assertThat(segments.size(), equalTo(3));
+        assertThat(segments.get(0).getMembers(), equalTo(new int[] { 0 }));
+        assertThat(segments.get(1).getStart(), equalTo(Instant.ofEpochSecond(10)));
+        assertThat(segments.get(1).getMembers(), equalTo(new int[] { 1 }));
+        // Newest archive covers up to the end of the request
+        assertThat(segments.get(2).getMembers(), equalTo(new int[] { 2 }));
+        assertThat(segments.get(2).getEnd(), equalTo(Instant.ofEpochSecond(40)));
+
+        // Later member takes precedence where ranges overlap
+        segments = FederatedArchiveReader.route(Instant.ofEpochSecond(0), Instant.ofEpochSecond(40),
+                new ArchiveCoverage[] { range(0, 30), range(10, 20), ArchiveCoverage.NONE });
+        assertThat(segments.size(), equalTo(3));
+        assertThat(segments.get(0).getMembers(), equalTo(new int[] { 0 }));
+        assertThat(segments.get(1).getMembers(), equalTo(new int[] { 1 }));
+        assertThat(segments.get(2).getMembers(), equalTo(new int[] { 0 }));
+
+        // Members of unknown coverage fill what the others don't cover,
+        // including recent data when listed after the known member
+        segments = FederatedArchiveReader.route(Instant.ofEpochSecond(0), Instant.ofEpochSecond(40),
+                new ArchiveCoverage[] { null, range(10, 20), null });
+        assertThat(segments.size(), equalTo(3));
+        assertThat(segments.get(0).getEnd(), equalTo(Instant.ofEpochSecond(10)));
+        assertThat(segments.get(0).getMembers(), equalTo(new int[] { 0, 2 }));
+        assertThat(segments.get(1).getEnd(), equalTo(Instant.ofEpochSecond(20)));
+        assertThat(segments.get(1).getMembers(), equalTo(new int[] { 1 }));
+        assertThat(segments.get(2).getMembers(), equalTo(new int[] { 0, 2 }));
+
+        // Member of unknown coverage listed before the known member
+        // doesn't prevent the open end
+        segments = FederatedArchiveReader.route(Instant.ofEpochSecond(0), Instant.ofEpochSecond(40),
+                new ArchiveCoverage[] { null, range(10, 20) });
+        assertThat(segments.size(), equalTo(2));
+        assertThat(segments.get(1).getMembers(), equalTo(new int[] { 1 }));
+        assertThat(segments.get(1).getEnd(), equalTo(Instant.ofEpochSecond(40)));
+
+        // Newest member is not extended past its configured window
+        segments = FederatedArchiveReader.route(Instant.ofEpochSecond(0), Instant.ofEpochSecond(40),
+                new ArchiveCoverage[] { range(0, 10) },
+                new ArchiveCoverage[] { new ArchiveCoverage(null, Instant.ofEpochSecond(15)) });
+        assertThat(segments.size(), equalTo(1));
+        assertThat(segments.get(0).getEnd(), equalTo(Instant.ofEpochSecond(15)));
+    }
+
+    /** Federated URL */
+    @Test
+    public void testURL() throws Exception
+    {
+        final String url = "federated:[,2012-01-01T00:00:00Z]xnds://host/cgi/ArchiveDataServer.cgi#2  jdbc:oracle:thin:@host:1521/archive";
+        final List<Member> members = FederatedArchiveReader.parseURL(url);
+        assertThat(members.size(), equalTo(2));
+        assertThat(members.get(0).getURL(), equalTo("xnds://host/cgi/ArchiveDataServer.cgi"));
+        assertThat(members.get(0).getKey(), equalTo(2));
+        assertThat(members.get(0).getWindow(), equalTo(new ArchiveCoverage(null, Instant.parse("2012-01-01T00:00:00Z"))));
+        assertThat(members.get(1).getURL(), equalTo("jdbc:oracle:thin:@host:1521/archive"));
+        assertThat(members.get(1).getKey(), equalTo(FederatedArchiveReader.DEFAULT_KEY));
+        assertThat(members.get(1).getWindow(), equalTo(ArchiveCoverage.ALL));
+
+        assertThat(FederatedArchiveReader.createURL(members),
+                   equalTo("federated:[,2012-01-01T00:00:00Z]xnds://host/cgi/ArchiveDataServer.cgi#2 jdbc:oracle:thin:@host:1521/archive"));
+    }
+
+    /** Samples of all members are returned once, in time order */
+    @Test
+    public void testRead() throws Exception
+    {
+        final Map<String, DemoArchive> archives = new HashMap<>();
+        archives.put("old", new DemoArchive("old", range(1, 10)));
+        archives.put("middle", new DemoArchive("middle", range(10, 20)));
+        archives.put("recent", new DemoArchive("recent", range(20, 30)));
+        final List<Member> members = Arrays.asList(new Member("old", 1, ArchiveCoverage.ALL),
+                                                   new Member("middle", 1, ArchiveCoverage.ALL),
+                                                   new Member("recent", 1, ArchiveCoverage.ALL));
+        final ArchiveCoverageCache cache = new ArchiveCoverageCache(Runnable::run, 100, 60000);
+        final FederatedArchiveReader reader = new FederatedArchiveReader("federated:test", members, archives::get, cache);
+
+        final ValueIterator iter = reader.getRawValues(1, "pv", Instant.ofEpochSecond(0), Instant.ofEpochSecond(30));
+        final List<String> values = new ArrayList<>();
+        while (iter.hasNext())
+            values.add(((VString) iter.next()).getValue());
+        iter.close();
+        assertThat(values.size(), equalTo(30));
+        assertThat(values.get(0), equalTo("old 1"));
+        assertThat(values.get(8), equalTo("old 9"));
+        assertThat(values.get(9), equalTo("middle 10"));
+        assertThat(values.get(19), equalTo("recent 20"));
+        assertThat(values.get(29), equalTo("recent 30"));
+        for (DemoArchive archive : archives.values())
+            assertThat(archive.requests.get(), equalTo(1));
+        assertThat(cache.size(), equalTo(3));
+
+        // Request that only needs one archive
+        final ValueIterator recent = reader.getRawValues(1, "pv", Instant.ofEpochSecond(25), Instant.ofEpochSecond(30));
+        int count = 0;
+        while (recent.hasNext())
+        {
+            recent.next();
+            ++count;
+        }
+        recent.close();
+        assertThat(count, equalTo(6));
+        assertThat(archives.get("old").requests.get(), equalTo(1));
+        assertThat(archives.get("recent").requests.get(), equalTo(2));
+
+        try
+        {
+            reader.getRawValues(1, "other", Instant.ofEpochSecond(0), Instant.ofEpochSecond(30));
+            fail("Unknown channel not reported");
+        }
+        catch (UnknownChannelException ex)
+        {
+            // Expected
+        }
+        reader.close();
+    }
+
+    /** Cancel reaches all iterators, close waits for background readers */
+    @Test
+    public void testClose() throws Exception
+    {
+        final Map<String, SlowArchive> archives = new HashMap<>();
+        archives.put("old", new SlowArchive("old", range(0, 10)));
+        archives.put("recent", new SlowArchive("recent", range(10, 30)));
+        final List<Member> members = Arrays.asList(new Member("old", 1, ArchiveCoverage.ALL),
+                                                   new Member("recent", 1, ArchiveCoverage.ALL));
+        final ArchiveCoverageCache cache = new ArchiveCoverageCache(Runnable::run, 100, 60000);
+        FederatedArchiveReader reader = new FederatedArchiveReader("federated:test", members, archives::get, cache);
+
+        // Single segment is read in the calling thread
+        final ValueIterator single = reader.getRawValues(1, "pv", Instant.ofEpochSecond(20), Instant.ofEpochSecond(30));
+        assertTrue(single.hasNext());
+        single.next();
+        reader.cancel();
+        assertThat(single.hasNext(), equalTo(false));
+        assertThat(archives.get("recent").open.get(), equalTo(0));
+
+        // Segments read in background
+        reader = new FederatedArchiveReader("federated:test", members, archives::get, cache);
+        final ValueIterator iter = reader.getRawValues(1, "pv", Instant.ofEpochSecond(0), Instant.ofEpochSecond(30));
+        assertTrue(iter.hasNext());
+        reader.close();
+        for (SlowArchive archive : archives.values())
+        {
+            assertThat(archive.open.get(), equalTo(0));
+            assertThat(archive.closed_while_reading, equalTo(false));
+        }
+    }
+
+    /** Cached coverage is refreshed in the background */
+    @Test
+    public void testCacheRefresh() throws Exception
+    {
+        final ArchiveCoverageCache cache = new ArchiveCoverageCache(Runnable::run, 100, 0);
+        final AtomicInteger loads = new AtomicInteger();
+        final ArchiveCoverageCache.Loader loader = () -> range(0, loads.incrementAndGet());
+
+        assertThat(cache.get("demo", 1, "pv", loader, loader), equalTo(range(0, 1)));
+        Thread.sleep(10);
+        // Returns cached value, refreshes for next call
+        assertThat(cache.get("demo", 1, "pv", loader, loader), equalTo(range(0, 1)));
+        assertThat(cache.get("demo", 1, "pv", loader, loader), equalTo(range(0, 2)));
+
+        final ArchiveCoverageCache.Loader unknown = () -> { throw new UnknownChannelException("x"); };
+        assertThat(cache.get("demo", 1, "x", unknown, unknown), equalTo(ArchiveCoverage.NONE));
+    }
+}
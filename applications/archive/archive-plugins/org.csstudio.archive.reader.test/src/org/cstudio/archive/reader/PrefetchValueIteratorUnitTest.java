@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.cstudio.archive.reader;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.archive.reader.PrefetchValueIterator;
+import org.csstudio.archive.reader.SpreadsheetIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.DefaultVTypeFormat;
+import org.csstudio.archive.vtype.VTypeFormat;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link PrefetchValueIterator}
+ */
+@SuppressWarnings("nls")
+public class PrefetchValueIteratorUnitTest
+{
+    /** Read demo data in small batches */
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final DemoDataIterator demo = DemoDataIterator.forStrings("A");
+        final ValueIterator iter = new PrefetchValueIterator(demo, executor, 3, 1);
+        final StringBuilder result = new StringBuilder();
+        final VTypeFormat format = new DefaultVTypeFormat();
+        while (iter.hasNext())
+        {
+            if (result.length() > 0)
+                result.append(", ");
+            format.format(iter.next(), result);
+        }
+        iter.close();
+        assertThat(result.toString(), equalTo("A 1, A 2, A 3, A 4, A 5, A 6, A 7, A 8, A 9, A 10"));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        assertThat(demo.isOpen(), equalTo(false));
+    }
+
+    /** Errors are reported after the samples read before the error */
+    @Test
+    public void testError() throws Exception
+    {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final ValueIterator failing = new DemoDataIterator(new VType[0])
+        {
+            private int count = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public VType next() throws Exception
+            {
+                if (++count > 5)
+                    throw new Exception("Archive failed");
+                return DemoDataIterator.forStrings("A").next();
+            }
+        };
+        final ValueIterator iter = new PrefetchValueIterator(failing, executor, 2, 1);
+        int count = 0;
+        try
+        {
+            while (iter.hasNext())
+            {
+                iter.next();
+                ++count;
+            }
+            fail("Error not reported");
+        }
+        catch (Exception ex)
+        {
+            assertThat(ex.getMessage(), equalTo("Archive failed"));
+        }
+        assertThat(count, equalTo(5));
+        iter.close();
+        executor.shutdown();
+    }
+
+    /** After closing early, caller can wait for the base iterator to be closed */
+    @Test
+    public void testAwaitDone() throws Exception
+    {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final DemoDataIterator demo = new DemoDataIterator(new VType[0])
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            @Override
+            public VType next() throws Exception
+            {
+                Thread.sleep(10);
+                return DemoDataIterator.forStrings("A").next();
+            }
+        };
+        final PrefetchValueIterator iter = new PrefetchValueIterator(demo, executor, 2, 1);
+        iter.next();
+        iter.close();
+        assertThat(iter.awaitDone(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(demo.isOpen(), equalTo(false));
+        executor.shutdown();
+    }
+
+    /** Spreadsheet of prefetched channels matches the one of plain channels */
+    @Test
+    public void testSpreadsheet() throws Exception
+    {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final SpreadsheetIterator sheet = new SpreadsheetIterator(
+            new PrefetchValueIterator(DemoDataIterator.forStrings("A"), executor, 2, 1),
+            new PrefetchValueIterator(DemoDataIterator.forStrings("B", 5), executor, 2, 1));
+        int count = 0;
+        while (sheet.hasNext())
+        {
+            sheet.next();
+            ++count;
+        }
+        sheet.close();
+        assertThat(count, equalTo(15));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.time.Instant;
+
+/** Time range for which an archive holds samples.
+ *
+ *  <p>Start and end are inclusive.
+ *  A <code>null</code> start or end leaves that side of the range open.
+ */
+@SuppressWarnings("nls")
+public class ArchiveCoverage
+{
+    /** Complete time range */
+    final public static ArchiveCoverage ALL = new ArchiveCoverage(null, null);
+
+    /** No samples at all */
+    final public static ArchiveCoverage NONE = new ArchiveCoverage(Instant.MAX, Instant.MIN);
+
+    final private Instant start, end;
+
+    /** Initialize
+     *  @param start Start time, <code>null</code> for open start
+     *  @param end End time, <code>null</code> for open end
+     */
+    public ArchiveCoverage(final Instant start, final Instant end)
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    /** @return Start time, <code>null</code> for open start */
+    public Instant getStart()
+    {
+        return start;
+    }
+
+    /** @return End time, <code>null</code> for open end */
+    public Instant getEnd()
+    {
+        return end;
+    }
+
+    /** @return <code>true</code> if the range contains no time at all */
+    public boolean isEmpty()
+    {
+        return start != null  &&  end != null  &&  start.isAfter(end);
+    }
+
+    /** @param time Time stamp
+     *  @return <code>true</code> if the range contains the time stamp
+     */
+    public boolean contains(final Instant time)
+    {
+        return (start == null  ||  !time.isBefore(start))  &&
+               (end == null    ||  !time.isAfter(end));
+    }
+
+    /** @param other Other range
+     *  @return Range that is covered by both this and the other range
+     */
+    public ArchiveCoverage intersect(final ArchiveCoverage other)
+    {
+        final Instant s, e;
+        if (start == null)
+            s = other.start;
+        else if (other.start == null)
+            s = start;
+        else
+            s = start.isAfter(other.start) ? start : other.start;
+        if (end == null)
+            e = other.end;
+        else if (other.end == null)
+            e = end;
+        else
+            e = end.isBefore(other.end) ? end : other.end;
+        return new ArchiveCoverage(s, e);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (start == null ? 0 : start.hashCode()) * 31 +
+               (end == null ? 0 : end.hashCode());
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (! (obj instanceof ArchiveCoverage))
+            return false;
+        final ArchiveCoverage other = (ArchiveCoverage) obj;
+        return (start == null ? other.start == null : start.equals(other.start))  &&
+               (end == null ? other.end == null : end.equals(other.end));
+    }
+
+    @Override
+    public String toString()
+    {
+        if (isEmpty())
+            return "[]";
+        return "[" + (start == null ? "..." : start) + ", " + (end == null ? "..." : end) + "]";
+    }
+}
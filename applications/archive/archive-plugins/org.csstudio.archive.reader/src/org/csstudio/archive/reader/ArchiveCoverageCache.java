@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Cache of the {@link ArchiveCoverage} of channels in archives.
+ *
+ *  <p>Coverage that is not in the cache is loaded by the caller.
+ *  Cached coverage is returned right away.
+ *  Once it is older than the refresh period, it is also re-loaded
+ *  in the background, so the next caller will see the update.
+ *  Archives that cannot report the coverage of a channel
+ *  are not asked again.
+ *  The least recently used entries are dropped when the cache is full.
+ *
+ *  <p>Channels that an archive does not know are cached as
+ *  {@link ArchiveCoverage#NONE}.
+ *  Unknown coverage is cached as <code>null</code>.
+ *  Errors are not cached.
+ */
+@SuppressWarnings("nls")
+public class ArchiveCoverageCache
+{
+    /** Default number of cached channels */
+    final public static int MAX_ENTRIES = 10000;
+
+    /** Default period after which entries are refreshed */
+    final public static long REFRESH_MS = TimeUnit.MINUTES.toMillis(10);
+
+    /** Loader for the coverage of a channel */
+    @FunctionalInterface
+    public interface Loader
+    {
+        /** @return Coverage, <code>null</code> if not known
+         *  @throws UnknownChannelException when channel is not known
+         *  @throws Exception on error
+         */
+        ArchiveCoverage load() throws UnknownChannelException, Exception;
+    }
+
+    /** Cached coverage */
+    private static class Entry
+    {
+        final ArchiveCoverage coverage;
+        final long loaded;
+        boolean refreshing = false;
+
+        Entry(final ArchiveCoverage coverage, final long loaded)
+        {
+            this.coverage = coverage;
+            this.loaded = loaded;
+        }
+    }
+
+    private static ArchiveCoverageCache instance = null;
+
+    final private Executor executor;
+    final private long refresh_ms;
+
+    /** Entries by archive URL, key and channel name, in access order.
+     *  SYNC on access
+     */
+    final private Map<String, Entry> entries;
+
+    /** @return Singleton instance of the cache */
+    public static synchronized ArchiveCoverageCache getInstance()
+    {
+        if (instance == null)
+            instance = new ArchiveCoverageCache(FederatedArchiveReader.getExecutor(), MAX_ENTRIES, REFRESH_MS);
+        return instance;
+    }
+
+    /** Initialize
+     *  @param executor Executor for background refresh
+     *  @param max_entries Number of cached channels
+     *  @param refresh_ms Period after which entries are refreshed
+     */
+    public ArchiveCoverageCache(final Executor executor, final int max_entries, final long refresh_ms)
+    {
+        this.executor = executor;
+        this.refresh_ms = refresh_ms;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest)
+            {
+                return size() > max_entries;
+            }
+        };
+    }
+
+    /** Get coverage of a channel
+     *  @param url Archive URL
+     *  @param key Archive key
+     *  @param name Channel name
+     *  @param loader Loader for the coverage, called in this thread
+     *                when the channel is not cached
+     *  @param refresher Loader called in the background to refresh the coverage
+     *  @return Coverage, {@link ArchiveCoverage#NONE} if channel is not known,
+     *          <code>null</code> if not known
+     *  @throws Exception on error
+     */
+    public ArchiveCoverage get(final String url, final int key, final String name,
+                               final Loader loader, final Loader refresher) throws Exception
+    {
+        final String id = url + "\t" + key + "\t" + name;
+        final long now = System.currentTimeMillis();
+        final Entry entry;
+        synchronized (entries)
+        {
+            entry = entries.get(id);
+            if (entry != null  &&  entry.coverage != null  &&
+                !entry.refreshing  &&  now - entry.loaded > refresh_ms)
+            {
+                entry.refreshing = true;
+                executor.execute(() -> refresh(id, entry, refresher));
+            }
+        }
+        if (entry != null)
+            return entry.coverage;
+        final ArchiveCoverage coverage = load(loader);
+        synchronized (entries)
+        {
+            entries.put(id, new Entry(coverage, now));
+        }
+        return coverage;
+    }
+
+    /** @param loader Loader
+     *  @return Loaded coverage
+     *  @throws Exception on error
+     */
+    private static ArchiveCoverage load(final Loader loader) throws Exception
+    {
+        try
+        {
+            return loader.load();
+        }
+        catch (UnknownChannelException ex)
+        {
+            return ArchiveCoverage.NONE;
+        }
+    }
+
+    /** Refresh an entry, keeping the old one on error
+     *  @param id Entry ID
+     *  @param entry Entry to refresh
+     *  @param loader Loader
+     */
+    private void refresh(final String id, final Entry entry, final Loader loader)
+    {
+        final long now = System.currentTimeMillis();
+        try
+        {
+            final ArchiveCoverage coverage = load(loader);
+            synchronized (entries)
+            {
+                if (entries.get(id) == entry)
+                    entries.put(id, new Entry(coverage, now));
+            }
+        }
+        catch (Exception ex)
+        {
+            Logger.getLogger(getClass().getName()).log(Level.FINE,
+                    "Cannot refresh coverage of " + id.replace('\t', ' '), ex);
+            synchronized (entries)
+            {
+                entry.refreshing = false;
+            }
+        }
+    }
+
+    /** Remove all entries */
+    public void clear()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    /** @return Number of cached channels */
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+}
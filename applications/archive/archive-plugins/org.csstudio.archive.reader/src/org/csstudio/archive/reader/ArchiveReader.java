@@ -165,6 +165,23 @@ public interface ArchiveReader extends Closeable
     public ValueIterator getOptimizedValues(int key, String name,
         Instant start, Instant end, int count) throws UnknownChannelException, Exception;
 
+    /** Determine the time range for which the archive has samples of a channel.
+     *  <p>
+     *  Used by the {@link FederatedArchiveReader} to route requests.
+     *  Implementations that cannot determine this quickly
+     *  should keep the default, which reports an unknown range.
+     *
+     *  @param key Key of the archive
+     *  @param name Channel name
+     *  @return Time range of the channel's samples, <code>null</code> if not known
+     *  @throws UnknownChannelException when channel is not known
+     *  @throws Exception on error
+     */
+    default ArchiveCoverage getCoverage(int key, String name) throws UnknownChannelException, Exception
+    {
+        return null;
+    }
+
     /** Cancel an ongoing archive query.
      *  It's up to the implementation to support this for all queries,
      *  or only 'getSamples', or not at all.
@@ -40,7 +40,7 @@ public class ArchiveRepository
     /** @return Singleton instance of the ArchiveRepository
      *  @throws Exception on error
      */
-    public static ArchiveRepository getInstance() throws Exception
+    public static synchronized ArchiveRepository getInstance() throws Exception
     {
         if (instance == null)
             instance = new ArchiveRepository();
@@ -92,6 +92,9 @@ public class ArchiveRepository
     }
 
     /** Create archive reader for URL
+     *  <p>
+     *  URLs with the {@link FederatedArchiveReader#PREFIX} combine
+     *  the archives of several other URLs.
      *  @param url Archive URL
      *  @return ArchiveReader for given URL
      *  @throws Exception on error (no suitable reader, or internal error)
@@ -103,6 +106,8 @@ public class ArchiveRepository
         if (delim < 0)
             throw new Exception("Missing prefix in URL " + url);
         final String prefix = url.substring(0, delim);
+        if (prefix.equals(FederatedArchiveReader.PREFIX))
+            return new FederatedArchiveReader(url);
 
         // Locate implementation for that prefix
         final ArchiveReaderFactory factory = reader_factories.get(prefix);
@@ -0,0 +1,1005 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VType;
+
+/** {@link ArchiveReader} that combines several archives,
+ *  each holding a different time range of the channels.
+ *
+ *  <p>The time range of each member archive is the intersection of
+ *  an optional, configured window and the {@link ArchiveCoverage}
+ *  that the archive reports for the channel.
+ *  A request is split into sub-ranges.
+ *  Each is read from only one member archive, the last listed member
+ *  that covers it, so overlapping data is not fetched twice.
+ *  Sub-ranges that no member is known to cover are read from
+ *  all members of unknown coverage and merged.
+ *  The member with the most recent coverage is assumed to be still
+ *  adding samples, so its coverage extends to the end of its window,
+ *  unless a member of unknown coverage is listed after it.
+ *
+ *  <p>The sub-ranges are read in parallel, each member archive
+ *  handling one sub-range at a time, and returned in time order.
+ *  Coverage is kept in the {@link ArchiveCoverageCache}.
+ *
+ *  <p>URLs have the form
+ *  <code>federated:member member ...</code> with members separated by whitespace.
+ *  Each member is the URL of an archive with an optional
+ *  <code>[start,end]</code> prefix that restricts its window
+ *  and an optional <code>#key</code> suffix.
+ *  Start and end are ISO instants or dates, either may be empty:
+ *  <pre>
+ *  federated:[,2012-01-01]xnds://host/cgi/ArchiveDataServer.cgi#2 [2012-01-01,]jdbc:oracle:thin:@host:1521/archive
+ *  </pre>
+ */
+@SuppressWarnings("nls")
+public class FederatedArchiveReader implements ArchiveReader
+{
+    /** URL prefix */
+    final public static String PREFIX = "federated";
+
+    /** Key for a member that uses the first archive of its reader */
+    final public static int DEFAULT_KEY = -1;
+
+    /** Seconds to wait for background readers when closing */
+    final private static int CLOSE_TIMEOUT = 10;
+
+    /** Member archive */
+    public static class Member
+    {
+        final private String url;
+        final private int key;
+        final private ArchiveCoverage window;
+
+        /** Initialize
+         *  @param url Archive URL
+         *  @param key Archive key or {@link FederatedArchiveReader#DEFAULT_KEY}
+         *  @param window Time range to use from this archive, {@link ArchiveCoverage#ALL} for all
+         */
+        public Member(final String url, final int key, final ArchiveCoverage window)
+        {
+            this.url = url;
+            this.key = key;
+            this.window = window;
+        }
+
+        /** @return Archive URL */
+        public String getURL()
+        {
+            return url;
+        }
+
+        /** @return Archive key or {@link FederatedArchiveReader#DEFAULT_KEY} */
+        public int getKey()
+        {
+            return key;
+        }
+
+        /** @return Time range to use from this archive */
+        public ArchiveCoverage getWindow()
+        {
+            return window;
+        }
+
+        /** @return Member in URL syntax */
+        @Override
+        public String toString()
+        {
+            final StringBuilder buf = new StringBuilder();
+            if (! window.equals(ArchiveCoverage.ALL))
+            {
+                buf.append('[');
+                if (window.getStart() != null)
+                    buf.append(window.getStart());
+                buf.append(',');
+                if (window.getEnd() != null)
+                    buf.append(window.getEnd());
+                buf.append(']');
+            }
+            buf.append(url);
+            if (key != DEFAULT_KEY)
+                buf.append('#').append(key);
+            return buf.toString();
+        }
+    }
+
+    /** Factory for member archive readers */
+    @FunctionalInterface
+    public interface ReaderFactory
+    {
+        /** @param url Archive URL
+         *  @return Reader for the URL
+         *  @throws Exception on error
+         */
+        ArchiveReader getArchiveReader(String url) throws Exception;
+    }
+
+    /** Time range that is read from one or more members */
+    public static class Segment
+    {
+        final private Instant start, end;
+        final private int[] members;
+
+        /** Initialize
+         *  @param start Start time
+         *  @param end End time
+         *  @param members Indices of the members to read
+         */
+        public Segment(final Instant start, final Instant end, final int[] members)
+        {
+            this.start = start;
+            this.end = end;
+            this.members = members;
+        }
+
+        /** @return Start time */
+        public Instant getStart()
+        {
+            return start;
+        }
+
+        /** @return End time */
+        public Instant getEnd()
+        {
+            return end;
+        }
+
+        /** @return Indices of the members to read */
+        public int[] getMembers()
+        {
+            return members;
+        }
+
+        @Override
+        public String toString()
+        {
+            return start + " - " + end + ": " + Arrays.toString(members);
+        }
+    }
+
+    private static ExecutorService executor = null;
+
+    final private String url;
+    final private List<Member> members;
+    final private ReaderFactory factory;
+    final private ArchiveCoverageCache cache;
+
+    /** Readers for the members, created when first used.
+     *  SYNC on access
+     */
+    final private ArchiveReader[] readers;
+
+    /** Iterators to close on cancel.
+     *  SYNC on access
+     */
+    final private List<ValueIterator> iterators = new ArrayList<>();
+
+    /** Background readers that may still use the member readers.
+     *  SYNC on iterators
+     */
+    final private List<PrefetchValueIterator> prefetches = new ArrayList<>();
+
+    private volatile boolean concurrency = false;
+
+    /** @return Executor for reading sub-ranges and refreshing coverage */
+    public static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            final AtomicInteger threads = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(runnable ->
+            {
+                final Thread thread = new Thread(runnable, "FederatedArchiveReader" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /** @param url Federated archive URL
+     *  @return Members of the federated archive
+     *  @throws Exception on error in URL
+     */
+    public static List<Member> parseURL(final String url) throws Exception
+    {
+        if (! url.startsWith(PREFIX + ":"))
+            throw new Exception("Missing '" + PREFIX + ":' in URL " + url);
+        final List<Member> members = new ArrayList<>();
+        for (String spec : url.substring(PREFIX.length() + 1).trim().split("\\s+"))
+        {
+            if (spec.isEmpty())
+                continue;
+            ArchiveCoverage window = ArchiveCoverage.ALL;
+            if (spec.startsWith("["))
+            {
+                final int close = spec.indexOf(']');
+                final int comma = spec.indexOf(',');
+                if (close < 0  ||  comma < 0  ||  comma > close)
+                    throw new Exception("Expected [start,end] in " + spec);
+                window = new ArchiveCoverage(parseTime(spec.substring(1, comma)),
+                                             parseTime(spec.substring(comma + 1, close)));
+                spec = spec.substring(close + 1);
+            }
+            int key = DEFAULT_KEY;
+            final int sep = spec.lastIndexOf('#');
+            if (sep > 0  &&  spec.substring(sep + 1).matches("[0-9]+"))
+            {
+                key = Integer.parseInt(spec.substring(sep + 1));
+                spec = spec.substring(0, sep);
+            }
+            if (spec.indexOf(':') < 0)
+                throw new Exception("Missing archive URL in " + url);
+            members.add(new Member(spec, key, window));
+        }
+        if (members.isEmpty())
+            throw new Exception("No archives in " + url);
+        return members;
+    }
+
+    /** @param text ISO instant, date or empty
+     *  @return Time, <code>null</code> for empty text
+     *  @throws Exception on error
+     */
+    private static Instant parseTime(final String text) throws Exception
+    {
+        final String time = text.trim();
+        if (time.isEmpty())
+            return null;
+        if (time.indexOf('T') > 0)
+            return Instant.parse(time);
+        return LocalDate.parse(time).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    /** @param members Members of the federated archive
+     *  @return Federated archive URL
+     */
+    public static String createURL(final List<Member> members)
+    {
+        final StringBuilder buf = new StringBuilder(PREFIX).append(':');
+        for (int i=0; i<members.size(); ++i)
+        {
+            if (i > 0)
+                buf.append(' ');
+            buf.append(members.get(i));
+        }
+        return buf.toString();
+    }
+
+    /** Initialize
+     *  @param url Federated archive URL
+     *  @throws Exception on error
+     */
+    public FederatedArchiveReader(final String url) throws Exception
+    {
+        this(url, parseURL(url), member_url -> ArchiveRepository.getInstance().getArchiveReader(member_url),
+             ArchiveCoverageCache.getInstance());
+    }
+
+    /** Initialize
+     *  @param members Members of the federated archive
+     *  @throws Exception on error
+     */
+    public FederatedArchiveReader(final List<Member> members) throws Exception
+    {
+        this(createURL(members), members, member_url -> ArchiveRepository.getInstance().getArchiveReader(member_url),
+             ArchiveCoverageCache.getInstance());
+    }
+
+    /** Initialize
+     *  @param url Federated archive URL
+     *  @param members Members of the federated archive
+     *  @param factory Factory for member archive readers
+     *  @param cache Coverage cache
+     */
+    public FederatedArchiveReader(final String url, final List<Member> members,
+                                  final ReaderFactory factory, final ArchiveCoverageCache cache)
+    {
+        this.url = url;
+        this.members = members;
+        this.factory = factory;
+        this.cache = cache;
+        readers = new ArchiveReader[members.size()];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getServerName()
+    {
+        return "Federated Archive";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getURL()
+    {
+        return url;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getDescription()
+    {
+        final StringBuilder buf = new StringBuilder("Combined archives:");
+        for (Member member : members)
+            buf.append("\n").append(member);
+        return buf.toString();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getVersion()
+    {
+        return 1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ArchiveInfo[] getArchiveInfos()
+    {
+        return new ArchiveInfo[] { new ArchiveInfo("Federated", getDescription(), 1) };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getNamesByPattern(final int key, final String glob_pattern) throws Exception
+    {
+        final Set<String> names = new TreeSet<>();
+        for (int i=0; i<readers.length; ++i)
+        {
+            final ArchiveReader reader = getReader(i);
+            names.addAll(Arrays.asList(reader.getNamesByPattern(getKey(i, reader), glob_pattern)));
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getNamesByRegExp(final int key, final String reg_exp) throws Exception
+    {
+        final Set<String> names = new TreeSet<>();
+        for (int i=0; i<readers.length; ++i)
+        {
+            final ArchiveReader reader = getReader(i);
+            names.addAll(Arrays.asList(reader.getNamesByRegExp(getKey(i, reader), reg_exp)));
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ValueIterator getRawValues(final int key, final String name,
+            final Instant start, final Instant end) throws UnknownChannelException, Exception
+    {
+        return getValues(name, start, end, 0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ValueIterator getOptimizedValues(final int key, final String name,
+            final Instant start, final Instant end, final int count) throws UnknownChannelException, Exception
+    {
+        return getValues(name, start, end, count);
+    }
+
+    /** @param name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Number of optimized samples, 0 for raw data
+     *  @return Samples of all members
+     *  @throws Exception on error
+     */
+    private ValueIterator getValues(final String name, final Instant start, final Instant end,
+                                    final int count) throws Exception
+    {
+        final ArchiveCoverage[] coverage = getMemberCoverage(name);
+        boolean known = false;
+        for (ArchiveCoverage range : coverage)
+            if (range == null  ||  !range.isEmpty())
+                known = true;
+        if (! known)
+            throw new UnknownChannelException(name);
+        final ArchiveCoverage[] windows = new ArchiveCoverage[members.size()];
+        for (int i=0; i<windows.length; ++i)
+            windows[i] = members.get(i).getWindow();
+        final List<Segment> segments = route(start, end, coverage, windows);
+        Logger.getLogger(getClass().getName()).log(Level.FINE,
+                "{0} from {1} to {2}: {3}", new Object[] { name, start, end, segments });
+        final ValueIterator result;
+        if (segments.size() == 1)
+            result = new SegmentIterator(name, segments.get(0), true, true, getCount(count, segments.get(0), start, end));
+        else
+            result = new FederatedValueIterator(name, segments, start, end, count);
+        synchronized (iterators)
+        {
+            iterators.add(result);
+        }
+        return result;
+    }
+
+    /** @param count Number of optimized samples for the request, 0 for raw data
+     *  @param segment Segment of the request
+     *  @param start Start of the request
+     *  @param end End of the request
+     *  @return Number of optimized samples for the segment, 0 for raw data
+     */
+    private static int getCount(final int count, final Segment segment,
+                                final Instant start, final Instant end)
+    {
+        if (count <= 0)
+            return 0;
+        final long span = Duration.between(start, end).toMillis();
+        if (span <= 0)
+            return count;
+        final long part = Duration.between(segment.start, segment.end).toMillis();
+        // Optimized requests of some archives need count > 1
+        return (int) Math.max(2, count * part / span);
+    }
+
+    /** @param name Channel name
+     *  @return Coverage of each member, <code>null</code> if not known
+     *  @throws Exception on error
+     */
+    private ArchiveCoverage[] getMemberCoverage(final String name) throws Exception
+    {
+        final List<Future<ArchiveCoverage>> results = new ArrayList<>();
+        for (int i=0; i<readers.length; ++i)
+        {
+            final int index = i;
+            results.add(getExecutor().submit(() -> getMemberCoverage(index, name)));
+        }
+        final ArchiveCoverage[] coverage = new ArchiveCoverage[readers.length];
+        for (int i=0; i<coverage.length; ++i)
+        {
+            try
+            {
+                coverage[i] = results.get(i).get();
+            }
+            catch (ExecutionException ex)
+            {
+                final Throwable error = ex.getCause();
+                throw error instanceof Exception ? (Exception) error : ex;
+            }
+        }
+        return coverage;
+    }
+
+    /** @param index Member index
+     *  @param name Channel name
+     *  @return Coverage of the member, <code>null</code> if not known
+     *  @throws Exception on error
+     */
+    private ArchiveCoverage getMemberCoverage(final int index, final String name) throws Exception
+    {
+        final Member member = members.get(index);
+        final ArchiveCoverage channel = cache.get(member.url, member.key, name,
+            () ->
+            {
+                final ArchiveReader reader = getReader(index);
+                return reader.getCoverage(getKey(index, reader), name);
+            },
+            () ->
+            {   // Refresh in the background with a separate reader,
+                // since this one may be closed by then
+                final ArchiveReader reader = factory.getArchiveReader(member.url);
+                try
+                {
+                    return reader.getCoverage(getKey(index, reader), name);
+                }
+                finally
+                {
+                    reader.close();
+                }
+            });
+        if (channel == null)
+            return member.window.equals(ArchiveCoverage.ALL) ? null : member.window;
+        return member.window.intersect(channel);
+    }
+
+    /** Determine which members to read for the sub-ranges of a request.
+     *
+     *  <p>Only meant for tests, not public API.
+     *
+     *  @param start Start time
+     *  @param end End time
+     *  @param coverage Coverage of each member, <code>null</code> if not known
+     *  @return Segments in time order
+     */
+    public static List<Segment> route(final Instant start, final Instant end, final ArchiveCoverage[] coverage)
+    {
+        final ArchiveCoverage[] windows = new ArchiveCoverage[coverage.length];
+        Arrays.fill(windows, ArchiveCoverage.ALL);
+        return route(start, end, coverage, windows);
+    }
+
+    /** Determine which members to read for the sub-ranges of a request.
+     *
+     *  <p>Only meant for tests, not public API.
+     *
+     *  @param start Start time
+     *  @param end End time
+     *  @param coverage Coverage of each member, <code>null</code> if not known
+     *  @param windows Configured window of each member
+     *  @return Segments in time order
+     */
+    public static List<Segment> route(final Instant start, final Instant end,
+                                      final ArchiveCoverage[] coverage, final ArchiveCoverage[] windows)
+    {
+        final ArchiveCoverage[] known = coverage.clone();
+        // The newest archive keeps adding samples, so its coverage extends to the end
+        // of its window, unless an archive of unknown coverage is listed after it
+        // and may hold the recent samples
+        int newest = -1;
+        for (int i=0; i<known.length; ++i)
+        {
+            if (known[i] == null  ||  known[i].isEmpty())
+                continue;
+            if (newest < 0  ||
+                known[i].getEnd() == null  ||
+                (known[newest].getEnd() != null  &&  !known[i].getEnd().isBefore(known[newest].getEnd())))
+                newest = i;
+        }
+        for (int i=newest+1; newest >= 0  &&  i<known.length; ++i)
+            if (known[i] == null)
+                newest = -1;
+        if (newest >= 0)
+            known[newest] = new ArchiveCoverage(known[newest].getStart(), windows[newest].getEnd());
+
+        // Split at the start and end of each member's coverage
+        final TreeSet<Instant> times = new TreeSet<>();
+        times.add(start);
+        times.add(end);
+        final List<Integer> unknown = new ArrayList<>();
+        for (int i=0; i<known.length; ++i)
+        {
+            if (known[i] == null)
+            {
+                unknown.add(i);
+                continue;
+            }
+            if (known[i].isEmpty())
+                continue;
+            for (Instant time : new Instant[] { known[i].getStart(), known[i].getEnd() })
+                if (time != null  &&  time.isAfter(start)  &&  time.isBefore(end))
+                    times.add(time);
+        }
+        final int[] unknown_members = new int[unknown.size()];
+        for (int i=0; i<unknown_members.length; ++i)
+            unknown_members[i] = unknown.get(i);
+
+        final List<Instant> bounds = new ArrayList<>(times);
+        if (bounds.size() == 1)
+            bounds.add(end);
+        final List<Segment> segments = new ArrayList<>();
+        for (int b=0; b<bounds.size()-1; ++b)
+        {
+            final Instant from = bounds.get(b), to = bounds.get(b+1);
+            // Last listed member that covers the range
+            int[] use = unknown_members;
+            for (int i=known.length-1; i>=0; --i)
+                if (known[i] != null  &&  !known[i].isEmpty()  &&
+                    known[i].contains(from)  &&  known[i].contains(to))
+                {
+                    use = new int[] { i };
+                    break;
+                }
+            if (use.length <= 0)
+                continue;
+            final int last = segments.size() - 1;
+            if (last >= 0  &&
+                segments.get(last).end.equals(from)  &&
+                Arrays.equals(segments.get(last).members, use))
+                segments.set(last, new Segment(segments.get(last).start, to, use));
+            else
+                segments.add(new Segment(from, to, use));
+        }
+        return segments;
+    }
+
+    /** @param index Member index
+     *  @return Reader for the member
+     *  @throws Exception on error
+     */
+    private ArchiveReader getReader(final int index) throws Exception
+    {
+        synchronized (readers)
+        {
+            if (readers[index] != null)
+                return readers[index];
+        }
+        // Create outside of lock so members connect in parallel
+        final ArchiveReader reader = factory.getArchiveReader(members.get(index).url);
+        reader.enableConcurrency(concurrency);
+        synchronized (readers)
+        {
+            if (readers[index] == null)
+            {
+                readers[index] = reader;
+                return reader;
+            }
+        }
+        reader.close();
+        return getReader(index);
+    }
+
+    /** @param index Member index
+     *  @param reader Reader for the member
+     *  @return Archive key to use for the member
+     */
+    private int getKey(final int index, final ArchiveReader reader)
+    {
+        final int key = members.get(index).key;
+        if (key != DEFAULT_KEY)
+            return key;
+        final ArchiveInfo[] infos = reader.getArchiveInfos();
+        return infos.length > 0 ? infos[0].getKey() : 1;
+    }
+
+    /** Reads the samples of one segment, created when first used
+     *  by the background reader of a {@link PrefetchValueIterator}.
+     *  Samples outside of the segment are skipped,
+     *  except for those before the first or after the last segment.
+     */
+    private class SegmentIterator implements ValueIterator
+    {
+        final private String name;
+        final private Segment segment;
+        final private boolean first, last;
+        final private int count;
+        /** SYNC on this */
+        private ValueIterator samples = null;
+        /** Set on close, SYNC on this when changing samples */
+        private volatile boolean closed = false;
+        private VType value = null;
+        private Exception error = null;
+
+        SegmentIterator(final String name, final Segment segment,
+                        final boolean first, final boolean last, final int count)
+        {
+            this.name = name;
+            this.segment = segment;
+            this.first = first;
+            this.last = last;
+            this.count = count;
+        }
+
+        /** @return Samples of all members for the segment
+         *  @throws Exception on error
+         */
+        private ValueIterator read() throws Exception
+        {
+            final List<ValueIterator> iters = new ArrayList<>();
+            try
+            {
+                for (int index : segment.members)
+                {
+                    final ArchiveReader reader = getReader(index);
+                    final int key = getKey(index, reader);
+                    try
+                    {
+                        if (count > 0)
+                            iters.add(reader.getOptimizedValues(key, name, segment.start, segment.end, count));
+                        else
+                            iters.add(reader.getRawValues(key, name, segment.start, segment.end));
+                    }
+                    catch (UnknownChannelException ex)
+                    {
+                        // Skip member that doesn't have the channel
+                    }
+                }
+                if (iters.size() == 1)
+                    return iters.get(0);
+                return new MergingValueIterator(iters.toArray(new ValueIterator[iters.size()]));
+            }
+            catch (Exception ex)
+            {
+                for (ValueIterator iter : iters)
+                    iter.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (error != null  ||  value != null)
+                return true;
+            ValueIterator iter;
+            synchronized (this)
+            {
+                if (closed)
+                    return false;
+                iter = samples;
+            }
+            try
+            {
+                if (iter == null)
+                {
+                    iter = read();
+                    synchronized (this)
+                    {
+                        if (closed)
+                        {
+                            iter.close();
+                            return false;
+                        }
+                        samples = iter;
+                    }
+                }
+                while (!closed  &&  iter.hasNext())
+                {
+                    final VType sample = iter.next();
+                    final Instant time = VTypeHelper.getTimestamp(sample);
+                    if ((first  ||  !time.isBefore(segment.start))  &&
+                        (last   ||  time.isBefore(segment.end)))
+                    {
+                        value = sample;
+                        return true;
+                    }
+                }
+            }
+            catch (Exception ex)
+            {
+                synchronized (this)
+                {   // Errors after cancel() are expected
+                    if (closed)
+                        return false;
+                }
+                error = ex;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public VType next() throws Exception
+        {
+            if (! hasNext())
+                throw new IllegalStateException();
+            if (error != null)
+                throw error;
+            final VType result = value;
+            value = null;
+            return result;
+        }
+
+        /** OK to call more than once, also from another thread to cancel */
+        @Override
+        public void close()
+        {
+            final ValueIterator to_close;
+            synchronized (this)
+            {
+                closed = true;
+                to_close = samples;
+                samples = null;
+            }
+            if (to_close != null)
+                to_close.close();
+            synchronized (iterators)
+            {
+                iterators.remove(this);
+            }
+        }
+    }
+
+    /** Reads segments in parallel and returns their samples in time order.
+     *  A segment is started once no earlier segment that
+     *  has not been returned reads from the same member,
+     *  so each member reader handles one segment at a time.
+     */
+    private class FederatedValueIterator implements ValueIterator
+    {
+        final private List<Segment> segments;
+        final private String name;
+        final private Instant start, end;
+        final private int count;
+
+        /** Started segments.
+         *  SYNC on this
+         */
+        final private ValueIterator[] started;
+
+        /** Index of the segment being returned */
+        private int current = 0;
+
+        private boolean closed = false;
+
+        FederatedValueIterator(final String name, final List<Segment> segments,
+                               final Instant start, final Instant end, final int count)
+        {
+            this.name = name;
+            this.segments = segments;
+            this.start = start;
+            this.end = end;
+            this.count = count;
+            started = new ValueIterator[segments.size()];
+            synchronized (this)
+            {
+                startSegments();
+            }
+        }
+
+        /** Start segments whose members are not used by an earlier segment.
+         *  Caller must synchronize on this.
+         */
+        private void startSegments()
+        {
+            final Set<Integer> busy = new HashSet<>();
+            for (int i=current; i<segments.size(); ++i)
+            {
+                final Segment segment = segments.get(i);
+                boolean available = true;
+                for (int index : segment.members)
+                    if (! busy.add(index))
+                        available = false;
+                if (available  &&  started[i] == null)
+                {
+                    final PrefetchValueIterator prefetch = new PrefetchValueIterator(
+                        new SegmentIterator(name, segment, i == 0, i == segments.size() - 1,
+                                            getCount(count, segment, start, end)),
+                        getExecutor());
+                    started[i] = prefetch;
+                    synchronized (iterators)
+                    {
+                        prefetches.removeIf(PrefetchValueIterator::isDone);
+                        prefetches.add(prefetch);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while (true)
+            {
+                final ValueIterator iter;
+                synchronized (this)
+                {
+                    if (closed  ||  current >= segments.size())
+                        return false;
+                    iter = started[current];
+                }
+                // Wait for data without holding the lock, so close() can cancel
+                if (iter.hasNext())
+                    return true;
+                iter.close();
+                synchronized (this)
+                {
+                    if (closed)
+                        return false;
+                    started[current++] = null;
+                    startSegments();
+                }
+            }
+        }
+
+        @Override
+        public VType next() throws Exception
+        {
+            if (! hasNext())
+                throw new IllegalStateException();
+            final ValueIterator iter;
+            synchronized (this)
+            {
+                iter = started[current];
+            }
+            return iter.next();
+        }
+
+        /** OK to call more than once, also from another thread to cancel */
+        @Override
+        public void close()
+        {
+            final List<ValueIterator> to_close = new ArrayList<>();
+            synchronized (this)
+            {
+                closed = true;
+                for (int i=0; i<started.length; ++i)
+                    if (started[i] != null)
+                    {
+                        to_close.add(started[i]);
+                        started[i] = null;
+                    }
+            }
+            for (ValueIterator iter : to_close)
+                iter.close();
+            synchronized (iterators)
+            {
+                iterators.remove(this);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void cancel()
+    {
+        final List<ArchiveReader> to_cancel = new ArrayList<>();
+        synchronized (readers)
+        {
+            for (ArchiveReader reader : readers)
+                if (reader != null)
+                    to_cancel.add(reader);
+        }
+        for (ArchiveReader reader : to_cancel)
+            reader.cancel();
+        final List<ValueIterator> to_close;
+        synchronized (iterators)
+        {
+            to_close = new ArrayList<>(iterators);
+            iterators.clear();
+        }
+        for (ValueIterator iter : to_close)
+            iter.close();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        cancel();
+        // Background readers may still use the member readers
+        final List<PrefetchValueIterator> to_await;
+        synchronized (iterators)
+        {
+            to_await = new ArrayList<>(prefetches);
+            prefetches.clear();
+        }
+        try
+        {
+            for (PrefetchValueIterator prefetch : to_await)
+                if (! prefetch.awaitDone(CLOSE_TIMEOUT, TimeUnit.SECONDS))
+                    Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                            "Closing " + url + " while still reading");
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (readers)
+        {
+            for (int i=0; i<readers.length; ++i)
+                if (readers[i] != null)
+                {
+                    readers[i].close();
+                    readers[i] = null;
+                }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void enableConcurrency(final boolean concurrency)
+    {
+        // Passed to readers created from now on
+        this.concurrency = concurrency;
+    }
+}
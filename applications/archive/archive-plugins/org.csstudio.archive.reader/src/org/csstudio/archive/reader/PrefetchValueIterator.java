@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.diirt.vtype.VType;
+
+/** {@link ValueIterator} that reads ahead from a base iterator
+ *  in a background thread.
+ *
+ *  <p>Samples are passed in batches through a bounded queue,
+ *  so the base iterator can fetch while the caller processes earlier samples,
+ *  without reading the complete data into memory.
+ *  Several of these allow fetching several channels concurrently.
+ *
+ *  <p>Errors of the base iterator are reported by {@link #next()}
+ *  once the samples read before the error have been returned.
+ *
+ *  <p>The background reader may still use the base iterator for a while
+ *  after {@link #close()}.
+ *  Call {@link #awaitDone(long, TimeUnit)} before closing the archive reader
+ *  that provided the base iterator.
+ */
+public class PrefetchValueIterator implements ValueIterator
+{
+    /** Default number of samples per batch */
+    final public static int BATCH_SIZE = 1000;
+
+    /** Default number of batches to read ahead */
+    final public static int BATCH_COUNT = 10;
+
+    /** Marks the end of the data */
+    final private static Batch END = new Batch(new ArrayList<>(0), null);
+
+    /** Batch of samples or error */
+    private static class Batch
+    {
+        final List<VType> values;
+        final Exception error;
+
+        Batch(final List<VType> values, final Exception error)
+        {
+            this.values = values;
+            this.error = error;
+        }
+    }
+
+    final private ValueIterator base;
+    final private int batch_size;
+    final private BlockingQueue<Batch> queue;
+
+    /** Counted down when the background reader has closed the base iterator */
+    final private CountDownLatch done = new CountDownLatch(1);
+
+    /** Set to stop the background thread */
+    private volatile boolean closed = false;
+
+    /** Batch being returned by next(), <code>null</code> when at end */
+    private Batch batch;
+
+    /** Index of the next sample in <code>batch</code> */
+    private int index = 0;
+
+    /** Start reading with default batch size and count
+     *  @param base Base iterator, will be closed by the background reader
+     *  @param executor Executor that runs the background reader
+     */
+    public PrefetchValueIterator(final ValueIterator base, final ExecutorService executor)
+    {
+        this(base, executor, BATCH_SIZE, BATCH_COUNT);
+    }
+
+    /** Start reading
+     *  @param base Base iterator, will be closed by the background reader
+     *  @param executor Executor that runs the background reader.
+     *                  Each iterator occupies one thread until its base
+     *                  iterator is read or this iterator is closed.
+     *  @param batch_size Number of samples per batch
+     *  @param batch_count Number of batches to read ahead
+     */
+    public PrefetchValueIterator(final ValueIterator base, final ExecutorService executor,
+                                 final int batch_size, final int batch_count)
+    {
+        this.base = base;
+        this.batch_size = batch_size;
+        queue = new ArrayBlockingQueue<>(batch_count);
+        batch = new Batch(new ArrayList<>(0), null);
+        executor.execute(this::read);
+    }
+
+    /** Read base iterator into the queue */
+    private void read()
+    {
+        try
+        {
+            readBase();
+        }
+        finally
+        {
+            done.countDown();
+        }
+    }
+
+    /** Read base iterator into the queue, then close it */
+    private void readBase()
+    {
+        List<VType> values = new ArrayList<>(batch_size);
+        Exception error = null;
+        try
+        {
+            while (!closed  &&  base.hasNext())
+            {
+                values.add(base.next());
+                if (values.size() >= batch_size)
+                {
+                    put(new Batch(values, null));
+                    values = new ArrayList<>(batch_size);
+                }
+            }
+        }
+        catch (Exception ex)
+        {
+            error = ex;
+        }
+        finally
+        {   // Close base before reporting the end
+            base.close();
+        }
+        if (error != null)
+            // Pass samples read before the error, then the error
+            put(new Batch(values, error));
+        else
+        {
+            if (! values.isEmpty())
+                put(new Batch(values, null));
+            put(END);
+        }
+    }
+
+    /** @param batch Batch to add to queue unless closed */
+    private void put(final Batch batch)
+    {
+        try
+        {
+            while (!closed  &&  !queue.offer(batch, 1, TimeUnit.SECONDS))
+            {
+                // Wait for space in queue
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            closed = true;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext()
+    {
+        if (closed)
+            return false;
+        while (batch != null  &&  index >= batch.values.size())
+        {
+            if (batch.error != null)
+                return true;
+            if (batch == END)
+            {
+                batch = null;
+                break;
+            }
+            try
+            {
+                batch = queue.take();
+            }
+            catch (InterruptedException ex)
+            {
+                batch = new Batch(new ArrayList<>(0), ex);
+            }
+            index = 0;
+        }
+        return batch != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        if (! hasNext())
+            throw new IllegalStateException();
+        if (index >= batch.values.size())
+        {
+            final Exception error = batch.error;
+            batch = null;
+            throw error;
+        }
+        return batch.values.get(index++);
+    }
+
+    /** @return <code>true</code> once the background reader has closed the base iterator */
+    public boolean isDone()
+    {
+        return done.getCount() == 0;
+    }
+
+    /** Wait for the background reader to finish with the base iterator
+     *  @param timeout Maximum time to wait
+     *  @param unit Unit of the timeout
+     *  @return <code>true</code> if the base iterator has been closed,
+     *          <code>false</code> if it may still be in use
+     *  @throws InterruptedException when interrupted
+     */
+    public boolean awaitDone(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        return done.await(timeout, unit);
+    }
+
+    /** Stops the background reader, which then closes the base iterator.
+     *  May be called from another thread to cancel a blocked {@link #hasNext()}.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        queue.clear();
+        // Wake hasNext() that waits for a batch
+        queue.offer(END);
+    }
+}
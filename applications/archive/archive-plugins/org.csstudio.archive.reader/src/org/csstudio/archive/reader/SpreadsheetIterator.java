@@ -8,6 +8,9 @@
 package org.csstudio.archive.reader;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
 
 import org.csstudio.archive.vtype.VTypeHelper;
 import org.diirt.vtype.VType;
@@ -18,6 +21,10 @@ import org.diirt.vtype.VType;
  *  It uses staircase interpolation, basically keeping the last value
  *  of a channel until all channels reach a new timestamp.
  *  <p>
+ *  The channels are kept in a heap ordered by the time stamp of their
+ *  next sample, so each line only handles the channels that
+ *  change in that line instead of scanning all channels.
+ *  <p>
  *  While it uses the common Java <code>Iterator</code> idea with
  *  <code>hasNext()/next()</code> for the values, pay attention to
  *  the comments for <code>getTime()</code>!
@@ -37,6 +44,15 @@ public class SpreadsheetIterator
      */
     private VType raw_data[];
 
+    /** Time stamps of the <code>raw_data</code> */
+    final private Instant raw_time[];
+
+    /** Indices of channels that have <code>raw_data</code>, oldest first */
+    final private PriorityQueue<Integer> pending;
+
+    /** Channels that are updated in the current line */
+    final private List<Integer> updated = new ArrayList<>();
+
     /** The timestamp for the current spreadsheet 'line'. */
     private Instant time;
 
@@ -54,10 +70,13 @@ public class SpreadsheetIterator
 
         // Get first sample from each base iterator
         raw_data = new VType[iters.length];
+        raw_time = new Instant[iters.length];
         values = new VType[iters.length];
+        pending = new PriorityQueue<>(Math.max(1, iters.length),
+                                      (a, b) -> raw_time[a].compareTo(raw_time[b]));
         for (int i=0; i<iters.length; ++i)
         {
-            raw_data[i] = iters[i].hasNext()  ?  iters[i].next()  :  null;
+            fetchRawData(i);
             if (debug)
                 System.out.println("Initial " + i + ": " + VTypeHelper.toString(raw_data[i]));
         }
@@ -121,6 +140,22 @@ public class SpreadsheetIterator
         return result;
     }
 
+    /** Read next sample of a channel into <code>raw_data</code>
+     *  @param i Channel index
+     *  @throws Exception on error
+     */
+    private void fetchRawData(final int i) throws Exception
+    {
+        if (iters[i].hasNext())
+        {
+            raw_data[i] = iters[i].next();
+            raw_time[i] = VTypeHelper.getTimestamp(raw_data[i]);
+            pending.add(i);
+        }
+        else
+            raw_data[i] = null;
+    }
+
     /** Fill <code>time</code> and <code>values</code> with the next
      *  spreadsheet line.
      *  @throws Exception on error
@@ -128,42 +163,33 @@ public class SpreadsheetIterator
     private void getNextSpreadsheetLine() throws Exception
     {
         // Find oldest timestamp
-        time = null;
-        for (int i=0; i<raw_data.length; ++i)
-        {
-            if (raw_data[i] == null)
-                continue;
-            final Instant sample_time = VTypeHelper.getTimestamp(raw_data[i]);
-            if (time == null  ||  sample_time.compareTo(time) < 0)
-                time = sample_time;
-        }
-        if (time == null)
+        if (pending.isEmpty())
         {   // No channel left with any data.
+            time = null;
             values = null;
             return;
         }
+        time = raw_time[pending.peek()];
 
         if (debug)
             System.out.println("Next time stamp: " + time.toString()); //$NON-NLS-1$
 
         // 'time' now defines the current spreadsheet line.
-        for (int i=0; i<raw_data.length; ++i)
+        // Channels with raw_data.time > time leave values[i] as is
+        // until 'time' catches up with raw_data.time.
+        // This also covers the initial values[i] == null case.
+        // Channels with raw_data at 'time' use it ....
+        while (! pending.isEmpty()  &&  raw_time[pending.peek()].compareTo(time) <= 0)
         {
-            // Channel has no new data? Leave at last known value[i].
-            if (raw_data[i] == null)
-                continue;
-            // Channel has data.
-            if (VTypeHelper.getTimestamp(raw_data[i]).compareTo(time) <= 0)
-            {   // 'raw_data' is still valid, so use it ....
-                values[i] = raw_data[i];
-                // and get next sample in preparation for next()
-                raw_data[i] = iters[i].hasNext()  ?  iters[i].next()  :  null;
-            }
-            // else: raw_data.time is already > time,
-            // so leave values[i] as is until 'time' catches up
-            // with raw_data.time.
-            // This also covers the initial values[i] == null case.
+            final int i = pending.poll();
+            values[i] = raw_data[i];
+            updated.add(i);
         }
+        // and get next sample in preparation for next(),
+        // at most one per channel and line
+        for (int i : updated)
+            fetchRawData(i);
+        updated.clear();
     }
 
     /** Must be called to release resources */
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.influxdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+
+import org.influxdb.dto.Point;
+import org.junit.Test;
+
+/** JUnit test of the {@link InfluxDBRollup}
+ *
+ *  <p>Compares the incremental statistics with those
+ *  computed from all samples of a bucket,
+ *  which is what a "GROUP BY time(..)" query would return.
+ *  Does not require an InfluxDB server.
+ */
+@SuppressWarnings("nls")
+public class InfluxDBRollupUnitTest
+{
+    @Test
+    public void testStatistics() throws Exception
+    {
+        final Duration tier = Duration.ofMinutes(1);
+        final InfluxDBRollup rollup = new InfluxDBRollup("test", tier);
+        final Instant start = Instant.parse("2017-01-01T10:00:00Z");
+        final Random random = new Random(42);
+
+        // Samples every 0.5 seconds for 5 minutes
+        final double values[] = new double[120];
+        int points = 0;
+        for (int bucket=0; bucket<5; ++bucket)
+        {
+            for (int i=0; i<values.length; ++i)
+            {
+                values[i] = random.nextGaussian() * 10.0 + bucket;
+                final Instant stamp = start.plus(tier.multipliedBy(bucket)).plusMillis(500 * i);
+                final Point completed = rollup.add(stamp, values[i], "double.0");
+                // Previous bucket is completed by first sample of next bucket
+                if (i == 0  &&  bucket > 0)
+                {
+                    assertNotNull(completed);
+                    ++points;
+                }
+                else
+                    assertNull(completed);
+            }
+
+            assertEquals(start.plus(tier.multipliedBy(bucket)), rollup.getBucket());
+            assertEquals(values.length, rollup.getCount());
+            double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+            for (double value : values)
+            {
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            final double mean = sum / values.length;
+            double sq = 0;
+            for (double value : values)
+                sq += (value - mean) * (value - mean);
+            assertEquals(mean, rollup.getMean(), 1e-9);
+            assertEquals(min, rollup.getMin(), 0.0);
+            assertEquals(max, rollup.getMax(), 0.0);
+            assertEquals(Math.sqrt(sq / (values.length - 1)), rollup.getStdDev(), 1e-9);
+        }
+        assertEquals(4, points);
+
+        // Open bucket is written, but only once unless it changes
+        final Point point = rollup.getPoint();
+        assertTrue(point.lineProtocol().startsWith("test__rollup_60s "));
+        assertTrue(point.lineProtocol().contains("mean_double.0="));
+        assertTrue(point.lineProtocol().contains("count_double.0=120i"));
+        assertNull(rollup.getPoint());
+
+        // Samples before the current bucket are ignored
+        assertNull(rollup.add(start, 1000.0, "double.0"));
+        assertEquals(values.length, rollup.getCount());
+        assertNull(rollup.getPoint());
+    }
+
+    /** After a restart, the bucket continues with the stored statistics */
+    @Test
+    public void testSeed() throws Exception
+    {
+        final Duration tier = Duration.ofMinutes(1);
+        final Instant start = Instant.parse("2017-01-01T10:00:00Z");
+        final Random random = new Random(42);
+        final double values[] = new double[100];
+        for (int i=0; i<values.length; ++i)
+            values[i] = random.nextGaussian() * 10.0;
+
+        // Statistics of all samples
+        final InfluxDBRollup all = new InfluxDBRollup("test", tier);
+        for (int i=0; i<values.length; ++i)
+            all.add(start.plusMillis(500 * i), values[i], "double.0");
+
+        // Engine stopped after the first half was written
+        final InfluxDBRollup before = new InfluxDBRollup("test", tier);
+        for (int i=0; i<values.length/2; ++i)
+            before.add(start.plusMillis(500 * i), values[i], "double.0");
+
+        final InfluxDBRollup after = new InfluxDBRollup("test", tier);
+        after.seed(before.getBucket(), "double.0", before.getCount(),
+                   before.getMean(), before.getMin(), before.getMax(), before.getStdDev());
+        // Seeded bucket is not written again without new samples
+        assertNull(after.getPoint());
+        for (int i=values.length/2; i<values.length; ++i)
+            assertNull(after.add(start.plusMillis(500 * i), values[i], "double.0"));
+
+        assertEquals(all.getCount(), after.getCount());
+        assertEquals(all.getMean(), after.getMean(), 1e-9);
+        assertEquals(all.getMin(), after.getMin(), 0.0);
+        assertEquals(all.getMax(), after.getMax(), 0.0);
+        assertEquals(all.getStdDev(), after.getStdDev(), 1e-9);
+        assertNotNull(after.getPoint());
+    }
+}
@@ -7,18 +7,21 @@
  ******************************************************************************/
 package org.csstudio.archive.writer.influxdb;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 import org.csstudio.archive.influxdb.InfluxDBArchivePreferences;
 import org.csstudio.archive.influxdb.InfluxDBQueries;
 import org.csstudio.archive.influxdb.InfluxDBQueries.DBNameMap;
 import org.csstudio.archive.influxdb.InfluxDBQueries.DefaultDBNameMap;
 import org.csstudio.archive.influxdb.InfluxDBResults;
+import org.csstudio.archive.influxdb.InfluxDBRollups;
 import org.csstudio.archive.influxdb.InfluxDBUtil;
 import org.csstudio.archive.influxdb.InfluxDBUtil.ConnectionInfo;
 import org.csstudio.archive.influxdb.MetaTypes;
@@ -30,12 +33,15 @@ import org.csstudio.archive.writer.ArchiveWriter;
 import org.csstudio.archive.writer.WriteChannel;
 import org.diirt.vtype.Display;
 import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
 import org.diirt.vtype.VType;
 import org.influxdb.InfluxDB;
 import org.influxdb.InfluxDB.ConsistencyLevel;
 import org.influxdb.dto.BatchPoints;
 import org.influxdb.dto.Point;
 import org.influxdb.dto.QueryResult;
+import org.influxdb.dto.QueryResult.Series;
 
 /** ArchiveWriter implementation for InfluxDB
  *  @author Megan Grodowitz
@@ -54,6 +60,9 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
 
     final static private DBNameMap dbnames = new DefaultDBNameMap();
 
+    /** Rollup tiers to maintain, empty to disable */
+    final private List<Duration> rollup_tiers = InfluxDBArchivePreferences.getRollupTiers();
+
     static class batchPointSets implements Iterable<BatchPoints>
     {
         /** Batched points to be written per retention policy, per database.
@@ -253,6 +262,105 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
         writeMetaData(influxdb_channel, stamp, sample, storeas);
         batchSets.getChannelSamplePoints(channel.getName(), influxdb_channel.getRP())
             .point(InfluxDBSampleEncoder.encodeSample(influxdb_channel, stamp, sample, storeas));
+        addRollupSample(influxdb_channel, stamp, sample, storeas);
+    }
+
+    /** Update rollups of channel with sample
+     *  @param channel Channel
+     *  @param stamp Time stamp of sample
+     *  @param sample Sample
+     *  @param storeas How sample is stored
+     *  @throws Exception on error
+     */
+    private void addRollupSample(final InfluxDBWriteChannel channel, final Instant stamp, final VType sample, final StoreAs storeas) throws Exception
+    {
+        if (rollup_tiers.isEmpty())
+            return;
+        // Statistics use the first element, like the "GROUP BY time(..)" queries
+        final double value;
+        final String field;
+        switch (storeas)
+        {
+        case ARCHIVE_DOUBLE:
+            value = ((VNumber)sample).getValue().doubleValue();
+            field = "double.0";
+            break;
+        case ARCHIVE_DOUBLE_ARRAY:
+            value = ((VNumberArray)sample).getData().getDouble(0);
+            field = "double.0";
+            break;
+        case ARCHIVE_LONG:
+            value = ((VNumber)sample).getValue().longValue();
+            field = "long.0";
+            break;
+        case ARCHIVE_ENUM:
+            value = ((VEnum)sample).getIndex();
+            field = "long.0";
+            break;
+        default:
+            return;
+        }
+        // Like the "status != 'NaN'" of the queries, skip NaN samples
+        if (! Double.isFinite(value))
+            return;
+        for (InfluxDBRollup rollup : channel.getRollups(rollup_tiers))
+        {
+            if (rollup.getBucket() == null)
+                seedRollup(channel, rollup, stamp, field);
+            final Point point = rollup.add(stamp, value, field);
+            if (point != null)
+                batchSets.getChannelSamplePoints(channel.getName()).point(point);
+        }
+    }
+
+    /** Continue the rollup bucket of the first sample from the stored point
+     *
+     *  <p>After a restart of the engine, the bucket may already hold
+     *  statistics of earlier samples, which would otherwise be
+     *  overwritten by those of only the new samples.
+     *
+     *  @param channel Channel
+     *  @param rollup Rollup of the channel that has no bucket, yet
+     *  @param stamp Time stamp of first sample
+     *  @param field Field name suffix of the sample
+     */
+    private void seedRollup(final InfluxDBWriteChannel channel, final InfluxDBRollup rollup, final Instant stamp, final String field)
+    {
+        final Instant bucket = InfluxDBRollups.getBucketStart(stamp, rollup.getTier());
+        try
+        {
+            final List<Series> series = InfluxDBResults.getNonEmptySeries(
+                influxQuery.get_newest_rollup_samples(channel.getName(), rollup.getTier(), bucket, bucket, 1L));
+            if (series.isEmpty())
+                return;
+            final Object count = InfluxDBResults.getValue(series.get(0), InfluxDBRollups.COUNT + field, 0);
+            // No point, or one for a different data type
+            if (! (count instanceof Number))
+                return;
+            rollup.seed(bucket, field, ((Number) count).longValue(),
+                        getRollupField(series.get(0), InfluxDBRollups.MEAN + field),
+                        getRollupField(series.get(0), InfluxDBRollups.MIN + field),
+                        getRollupField(series.get(0), InfluxDBRollups.MAX + field),
+                        getRollupField(series.get(0), InfluxDBRollups.STDDEV + field));
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Cannot read rollup " +
+                InfluxDBRollups.getMeasurement(channel.getName(), rollup.getTier()) + " at " + bucket, ex);
+        }
+    }
+
+    /** @param series Series with rollup point
+     *  @param column Name of a statistics field
+     *  @return Value of the field
+     *  @throws Exception if the field is missing
+     */
+    private static double getRollupField(final Series series, final String column) throws Exception
+    {
+        final Object value = InfluxDBResults.getValue(series, column, 0);
+        if (! (value instanceof Number))
+            throw new Exception("Missing " + column);
+        return ((Number) value).doubleValue();
     }
 
     /** Write meta data if it was never written or has changed
@@ -319,6 +427,15 @@ public class InfluxDBArchiveWriter implements ArchiveWriter
     @Override
     public void flush() throws Exception
     {
+        // Write current state of the open rollup buckets
+        for (InfluxDBWriteChannel channel : channels.values())
+            for (InfluxDBRollup rollup : channel.getRollups(rollup_tiers))
+            {
+                final Point point = rollup.getPoint();
+                if (point != null)
+                    batchSets.getChannelSamplePoints(channel.getName()).point(point);
+            }
+
         for (BatchPoints batchPoints : batchSets)
         {
             try
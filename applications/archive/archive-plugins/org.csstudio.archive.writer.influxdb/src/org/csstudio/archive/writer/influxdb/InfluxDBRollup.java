@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.archive.writer.influxdb;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.csstudio.archive.influxdb.InfluxDBRollups;
+import org.csstudio.archive.influxdb.InfluxDBUtil;
+import org.influxdb.dto.Point;
+
+/** Statistics of one channel for one rollup tier
+ *
+ *  <p>Accumulates the samples of the current bucket
+ *  incrementally (Welford's algorithm),
+ *  so the writer can write the rollup point
+ *  without reading the raw samples back.
+ *
+ *  @see InfluxDBRollups
+ */
+@SuppressWarnings("nls")
+public class InfluxDBRollup
+{
+    final private String measurement;
+    final private Duration tier;
+
+    /** Start of current bucket, <code>null</code> before first sample */
+    private Instant bucket = null;
+
+    /** Field name suffix, "double.0" or "long.0" */
+    private String field = null;
+
+    private long count;
+    private double mean, m2, min, max;
+
+    /** Has the current bucket changed since it was last written? */
+    private boolean changed = false;
+
+    /** Has a sample before the current bucket been reported? */
+    private boolean reported_dropped = false;
+
+    /** @param channel_name Channel name
+     *  @param tier Duration of buckets
+     */
+    public InfluxDBRollup(final String channel_name, final Duration tier)
+    {
+        measurement = InfluxDBRollups.getMeasurement(channel_name, tier);
+        this.tier = tier;
+    }
+
+    /** @return Duration of buckets */
+    public Duration getTier()
+    {
+        return tier;
+    }
+
+    /** @return Start of current bucket, <code>null</code> before first sample */
+    public Instant getBucket()
+    {
+        return bucket;
+    }
+
+    /** @return Number of samples in current bucket */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /** @return Mean of samples in current bucket */
+    public double getMean()
+    {
+        return mean;
+    }
+
+    /** @return Minimum of samples in current bucket */
+    public double getMin()
+    {
+        return min;
+    }
+
+    /** @return Maximum of samples in current bucket */
+    public double getMax()
+    {
+        return max;
+    }
+
+    /** @return Standard deviation of samples in current bucket,
+     *          using N-1 like the InfluxDB STDDEV() function
+     */
+    public double getStdDev()
+    {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+    }
+
+    /** Continue a bucket that was already written,
+     *  for example by the engine before it was restarted
+     *
+     *  <p>The stored statistics are not written again
+     *  unless more samples are added.
+     *
+     *  @param bucket Start of the bucket
+     *  @param field Field name suffix, "double.0" or "long.0"
+     *  @param count Number of samples in the bucket
+     *  @param mean Mean of samples in the bucket
+     *  @param min Minimum of samples in the bucket
+     *  @param max Maximum of samples in the bucket
+     *  @param stddev Standard deviation of samples in the bucket, using N-1
+     */
+    public void seed(final Instant bucket, final String field, final long count,
+                     final double mean, final double min, final double max, final double stddev)
+    {
+        this.bucket = bucket;
+        this.field = field;
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        m2 = count > 1 ? stddev * stddev * (count - 1) : 0.0;
+        changed = false;
+        reported_dropped = false;
+    }
+
+    /** Add sample
+     *
+     *  <p>Samples must be added in time order.
+     *  Samples before the current bucket are ignored
+     *  and logged once per bucket, since the raw samples
+     *  are still written but the statistics miss them.
+     *
+     *  @param stamp Time stamp
+     *  @param value Value, must be finite
+     *  @param field Field name suffix, "double.0" or "long.0"
+     *  @return Point for the completed previous bucket, or <code>null</code>
+     */
+    public Point add(final Instant stamp, final double value, final String field)
+    {
+        final Instant start = InfluxDBRollups.getBucketStart(stamp, tier);
+        if (bucket != null  &&  start.isBefore(bucket))
+        {
+            if (! reported_dropped)
+            {
+                reported_dropped = true;
+                Activator.getLogger().log(Level.WARNING,
+                    "{0} ignores sample {1} that is before the current bucket {2}",
+                    new Object[] { measurement, stamp, bucket });
+            }
+            return null;
+        }
+        Point completed = null;
+        if (bucket == null  ||  start.isAfter(bucket)  ||  !field.equals(this.field))
+        {
+            completed = getPoint();
+            bucket = start;
+            this.field = field;
+            count = 0;
+            mean = m2 = 0.0;
+            min = max = value;
+            reported_dropped = false;
+        }
+
+        ++count;
+        final double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        changed = true;
+        return completed;
+    }
+
+    /** Get point for the current bucket.
+     *
+     *  <p>While the bucket is still open, the point
+     *  is later written again, overwriting the fields
+     *  of the earlier point with the same time stamp.
+     *
+     *  @return Point for the current bucket if it changed since the last call,
+     *          otherwise <code>null</code>
+     */
+    public Point getPoint()
+    {
+        if (! changed)
+            return null;
+        changed = false;
+        return Point.measurement(measurement)
+                    .time(InfluxDBUtil.toNanoLong(bucket), TimeUnit.NANOSECONDS)
+                    .addField(InfluxDBRollups.MEAN + field, mean)
+                    .addField(InfluxDBRollups.MIN + field, min)
+                    .addField(InfluxDBRollups.MAX + field, max)
+                    .addField(InfluxDBRollups.STDDEV + field, getStdDev())
+                    .addField(InfluxDBRollups.COUNT + field, count)
+                    .build();
+    }
+}
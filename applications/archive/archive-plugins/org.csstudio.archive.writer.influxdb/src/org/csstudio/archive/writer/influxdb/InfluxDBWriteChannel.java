@@ -7,6 +7,9 @@
  ******************************************************************************/
 package org.csstudio.archive.writer.influxdb;
 
+import java.time.Duration;
+import java.util.List;
+
 import org.csstudio.archive.influxdb.MetaTypes.MetaObject;
 import org.csstudio.archive.influxdb.MetaTypes.StoreAs;
 import org.csstudio.archive.writer.WriteChannel;
@@ -21,6 +24,7 @@ public class InfluxDBWriteChannel implements WriteChannel
     private Object meta = null;
     private StoreAs storeas = StoreAs.ARCHIVE_UNKNOWN;
     final private String rp; //retention policy used for initial writes
+    private InfluxDBRollup[] rollups = null;
 
     /** Initialize
      *  @param name Channel name
@@ -83,6 +87,20 @@ public class InfluxDBWriteChannel implements WriteChannel
         this.storeas = mo.storeas;
     }
 
+    /** @param tiers Rollup tiers
+     *  @return Rollups of this channel, created on first call
+     */
+    InfluxDBRollup[] getRollups(final List<Duration> tiers)
+    {
+        if (rollups == null)
+        {
+            rollups = new InfluxDBRollup[tiers.size()];
+            for (int i=0; i<rollups.length; ++i)
+                rollups[i] = new InfluxDBRollup(name, tiers.get(i));
+        }
+        return rollups;
+    }
+
     public String toLongString()
     {
         String metaclass;
@@ -1,15 +1,22 @@
 package org.csstudio.channel.widgets;
 
+import gov.bnl.channelfinder.api.Channel;
 import gov.bnl.channelfinder.api.ChannelQuery;
 import gov.bnl.channelfinder.api.ChannelQuery.Result;
 import gov.bnl.channelfinder.api.ChannelQueryListener;
 
+import java.util.Collection;
+
+import org.csstudio.utility.channelfinder.ChannelQueryCache;
 import org.csstudio.utility.pvmanager.ui.SWTUtil;
 import org.eclipse.swt.widgets.Composite;
 
 /**
  * Provides the basic infrastructure for a widget that works with a channel query result.
  * Handles the basics for async communication.
+ * <p>
+ * While a large query is read in pages, the channels read so far are passed
+ * to {@link #queryPartiallyExecuted(Collection)}.
  *
  * @author carcassi
  */
@@ -27,14 +34,20 @@ public abstract class AbstractChannelQueryResultWidget extends AbstractChannelQu
         ChannelQuery oldValue = getChannelQuery();
         if (oldValue != null) {
             oldValue.removeChannelQueryListener(queryListener);
+            ChannelQueryCache.getInstance().removePageListener(oldValue.getQuery(), pageListener);
         }
         queryCleared();
+        resultReceived = false;
         if (channelQuery != null) {
+            ChannelQueryCache.getInstance().addPageListener(channelQuery.getQuery(), pageListener);
             channelQuery.execute(queryListener);
         }
         super.setChannelQuery(channelQuery);
     }
 
+    /** Set when the complete result was received. Accessed on the SWT thread */
+    private boolean resultReceived = false;
+
     private final ChannelQueryListener queryListener = new ChannelQueryListener() {
 
         @Override
@@ -43,6 +56,7 @@ public abstract class AbstractChannelQueryResultWidget extends AbstractChannelQu
 
                 @Override
                 public void run() {
+                    resultReceived = true;
                     AbstractChannelQueryResultWidget.this.queryExecuted(result);
                 }
             });
@@ -50,6 +64,24 @@ public abstract class AbstractChannelQueryResultWidget extends AbstractChannelQu
         }
     };
 
+    private final ChannelQueryCache.PageListener pageListener = new ChannelQueryCache.PageListener() {
+
+        @Override
+        public void pageReceived(final String query, final Collection<Channel> channels) {
+            SWTUtil.swtThread(AbstractChannelQueryResultWidget.this).execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    // Ignore pages of an old query or after the complete result
+                    if (resultReceived || getChannelQuery() == null
+                            || !query.equals(getChannelQuery().getQuery()))
+                        return;
+                    AbstractChannelQueryResultWidget.this.queryPartiallyExecuted(channels);
+                }
+            });
+        }
+    };
+
     /**
      * This method should clear all the displayed information about the query as
      * the query is either non-existent or not yet finished. This is called on the
@@ -65,4 +97,15 @@ public abstract class AbstractChannelQueryResultWidget extends AbstractChannelQu
      */
     protected abstract void queryExecuted(Result result);
 
+    /**
+     * This method may display the channels read so far while a large query
+     * is read in pages. It is followed by {@link #queryExecuted(Result)} once
+     * the query completes. This is called on the SWT thread.
+     * By default, partial results are not displayed.
+     *
+     * @param channels the channels read so far
+     */
+    protected void queryPartiallyExecuted(Collection<Channel> channels) {
+    }
+
 }
@@ -1,5 +1,6 @@
 package org.csstudio.channel.widgets;
 
+import gov.bnl.channelfinder.api.Channel;
 import gov.bnl.channelfinder.api.ChannelQuery;
 import gov.bnl.channelfinder.api.ChannelQuery.Result;
 import gov.bnl.channelfinder.api.ChannelUtil;
@@ -8,6 +9,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import org.csstudio.ui.util.widgets.ErrorBar;
@@ -159,15 +161,26 @@ implements ConfigurableWidget, ISelectionProvider {
         }
     }
 
+    @Override
+    protected void queryPartiallyExecuted(Collection<Channel> channels) {
+        computeTree(channels);
+    }
+
     private void computeTree() {
+        if (getChannelQuery() == null || getChannelQuery().getResult() == null) {
+            computeTree(null);
+        } else {
+            computeTree(getChannelQuery().getResult().channels);
+        }
+    }
+
+    private void computeTree(Collection<Channel> channels) {
         tree.setItemCount(0);
         tree.clearAll(true);
         if (getChannelQuery() == null) {
             model = new ChannelTreeByPropertyModel(null, null, getProperties(), this, showChannelNames);
-        } else if (getChannelQuery().getResult() == null) {
-            model = new ChannelTreeByPropertyModel(getChannelQuery().getQuery(), null, getProperties(), this, showChannelNames);
         } else {
-            model = new ChannelTreeByPropertyModel(getChannelQuery().getQuery(), getChannelQuery().getResult().channels, getProperties(), this, showChannelNames);
+            model = new ChannelTreeByPropertyModel(getChannelQuery().getQuery(), channels, getProperties(), this, showChannelNames);
         }
         if (model.getRoot().getChildrenNames() != null) {
             tree.setItemCount(model.getRoot().getChildrenNames().size());
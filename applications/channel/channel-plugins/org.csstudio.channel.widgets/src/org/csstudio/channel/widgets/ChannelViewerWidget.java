@@ -271,6 +271,11 @@ public class ChannelViewerWidget extends AbstractChannelQueryResultWidget
         }
     }
 
+    @Override
+    protected void queryPartiallyExecuted(Collection<Channel> channels) {
+        setChannels(channels);
+    }
+
     @Override
     public void addSelectionChangedListener(ISelectionChangedListener listener) {
         selectionProvider.addSelectionChangedListener(listener);
@@ -0,0 +1,216 @@
+package org.csstudio.utility.channelfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.bnl.channelfinder.api.Channel;
+import gov.bnl.channelfinder.api.ChannelFinderClient;
+import gov.bnl.channelfinder.api.ChannelFinderClientImpl.CFCBuilder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ChannelQueryCache} against a local HTTP stand-in for
+ * ChannelFinder.
+ */
+public class ChannelQueryCacheTest {
+
+    /**
+     * Minimal ChannelFinder that serves channels 'test:000', 'test:001', ...
+     * and supports the '~size' and '~from' parameters.
+     */
+    private static class LocalChannelFinder implements Runnable {
+        final ServerSocket server;
+        final int channelCount;
+        final AtomicInteger requests = new AtomicInteger();
+        volatile long delay = 0;
+
+        LocalChannelFinder(int channelCount) throws Exception {
+            this.server = new ServerSocket(0);
+            this.channelCount = channelCount;
+            Thread thread = new Thread(this, "LocalChannelFinder");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String getURL() {
+            return "http://localhost:" + server.getLocalPort() + "/ChannelFinder";
+        }
+
+        @Override
+        public void run() {
+            while (!server.isClosed()) {
+                try {
+                    final Socket socket = server.accept();
+                    new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            handle(socket);
+                        }
+                    }).start();
+                } catch (Exception ex) {
+                    // Closed
+                }
+            }
+        }
+
+        private void handle(Socket socket) {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String request = in.readLine();
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) {
+                    // Skip headers
+                }
+                requests.incrementAndGet();
+                Thread.sleep(delay);
+
+                // GET /ChannelFinder/resources/channels?~name=...&~size=... HTTP/1.1
+                String uri = request.split(" ")[1];
+                Map<String, String> params = new HashMap<String, String>();
+                int query = uri.indexOf('?');
+                if (query >= 0)
+                    for (String param : uri.substring(query + 1).split("&")) {
+                        String[] keyValue = param.split("=", 2);
+                        params.put(URLDecoder.decode(keyValue[0], "UTF-8"),
+                                keyValue.length > 1 ? URLDecoder.decode(keyValue[1], "UTF-8") : "");
+                    }
+                int from = params.containsKey("~from") ? Integer.parseInt(params.get("~from")) : 0;
+                int size = params.containsKey("~size") ? Integer.parseInt(params.get("~size")) : channelCount;
+
+                StringBuilder json = new StringBuilder("[");
+                for (int i = from; i < channelCount && i < from + size; i++) {
+                    if (json.length() > 1)
+                        json.append(',');
+                    json.append(String.format("{\"name\":\"test:%03d\",\"owner\":\"test\",\"properties\":[],\"tags\":[]}", i));
+                }
+                json.append(']');
+                byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + "Content-Length: " + body.length + "\r\n"
+                        + "Connection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                out.write(body);
+                out.flush();
+                socket.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+
+        void close() throws Exception {
+            server.close();
+        }
+    }
+
+    private LocalChannelFinder channelFinder;
+    private ChannelFinderClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        channelFinder = new LocalChannelFinder(25);
+        client = CFCBuilder.serviceURL(channelFinder.getURL()).create();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        channelFinder.close();
+    }
+
+    @Test
+    public void parseQuery() {
+        Map<String, String> search = ChannelQueryCache.parseQuery("SR* Tags=a||b cell=1, 2");
+        assertEquals("SR*", search.get("~name"));
+        assertEquals("a,b", search.get("~tag"));
+        assertEquals("1,2", search.get("cell"));
+        assertEquals(3, search.size());
+
+        // Several names or tags must all match, which is not supported
+        assertNull(ChannelQueryCache.parseQuery("SR* BR*"));
+        assertNull(ChannelQueryCache.parseQuery("tags=a tags=b"));
+        assertNull(ChannelQueryCache.parseQuery(" "));
+    }
+
+    @Test
+    public void cachedAndShared() throws Exception {
+        final ChannelQueryCache cache = new ChannelQueryCache(60000, 0);
+        channelFinder.delay = 500;
+
+        // Concurrent requests share one query
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Collection<Channel>>> results = new ArrayList<Future<Collection<Channel>>>();
+        for (int i = 0; i < 4; i++)
+            results.add(executor.submit(new Callable<Collection<Channel>>() {
+                @Override
+                public Collection<Channel> call() throws Exception {
+                    return cache.find(client, "test:*");
+                }
+            }));
+        for (Future<Collection<Channel>> result : results)
+            assertEquals(25, result.get().size());
+        executor.shutdown();
+        assertEquals(1, channelFinder.requests.get());
+
+        // Later requests use the cached result
+        channelFinder.delay = 0;
+        assertEquals(25, cache.find(client, "test:*").size());
+        assertEquals(1, channelFinder.requests.get());
+
+        // .. until the cache is cleared
+        cache.clear();
+        assertEquals(25, cache.find(client, "test:*").size());
+        assertEquals(2, channelFinder.requests.get());
+    }
+
+    @Test
+    public void expires() throws Exception {
+        ChannelQueryCache cache = new ChannelQueryCache(0, 0);
+        cache.find(client, "test:*");
+        cache.find(client, "test:*");
+        assertEquals(2, channelFinder.requests.get());
+    }
+
+    @Test
+    public void pages() throws Exception {
+        ChannelQueryCache cache = new ChannelQueryCache(60000, 10);
+        final List<Integer> pages = new ArrayList<Integer>();
+        cache.addPageListener("test:*", new ChannelQueryCache.PageListener() {
+            @Override
+            public void pageReceived(String query, Collection<Channel> channels) {
+                pages.add(channels.size());
+            }
+        });
+        Collection<Channel> channels = cache.find(client, "test:*");
+        assertEquals(25, channels.size());
+        assertEquals("test:024", new ArrayList<Channel>(channels).get(24).getName());
+        // Three pages of 10, 10 and 5 channels, the last one is the complete result
+        assertEquals(3, channelFinder.requests.get());
+        assertEquals(2, pages.size());
+        assertEquals(Integer.valueOf(10), pages.get(0));
+        assertEquals(Integer.valueOf(20), pages.get(1));
+        assertTrue(channels.containsAll(cache.find(client, "test:*")));
+        assertEquals(3, channelFinder.requests.get());
+    }
+}
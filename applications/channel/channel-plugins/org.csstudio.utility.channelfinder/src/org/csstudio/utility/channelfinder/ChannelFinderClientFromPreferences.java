@@ -22,6 +22,9 @@ import org.eclipse.equinox.security.storage.StorageException;
 
 /**
  * ChannelFinderClient that takes the configuration from the CSS preferences.
+ * <p>
+ * Queries are shared through the {@link ChannelQueryCache}, which is cleared
+ * whenever channels, tags or properties are changed through this client.
  *
  * @author carcassi
  *
@@ -60,6 +63,7 @@ public class ChannelFinderClientFromPreferences implements ChannelFinderClient {
                         PreferenceConstants.Password, ""))
                 .create());
         client = compositeClient;
+        ChannelQueryCache.getInstance().clear();
     } catch (IOException e) {
         log.severe(e.getMessage());
     } catch (StorageException e) {
@@ -86,81 +90,95 @@ public class ChannelFinderClientFromPreferences implements ChannelFinderClient {
     @Override
     public void set(Builder channel) throws ChannelFinderException {
     client.set(channel);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Tag.Builder channel) {
     client.set(channel);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Property.Builder channel)
         throws ChannelFinderException {
     client.set(channel);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(Collection<Builder> channels) throws ChannelFinderException {
     client.set(channels);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Tag.Builder tag,
         String channelName) throws ChannelFinderException {
     client.set(tag, channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Property.Builder tag,
         String channelName) {
     client.set(tag, channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Tag.Builder tag,
         Collection<String> channelNames) throws ChannelFinderException {
     client.set(tag, channelNames);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Property.Builder tag,
         Collection<String> channelNames) {
     client.set(tag, channelNames);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void set(gov.bnl.channelfinder.api.Property.Builder prop,
         Map<String, String> channelPropertyMap) {
     client.set(prop, channelPropertyMap);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void update(Builder channel) throws ChannelFinderException {
     client.update(channel);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void update(gov.bnl.channelfinder.api.Tag.Builder tag,
         String channelName) throws ChannelFinderException {
     client.update(tag, channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void update(gov.bnl.channelfinder.api.Property.Builder tag,
         String channelName) throws ChannelFinderException {
     client.update(tag, channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void update(gov.bnl.channelfinder.api.Tag.Builder tag,
         Collection<String> channelNames) throws ChannelFinderException {
     client.update(tag, channelNames);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void update(gov.bnl.channelfinder.api.Property.Builder tag,
         Collection<String> channelNames) throws ChannelFinderException {
     client.update(tag, channelNames);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
@@ -168,6 +186,7 @@ public class ChannelFinderClientFromPreferences implements ChannelFinderClient {
         Map<String, String> channelPropValueMap)
         throws ChannelFinderException {
     client.update(property, channelPropValueMap);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
@@ -190,7 +209,7 @@ public class ChannelFinderClientFromPreferences implements ChannelFinderClient {
 
     @Override
     public Collection<Channel> find(String query) throws ChannelFinderException {
-    return client.find(query);
+    return ChannelQueryCache.getInstance().find(client, query);
     }
 
     @Override
@@ -208,47 +227,55 @@ public class ChannelFinderClientFromPreferences implements ChannelFinderClient {
     @Override
     public void deleteTag(String tagName) throws ChannelFinderException {
     client.deleteTag(tagName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void deleteProperty(String propertyName)
         throws ChannelFinderException {
     client.deleteProperty(propertyName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void deleteChannel(String channelName) throws ChannelFinderException {
     client.deleteChannel(channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void delete(Collection<Builder> channels)
         throws ChannelFinderException {
     client.delete(channels);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void delete(gov.bnl.channelfinder.api.Tag.Builder tag,
         String channelName) throws ChannelFinderException {
     client.delete(tag, channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void delete(gov.bnl.channelfinder.api.Property.Builder tag,
         String channelName) throws ChannelFinderException {
     client.delete(tag, channelName);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void delete(gov.bnl.channelfinder.api.Tag.Builder tag,
         Collection<String> channelNames) throws ChannelFinderException {
     client.delete(tag, channelNames);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
     public void delete(gov.bnl.channelfinder.api.Property.Builder tag,
         Collection<String> channelNames) throws ChannelFinderException {
     client.delete(tag, channelNames);
+    ChannelQueryCache.getInstance().clear();
     }
 
     @Override
@@ -0,0 +1,302 @@
+package org.csstudio.utility.channelfinder;
+
+import gov.bnl.channelfinder.api.Channel;
+import gov.bnl.channelfinder.api.ChannelFinderClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.preferences.IPreferencesService;
+
+/**
+ * Shared cache of ChannelFinder query results.
+ * <p>
+ * Results are kept for a configurable time, so that several widgets showing
+ * the same query only contact ChannelFinder once. A query that is already
+ * running is not sent again: later requests wait for the running one.
+ * <p>
+ * Large queries are read in pages. {@link PageListener}s receive the channels
+ * read so far after each page, so that they can display them before the query
+ * completes.
+ */
+public class ChannelQueryCache {
+
+    private static final Logger log = Logger.getLogger(ChannelQueryCache.class.getName());
+
+    /** Maximum number of cached queries */
+    private static final int MAX_ENTRIES = 100;
+
+    /**
+     * Listener to the pages of a query.
+     */
+    public static interface PageListener {
+
+        /**
+         * Called for each page that added channels to the result of a query.
+         * Called on the thread that runs the query.
+         *
+         * @param query the query
+         * @param channels all channels read so far
+         */
+        public void pageReceived(String query, Collection<Channel> channels);
+    }
+
+    /** Result of one query, complete or still being read */
+    private static class Entry {
+        private final List<Channel> channels = new ArrayList<Channel>();
+        private final Set<String> names = new HashSet<String>();
+        private boolean done = false;
+        private RuntimeException error = null;
+        private long time;
+
+        /** @return <code>true</code> if the page added channels */
+        synchronized boolean add(Collection<Channel> page) {
+            if (page == null)
+                return false;
+            boolean added = false;
+            for (Channel channel : page)
+                if (names.add(channel.getName())) {
+                    channels.add(channel);
+                    added = true;
+                }
+            return added;
+        }
+
+        synchronized List<Channel> getChannels() {
+            return new ArrayList<Channel>(channels);
+        }
+
+        synchronized void complete() {
+            time = System.currentTimeMillis();
+            done = true;
+            notifyAll();
+        }
+
+        synchronized void fail(RuntimeException ex) {
+            error = ex;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized boolean isExpired(long now, long timeout) {
+            return done && now - time >= timeout;
+        }
+
+        synchronized Collection<Channel> await(String query) {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for query " + query);
+                }
+            }
+            if (error != null)
+                throw error;
+            return Collections.unmodifiableList(channels);
+        }
+    }
+
+    private static volatile ChannelQueryCache instance;
+
+    private final long timeout;
+    private final int pageSize;
+
+    /** Entries by query, least recently used first. Guarded by this */
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private final Map<String, List<PageListener>> listeners = new ConcurrentHashMap<String, List<PageListener>>();
+
+    /**
+     * @param timeout milliseconds to keep results, 0 to only share running queries
+     * @param pageSize channels to read per request, 0 to read all at once
+     */
+    public ChannelQueryCache(long timeout, int pageSize) {
+        this.timeout = timeout;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @return the cache configured from the preferences
+     */
+    public static ChannelQueryCache getInstance() {
+        if (instance == null) {
+            synchronized (ChannelQueryCache.class) {
+                if (instance == null) {
+                    long timeout = 30;
+                    int pageSize = 1000;
+                    final IPreferencesService prefs = Platform.getPreferencesService();
+                    if (prefs != null) {
+                        timeout = prefs.getInt(Activator.PLUGIN_ID,
+                                PreferenceConstants.Query_Cache_Timeout, (int) timeout, null);
+                        pageSize = prefs.getInt(Activator.PLUGIN_ID,
+                                PreferenceConstants.Query_Page_Size, pageSize, null);
+                    }
+                    instance = new ChannelQueryCache(timeout * 1000, pageSize);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the result of the query, from the cache or by reading it with
+     * the client.
+     *
+     * @param client client used to read the result
+     * @param query the query
+     * @return the channels matching the query
+     */
+    public Collection<Channel> find(ChannelFinderClient client, String query) {
+        Entry entry;
+        boolean read = false;
+        synchronized (this) {
+            entry = entries.get(query);
+            if (entry == null || entry.isExpired(System.currentTimeMillis(), timeout)) {
+                entry = new Entry();
+                entries.put(query, entry);
+                read = true;
+            }
+        }
+        if (read)
+            read(client, query, entry);
+        return entry.await(query);
+    }
+
+    /**
+     * Remove all cached results, for example after channels were changed.
+     * Queries that are still running complete for those waiting on them.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @param query the query
+     * @param listener listener to the pages of the query
+     */
+    public synchronized void addPageListener(String query, PageListener listener) {
+        List<PageListener> list = listeners.get(query);
+        if (list == null) {
+            listeners.putIfAbsent(query, new CopyOnWriteArrayList<PageListener>());
+            list = listeners.get(query);
+        }
+        list.add(listener);
+    }
+
+    /**
+     * @param query the query
+     * @param listener listener to remove
+     */
+    public synchronized void removePageListener(String query, PageListener listener) {
+        List<PageListener> list = listeners.get(query);
+        if (list != null) {
+            list.remove(listener);
+            if (list.isEmpty())
+                listeners.remove(query, list);
+        }
+    }
+
+    private void read(ChannelFinderClient client, String query, Entry entry) {
+        try {
+            Map<String, String> search = pageSize > 0 ? parseQuery(query) : null;
+            if (search == null) {
+                entry.add(client.find(query));
+            } else {
+                int from = 0;
+                while (true) {
+                    search.put("~size", Integer.toString(pageSize));
+                    search.put("~from", Integer.toString(from));
+                    Collection<Channel> page = client.find(search);
+                    if (!entry.add(page))
+                        break;
+                    // A server that ignores the paging returns everything at once
+                    if (page.size() != pageSize)
+                        break;
+                    firePageReceived(query, entry.getChannels());
+                    from += pageSize;
+                }
+            }
+            entry.complete();
+            log.log(Level.FINE, "Query ''{0}'' returned {1} channels",
+                    new Object[] { query, entry.getChannels().size() });
+        } catch (RuntimeException ex) {
+            // Do not cache errors
+            synchronized (this) {
+                entries.remove(query, entry);
+            }
+            entry.fail(ex);
+        }
+    }
+
+    private void firePageReceived(String query, Collection<Channel> channels) {
+        List<PageListener> list = listeners.get(query);
+        if (list == null)
+            return;
+        Collection<Channel> result = Collections.unmodifiableCollection(channels);
+        for (PageListener listener : list) {
+            try {
+                listener.pageReceived(query, result);
+            } catch (RuntimeException ex) {
+                log.log(Level.WARNING, "Page listener failed for query " + query, ex);
+            }
+        }
+    }
+
+    /**
+     * Converts a query into the search parameters of ChannelFinder.
+     * <p>
+     * A word without '=' is a name pattern, <code>tags=...</code> selects
+     * tags and <code>property=...</code> properties. Values separated by
+     * '||' or ',' are alternatives.
+     *
+     * @param query the query
+     * @return search parameters, or <code>null</code> if the query
+     *         cannot be expressed with one value per parameter
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> search = new LinkedHashMap<String, String>();
+        for (String word : query.replaceAll(",\\s+", ",").trim().split("\\s+")) {
+            if (word.isEmpty())
+                continue;
+            int sep = word.indexOf('=');
+            String key, value;
+            if (sep < 0) {
+                key = "~name";
+                value = word;
+            } else {
+                key = word.substring(0, sep);
+                value = word.substring(sep + 1).replace("||", ",");
+                if (key.isEmpty() || value.isEmpty())
+                    return null;
+                if (key.equalsIgnoreCase("tags"))
+                    key = "~tag";
+            }
+            // Repeated keys must all match, which needs several values per parameter
+            if (search.put(key, value) != null)
+                return null;
+        }
+        if (search.isEmpty())
+            return null;
+        return search;
+    }
+}
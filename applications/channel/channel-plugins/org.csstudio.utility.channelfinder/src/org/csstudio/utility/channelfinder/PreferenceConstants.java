@@ -8,5 +8,7 @@ public class PreferenceConstants {
     public static final String ChannelFinder_URL = "channel_finder_url";
     public static final String Username = "user";
     public static final String Password = "password";
+    public static final String Query_Cache_Timeout = "query_cache_timeout";
+    public static final String Query_Page_Size = "query_page_size";
 
 }
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ArchiveCache}
+ *
+ *  <p>Uses a simulated archive with one raw sample per second.
+ */
+@SuppressWarnings("nls")
+public class ArchiveCacheUnitTest
+{
+    private static final Instant START = Instant.parse("2016-01-01T00:00:00Z");
+
+    /** Simulated archive that counts requests */
+    private static class SimulatedArchive implements ArchiveCache.Reader
+    {
+        final AtomicInteger requests = new AtomicInteger();
+
+        /** Seconds between raw samples */
+        final long period;
+
+        SimulatedArchive()
+        {
+            this(1);
+        }
+
+        SimulatedArchive(final long period)
+        {
+            this.period = period;
+        }
+
+        @Override
+        public ValueIterator read(final Instant start, final Instant end, final int count) throws Exception
+        {
+            requests.incrementAndGet();
+            final List<VType> samples = new ArrayList<>();
+            if (count <= 0)
+            {   // One sample per period, starting with the last one at or before 'start'
+                final long first = Math.floorDiv(start.getEpochSecond(), period) * period;
+                for (long sec = first; sec < end.getEpochSecond(); sec += period)
+                    samples.add(new ArchiveVNumber(Instant.ofEpochSecond(sec), AlarmSeverity.NONE, "",
+                                                   ValueFactory.displayNone(), sec));
+            }
+            else
+            {   // 'count' bins
+                final long span = Duration.between(start, end).toMillis();
+                for (int i=0; i<count; ++i)
+                    samples.add(new ArchiveVStatistics(start.plusMillis(span * i / count), AlarmSeverity.NONE, "",
+                                                       ValueFactory.displayNone(), i, i - 1, i + 1, 0.5, 10));
+            }
+            final Iterator<VType> iter = samples.iterator();
+            return new ValueIterator()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public VType next() throws Exception
+                {
+                    return iter.next();
+                }
+
+                @Override
+                public void close()
+                {
+                    // NOP
+                }
+            };
+        }
+    }
+
+    private static void checkOrder(final List<VType> samples)
+    {
+        for (int i=1; i<samples.size(); ++i)
+            assertTrue(VTypeHelper.getTimestamp(samples.get(i-1)).isBefore(VTypeHelper.getTimestamp(samples.get(i))));
+    }
+
+    @Test
+    public void testOptimized() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(10*1024*1024, null);
+        final SimulatedArchive archive = new SimulatedArchive();
+
+        final Instant end = START.plus(Duration.ofDays(1));
+        List<VType> samples = cache.getSamples("test", 1, "pv", START, end, 800, archive);
+        // Adjacent tiles are read in one request
+        assertThat(archive.requests.get(), equalTo(1));
+        assertTrue(samples.size() >= 800);
+        checkOrder(samples);
+
+        // Same request is served from cache
+        List<VType> again = cache.getSamples("test", 1, "pv", START, end, 800, archive);
+        assertThat(archive.requests.get(), equalTo(1));
+        assertThat(again, equalTo(samples));
+
+        // Scrolling by a few hours only reads the new tiles
+        samples = cache.getSamples("test", 1, "pv", START.plus(Duration.ofHours(3)), end.plus(Duration.ofHours(3)), 800, archive);
+        assertThat(archive.requests.get(), equalTo(2));
+        checkOrder(samples);
+        assertTrue(cache.getHits() > cache.getMisses());
+
+        // Different channel is not mixed up
+        cache.getSamples("test", 1, "other", START, end, 800, archive);
+        assertThat(archive.requests.get(), equalTo(3));
+    }
+
+    @Test
+    public void testRaw() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(10*1024*1024, null);
+        final SimulatedArchive archive = new SimulatedArchive();
+
+        final Instant end = START.plus(Duration.ofHours(1));
+        List<VType> samples = cache.getSamples("test", 1, "pv", START, end, 0, archive);
+        assertThat(archive.requests.get(), equalTo(1));
+        checkOrder(samples);
+        // Covers the requested range with one sample per second
+        assertTrue(VTypeHelper.getTimestamp(samples.get(0)).compareTo(START) <= 0);
+        assertTrue(VTypeHelper.getTimestamp(samples.get(samples.size()-1)).compareTo(end.minusSeconds(1)) >= 0);
+
+        // Zooming in uses the tiles of the larger range
+        samples = cache.getSamples("test", 1, "pv", START.plus(Duration.ofMinutes(20)), START.plus(Duration.ofMinutes(35)), 0, archive);
+        assertThat(archive.requests.get(), equalTo(1));
+        checkOrder(samples);
+        assertTrue(VTypeHelper.getTimestamp(samples.get(0)).compareTo(START.plus(Duration.ofMinutes(20))) <= 0);
+    }
+
+    /** Tiles after the first one of a request hold the value at their start */
+    @Test
+    public void testRawSlowChanges() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(10*1024*1024, null);
+        // One sample every 20 minutes
+        final SimulatedArchive archive = new SimulatedArchive(20*60);
+
+        final Instant end = START.plus(Duration.ofHours(1));
+        List<VType> samples = cache.getSamples("test", 1, "pv", START, end, 0, archive);
+        assertThat(archive.requests.get(), equalTo(1));
+        checkOrder(samples);
+
+        // Same span, starting within a tile that lacks a sample of its own
+        final Instant start = START.plus(Duration.ofMinutes(31));
+        samples = cache.getSamples("test", 1, "pv", start, start.plus(Duration.ofHours(1)), 0, archive);
+        checkOrder(samples);
+        assertThat(VTypeHelper.getTimestamp(samples.get(0)), equalTo(START.plus(Duration.ofMinutes(20))));
+    }
+
+    @Test
+    public void testRecentDataNotCached() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(10*1024*1024, null);
+        final SimulatedArchive archive = new SimulatedArchive();
+
+        final Instant end = Instant.now();
+        final Instant start = end.minus(Duration.ofMinutes(2));
+        cache.getSamples("test", 1, "pv", start, end, 100, archive);
+        cache.getSamples("test", 1, "pv", start, end, 100, archive);
+        assertThat(archive.requests.get(), equalTo(2));
+    }
+
+    @Test
+    public void testDisabled() throws Exception
+    {
+        final ArchiveCache cache = new ArchiveCache(0, null);
+        final SimulatedArchive archive = new SimulatedArchive();
+        final Instant end = START.plus(Duration.ofDays(1));
+        final List<VType> samples = cache.getSamples("test", 1, "pv", START, end, 800, archive);
+        assertThat(samples.size(), equalTo(800));
+        cache.getSamples("test", 1, "pv", START, end, 800, archive);
+        assertThat(archive.requests.get(), equalTo(2));
+    }
+
+    @Test
+    public void testFiles() throws Exception
+    {
+        final File directory = Files.createTempDirectory("archive_cache").toFile();
+        try
+        {
+            // Memory only holds a few tiles, the rest is written to files
+            final ArchiveTileStore store = new ArchiveTileStore(directory, 100*1024*1024);
+            final ArchiveCache cache = new ArchiveCache(200 * 100, store);
+            final SimulatedArchive archive = new SimulatedArchive();
+
+            final Instant end = START.plus(Duration.ofDays(1));
+            final List<VType> samples = cache.getSamples("test", 1, "pv", START, end, 800, archive);
+            assertTrue(store.getBytes() > 0);
+
+            final List<VType> again = cache.getSamples("test", 1, "pv", START, end, 800, archive);
+                assertThat(archive.requests.get(), equalTo(1));
+            assertTrue(cache.getFileHits() > 0);
+            assertThat(again.size(), equalTo(samples.size()));
+            for (int i=0; i<samples.size(); ++i)
+            {
+                assertThat(VTypeHelper.getTimestamp(again.get(i)), equalTo(VTypeHelper.getTimestamp(samples.get(i))));
+                assertThat(VTypeHelper.toDouble(again.get(i)), equalTo(VTypeHelper.toDouble(samples.get(i))));
+            }
+
+            // Files are found by a new cache
+            final ArchiveCache other = new ArchiveCache(10*1024*1024, new ArchiveTileStore(directory, 100*1024*1024));
+            other.getSamples("test", 1, "pv", START, end, 800, archive);
+            assertTrue(other.getFileHits() > 0);
+        }
+        finally
+        {
+            for (File file : directory.listFiles())
+                file.delete();
+            directory.delete();
+        }
+    }
+}
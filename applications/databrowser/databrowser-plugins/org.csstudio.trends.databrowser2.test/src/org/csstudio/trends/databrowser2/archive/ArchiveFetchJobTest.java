@@ -7,10 +7,12 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.archive;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import org.csstudio.apputil.test.TestProperties;
 import org.csstudio.trends.databrowser2.model.ArchiveDataSource;
@@ -64,6 +66,35 @@ public class ArchiveFetchJobTest implements ArchiveFetchJobListener
         runFetchJob();
     }
 
+    /** Check the steps of progressive retrieval */
+    @Test
+    public void testSteps() throws Exception
+    {
+        final Instant end = Instant.now();
+        final Instant start = end.minus(Duration.ofDays(1));
+
+        // Preview of the complete range, then segments with full resolution
+        List<ArchiveFetchJob.Step> steps = ArchiveFetchJob.getSteps(start, end, 800, 100);
+        assertEquals(1 + ArchiveFetchJob.REFINE_SEGMENTS, steps.size());
+        assertEquals(start, steps.get(0).start);
+        assertEquals(end, steps.get(0).end);
+        assertEquals(100, steps.get(0).count);
+        assertEquals(start, steps.get(1).start);
+        for (int i=1; i<steps.size()-1; ++i)
+            assertEquals(steps.get(i).end, steps.get(i+1).start);
+        assertEquals(end, steps.get(steps.size()-1).end);
+        assertEquals(800 / ArchiveFetchJob.REFINE_SEGMENTS, steps.get(1).count);
+
+        // Raw data is also refined from a preview
+        steps = ArchiveFetchJob.getSteps(start, end, 0, 100);
+        assertEquals(100, steps.get(0).count);
+        assertEquals(0, steps.get(1).count);
+
+        // No preview when disabled or not much coarser
+        assertEquals(1, ArchiveFetchJob.getSteps(start, end, 800, 0).size());
+        assertEquals(1, ArchiveFetchJob.getSteps(start, end, 150, 100).size());
+    }
+
     private void runFetchJob() throws InterruptedException
     {
         final Instant end = Instant.now();
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.trends.databrowser2.export.ArrowFileWriter.Type;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ArrowFileWriter}
+ *
+ *  <p>Reads the files back with a minimal reader that follows
+ *  the Arrow IPC file format and FlatBuffers specifications.
+ */
+@SuppressWarnings("nls")
+public class ArrowFileWriterTest
+{
+    /** Content of an Arrow file */
+    private static class ArrowFile
+    {
+        final ByteBuffer buf;
+        final List<String> names = new ArrayList<>();
+        final List<Integer> types = new ArrayList<>();
+        final List<Boolean> nullable = new ArrayList<>();
+        final List<List<Object>> columns = new ArrayList<>();
+        int batches = 0;
+
+        ArrowFile(final Path file) throws Exception
+        {
+            buf = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+            final byte[] magic = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+            assertThat(Arrays.copyOfRange(buf.array(), 0, 8), equalTo(Arrays.copyOf(magic, 8)));
+            final int end = buf.limit();
+            assertThat(Arrays.copyOfRange(buf.array(), end - 6, end), equalTo(magic));
+
+            // File starts with the schema message
+            final int schema_msg = message(8);
+            assertThat((int) buf.get(field(schema_msg, 1)), equalTo(1));
+
+            // Footer: Version V5, schema, record batches
+            final int footer = end - 10 - buf.getInt(end - 10);
+            final int root = footer + buf.getInt(footer);
+            assertThat((int) buf.getShort(field(root, 0)), equalTo(4));
+            readSchema(indirect(root, 1));
+            final int blocks = indirect(root, 3);
+            for (int i=0; i<buf.getInt(blocks); ++i)
+            {
+                final int block = blocks + 4 + 24*i;
+                assertThat(block % 8, equalTo(0));
+                readBatch((int) buf.getLong(block), buf.getInt(block + 8), buf.getLong(block + 16));
+            }
+        }
+
+        /** @param table Table position
+         *  @param id Field ID
+         *  @return Position of field or -1 if not present
+         */
+        int field(final int table, final int id)
+        {
+            final int vtable = table - buf.getInt(table);
+            if (4 + 2*id >= buf.getShort(vtable))
+                return -1;
+            final int offset = buf.getShort(vtable + 4 + 2*id);
+            return offset == 0 ? -1 : table + offset;
+        }
+
+        /** @param table Table position
+         *  @param id Field ID of a table, vector or string
+         *  @return Position of referenced object
+         */
+        int indirect(final int table, final int id)
+        {
+            final int pos = field(table, id);
+            assertTrue(pos > 0);
+            return pos + buf.getInt(pos);
+        }
+
+        String string(final int pos)
+        {
+            final int length = buf.getInt(pos);
+            assertThat(buf.get(pos + 4 + length), equalTo((byte) 0));
+            return new String(buf.array(), pos + 4, length, StandardCharsets.UTF_8);
+        }
+
+        /** @param offset Start of encapsulated message
+         *  @return Position of message table
+         */
+        int message(final int offset)
+        {
+            assertThat(offset % 8, equalTo(0));
+            assertThat(buf.getInt(offset), equalTo(0xFFFFFFFF));
+            assertThat(buf.getInt(offset + 4) % 8, equalTo(0));
+            final int msg = offset + 8 + buf.getInt(offset + 8);
+            assertThat((int) buf.getShort(field(msg, 0)), equalTo(4));
+            return msg;
+        }
+
+        void readSchema(final int schema)
+        {
+            final int fields = indirect(schema, 1);
+            for (int i=0; i<buf.getInt(fields); ++i)
+            {
+                final int slot = fields + 4 + 4*i;
+                final int field = slot + buf.getInt(slot);
+                names.add(string(indirect(field, 0)));
+                nullable.add(field(field, 1) > 0  &&  buf.get(field(field, 1)) != 0);
+                final int type_id = buf.get(field(field, 2));
+                types.add(type_id);
+                final int type = indirect(field, 3);
+                if (type_id == 3)
+                    assertThat((int) buf.getShort(field(type, 0)), equalTo(2));
+                else if (type_id == 10)
+                {
+                    assertThat((int) buf.getShort(field(type, 0)), equalTo(3));
+                    assertThat(string(indirect(type, 1)), equalTo("UTC"));
+                }
+                else
+                    assertThat(type_id, equalTo(5));
+                columns.add(new ArrayList<>());
+            }
+        }
+
+        void readBatch(final int offset, final int metadata_length, final long body_length)
+        {
+            final int msg = message(offset);
+            assertThat(buf.getInt(offset + 4) + 8, equalTo(metadata_length));
+            assertThat((int) buf.get(field(msg, 1)), equalTo(3));
+            assertThat(buf.getLong(field(msg, 3)), equalTo(body_length));
+            final int body = offset + metadata_length;
+            assertThat(body_length % 8, equalTo(0L));
+
+            final int batch = indirect(msg, 2);
+            final int rows = (int) buf.getLong(field(batch, 0));
+            final int nodes = indirect(batch, 1);
+            final int buffers = indirect(batch, 2);
+            assertThat(buf.getInt(nodes), equalTo(columns.size()));
+            int b = 0;
+            for (int c=0; c<columns.size(); ++c)
+            {
+                final int node = nodes + 4 + 16*c;
+                assertThat(node % 8, equalTo(0));
+                assertThat(buf.getLong(node), equalTo((long) rows));
+                final long nulls = buf.getLong(node + 8);
+                final int validity = body + (int) buf.getLong(buffers + 4 + 16*b++);
+                final int values = body + (int) buf.getLong(buffers + 4 + 16*b++);
+                final int text = types.get(c) == 5 ? body + (int) buf.getLong(buffers + 4 + 16*b++) : 0;
+                assertThat(values % 8, equalTo(0));
+                int null_count = 0;
+                for (int r=0; r<rows; ++r)
+                {
+                    if (nulls > 0  &&  (buf.get(validity + r/8) & (1 << (r%8))) == 0)
+                    {
+                        columns.get(c).add(null);
+                        ++null_count;
+                    }
+                    else if (types.get(c) == 5)
+                    {
+                        final int start = buf.getInt(values + 4*r), end = buf.getInt(values + 4*r + 4);
+                        columns.get(c).add(new String(buf.array(), text + start, end - start, StandardCharsets.UTF_8));
+                    }
+                    else if (types.get(c) == 3)
+                        columns.get(c).add(buf.getDouble(values + 8*r));
+                    else
+                    {
+                        final long nano = buf.getLong(values + 8*r);
+                        columns.get(c).add(Instant.ofEpochSecond(nano / 1000000000L, nano % 1000000000L));
+                    }
+                }
+                assertThat((long) null_count, equalTo(nulls));
+            }
+            assertThat(b, equalTo(buf.getInt(buffers)));
+            ++batches;
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        final Path file = Files.createTempFile("test", ".arrow");
+        final Instant start = Instant.ofEpochSecond(1500000000, 123456789);
+        final int N = 7;
+        // Batches of 3 rows: 3 + 3 + 1
+        try
+        (
+            ArrowFileWriter writer = new ArrowFileWriter(file, 3,
+                    new String[] { "name", "time", "value", "note" },
+                    new Type[] { Type.TEXT, Type.TIMESTAMP, Type.DOUBLE, Type.TEXT },
+                    new boolean[] { false, false, true, true });
+        )
+        {
+            for (int i=0; i<N; ++i)
+            {
+                writer.addText("PV" + i);
+                writer.addTimestamp(start.plusMillis(i));
+                if (i == 2)
+                    writer.addNull();
+                else
+                    writer.addDouble(i * 1.5);
+                if (i % 2 == 0)
+                    writer.addText(i == 4 ? "" : "\u00dcn\u00efc\u00f8d\u00e9 " + i);
+                else
+                    writer.addNull();
+                writer.endRow();
+            }
+        }
+
+        final ArrowFile arrow = new ArrowFile(file);
+        Files.delete(file);
+        assertThat(arrow.names, equalTo(Arrays.asList("name", "time", "value", "note")));
+        assertThat(arrow.types, equalTo(Arrays.asList(5, 10, 3, 5)));
+        assertThat(arrow.nullable, equalTo(Arrays.asList(false, false, true, true)));
+        assertThat(arrow.batches, equalTo(3));
+        for (int i=0; i<N; ++i)
+        {
+            assertThat(arrow.columns.get(0).get(i), equalTo("PV" + i));
+            assertThat(arrow.columns.get(1).get(i), equalTo(start.plusMillis(i)));
+            if (i == 2)
+                assertNull(arrow.columns.get(2).get(i));
+            else
+                assertThat(arrow.columns.get(2).get(i), equalTo(i * 1.5));
+            if (i % 2 == 0)
+                assertThat(arrow.columns.get(3).get(i), equalTo(i == 4 ? "" : "\u00dcn\u00efc\u00f8d\u00e9 " + i));
+            else
+                assertNull(arrow.columns.get(3).get(i));
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        final Path file = Files.createTempFile("test", ".arrow");
+        ArrowExportJob.createWriter(file).close();
+        final ArrowFile arrow = new ArrowFile(file);
+        Files.delete(file);
+        assertThat(arrow.names, equalTo(Arrays.asList(ArrowExportJob.NAMES)));
+        assertThat(arrow.batches, equalTo(0));
+    }
+
+    @Test
+    public void testExportRows() throws Exception
+    {
+        final Path file = Files.createTempFile("test", ".arrow");
+        final Instant time = Instant.ofEpochSecond(1500000000, 42);
+        try (ArrowFileWriter writer = ArrowExportJob.createWriter(file))
+        {
+            ArrowExportJob.addRow(writer, "pv1", new ArchiveVNumber(time, AlarmSeverity.MINOR, "LOW", ValueFactory.displayNone(), 3.14));
+            ArrowExportJob.addRow(writer, "pv2", new ArchiveVString(time.plusSeconds(1), AlarmSeverity.INVALID, "Disconnected", "Text"));
+        }
+        final ArrowFile arrow = new ArrowFile(file);
+        Files.delete(file);
+        assertThat(arrow.batches, equalTo(1));
+        assertThat(arrow.columns.get(0), equalTo(Arrays.<Object>asList("pv1", "pv2")));
+        assertThat(arrow.columns.get(1), equalTo(Arrays.<Object>asList(time, time.plusSeconds(1))));
+        assertThat(arrow.columns.get(2), equalTo(Arrays.<Object>asList(3.14, null)));
+        assertThat(arrow.columns.get(3), equalTo(Arrays.<Object>asList(null, "Text")));
+        assertThat(arrow.columns.get(4), equalTo(Arrays.<Object>asList(null, null)));
+        assertThat(arrow.columns.get(6), equalTo(Arrays.<Object>asList("MINOR", "INVALID")));
+        assertThat(arrow.columns.get(7), equalTo(Arrays.<Object>asList("LOW", "Disconnected")));
+    }
+
+    @Test
+    public void testInvalidRows() throws Exception
+    {
+        final Path file = Files.createTempFile("test", ".arrow");
+        final ArrowFileWriter writer = new ArrowFileWriter(file, 10,
+                new String[] { "name", "value" },
+                new Type[] { Type.TEXT, Type.DOUBLE },
+                new boolean[] { false, true });
+        try
+        {
+            writer.addNull();
+            fail("Accepted null for non-nullable column");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Expected
+        }
+        writer.addText("x");
+        try
+        {
+            writer.endRow();
+            fail("Accepted incomplete row");
+        }
+        catch (IllegalStateException ex)
+        {
+            // Expected
+        }
+        writer.addNull();
+        writer.endRow();
+        writer.close();
+        final ArrowFile arrow = new ArrowFile(file);
+        Files.delete(file);
+        assertThat(arrow.columns.get(0), equalTo(Arrays.<Object>asList("x")));
+        assertThat(arrow.columns.get(1), equalTo(Arrays.<Object>asList((Object) null)));
+    }
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the {@link ColumnarSamples}
+ *
+ *  <p>Compares merged samples with those of the {@link PlotSampleMerger}.
+ */
+@SuppressWarnings("nls")
+public class ColumnarSamplesUnitTest
+{
+    private static VType makeSample(final Random random, final long sec)
+    {
+        final Instant time = Instant.ofEpochSecond(sec, 1000 * random.nextInt(1000));
+        switch (random.nextInt(5))
+        {
+        case 0:
+            return new ArchiveVStatistics(time, AlarmSeverity.NONE, "", ValueFactory.displayNone(),
+                                          sec, sec - 1, sec + 1, 0.5, 10);
+        case 1:
+            return new ArchiveVNumber(time, AlarmSeverity.MINOR, "LOW", ValueFactory.displayNone(), (int) sec);
+        case 2:
+            return new ArchiveVString(time, AlarmSeverity.INVALID, "Disconnected", "Text");
+        default:
+            return new ArchiveVNumber(time, AlarmSeverity.NONE, "", ValueFactory.displayNone(), sec + 0.5);
+        }
+    }
+
+    private static void checkSame(final PlotSample expected[], final ColumnarSamples samples)
+    {
+        assertThat(samples.size(), equalTo(expected.length));
+        for (int i=0; i<expected.length; ++i)
+        {
+            final PlotSample sample = samples.get(i);
+            assertThat(sample.getPosition(), equalTo(expected[i].getPosition()));
+            assertThat(sample.getSource(), equalTo(expected[i].getSource()));
+            assertThat(sample.getValue(), equalTo(expected[i].getValue()));
+            assertThat(sample.getMin(), equalTo(expected[i].getMin()));
+            assertThat(sample.getStdDev(), equalTo(expected[i].getStdDev()));
+            assertThat(sample.getInfo(), equalTo(expected[i].getInfo()));
+            assertThat(sample.getVType(), equalTo(expected[i].getVType()));
+        }
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final Random random = new Random(42);
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+        final ColumnarSamples samples = new ColumnarSamples(waveform_index);
+        PlotSample expected[] = new PlotSample[0];
+
+        for (int run=0; run<50; ++run)
+        {
+            // Add a random range of samples
+            final long start = random.nextInt(100000);
+            final int count = random.nextInt(3 * ColumnarSamples.CHUNK_SIZE);
+            final String source = "Source " + random.nextInt(3);
+            final List<VType> add = new ArrayList<>();
+            for (int i=0; i<count; ++i)
+                add.add(makeSample(random, start + 2*i));
+
+            final PlotSample new_samples[] = new PlotSample[add.size()];
+            for (int i=0; i<new_samples.length; ++i)
+                new_samples[i] = new PlotSample(waveform_index, source, add.get(i));
+            final PlotSample merged[] = PlotSampleMerger.merge(expected, new_samples);
+            assertThat(samples.merge(source, add), equalTo(merged != expected));
+            expected = merged;
+            checkSame(expected, samples);
+
+            final Instant time = Instant.ofEpochSecond(random.nextInt(100000));
+            assertThat(samples.findSampleLessThan(time), equalTo(PlotSampleSearch.findSampleLessThan(expected, time)));
+        }
+        System.out.println(samples.size() + " samples in " + samples.getChunkCount() + " chunks");
+        assertTrue(samples.getChunkCount() <= 2 * samples.size() / ColumnarSamples.CHUNK_SIZE + 2);
+
+        samples.clear();
+        assertThat(samples.size(), equalTo(0));
+    }
+
+    @Test
+    public void testViews()
+    {
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+        final ColumnarSamples samples = new ColumnarSamples(waveform_index);
+        final Instant time = Instant.ofEpochSecond(1000, 42);
+        final List<VType> add = new ArrayList<>();
+        add.add(new ArchiveVNumber(time, AlarmSeverity.MAJOR, "HIHI",
+                ValueFactory.newDisplay(0.0, 1.0, 2.0, "mA", null, 8.0, 9.0, 10.0, 0.0, 10.0), 3L));
+        add.add(new ArchiveVStatistics(time.plusSeconds(1), AlarmSeverity.NONE, "", ValueFactory.displayNone(),
+                                       2.0, 1.0, 3.0, 0.5, 4));
+        samples.merge("Test", add);
+
+        // Numbers keep their type, display and alarm
+        final VType number = samples.get(0).getVType();
+        assertThat(VTypeHelper.getSeverity(number), equalTo(AlarmSeverity.MAJOR));
+        assertThat(VTypeHelper.getMessage(number), equalTo("HIHI"));
+        assertThat(((ArchiveVNumber) number).getValue(), instanceOf(Long.class));
+        assertThat(((ArchiveVNumber) number).getUnits(), equalTo("mA"));
+        assertThat(((ArchiveVNumber) number).getUpperAlarmLimit(), equalTo(9.0));
+        assertThat(VTypeHelper.getTimestamp(number), equalTo(time));
+
+        // Statistics are only used for waveform index 0
+        assertThat(samples.get(1).getMax(), equalTo(3.0));
+        waveform_index.set(1);
+        assertTrue(Double.isNaN(samples.get(0).getValue()));
+        assertTrue(Double.isNaN(samples.get(1).getMax()));
+    }
+}
@@ -138,6 +138,8 @@ public class Messages extends NLS
     public static String ExportStartExportTT;
     public static String ExportTabular;
     public static String ExportTabularTT;
+    public static String ExportTypeArrow;
+    public static String ExportTypeArrowTT;
     public static String ExportTypeMatlab;
     public static String ExportTypeMatlabTT;
     public static String ExportTypeSpreadsheet;
@@ -201,6 +203,7 @@ public class Messages extends NLS
     public static String PointType;
     public static String PointTypeTT;
     public static String PosErrColumn;
+    public static String PrefPage_ArchiveCacheSize;
     public static String PrefPage_ArchiveFetchDelay;
     public static String PrefPage_Archives;
     public static String PrefPage_AutomaticHistoryRefresh;
@@ -0,0 +1,496 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.Activator;
+import org.csstudio.trends.databrowser2.preferences.Preferences;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VType;
+
+/** Cache of archived samples
+ *
+ *  <p>Samples are kept in 'tiles' that cover a fixed time range.
+ *  Optimized data uses tiles of {@link #TILE_BINS} bins
+ *  with a bin size of 2^level milliseconds,
+ *  so different zoom levels of the same channel share tiles
+ *  whenever they resolve to the same level.
+ *  Raw data uses tiles of 2^level milliseconds,
+ *  and a cached tile of the next coarser levels also serves a request.
+ *
+ *  <p>A request only reads the tiles that are not cached,
+ *  combining adjacent missing tiles into one archive request.
+ *  Tiles that end close to 'now' can still receive samples
+ *  and are thus not cached.
+ *
+ *  <p>Tiles are kept in memory up to a size limit.
+ *  Least recently used tiles are then evicted,
+ *  optionally into files from where they are read back when needed.
+ */
+@SuppressWarnings("nls")
+public class ArchiveCache
+{
+    /** Reads samples from the archive */
+    @FunctionalInterface
+    public static interface Reader
+    {
+        /** @param start Start time
+         *  @param end End time
+         *  @param count Number of bins for optimized data, 0 for raw data
+         *  @return {@link ValueIterator} for the samples
+         *  @throws Exception on error
+         */
+        public ValueIterator read(Instant start, Instant end, int count) throws Exception;
+
+        /** @return <code>true</code> if reading was cancelled, so samples may be incomplete */
+        default public boolean isCancelled()
+        {
+            return false;
+        }
+    }
+
+    /** Number of bins in a tile of optimized data */
+    public static final int TILE_BINS = 100;
+
+    /** Number of tiles that a raw data request should span */
+    private static final int RAW_TILES = 8;
+
+    /** Smallest raw data tile level, about one second */
+    private static final int MIN_RAW_LEVEL = 10;
+
+    /** Coarser raw data levels that are checked for a tile */
+    private static final int RAW_PARENT_LEVELS = 2;
+
+    /** Requests that would need more tiles bypass the cache */
+    private static final int MAX_TILES = 1000;
+
+    /** Tiles that end within this time from 'now' are not cached */
+    private static final Duration RECENT = Duration.ofMinutes(5);
+
+    /** Estimated memory use of a scalar sample */
+    private static final int SAMPLE_BYTES = 100;
+
+    private static ArchiveCache instance = null;
+
+    /** Preference settings of the instance */
+    private static String instance_settings = null;
+
+    /** Key of a tile */
+    private static class TileKey
+    {
+        final String channel;
+        final int level;
+        final long index;
+
+        TileKey(final String channel, final int level, final long index)
+        {
+            this.channel = channel;
+            this.level = level;
+            this.index = index;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (channel.hashCode() * 31 + level) * 31 + Long.hashCode(index);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof TileKey))
+                return false;
+            final TileKey other = (TileKey) obj;
+            return index == other.index  &&  level == other.level  &&  channel.equals(other.channel);
+        }
+    }
+
+    /** Samples of a tile */
+    private static class Tile
+    {
+        final TileKey key;
+        final List<VType> samples;
+        final long bytes;
+
+        Tile(final TileKey key, final List<VType> samples)
+        {
+            this.key = key;
+            this.samples = Collections.unmodifiableList(samples);
+            long bytes = 0;
+            for (VType sample : samples)
+                bytes += estimateSize(sample);
+            this.bytes = bytes;
+        }
+    }
+
+    final private long max_bytes;
+
+    /** Optional files for evicted tiles */
+    final private ArchiveTileStore store;
+
+    /** Tiles in memory, least recently used first. Synchronize on access */
+    final private Map<TileKey, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Size of tiles in memory. Synchronize on tiles */
+    private long total_bytes = 0;
+
+    final private AtomicLong hits = new AtomicLong(), file_hits = new AtomicLong(),
+                             misses = new AtomicLong(), requests = new AtomicLong();
+
+    /** @param max_bytes Size limit for tiles in memory, 0 to disable the cache
+     *  @param store Files for evicted tiles, may be <code>null</code>
+     */
+    ArchiveCache(final long max_bytes, final ArchiveTileStore store)
+    {
+        this.max_bytes = max_bytes;
+        this.store = store;
+    }
+
+    /** @return Cache configured from preferences.
+     *          Replaced by a new, empty cache when the preferences change.
+     */
+    public static synchronized ArchiveCache getInstance()
+    {
+        final int size = Preferences.getArchiveCacheSize();
+        final String directory = Preferences.getArchiveCacheDirectory();
+        final int disk_size = Preferences.getArchiveCacheDiskSize();
+        final String settings = size + "|" + directory + "|" + disk_size;
+        if (instance == null  ||  ! settings.equals(instance_settings))
+        {
+            ArchiveTileStore store = null;
+            if (! directory.isEmpty())
+            {
+                try
+                {
+                    store = new ArchiveTileStore(new File(directory), disk_size * 1024L * 1024L);
+                }
+                catch (Exception ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Cannot use archive cache directory " + directory, ex);
+                }
+            }
+            instance = new ArchiveCache(size * 1024L * 1024L, store);
+            instance_settings = settings;
+        }
+        return instance;
+    }
+
+    /** @return <code>true</code> if the cache is enabled */
+    public boolean isEnabled()
+    {
+        return max_bytes > 0;
+    }
+
+    /** Get samples, reading only those tiles from the archive that are not cached
+     *
+     *  <p>The result may extend beyond the requested time range
+     *  to the start of the first and end of the last tile.
+     *
+     *  @param url Archive URL
+     *  @param key Archive key
+     *  @param name Channel name
+     *  @param start Start time
+     *  @param end End time
+     *  @param count Number of bins for optimized data, 0 for raw data
+     *  @param reader Reader for missing tiles
+     *  @return Samples
+     *  @throws Exception on error from the reader
+     */
+    public List<VType> getSamples(final String url, final int key, final String name,
+                                  final Instant start, final Instant end, final int count,
+                                  final Reader reader) throws Exception
+    {
+        requests.incrementAndGet();
+        final long start_ms = start.toEpochMilli(), end_ms = Math.max(start_ms + 1, end.toEpochMilli());
+        final boolean raw = count <= 0;
+        final int level = raw ? getRawLevel(end_ms - start_ms) : getOptimizedLevel(end_ms - start_ms, count);
+        final long tile_ms = getTileMillis(level, raw);
+        final long first = Math.floorDiv(start_ms, tile_ms), last = Math.floorDiv(end_ms - 1, tile_ms);
+        if (! isEnabled()  ||  last - first >= MAX_TILES)
+            return readAll(reader.read(start, end, count));
+
+        final String channel = url + "|" + key + "|" + name + (raw ? "|raw" : "|optimized");
+        final long recent = System.currentTimeMillis() - RECENT.toMillis();
+
+        // Locate cached tiles, null for missing ones
+        final int n = (int) (last - first + 1);
+        final Tile[] found = new Tile[n];
+        for (int i=0; i<n; ++i)
+        {
+            found[i] = getTile(new TileKey(channel, level, first + i));
+            for (int parent=1; raw  &&  found[i] == null  &&  parent<=RAW_PARENT_LEVELS; ++parent)
+                found[i] = getTile(new TileKey(channel, level + parent, Math.floorDiv(first + i, 1L << parent)));
+            if (found[i] == null)
+                misses.incrementAndGet();
+        }
+
+        // Read missing tiles, combining adjacent ones into one request
+        for (int i=0; i<n; /**/)
+        {
+            if (found[i] != null)
+            {
+                ++i;
+                continue;
+            }
+            int j = i;
+            while (j < n  &&  found[j] == null)
+                ++j;
+            final long run_start = (first + i) * tile_ms, run_end = (first + j) * tile_ms;
+            final List<VType> samples = readAll(reader.read(Instant.ofEpochMilli(run_start),
+                                                            Instant.ofEpochMilli(run_end),
+                                                            raw ? 0 : (j - i) * TILE_BINS));
+            // Split samples into tiles.
+            // A sample before the start, for example the last raw sample
+            // before the requested range, remains in the first tile
+            final List<List<VType>> split = new ArrayList<>();
+            for (int t=i; t<j; ++t)
+                split.add(new ArrayList<>());
+            for (VType sample : samples)
+            {
+                final long time = VTypeHelper.getTimestamp(sample).toEpochMilli();
+                final long t = Math.max(first + i, Math.min(first + j - 1, Math.floorDiv(time, tile_ms)));
+                split.get((int) (t - first - i)).add(sample);
+            }
+            // Start each following tile with the value in effect at its start,
+            // i.e. the last sample of the preceding tile,
+            // so requests that start within that tile find it
+            for (int t=1; t<split.size(); ++t)
+            {
+                final List<VType> previous = split.get(t-1), tile = split.get(t);
+                if (previous.isEmpty())
+                    continue;
+                final long tile_start = (first + i + t) * tile_ms;
+                if (tile.isEmpty()  ||  VTypeHelper.getTimestamp(tile.get(0)).toEpochMilli() > tile_start)
+                    tile.add(0, previous.get(previous.size() - 1));
+            }
+            final boolean complete = ! reader.isCancelled();
+            for (int t=i; t<j; ++t)
+            {
+                final Tile tile = new Tile(new TileKey(channel, level, first + t), split.get(t - i));
+                if (complete  &&  (first + t + 1) * tile_ms <= recent)
+                    putTile(tile);
+                found[t] = tile;
+            }
+            i = j;
+        }
+
+        // Stitch tiles, skipping duplicate samples where they overlap
+        final List<VType> result = new ArrayList<>();
+        Instant last_time = null;
+        Tile last_tile = null;
+        for (Tile tile : found)
+        {
+            if (tile == last_tile)
+                continue;
+            last_tile = tile;
+            for (VType sample : tile.samples)
+            {
+                final Instant time = VTypeHelper.getTimestamp(sample);
+                if (last_time != null  &&  ! time.isAfter(last_time))
+                    continue;
+                result.add(sample);
+                last_time = time;
+            }
+        }
+        return result;
+    }
+
+    /** @param span_ms Time range of raw data request
+     *  @return Level where the request spans about {@link #RAW_TILES} tiles
+     */
+    static int getRawLevel(final long span_ms)
+    {
+        final long tile_ms = Math.max(1, span_ms / RAW_TILES);
+        return Math.max(MIN_RAW_LEVEL, 63 - Long.numberOfLeadingZeros(tile_ms));
+    }
+
+    /** @param span_ms Time range of optimized request
+     *  @param count Requested number of bins
+     *  @return Level of bins that are no larger than requested
+     */
+    static int getOptimizedLevel(final long span_ms, final int count)
+    {
+        final long bin_ms = Math.max(1, span_ms / count);
+        return 63 - Long.numberOfLeadingZeros(bin_ms);
+    }
+
+    /** @param level Tile level
+     *  @param raw Raw or optimized data?
+     *  @return Time range of a tile in milliseconds
+     */
+    static long getTileMillis(final int level, final boolean raw)
+    {
+        return raw ? 1L << level : TILE_BINS << level;
+    }
+
+    private Tile getTile(final TileKey key)
+    {
+        synchronized (tiles)
+        {
+            final Tile tile = tiles.get(key);
+            if (tile != null)
+            {
+                hits.incrementAndGet();
+                return tile;
+            }
+        }
+        if (store == null)
+            return null;
+        final List<VType> samples = store.read(key.channel, key.level, key.index);
+        if (samples == null)
+            return null;
+        file_hits.incrementAndGet();
+        final Tile tile = new Tile(key, samples);
+        putTile(tile);
+        return tile;
+    }
+
+    private void putTile(final Tile tile)
+    {
+        // Do not flush the complete cache for one huge tile
+        if (tile.bytes > max_bytes)
+            return;
+        final List<Tile> evicted = new ArrayList<>();
+        synchronized (tiles)
+        {
+            final Tile old = tiles.put(tile.key, tile);
+            if (old != null)
+                total_bytes -= old.bytes;
+            total_bytes += tile.bytes;
+            final Iterator<Tile> iter = tiles.values().iterator();
+            while (total_bytes > max_bytes  &&  iter.hasNext())
+            {
+                final Tile eldest = iter.next();
+                total_bytes -= eldest.bytes;
+                evicted.add(eldest);
+                iter.remove();
+            }
+        }
+        if (store != null)
+            for (Tile eldest : evicted)
+                store.write(eldest.key.channel, eldest.key.level, eldest.key.index, eldest.samples);
+    }
+
+    /** Remove all tiles from memory and files */
+    public void clear()
+    {
+        synchronized (tiles)
+        {
+            tiles.clear();
+            total_bytes = 0;
+        }
+        if (store != null)
+            store.clear();
+    }
+
+    /** @return Number of tiles in memory */
+    public int getTileCount()
+    {
+        synchronized (tiles)
+        {
+            return tiles.size();
+        }
+    }
+
+    /** @return Estimated size of tiles in memory */
+    public long getBytes()
+    {
+        synchronized (tiles)
+        {
+            return total_bytes;
+        }
+    }
+
+    /** @return Number of tiles found in memory */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /** @return Number of tiles read back from files */
+    public long getFileHits()
+    {
+        return file_hits.get();
+    }
+
+    /** @return Number of tiles read from the archive */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /** @return Human-readable statistics */
+    public String getStatistics()
+    {
+        if (! isEnabled())
+            return "Archive cache is disabled";
+        final long hit = hits.get() + file_hits.get(), total = hit + misses.get();
+        final StringBuilder buf = new StringBuilder();
+        buf.append(String.format("%d requests, %d tiles (%.1f MB) in memory, hit rate %.1f %% (%d of %d tiles)",
+                                 requests.get(), getTileCount(), getBytes() / 1024.0 / 1024.0,
+                                 total > 0 ? 100.0 * hit / total : 0.0, hit, total));
+        if (store != null)
+            buf.append(String.format(", %d read from %s (%.1f MB)",
+                                     file_hits.get(), store.getDirectory(), store.getBytes() / 1024.0 / 1024.0));
+        return buf.toString();
+    }
+
+    /** @param sample Sample
+     *  @return Estimated memory used by the sample
+     */
+    private static long estimateSize(final VType sample)
+    {
+        if (sample instanceof VNumberArray)
+            return SAMPLE_BYTES + 8L * ((VNumberArray) sample).getData().size();
+        if (sample instanceof VString)
+            return SAMPLE_BYTES + 2L * ((VString) sample).getValue().length();
+        if (sample instanceof VEnum)
+            return SAMPLE_BYTES + 16L * ((VEnum) sample).getLabels().size();
+        return SAMPLE_BYTES;
+    }
+
+    /** @param iter Iterator, will be closed
+     *  @return All samples of the iterator
+     *  @throws Exception on error
+     */
+    private static List<VType> readAll(final ValueIterator iter) throws Exception
+    {
+        final List<VType> samples = new ArrayList<>();
+        try
+        {
+            while (iter.hasNext())
+                samples.add(iter.next());
+        }
+        finally
+        {
+            iter.close();
+        }
+        return samples;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getStatistics();
+    }
+}
@@ -7,16 +7,22 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.archive;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.time.BenchmarkTimer;
+import org.csstudio.archive.reader.ArchiveCoverage;
 import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.ArchiveRepository;
+import org.csstudio.archive.reader.FederatedArchiveReader;
 import org.csstudio.archive.reader.UnknownChannelException;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.trends.databrowser2.Activator;
@@ -46,6 +52,9 @@ public class ArchiveFetchJob extends Job
     /** Poll period in millisecs */
     private static final int POLL_PERIOD_MS = 1000;
 
+    /** Number of segments in which the preview is refined */
+    static final int REFINE_SEGMENTS = 4;
+
     /**to manage concurrency on postgresql*/
     private final boolean concurrency;
 
@@ -58,6 +67,9 @@ public class ArchiveFetchJob extends Job
     /** Listener that's notified when (if) we completed OK */
     final private ArchiveFetchJobListener listener;
 
+    /** Worker of the running job */
+    private volatile WorkerThread worker = null;
+
     /** Thread that performs the actual background work.
      *
      *  Instead of directly accessing the archive, ArchiveFetchJob launches
@@ -65,16 +77,23 @@ public class ArchiveFetchJob extends Job
      *  can then poll the progress monitor for cancellation and if
      *  necessary interrupt the WorkerThread which might be 'stuck'
      *  in a long running operation.
+     *
+     *  <p>In progressive mode, the worker first reads a coarse preview
+     *  of the complete time range, then refines it segment by segment.
+     *  Each step queries all archive data sources in parallel,
+     *  and merges their samples in the order of the data sources.
+     *  When archives are federated, the data sources are instead
+     *  read as one {@link FederatedArchiveReader}.
      */
     class WorkerThread implements Runnable
     {
         private String message = "";
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried.
+        /** Archive readers by data source, created when first used.
          *  Synchronize 'this' on access.
          */
-        private volatile ArchiveReader reader = null;
+        private ArchiveReader readers[] = new ArchiveReader[0];
 
         /** @return Message that somehow indicates progress */
         public synchronized String getMessage()
@@ -86,11 +105,9 @@ public class ArchiveFetchJob extends Job
         public synchronized void cancel()
         {
             cancelled = true;
-            synchronized (this)
-            {
+            for (ArchiveReader reader : readers)
                 if (reader != null)
                     reader.cancel();
-            }
         }
 
         /** {@inheritDoc} */
@@ -106,86 +123,165 @@ public class ArchiveFetchJob extends Job
             if (bins < 0)
                 bins = Activator.display_pixel_width * (- bins);
 
-            final ArchiveDataSource archives[] = item.getArchiveDataSources();
-            List<ArchiveDataSource> sourcesWhereChannelDoesntExist = new ArrayList<>();
-            for (int i=0; i<archives.length && !cancelled; ++i)
+            final ArchiveDataSource configured[] = item.getArchiveDataSources();
+            final ArchiveDataSource archives[] = getArchiveDataSources(configured);
+            synchronized (this)
             {
-                final ArchiveDataSource archive = archives[i];
-                final String url = archive.getUrl();
-                // Display "N/total", using '1' for the first sub-archive.
-                synchronized  (this)
-                {
-                    message = NLS.bind(Messages.ArchiveFetchDetailFmt,
-                            new Object[]
-                            {
-                                archive.getName(),
-                                (i+1),
-                                archives.length
-                            });
-                }
-                try
+                readers = new ArchiveReader[archives.length];
+            }
+            final List<Step> steps = getSteps(bins);
+            // Data sources that failed or don't know the channel are skipped in later steps
+            final boolean skip[] = new boolean[archives.length];
+            final List<ArchiveDataSource> sourcesWhereChannelDoesntExist = new ArrayList<>();
+            try
+            {
+                for (int s=0; s<steps.size() && !cancelled; ++s)
                 {
-                    final ArchiveReader the_reader;
+                    final Step step = steps.get(s);
                     synchronized (this)
                     {
-                        the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(url);
+                        message = NLS.bind(Messages.ArchiveFetchDetailFmt,
+                                new Object[]
+                                {
+                                    step,
+                                    (s+1),
+                                    steps.size()
+                                });
                     }
-                    the_reader.enableConcurrency(concurrency);
-                    final ValueIterator value_iter;
-                    try
+                    // Query data sources in parallel, unless there's only one
+                    final List<Future<List<VType>>> results = new ArrayList<>();
+                    int active = 0;
+                    for (boolean skipped : skip)
+                        if (! skipped)
+                            ++active;
+                    for (int i=0; i<archives.length; ++i)
                     {
-                        if (item.getRequestType() == RequestType.RAW)
-                            value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
-                                                                 start, end);
+                        final int index = i;
+                        final Callable<List<VType>> fetch = () -> fetch(index, archives[index], step);
+                        if (skip[i])
+                            results.add(null);
+                        else if (active > 1)
+                            results.add(Activator.getThreadPool().submit(fetch));
                         else
-                            value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
-                                                                       start, end, bins);
+                        {
+                            final FutureTask<List<VType>> task = new FutureTask<>(fetch);
+                            task.run();
+                            results.add(task);
+                        }
                     }
-                    catch (UnknownChannelException e)
+                    // Merge results in order of data sources
+                    for (int i=0; i<archives.length; ++i)
                     {
-                        // Do not immediately notify about unknown channels. First search for the data in all archive
-                        // sources and only report this kind of errors at the end
-                        sourcesWhereChannelDoesntExist.add(archives[i]);
-                        continue;
+                        final Future<List<VType>> result = results.get(i);
+                        if (result == null)
+                            continue;
+                        try
+                        {
+                            final List<VType> values = result.get();
+                            if (cancelled)
+                                continue;
+                            samples += values.size();
+                            item.mergeArchivedSamples(readers[i].getServerName(), values);
+                        }
+                        catch (ExecutionException ex)
+                        {
+                            skip[i] = true;
+                            if (ex.getCause() instanceof UnknownChannelException)
+                            {
+                                // Do not immediately notify about unknown channels. First search for the data in all archive
+                                // sources and only report this kind of errors at the end
+                                sourcesWhereChannelDoesntExist.add(archives[i]);
+                            }
+                            // Tell listener unless it's the result of a 'cancel'?
+                            else if (! cancelled)
+                            {
+                                final Throwable error = ex.getCause();
+                                listener.archiveFetchFailed(ArchiveFetchJob.this, archives[i],
+                                        error instanceof Exception ? (Exception) error : ex);
+                            }
+                            // Continue with the next data source
+                        }
+                        catch (InterruptedException ex)
+                        {
+                            cancel();
+                        }
                     }
-                    // Get samples into array
-                    final List<VType> result = new ArrayList<VType>();
-                    while (value_iter.hasNext())
-                        result.add(value_iter.next());
-                    samples += result.size();
-                    item.mergeArchivedSamples(the_reader.getServerName(), result);
-                    if (cancelled)
-                        break;
-                    value_iter.close();
-                }
-                catch (Exception ex)
-                {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
-                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
                 }
-                finally
+            }
+            finally
+            {
+                synchronized (this)
                 {
-                    synchronized (this)
-                    {
-                        if (reader != null)
-                            reader.close();
-                        reader = null;
-                    }
+                    for (int i=0; i<readers.length; ++i)
+                        if (readers[i] != null)
+                        {
+                            readers[i].close();
+                            readers[i] = null;
+                        }
                 }
             }
             if (!sourcesWhereChannelDoesntExist.isEmpty() && !cancelled)
             {
+                // Federated archive only reports unknown channels when no data source has it
                 listener.channelNotFound(ArchiveFetchJob.this, sourcesWhereChannelDoesntExist.size() < archives.length,
-                    sourcesWhereChannelDoesntExist
+                    archives != configured
+                    ? configured
+                    : sourcesWhereChannelDoesntExist
                         .toArray(new ArchiveDataSource[sourcesWhereChannelDoesntExist.size()]));
             }
             timer.stop();
             if (!cancelled)
                 listener.fetchCompleted(ArchiveFetchJob.this);
             Activator.getLogger().log(Level.FINE,
-                    "Ended {0} with {1} samples in {2}",
-                    new Object[] { ArchiveFetchJob.this, samples, timer });
+                    "Ended {0} with {1} samples in {2}, {3}",
+                    new Object[] { ArchiveFetchJob.this, samples, timer, ArchiveCache.getInstance() });
+        }
+
+        /** Read samples of one step from one data source
+         *  @param index Index of the data source
+         *  @param archive Data source
+         *  @param step Time range and resolution
+         *  @return Samples
+         *  @throws Exception on error
+         */
+        private List<VType> fetch(final int index, final ArchiveDataSource archive, final Step step) throws Exception
+        {
+            ArchiveReader the_reader;
+            synchronized (this)
+            {
+                the_reader = readers[index];
+            }
+            if (the_reader == null)
+            {
+                the_reader = ArchiveRepository.getInstance().getArchiveReader(archive.getUrl());
+                the_reader.enableConcurrency(concurrency);
+                synchronized (this)
+                {
+                    readers[index] = the_reader;
+                    if (cancelled)
+                        the_reader.cancel();
+                }
+            }
+            final ArchiveReader reader = the_reader;
+            final ArchiveCache.Reader cache_reader = new ArchiveCache.Reader()
+            {
+                @Override
+                public ValueIterator read(final Instant from, final Instant to, final int count) throws Exception
+                {
+                    if (count <= 0)
+                        return reader.getRawValues(archive.getKey(), item.getResolvedName(), from, to);
+                    return reader.getOptimizedValues(archive.getKey(), item.getResolvedName(), from, to, count);
+                }
+
+                @Override
+                public boolean isCancelled()
+                {
+                    return cancelled;
+                }
+            };
+            // Get samples into array, reading only what's not cached
+            return ArchiveCache.getInstance().getSamples(archive.getUrl(), archive.getKey(), item.getResolvedName(),
+                                                         step.start, step.end, step.count, cache_reader);
         }
 
         @Override
@@ -195,6 +291,84 @@ public class ArchiveFetchJob extends Job
         }
     }
 
+    /** @param archives Data sources of the item
+     *  @return Data sources to read, combined into one federated data source if so configured
+     */
+    static ArchiveDataSource[] getArchiveDataSources(final ArchiveDataSource[] archives)
+    {
+        if (archives.length < 2  ||  !Preferences.isArchiveFederation())
+            return archives;
+        final List<FederatedArchiveReader.Member> members = new ArrayList<>(archives.length);
+        final StringBuilder name = new StringBuilder();
+        for (ArchiveDataSource archive : archives)
+        {
+            members.add(new FederatedArchiveReader.Member(archive.getUrl(), archive.getKey(), ArchiveCoverage.ALL));
+            if (name.length() > 0)
+                name.append(" + ");
+            name.append(archive.getName());
+        }
+        return new ArchiveDataSource[]
+        {
+            new ArchiveDataSource(FederatedArchiveReader.createURL(members), 1, name.toString())
+        };
+    }
+
+    /** Time range and resolution of one step of the fetch */
+    static class Step
+    {
+        final Instant start, end;
+
+        /** Number of bins, 0 for raw data */
+        final int count;
+
+        Step(final Instant start, final Instant end, final int count)
+        {
+            this.start = start;
+            this.end = end;
+            this.count = count;
+        }
+
+        @Override
+        public String toString()
+        {
+            return TimeHelper.format(start) + " - " + TimeHelper.format(end) +
+                   (count > 0 ? ", " + count + " bins" : ", raw");
+        }
+    }
+
+    /** @param bins Number of bins for the complete time range
+     *  @return Steps for fetching the data
+     */
+    List<Step> getSteps(final int bins)
+    {
+        final int count = item.getRequestType() == RequestType.RAW ? 0 : bins;
+        return getSteps(start, end, count, Preferences.getArchivePreviewBins());
+    }
+
+    /** @param start Start time
+     *  @param end End time
+     *  @param count Number of bins, 0 for raw data
+     *  @param preview Number of bins for the preview, 0 to disable progressive mode
+     *  @return Steps for fetching the data
+     */
+    static List<Step> getSteps(final Instant start, final Instant end, final int count, final int preview)
+    {
+        final List<Step> steps = new ArrayList<>();
+        // Preview only helps when it's much coarser than the final data
+        if (preview <= 0  ||  (count > 0  &&  count < 2 * preview))
+        {
+            steps.add(new Step(start, end, count));
+            return steps;
+        }
+        steps.add(new Step(start, end, preview));
+        final long span = Duration.between(start, end).toMillis();
+        for (int i=0; i<REFINE_SEGMENTS; ++i)
+            steps.add(new Step(start.plusMillis(span * i / REFINE_SEGMENTS),
+                               start.plusMillis(span * (i+1) / REFINE_SEGMENTS),
+                               count / REFINE_SEGMENTS));
+        return steps;
+    }
+
     /** Initialize
      *  @param item
      *  @param start
@@ -246,6 +420,7 @@ public class ArchiveFetchJob extends Job
 
         monitor.beginTask(Messages.ArchiveFetchStart, IProgressMonitor.UNKNOWN);
         final WorkerThread worker = new WorkerThread();
+        this.worker = worker;
         final Future<?> done = Activator.getThreadPool().submit(worker);
         // Poll worker and progress monitor
         long start = System.currentTimeMillis();
@@ -269,10 +444,20 @@ public class ArchiveFetchJob extends Job
                 worker.cancel();
         }
         monitor.done();
+        this.worker = null;
 
         return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
     }
 
+    /** Cancel the worker right away instead of waiting for the next poll */
+    @Override
+    protected void canceling()
+    {
+        final WorkerThread running = worker;
+        if (running != null)
+            running.cancel();
+    }
+
     /** @return Debug string */
     @Override
     public String toString()
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.csstudio.archive.vtype.ArchiveVEnum;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVNumberArray;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.ArchiveVString;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.Activator;
+import org.diirt.util.array.ListNumber;
+import org.diirt.util.text.NumberFormats;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Files for tiles of the {@link ArchiveCache} that were evicted from memory
+ *
+ *  <p>Each tile is one file in the directory.
+ *  When the files exceed the size limit, the least recently used ones are deleted.
+ *  Only tiles of scalar numbers, statistics, strings, enums and numeric arrays
+ *  are written.
+ */
+@SuppressWarnings("nls")
+class ArchiveTileStore
+{
+    /** File format marker */
+    private static final int MAGIC = 0x44425431; // 'DBT1'
+
+    private static final String SUFFIX = ".tile";
+
+    private static final byte NUMBER = 1, STATISTICS = 2, STRING = 3, ENUM = 4, ARRAY = 5;
+
+    final private File directory;
+
+    final private long max_bytes;
+
+    /** Sizes of the files, least recently used first. Synchronize on access */
+    final private Map<File, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long total_bytes = 0;
+
+    /** @param directory Directory for the files, created if necessary
+     *  @param max_bytes Size limit for all files
+     *  @throws IOException if the directory cannot be used
+     */
+    public ArchiveTileStore(final File directory, final long max_bytes) throws IOException
+    {
+        if (! directory.isDirectory()  &&  ! directory.mkdirs())
+            throw new IOException("Cannot create archive cache directory " + directory);
+        this.directory = directory;
+        this.max_bytes = max_bytes;
+
+        // Files from earlier runs, oldest first
+        final File[] existing = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (existing != null)
+        {
+            Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+            synchronized (files)
+            {
+                for (File file : existing)
+                {
+                    files.put(file, file.length());
+                    total_bytes += file.length();
+                }
+            }
+            trim();
+        }
+    }
+
+    /** @return Directory of the files */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /** @return Size of all files in bytes */
+    public long getBytes()
+    {
+        synchronized (files)
+        {
+            return total_bytes;
+        }
+    }
+
+    /** @param channel Channel of the tile
+     *  @param level Resolution level
+     *  @param index Index of the tile
+     *  @return File for the tile
+     */
+    private File getFile(final String channel, final int level, final long index)
+    {
+        return new File(directory, getChannelHash(channel) + "_" + level + "_" + index + SUFFIX);
+    }
+
+    /** @param channel Channel of a tile
+     *  @return SHA-256 hash of the channel as hex text
+     */
+    private static String getChannelHash(final String channel)
+    {
+        try
+        {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(channel.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder buf = new StringBuilder(2 * digest.length);
+            for (byte b : digest)
+                buf.append(String.format("%02x", b & 0xFF));
+            return buf.toString();
+        }
+        catch (NoSuchAlgorithmException ex)
+        {   // Every Java platform supports SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /** Write tile unless it is already in the store
+     *  @param channel Channel of the tile
+     *  @param level Resolution level
+     *  @param index Index of the tile
+     *  @param samples Samples of the tile
+     *  @return <code>true</code> if the tile is in the store
+     */
+    public boolean write(final String channel, final int level, final long index, final List<VType> samples)
+    {
+        final File file = getFile(channel, level, index);
+        synchronized (files)
+        {
+            if (files.containsKey(file))
+                return true;
+        }
+        for (VType sample : samples)
+            if (! isSupported(sample))
+                return false;
+        final File tmp = new File(directory, file.getName() + ".tmp");
+        try
+        (
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        )
+        {
+            out.writeInt(MAGIC);
+            out.writeUTF(channel);
+            out.writeInt(level);
+            out.writeLong(index);
+            out.writeInt(samples.size());
+            for (VType sample : samples)
+                writeSample(out, sample);
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Cannot write archive cache file " + file, ex);
+            tmp.delete();
+            return false;
+        }
+        if (! tmp.renameTo(file))
+        {
+            tmp.delete();
+            return false;
+        }
+        synchronized (files)
+        {
+            final Long old = files.put(file, file.length());
+            if (old != null)
+                total_bytes -= old;
+            total_bytes += file.length();
+        }
+        trim();
+        return true;
+    }
+
+    /** @param channel Channel of the tile
+     *  @param level Resolution level
+     *  @param index Index of the tile
+     *  @return Samples of the tile or <code>null</code> if not in the store
+     */
+    public List<VType> read(final String channel, final int level, final long index)
+    {
+        final File file = getFile(channel, level, index);
+        synchronized (files)
+        {
+            if (files.get(file) == null)
+                return null;
+        }
+        try
+        (
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        )
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Invalid file format");
+            // Guard against hash collision
+            if (! channel.equals(in.readUTF())  ||  in.readInt() != level  ||  in.readLong() != index)
+                return null;
+            final int count = in.readInt();
+            final List<VType> samples = new ArrayList<>(count);
+            for (int i=0; i<count; ++i)
+                samples.add(readSample(in));
+            return samples;
+        }
+        catch (Exception ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Cannot read archive cache file " + file, ex);
+            remove(file);
+            return null;
+        }
+    }
+
+    /** Delete all files */
+    public void clear()
+    {
+        final List<File> remove;
+        synchronized (files)
+        {
+            remove = new ArrayList<>(files.keySet());
+        }
+        for (File file : remove)
+            remove(file);
+    }
+
+    private void remove(final File file)
+    {
+        synchronized (files)
+        {
+            final Long size = files.remove(file);
+            if (size != null)
+                total_bytes -= size;
+        }
+        file.delete();
+    }
+
+    /** Delete least recently used files until below the size limit */
+    private void trim()
+    {
+        final List<File> remove = new ArrayList<>();
+        synchronized (files)
+        {
+            final Iterator<Map.Entry<File, Long>> iter = files.entrySet().iterator();
+            while (total_bytes > max_bytes  &&  iter.hasNext())
+            {
+                final Map.Entry<File, Long> entry = iter.next();
+                total_bytes -= entry.getValue();
+                remove.add(entry.getKey());
+                iter.remove();
+            }
+        }
+        for (File file : remove)
+            file.delete();
+    }
+
+    private static boolean isSupported(final VType sample)
+    {
+        return sample instanceof VStatistics  ||  sample instanceof VNumber  ||
+               sample instanceof VString  ||  sample instanceof VEnum  ||
+               sample instanceof VNumberArray;
+    }
+
+    private static void writeSample(final DataOutputStream out, final VType sample) throws IOException
+    {
+        // Statistics are also numbers, so check them first
+        if (sample instanceof VStatistics)
+            out.writeByte(STATISTICS);
+        else if (sample instanceof VNumber)
+            out.writeByte(NUMBER);
+        else if (sample instanceof VString)
+            out.writeByte(STRING);
+        else if (sample instanceof VEnum)
+            out.writeByte(ENUM);
+        else
+            out.writeByte(ARRAY);
+
+        final Instant time = VTypeHelper.getTimestamp(sample);
+        out.writeLong(time.getEpochSecond());
+        out.writeInt(time.getNano());
+        out.writeByte(VTypeHelper.getSeverity(sample).ordinal());
+        out.writeUTF(VTypeHelper.getMessage(sample));
+
+        if (sample instanceof VStatistics)
+        {
+            final VStatistics stats = (VStatistics) sample;
+            writeDisplay(out, stats);
+            out.writeDouble(stats.getAverage());
+            out.writeDouble(stats.getMin());
+            out.writeDouble(stats.getMax());
+            out.writeDouble(stats.getStdDev());
+            out.writeInt(stats.getNSamples());
+        }
+        else if (sample instanceof VNumber)
+        {
+            writeDisplay(out, (Display) sample);
+            out.writeDouble(((VNumber) sample).getValue().doubleValue());
+        }
+        else if (sample instanceof VString)
+            out.writeUTF(((VString) sample).getValue());
+        else if (sample instanceof VEnum)
+        {
+            final VEnum value = (VEnum) sample;
+            out.writeInt(value.getIndex());
+            out.writeInt(value.getLabels().size());
+            for (String label : value.getLabels())
+                out.writeUTF(label);
+        }
+        else
+        {
+            final VNumberArray value = (VNumberArray) sample;
+            writeDisplay(out, value);
+            final ListNumber data = value.getData();
+            out.writeInt(data.size());
+            for (int i=0; i<data.size(); ++i)
+                out.writeDouble(data.getDouble(i));
+        }
+    }
+
+    private static VType readSample(final DataInputStream in) throws IOException
+    {
+        final byte type = in.readByte();
+        final Instant time = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        final AlarmSeverity severity = AlarmSeverity.values()[in.readByte()];
+        final String status = in.readUTF();
+        switch (type)
+        {
+        case NUMBER:
+            return new ArchiveVNumber(time, severity, status, readDisplay(in), in.readDouble());
+        case STATISTICS:
+            return new ArchiveVStatistics(time, severity, status, readDisplay(in),
+                                          in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                                          in.readInt());
+        case STRING:
+            return new ArchiveVString(time, severity, status, in.readUTF());
+        case ENUM:
+        {
+            final int index = in.readInt();
+            final List<String> labels = new ArrayList<>();
+            for (int i=in.readInt(); i>0; --i)
+                labels.add(in.readUTF());
+            return new ArchiveVEnum(time, severity, status, labels, index);
+        }
+        case ARRAY:
+        {
+            final Display display = readDisplay(in);
+            final double[] data = new double[in.readInt()];
+            for (int i=0; i<data.length; ++i)
+                data[i] = in.readDouble();
+            return new ArchiveVNumberArray(time, severity, status, display, data);
+        }
+        default:
+            throw new IOException("Unknown sample type " + type);
+        }
+    }
+
+    private static void writeDisplay(final DataOutputStream out, final Display display) throws IOException
+    {
+        writeLimit(out, display.getLowerDisplayLimit());
+        writeLimit(out, display.getLowerAlarmLimit());
+        writeLimit(out, display.getLowerWarningLimit());
+        writeLimit(out, display.getUpperWarningLimit());
+        writeLimit(out, display.getUpperAlarmLimit());
+        writeLimit(out, display.getUpperDisplayLimit());
+        writeLimit(out, display.getLowerCtrlLimit());
+        writeLimit(out, display.getUpperCtrlLimit());
+        out.writeUTF(display.getUnits() == null ? "" : display.getUnits());
+        final NumberFormat format = display.getFormat();
+        out.writeInt(format == null ? -1 : format.getMaximumFractionDigits());
+    }
+
+    private static void writeLimit(final DataOutputStream out, final Double limit) throws IOException
+    {
+        out.writeDouble(limit == null ? Double.NaN : limit);
+    }
+
+    private static Display readDisplay(final DataInputStream in) throws IOException
+    {
+        final double lower_disp = in.readDouble(), lower_alarm = in.readDouble(), lower_warn = in.readDouble(),
+                     upper_warn = in.readDouble(), upper_alarm = in.readDouble(), upper_disp = in.readDouble(),
+                     lower_ctrl = in.readDouble(), upper_ctrl = in.readDouble();
+        final String units = in.readUTF();
+        final int precision = in.readInt();
+        final NumberFormat format = precision < 0 ? NumberFormats.toStringFormat() : NumberFormats.format(precision);
+        return ValueFactory.newDisplay(lower_disp, lower_alarm, lower_warn, units, format,
+                                       upper_warn, upper_alarm, upper_disp, lower_ctrl, upper_ctrl);
+    }
+}
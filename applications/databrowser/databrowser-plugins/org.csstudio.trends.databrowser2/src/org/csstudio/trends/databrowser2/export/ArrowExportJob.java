@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.export.ArrowFileWriter.Type;
+import org.csstudio.trends.databrowser2.model.Model;
+import org.csstudio.trends.databrowser2.model.ModelItem;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VType;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+
+/** Eclipse Job for exporting data from Model to an Apache Arrow file
+ *
+ *  <p>The file holds one table with a row per sample
+ *  and the columns listed in {@link #NAMES}.
+ *  It can be read by pandas, pyarrow, R, Matlab and others.
+ */
+@SuppressWarnings("nls")
+public class ArrowExportJob extends ExportJob
+{
+    /** Rows per record batch */
+    final private static int BATCH_ROWS = 64 * 1024;
+
+    /** Column names */
+    final static String[] NAMES = { "channel", "time", "value", "text", "minimum", "maximum", "severity", "status" };
+    final private static Type[] TYPES = { Type.TEXT, Type.TIMESTAMP, Type.DOUBLE, Type.TEXT, Type.DOUBLE, Type.DOUBLE, Type.TEXT, Type.TEXT };
+    final private static boolean[] NULLABLE = { false, false, true, true, true, true, false, true };
+
+    final private String filename;
+
+    public ArrowExportJob(final Model model, final Instant start,
+            final Instant end, final Source source,
+            final int optimize_parameter, final String filename,
+            final ExportErrorHandler error_handler)
+    {
+        super("", model, start, end, source, optimize_parameter, null, error_handler);
+        this.filename = filename;
+    }
+
+    /** @param file File to create
+     *  @return Writer for the export columns
+     *  @throws IOException on error
+     */
+    static ArrowFileWriter createWriter(final Path file) throws IOException
+    {
+        return new ArrowFileWriter(file, BATCH_ROWS, NAMES, TYPES, NULLABLE);
+    }
+
+    /** @param writer Writer
+     *  @param channel Channel name
+     *  @param value Sample to add as a row
+     *  @throws IOException on error
+     */
+    static void addRow(final ArrowFileWriter writer, final String channel, final VType value) throws IOException
+    {
+        writer.addText(channel);
+        writer.addTimestamp(VTypeHelper.getTimestamp(value));
+        if (value instanceof VString)
+            writer.addNull();
+        else
+            writer.addDouble(VTypeHelper.toDouble(value));
+        if (value instanceof VString)
+            writer.addText(((VString) value).getValue());
+        else if (value instanceof VEnum)
+            writer.addText(((VEnum) value).getValue());
+        else
+            writer.addNull();
+        final VStatistics stats = value instanceof VStatistics ? (VStatistics) value : null;
+        addNumber(writer, stats == null ? null : stats.getMin());
+        addNumber(writer, stats == null ? null : stats.getMax());
+        writer.addText(VTypeHelper.getSeverity(value).toString());
+        writer.addText(VTypeHelper.getMessage(value));
+        writer.endRow();
+    }
+
+    /** @param writer Writer
+     *  @param number Number or <code>null</code>
+     */
+    private static void addNumber(final ArrowFileWriter writer, final Double number)
+    {
+        if (number == null)
+            writer.addNull();
+        else
+            writer.addDouble(number);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void performExport(final IProgressMonitor monitor,
+                                 final PrintStream out) throws Exception
+    {
+        // This exporter does its own file handling
+        if (out != null)
+            throw new IllegalStateException();
+
+        final List<ValueIterator> iters = createValueIterators(monitor);
+        try (final ArrowFileWriter writer = createWriter(Paths.get(filename)))
+        {
+            int i = 0;
+            for (ModelItem item : model.getItems())
+            {
+                final String name = item.getResolvedName();
+                monitor.subTask(NLS.bind("Fetching data for {0}", name));
+                final ValueIterator iter = iters.get(i++);
+                int count = 0;
+                while (iter.hasNext()  &&  !monitor.isCanceled())
+                {
+                    addRow(writer, name, iter.next());
+                    if (++count % PROGRESS_UPDATE_LINES == 0)
+                        monitor.subTask(NLS.bind("{0}: Wrote {1} samples", name, count));
+                }
+            }
+        }
+    }
+}
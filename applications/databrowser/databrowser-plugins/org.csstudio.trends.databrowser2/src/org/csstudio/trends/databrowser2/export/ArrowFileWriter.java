@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.csstudio.trends.databrowser2.export.FlatBufferWriter.Table;
+import org.csstudio.trends.databrowser2.export.FlatBufferWriter.Vector;
+
+/** Writer for the Apache Arrow IPC file format, also known as Feather V2
+ *
+ *  <p>Rows are collected column by column and written as a record batch
+ *  whenever a batch is full, so files of any size are written with
+ *  constant memory.
+ *  Supported column types are UTF-8 text, 64-bit floating point numbers
+ *  and time stamps in nanoseconds since 1970-01-01 00:00:00 UTC.
+ *  Buffers are not compressed.
+ *
+ *  <p>For each row, a value or null must be added to each column
+ *  in column order, followed by a call to {@link #endRow()}.
+ *
+ *  <p>Layout of the file:
+ *  <pre>
+ *  "ARROW1\0\0"
+ *  Schema message
+ *  Record batch messages
+ *  End-of-stream marker
+ *  Footer: Schema, location of the record batches
+ *  int32 footer size, "ARROW1"
+ *  </pre>
+ *  Each message is a continuation marker 0xFFFFFFFF, the int32 size of the
+ *  FlatBuffer metadata, the metadata and the body with the column buffers.
+ */
+@SuppressWarnings("nls")
+class ArrowFileWriter implements Closeable
+{
+    /** Column type */
+    enum Type
+    {
+        /** UTF-8 text */
+        TEXT,
+        /** 64-bit floating point */
+        DOUBLE,
+        /** Nanoseconds since epoch, UTC */
+        TIMESTAMP
+    }
+
+    /** Magic bytes at start and end of file */
+    final static byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+
+    // Constants of the Arrow metadata, see Schema.fbs, Message.fbs, File.fbs
+    final private static int VERSION_V5 = 4;
+    final private static int HEADER_SCHEMA = 1, HEADER_RECORD_BATCH = 3;
+    final private static int TYPE_FLOATING_POINT = 3, TYPE_UTF8 = 5, TYPE_TIMESTAMP = 10;
+    final private static int PRECISION_DOUBLE = 2;
+    final private static int TIME_UNIT_NANOSECOND = 3;
+
+    /** Column definition and the data of the current batch */
+    private static class Column
+    {
+        final String name;
+        final Type type;
+        final boolean nullable;
+
+        /** Bit per row, set for non-null values */
+        byte[] validity;
+        int rows = 0, nulls = 0;
+
+        /** Values for DOUBLE and TIMESTAMP */
+        long[] values;
+
+        /** Offsets and data for TEXT */
+        int[] offsets;
+        byte[] text;
+
+        Column(final String name, final Type type, final boolean nullable, final int batch_rows)
+        {
+            this.name = name;
+            this.type = type;
+            this.nullable = nullable;
+            validity = new byte[(batch_rows + 7) / 8];
+            if (type == Type.TEXT)
+            {
+                offsets = new int[batch_rows + 1];
+                text = new byte[batch_rows * 16];
+            }
+            else
+                values = new long[batch_rows];
+        }
+
+        /** Start next batch */
+        void clear()
+        {
+            Arrays.fill(validity, (byte) 0);
+            rows = nulls = 0;
+        }
+    }
+
+    final private SeekableByteChannel channel;
+    final private int batch_rows;
+    final private Column[] columns;
+    final private Table schema;
+
+    /** Position in file */
+    private long position = 0;
+
+    /** Number of rows in current batch */
+    private int rows = 0;
+
+    /** Number of the column for the next value of the current row */
+    private int column = 0;
+
+    /** Offset, metadata length, body length of each record batch */
+    final private List<long[]> blocks = new ArrayList<>();
+
+    /** Body of a record batch, reused */
+    private ByteBuffer body = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+
+    /** Create file
+     *  @param file File to create or replace
+     *  @param batch_rows Number of rows per record batch
+     *  @param names Column names
+     *  @param types Column types
+     *  @param nullable Which columns may contain null values
+     *  @throws IOException on error
+     */
+    public ArrowFileWriter(final Path file, final int batch_rows,
+                           final String[] names, final Type[] types,
+                           final boolean[] nullable) throws IOException
+    {
+        if (batch_rows <= 0  ||  names.length != types.length  ||  names.length != nullable.length)
+            throw new IllegalArgumentException("Invalid column definition");
+        this.batch_rows = batch_rows;
+        columns = new Column[names.length];
+        for (int i=0; i<columns.length; ++i)
+            columns[i] = new Column(names[i], types[i], nullable[i], batch_rows);
+        schema = createSchema();
+
+        channel = Files.newByteChannel(file, StandardOpenOption.CREATE,
+                                       StandardOpenOption.TRUNCATE_EXISTING,
+                                       StandardOpenOption.WRITE);
+        write(ByteBuffer.wrap(Arrays.copyOf(MAGIC, 8)));
+        writeMessage(createMessage(HEADER_SCHEMA, schema, 0), null);
+    }
+
+    /** @return Schema with the column definitions */
+    private Table createSchema()
+    {
+        final List<Table> fields = new ArrayList<>();
+        for (Column col : columns)
+        {
+            final Table type = new Table();
+            final int type_id;
+            switch (col.type)
+            {
+            case TEXT:
+                type_id = TYPE_UTF8;
+                break;
+            case DOUBLE:
+                type_id = TYPE_FLOATING_POINT;
+                type.addShort(0, PRECISION_DOUBLE);
+                break;
+            default:
+                type_id = TYPE_TIMESTAMP;
+                type.addShort(0, TIME_UNIT_NANOSECOND);
+                type.addString(1, "UTC");
+            }
+            fields.add(new Table().addString(0, col.name)
+                                  .addBool(1, col.nullable)
+                                  .addByte(2, type_id)
+                                  .addTable(3, type)
+                                  .addVector(5, Vector.empty()));
+        }
+        return new Table().addVector(1, Vector.ofTables(fields));
+    }
+
+    /** @param header_type Type of the header
+     *  @param header Header
+     *  @param body_length Length of the message body
+     *  @return Message metadata
+     */
+    private static Table createMessage(final int header_type, final Table header, final long body_length)
+    {
+        return new Table().addShort(0, VERSION_V5)
+                          .addByte(1, header_type)
+                          .addTable(2, header)
+                          .addLong(3, body_length);
+    }
+
+    /** @param type Expected type of the column or <code>null</code>
+     *  @param valid Is the value valid, or null?
+     *  @return Column for the next value of the current row
+     */
+    private Column nextColumn(final Type type, final boolean valid)
+    {
+        if (column >= columns.length)
+            throw new IllegalStateException("All columns of row have been set");
+        final Column col = columns[column];
+        if (type != null  &&  col.type != type)
+            throw new IllegalArgumentException("Column '" + col.name + "' is not " + type);
+        if (valid)
+            col.validity[col.rows / 8] |= 1 << (col.rows % 8);
+        else if (col.nullable)
+            ++col.nulls;
+        else
+            throw new IllegalArgumentException("Column '" + col.name + "' cannot be null");
+        ++column;
+        return col;
+    }
+
+    /** @param value Text for the next column, may be <code>null</code> */
+    public void addText(final String value)
+    {
+        final Column col = nextColumn(Type.TEXT, value != null);
+        int end = col.offsets[col.rows];
+        if (value != null)
+        {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (end + bytes.length > col.text.length)
+                col.text = Arrays.copyOf(col.text, Math.max(2*col.text.length, end + bytes.length));
+            System.arraycopy(bytes, 0, col.text, end, bytes.length);
+            end += bytes.length;
+        }
+        col.offsets[++col.rows] = end;
+    }
+
+    /** @param value Number for the next column */
+    public void addDouble(final double value)
+    {
+        final Column col = nextColumn(Type.DOUBLE, true);
+        col.values[col.rows++] = Double.doubleToRawLongBits(value);
+    }
+
+    /** @param value Time stamp for the next column, may be <code>null</code> */
+    public void addTimestamp(final Instant value)
+    {
+        final Column col = nextColumn(Type.TIMESTAMP, value != null);
+        col.values[col.rows++] = value == null
+                               ? 0
+                               : value.getEpochSecond() * 1000000000L + value.getNano();
+    }
+
+    /** Add null to the next column */
+    public void addNull()
+    {
+        final Column col = nextColumn(null, false);
+        if (col.type == Type.TEXT)
+        {
+            col.offsets[col.rows+1] = col.offsets[col.rows];
+            ++col.rows;
+        }
+        else
+            col.values[col.rows++] = 0;
+    }
+
+    /** Complete the current row
+     *  @throws IOException on error
+     */
+    public void endRow() throws IOException
+    {
+        if (column != columns.length)
+            throw new IllegalStateException("Row has " + column + " of " + columns.length + " columns");
+        column = 0;
+        if (++rows >= batch_rows)
+            writeBatch();
+    }
+
+    /** @param buffers Offset and length of each buffer in the body
+     *  @param length Length of the next buffer
+     *  @return Offset of the next buffer
+     */
+    private static long addBuffer(final List<long[]> buffers, final long length)
+    {
+        long offset = 0;
+        if (! buffers.isEmpty())
+        {
+            final long[] last = buffers.get(buffers.size()-1);
+            offset = (last[0] + last[1] + 7) / 8 * 8;
+        }
+        buffers.add(new long[] { offset, length });
+        return offset;
+    }
+
+    /** Write the rows of the current batch
+     *  @throws IOException on error
+     */
+    private void writeBatch() throws IOException
+    {
+        // Determine layout of the body
+        final List<long[]> buffers = new ArrayList<>();
+        for (Column col : columns)
+        {
+            addBuffer(buffers, col.nulls > 0 ? (rows + 7) / 8 : 0);
+            if (col.type == Type.TEXT)
+            {
+                addBuffer(buffers, 4L * (rows + 1));
+                addBuffer(buffers, col.offsets[rows]);
+            }
+            else
+                addBuffer(buffers, 8L * rows);
+        }
+        final long[] last = buffers.get(buffers.size()-1);
+        final int body_length = (int) ((last[0] + last[1] + 7) / 8 * 8);
+
+        // Fill the body
+        if (body.capacity() < body_length)
+            body = ByteBuffer.allocate(body_length).order(ByteOrder.LITTLE_ENDIAN);
+        body.clear();
+        Arrays.fill(body.array(), 0, body_length, (byte) 0);
+        int buf = 0;
+        for (Column col : columns)
+        {
+            body.position((int) buffers.get(buf++)[0]);
+            if (col.nulls > 0)
+                body.put(col.validity, 0, (rows + 7) / 8);
+            body.position((int) buffers.get(buf++)[0]);
+            if (col.type == Type.TEXT)
+            {
+                for (int i=0; i<=rows; ++i)
+                    body.putInt(col.offsets[i]);
+                body.position((int) buffers.get(buf++)[0]);
+                body.put(col.text, 0, col.offsets[rows]);
+            }
+            else
+                for (int i=0; i<rows; ++i)
+                    body.putLong(col.values[i]);
+        }
+        body.position(0);
+        body.limit(body_length);
+
+        // Metadata: Length, null count of each column; Location of each buffer
+        final ByteBuffer nodes = ByteBuffer.allocate(16 * columns.length).order(ByteOrder.LITTLE_ENDIAN);
+        for (Column col : columns)
+            nodes.putLong(rows).putLong(col.nulls);
+        final ByteBuffer locations = ByteBuffer.allocate(16 * buffers.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (long[] buffer : buffers)
+            locations.putLong(buffer[0]).putLong(buffer[1]);
+        final Table batch = new Table().addLong(0, rows)
+                                       .addVector(1, Vector.ofStructs(columns.length, nodes))
+                                       .addVector(2, Vector.ofStructs(buffers.size(), locations));
+        blocks.add(writeMessage(createMessage(HEADER_RECORD_BATCH, batch, body_length), body));
+
+        for (Column col : columns)
+            col.clear();
+        rows = 0;
+    }
+
+    /** @param message Message metadata
+     *  @param body Message body or <code>null</code>
+     *  @return Offset, metadata length, body length
+     *  @throws IOException on error
+     */
+    private long[] writeMessage(final Table message, final ByteBuffer body) throws IOException
+    {
+        final long offset = position;
+        final byte[] metadata = FlatBufferWriter.finish(message);
+        final ByteBuffer prefix = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        prefix.putInt(0xFFFFFFFF).putInt(metadata.length);
+        prefix.flip();
+        write(prefix);
+        write(ByteBuffer.wrap(metadata));
+        final long body_length = body == null ? 0 : body.remaining();
+        if (body != null)
+            write(body);
+        return new long[] { offset, 8 + metadata.length, body_length };
+    }
+
+    /** @param buffer Buffer to write from position to limit
+     *  @throws IOException on error
+     */
+    private void write(final ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer);
+    }
+
+    /** Write remaining rows and the footer, then close the file
+     *  @throws IOException on error
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (column != 0)
+                throw new IllegalStateException("Incomplete row");
+            if (rows > 0)
+                writeBatch();
+
+            // End-of-stream marker
+            final ByteBuffer eos = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            eos.putInt(0xFFFFFFFF).putInt(0);
+            eos.flip();
+            write(eos);
+
+            // Footer
+            final ByteBuffer locations = ByteBuffer.allocate(24 * blocks.size()).order(ByteOrder.LITTLE_ENDIAN);
+            for (long[] block : blocks)
+                locations.putLong(block[0]).putInt((int) block[1]).putInt(0).putLong(block[2]);
+            final Table footer = new Table().addShort(0, VERSION_V5)
+                                            .addTable(1, schema)
+                                            .addVector(2, Vector.ofStructs(0, ByteBuffer.allocate(0)))
+                                            .addVector(3, Vector.ofStructs(blocks.size(), locations));
+            final byte[] data = FlatBufferWriter.finish(footer);
+            write(ByteBuffer.wrap(data));
+            final ByteBuffer end = ByteBuffer.allocate(4 + MAGIC.length).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(data.length).put(MAGIC);
+            end.flip();
+            write(end);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
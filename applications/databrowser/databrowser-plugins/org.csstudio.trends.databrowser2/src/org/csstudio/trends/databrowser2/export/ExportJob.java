@@ -7,12 +7,18 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.export;
 
+import java.io.BufferedOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +27,7 @@ import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.ArchiveRepository;
 import org.csstudio.archive.reader.LinearValueIterator;
 import org.csstudio.archive.reader.MergingValueIterator;
+import org.csstudio.archive.reader.PrefetchValueIterator;
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.model.ArchiveDataSource;
@@ -33,6 +40,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
 
 /** Base for Eclipse Job for exporting data from Model to file
  *  @author Kay Kasemir
@@ -41,6 +49,12 @@ import org.eclipse.core.runtime.jobs.Job;
 abstract public class ExportJob extends Job
 {
     final protected static int PROGRESS_UPDATE_LINES = 1000;
+    /** Size of output file buffer */
+    final private static int BUFFER_SIZE = 256 * 1024;
+    /** Batches of samples to read ahead for each item */
+    final private static int PREFETCH_BATCHES = 2;
+    /** Seconds to wait for a read-ahead thread to stop before cancelling its reader */
+    final private static int PREFETCH_STOP_TIMEOUT = 10;
     final protected String comment;
     final protected Model model;
     final protected Instant start, end;
@@ -50,6 +64,8 @@ abstract public class ExportJob extends Job
     final protected ExportErrorHandler error_handler;
     /** Active readers, used to cancel and close them */
     final private CopyOnWriteArrayList<ArchiveReader> archive_readers = new CopyOnWriteArrayList<ArchiveReader>();
+    /** Iterators that read ahead, closed when done to stop their threads */
+    final private CopyOnWriteArrayList<PrefetchValueIterator> prefetch_iterators = new CopyOnWriteArrayList<PrefetchValueIterator>();
 
     /** Thread that polls a progress monitor and cancels active archive readers
      *  if the user requests the export job to end via the progress monitor
@@ -126,7 +142,7 @@ abstract public class ExportJob extends Job
             final PrintStream out;
             if (filename != null)
             {
-                out = new PrintStream(filename);
+                out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), BUFFER_SIZE));
                 printExportInfo(out);
             }
             else
@@ -147,12 +163,40 @@ abstract public class ExportJob extends Job
         {
             error_handler.handleExportError(ex);
         }
-        for (ArchiveReader reader : archive_readers)
-            reader.close();
+        closeReaders();
         monitor.done();
         return Status.OK_STATUS;
     }
 
+    /** Stop the read-ahead threads, then close the archive readers
+     *  once no thread uses them any more
+     */
+    private void closeReaders()
+    {
+        for (PrefetchValueIterator iter : prefetch_iterators)
+            iter.close();
+        try
+        {
+            for (PrefetchValueIterator iter : prefetch_iterators)
+            {
+                if (! iter.awaitDone(PREFETCH_STOP_TIMEOUT, TimeUnit.SECONDS))
+                {   // Reader may be blocked in a query
+                    for (ArchiveReader reader : archive_readers)
+                        reader.cancel();
+                    if (! iter.awaitDone(PREFETCH_STOP_TIMEOUT, TimeUnit.SECONDS))
+                        Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                                "Export closes archive reader while still in use");
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        for (ArchiveReader reader : archive_readers)
+            reader.close();
+    }
+
     /** Print file header, gets invoked before <code>performExport</code> */
     protected void printExportInfo(final PrintStream out)
     {
@@ -199,6 +243,60 @@ abstract public class ExportJob extends Job
         out.println(comment);
     }
 
+    /** Create value iterators for all items of the model.
+     *
+     *  <p>Archive requests for all items are started concurrently,
+     *  and the samples of each item are then read ahead in the background
+     *  while earlier items or lines are written.
+     *
+     *  @param monitor Progress monitor
+     *  @return ValueIterator for each item, in the order of the model's items
+     *  @throws Exception on error
+     */
+    protected List<ValueIterator> createValueIterators(final IProgressMonitor monitor) throws Exception
+    {
+        final ExecutorService pool = Activator.getThreadPool();
+        final List<String> names = new ArrayList<>();
+        final List<Future<ValueIterator>> requests = new ArrayList<>();
+        for (ModelItem item : model.getItems())
+        {
+            names.add(item.getResolvedName());
+            requests.add(pool.submit(() ->
+            {
+                final ValueIterator iter = createValueIterator(item);
+                // Plot samples are already in memory
+                if (source == Source.PLOT || !(item instanceof PVItem))
+                    return iter;
+                final PrefetchValueIterator prefetch = new PrefetchValueIterator(iter, pool,
+                        PrefetchValueIterator.BATCH_SIZE, PREFETCH_BATCHES);
+                prefetch_iterators.add(prefetch);
+                return prefetch;
+            }));
+        }
+        final List<ValueIterator> iters = new ArrayList<>();
+        Exception error = null;
+        for (int i=0; i<requests.size(); ++i)
+        {
+            monitor.subTask(NLS.bind("Fetching data for {0}", names.get(i)));
+            try
+            {
+                iters.add(requests.get(i).get());
+            }
+            catch (ExecutionException ex)
+            {
+                if (error == null)
+                    error = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+            }
+        }
+        if (error != null)
+        {
+            for (ValueIterator iter : iters)
+                iter.close();
+            throw error;
+        }
+        return iters;
+    }
+
     /** @param item ModelItem
      *  @return ValueIterator for samples in the item
      *  @throws Exception on error
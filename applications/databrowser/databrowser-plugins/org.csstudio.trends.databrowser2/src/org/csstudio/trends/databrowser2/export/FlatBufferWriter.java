@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Writer for the subset of the FlatBuffers format that is used
+ *  by the metadata of the Apache Arrow IPC format.
+ *
+ *  <p>Objects are written front to back: Each table is preceded by its vtable
+ *  and followed by the tables, vectors and strings that it references,
+ *  so that all references point forward as required by FlatBuffers.
+ */
+class FlatBufferWriter
+{
+    /** Field of a table: Scalar value or reference to a {@link Table}, {@link Vector} or String */
+    private static class Field
+    {
+        final int id, size;
+        final long value;
+        final Object child;
+
+        Field(final int id, final int size, final long value, final Object child)
+        {
+            this.id = id;
+            this.size = size;
+            this.value = value;
+            this.child = child;
+        }
+    }
+
+    /** Table */
+    static class Table
+    {
+        final private List<Field> fields = new ArrayList<>();
+
+        /** @param id Field ID
+         *  @param value Value of 'bool' field
+         *  @return this
+         */
+        Table addBool(final int id, final boolean value)
+        {
+            fields.add(new Field(id, 1, value ? 1 : 0, null));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param value Value of 'byte' field, also used for the type of a union
+         *  @return this
+         */
+        Table addByte(final int id, final int value)
+        {
+            fields.add(new Field(id, 1, value, null));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param value Value of 'short' field, also used for enums
+         *  @return this
+         */
+        Table addShort(final int id, final int value)
+        {
+            fields.add(new Field(id, 2, value, null));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param value Value of 'int' field
+         *  @return this
+         */
+        Table addInt(final int id, final int value)
+        {
+            fields.add(new Field(id, 4, value, null));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param value Value of 'long' field
+         *  @return this
+         */
+        Table addLong(final int id, final long value)
+        {
+            fields.add(new Field(id, 8, value, null));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param table Table, also used for the value of a union
+         *  @return this
+         */
+        Table addTable(final int id, final Table table)
+        {
+            fields.add(new Field(id, 4, 0, table));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param vector Vector
+         *  @return this
+         */
+        Table addVector(final int id, final Vector vector)
+        {
+            fields.add(new Field(id, 4, 0, vector));
+            return this;
+        }
+
+        /** @param id Field ID
+         *  @param text Text
+         *  @return this
+         */
+        Table addString(final int id, final String text)
+        {
+            fields.add(new Field(id, 4, 0, text));
+            return this;
+        }
+    }
+
+    /** Vector of tables or structs */
+    static class Vector
+    {
+        final private List<Table> tables;
+        final private byte[] structs;
+        final private int count;
+
+        private Vector(final List<Table> tables, final byte[] structs, final int count)
+        {
+            this.tables = tables;
+            this.structs = structs;
+            this.count = count;
+        }
+
+        /** @param tables Tables
+         *  @return Vector of tables
+         */
+        static Vector ofTables(final List<Table> tables)
+        {
+            return new Vector(tables, null, tables.size());
+        }
+
+        /** @param count Number of structs
+         *  @param data Little-endian struct data, each struct a multiple of 8 bytes
+         *  @return Vector of structs
+         */
+        static Vector ofStructs(final int count, final ByteBuffer data)
+        {
+            return new Vector(null, Arrays.copyOf(data.array(), data.position()), count);
+        }
+
+        /** @return Empty vector */
+        static Vector empty()
+        {
+            return ofTables(Collections.emptyList());
+        }
+    }
+
+    private byte[] data = new byte[1024];
+    private int size = 0;
+
+    /** @param root Root table
+     *  @return FlatBuffer, padded to a multiple of 8 bytes
+     */
+    static byte[] finish(final Table root)
+    {
+        final FlatBufferWriter writer = new FlatBufferWriter();
+        writer.append(4, 0);
+        final int pos = writer.write(root);
+        writer.put(0, 4, pos);
+        writer.pad(8);
+        return Arrays.copyOf(writer.data, writer.size);
+    }
+
+    private FlatBufferWriter()
+    {
+    }
+
+    /** @param bytes Number of bytes to add at the end, initially zero */
+    private void grow(final int bytes)
+    {
+        if (size + bytes > data.length)
+            data = Arrays.copyOf(data, Math.max(2*data.length, size + bytes));
+        size += bytes;
+    }
+
+    /** @param alignment Zero-pad to multiple of this alignment */
+    private void pad(final int alignment)
+    {
+        final int misaligned = size % alignment;
+        if (misaligned != 0)
+            grow(alignment - misaligned);
+    }
+
+    /** @param pos Position
+     *  @param bytes Number of bytes
+     *  @param value Little-endian value to place at that position
+     */
+    private void put(final int pos, final int bytes, final long value)
+    {
+        for (int i=0; i<bytes; ++i)
+            data[pos+i] = (byte) (value >>> (8*i));
+    }
+
+    /** @param bytes Number of bytes
+     *  @param value Little-endian value to append
+     *  @return Position of the value
+     */
+    private int append(final int bytes, final long value)
+    {
+        final int pos = size;
+        grow(bytes);
+        put(pos, bytes, value);
+        return pos;
+    }
+
+    /** @param object Table, Vector or String
+     *  @return Position of the object
+     */
+    private int writeObject(final Object object)
+    {
+        if (object instanceof Table)
+            return write((Table) object);
+        if (object instanceof Vector)
+            return write((Vector) object);
+        return write((String) object);
+    }
+
+    /** @param table Table to write, followed by the objects that it references
+     *  @return Position of the table
+     */
+    private int write(final Table table)
+    {
+        // Place the inline fields largest first, each aligned to its size
+        final List<Field> fields = new ArrayList<>(table.fields);
+        fields.sort((a, b) -> b.size - a.size);
+        final int[] offsets = new int[fields.size()];
+        int inline_size = 4, max_id = -1;
+        for (int i=0; i<offsets.length; ++i)
+        {
+            final Field field = fields.get(i);
+            inline_size = (inline_size + field.size - 1) / field.size * field.size;
+            offsets[i] = inline_size;
+            inline_size += field.size;
+            max_id = Math.max(max_id, field.id);
+        }
+
+        // VTable: Its size, size of the table, offset of each field or 0
+        pad(2);
+        final int vtable = append(2, 4 + 2*(max_id+1));
+        append(2, inline_size);
+        final int entries = size;
+        grow(2*(max_id+1));
+        for (int i=0; i<offsets.length; ++i)
+            put(entries + 2*fields.get(i).id, 2, offsets[i]);
+
+        // Table: Offset back to vtable, fields
+        pad(8);
+        final int start = size;
+        append(4, start - vtable);
+        grow(inline_size - 4);
+        for (int i=0; i<offsets.length; ++i)
+            put(start + offsets[i], fields.get(i).size, fields.get(i).value);
+
+        // Referenced objects
+        for (int i=0; i<offsets.length; ++i)
+            if (fields.get(i).child != null)
+            {
+                final int pos = start + offsets[i];
+                put(pos, 4, writeObject(fields.get(i).child) - pos);
+            }
+        return start;
+    }
+
+    /** @param vector Vector to write
+     *  @return Position of the vector
+     */
+    private int write(final Vector vector)
+    {
+        if (vector.structs != null)
+        {   // Elements must be 8-aligned, following the 4-byte count
+            pad(4);
+            if (size % 8 == 0)
+                grow(4);
+            final int pos = append(4, vector.count);
+            final int elements = size;
+            grow(vector.structs.length);
+            System.arraycopy(vector.structs, 0, data, elements, vector.structs.length);
+            return pos;
+        }
+        pad(4);
+        final int pos = append(4, vector.count);
+        final int elements = size;
+        grow(4*vector.count);
+        for (int i=0; i<vector.count; ++i)
+        {
+            final int element = elements + 4*i;
+            put(element, 4, write(vector.tables.get(i)) - element);
+        }
+        return pos;
+    }
+
+    /** @param text Text to write as zero-terminated UTF-8
+     *  @return Position of the string
+     */
+    private int write(final String text)
+    {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        pad(4);
+        final int pos = append(4, bytes.length);
+        final int chars = size;
+        grow(bytes.length + 1);
+        System.arraycopy(bytes, 0, data, chars, bytes.length);
+        return pos;
+    }
+}
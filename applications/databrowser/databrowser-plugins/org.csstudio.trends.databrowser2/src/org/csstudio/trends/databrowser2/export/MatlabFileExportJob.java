@@ -54,12 +54,13 @@ public class MatlabFileExportJob extends ExportJob
         if (out != null)
             throw new IllegalStateException();
 
+        final List<ValueIterator> iters = createValueIterators(monitor);
         final MatFileIncrementalWriter writer = new MatFileIncrementalWriter(filename);
         int i = 0;
         for (ModelItem item : model.getItems())
         {   // Get data
             monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            final ValueIterator iter = createValueIterator(item);
+            final ValueIterator iter = iters.get(i);
             final List<Instant> times = new ArrayList<Instant>();
             final List<Double> values = new ArrayList<Double>();
             final List<AlarmSeverity> severities = new ArrayList<AlarmSeverity>();
@@ -107,16 +108,20 @@ public class MatlabFileExportJob extends ExportJob
         final int N = values.size();
         final int[] dims = new int[] { N, 1 };
         final MLCell time = new MLCell(null, dims);
+        final MLDouble seconds = new MLDouble(null, dims);
         final MLDouble value = new MLDouble(null, dims);
         final MLCell severity = new MLCell(null, dims);
         for (int i=0; i<N; ++i)
         {
             setCellText(time, i, TimestampHelper.format(times.get(i)));
+            seconds.set(times.get(i).getEpochSecond() + times.get(i).getNano() * 1e-9, i);
             value.set(values.get(i), i);
             setCellText(severity, i, severities.get(i).toString());
         }
         struct.setField("name", new MLChar(null, name));
         struct.setField("time", time);
+        // Numeric time column, seconds since 1970-01-01 00:00:00 UTC
+        struct.setField("seconds", seconds);
         struct.setField("value", value);
         struct.setField("severity", severity);
         return struct;
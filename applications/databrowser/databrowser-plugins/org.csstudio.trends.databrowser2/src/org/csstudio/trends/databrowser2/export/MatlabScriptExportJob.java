@@ -12,6 +12,7 @@ import java.sql.Date;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
+import java.util.List;
 
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.vtype.VTypeHelper;
@@ -56,6 +57,7 @@ public class MatlabScriptExportJob extends ExportJob
                                  final PrintStream out) throws Exception
     {
         final DateFormat date_format = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSS");
+        final List<ValueIterator> iters = createValueIterators(monitor);
         int count = 0;
         for (ModelItem item : model.getItems())
         {
@@ -65,7 +67,7 @@ public class MatlabScriptExportJob extends ExportJob
             printItemInfo(out, item);
             // Get data
             monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            final ValueIterator values = createValueIterator(item);
+            final ValueIterator values = iters.get(count);
             // Dump all values
             MatlabQualityHelper qualities = new MatlabQualityHelper();
             long line_count = 0;
@@ -9,6 +9,7 @@ package org.csstudio.trends.databrowser2.export;
 
 import java.io.PrintStream;
 import java.time.Instant;
+import java.util.List;
 
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.vtype.TimestampHelper;
@@ -54,6 +55,7 @@ public class PlainExportJob extends ExportJob
     protected void performExport(final IProgressMonitor monitor,
                                  final PrintStream out) throws Exception
     {
+        final List<ValueIterator> iters = createValueIterators(monitor);
         int count = 0;
         for (ModelItem item : model.getItems())
         {   // Item header
@@ -62,7 +64,7 @@ public class PlainExportJob extends ExportJob
             printItemInfo(out, item);
             // Get data
             monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            final ValueIterator values = createValueIterator(item);
+            final ValueIterator values = iters.get(count);
             // Dump all values
             out.println(comment + Messages.TimeColumn + Messages.Export_Delimiter + formatter.getHeader());
             long line_count = 0;
@@ -18,6 +18,7 @@ import org.csstudio.apputil.ui.time.StartEndDialog;
 import org.csstudio.archive.vtype.Style;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.editor.DataBrowserAwareView;
+import org.csstudio.trends.databrowser2.export.ArrowExportJob;
 import org.csstudio.trends.databrowser2.export.ExportErrorHandler;
 import org.csstudio.trends.databrowser2.export.MatlabFileExportJob;
 import org.csstudio.trends.databrowser2.export.MatlabScriptExportJob;
@@ -74,6 +75,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
     private Text optimize;
     private Text linear;
     private Button type_matlab;
+    private Button type_arrow;
     private Button tabular;
     private Button min_max_col;
     private Button sev_stat;
@@ -97,7 +99,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
         // Source: ( ) Plot  (*) Raw Archived Data  ( ) Averaged Archived Data  __time__  ( ) Linear __linear__ {ghost}
 
         // * Format *
-        // (*) Spreadsheet ( ) Matlab
+        // (*) Spreadsheet ( ) Matlab ( ) Arrow
         // [x] Tabular [x] ... with min/max column [x] ... with Severity/Status
         // (*) Default format  ( ) decimal notation  ( ) exponential notation _digits_ fractional digits
 
@@ -259,7 +261,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
         group.setLayoutData(new GridData(SWT.FILL, 0, true, false));
         group.setLayout(new RowLayout(SWT.VERTICAL));
 
-        // (*) Spreadsheet ( ) Matlab
+        // (*) Spreadsheet ( ) Matlab ( ) Arrow
         Composite box = new Composite(group, 0);
         box.setLayout(new RowLayout());
         final Button type_spreadsheet = new Button(box, SWT.RADIO);
@@ -271,7 +273,11 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
         type_matlab.setText(Messages.ExportTypeMatlab);
         type_matlab.setToolTipText(Messages.ExportTypeMatlabTT);
 
-        box.setTabList(new Control[] { type_spreadsheet, type_matlab });
+        type_arrow = new Button(box, SWT.RADIO);
+        type_arrow.setText(Messages.ExportTypeArrow);
+        type_arrow.setToolTipText(Messages.ExportTypeArrowTT);
+
+        box.setTabList(new Control[] { type_spreadsheet, type_matlab, type_arrow });
 
         // [x] Tabular [x] ... with min/max column [x] ... with Severity/Status
         box = new Composite(group, 0);
@@ -334,7 +340,8 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
                 min_max_col.setEnabled(!source_raw.getSelection());
             }
         });
-        type_matlab.addSelectionListener(new SelectionAdapter()
+        // Matlab and Arrow files always contain all columns in binary format
+        final SelectionAdapter binary_formats = new SelectionAdapter()
         {
             @Override
             public void widgetSelected(SelectionEvent e)
@@ -347,7 +354,9 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
                 format_digits.setEnabled(false);
                 min_max_col.setEnabled(minMaxAllowed());
             }
-        });
+        };
+        type_matlab.addSelectionListener(binary_formats);
+        type_arrow.addSelectionListener(binary_formats);
         final SelectionAdapter digit_enabler = new SelectionAdapter()
         {
             @Override
@@ -422,7 +431,8 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
     /** @return <code>true</code> if the min/max (error) column option should be enabled */
     private boolean minMaxAllowed()
     {
-        return !type_matlab.getSelection()  &&   !source_raw.getSelection();
+        return !type_matlab.getSelection()  &&  !type_arrow.getSelection()  &&
+               !source_raw.getSelection();
     }
 
     /** {@inheritDoc} */
@@ -585,6 +595,9 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
                 return;
             }
         }
+        else if (type_arrow.getSelection())
+            export = new ArrowExportJob(model, start_time, end_time, source,
+                    optimize_parameter, filename, this);
         else
         {   // Spreadsheet file export
             final Style style;
@@ -0,0 +1,687 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.ArchiveVType;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VType;
+
+/** Column-oriented storage of archived samples
+ *
+ *  <p>Time stamps, values and statistics of archived numbers are kept in
+ *  primitive arrays. Alarm status, data source and display meta data
+ *  are kept as indices into dictionaries.
+ *  {@link PlotSample}s and {@link VType}s are created on demand.
+ *  Samples of any other type are kept as they are.
+ *
+ *  <p>The samples are held in immutable chunks.
+ *  Merging new samples replaces the overlapping range of chunks
+ *  and shares the chunks before and after it,
+ *  so only the new samples are copied.
+ *
+ *  <p>Not thread-safe, all access is via {@link HistoricSamples}.
+ */
+@SuppressWarnings("nls")
+class ColumnarSamples
+{
+    /** Maximum number of samples in a chunk */
+    final static int CHUNK_SIZE = 4096;
+
+    /** Kinds of samples */
+    final private static byte OBJECT = 0, DOUBLE = 1, FLOAT = 2, LONG = 3, INTEGER = 4, SHORT = 5, BYTE = 6, STATISTICS = 7;
+
+    /** Largest long that a double holds exactly */
+    final private static long MAX_EXACT_LONG = 1L << 53;
+
+    /** Maximum number of entries in the status and display dictionaries */
+    final private static int MAX_DICTIONARY = Character.MAX_VALUE + 1;
+
+    final private static AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    /** Slice of immutable columns */
+    private static class Chunk
+    {
+        /** First and number of elements in the columns that belong to this chunk */
+        final int offset, length;
+
+        final long[] seconds;
+        final int[] nanos;
+        final double[] values;
+        final byte[] kinds;
+        final byte[] severities;
+        final char[] statuses;
+        final int[] sources;
+        final char[] displays;
+
+        /** Only allocated when chunk contains statistics */
+        final double[] minimum, maximum, stddev;
+        final int[] counts;
+
+        /** Only allocated when chunk contains samples kept as they are */
+        final VType[] objects;
+
+        Chunk(final Builder builder)
+        {
+            offset = 0;
+            length = builder.size;
+            seconds = builder.seconds;
+            nanos = builder.nanos;
+            values = builder.values;
+            kinds = builder.kinds;
+            severities = builder.severities;
+            statuses = builder.statuses;
+            sources = builder.sources;
+            displays = builder.displays;
+            minimum = builder.minimum;
+            maximum = builder.maximum;
+            stddev = builder.stddev;
+            counts = builder.counts;
+            objects = builder.objects;
+        }
+
+        Chunk(final Chunk other, final int start, final int end)
+        {
+            offset = other.offset + start;
+            length = end - start;
+            seconds = other.seconds;
+            nanos = other.nanos;
+            values = other.values;
+            kinds = other.kinds;
+            severities = other.severities;
+            statuses = other.statuses;
+            sources = other.sources;
+            displays = other.displays;
+            minimum = other.minimum;
+            maximum = other.maximum;
+            stddev = other.stddev;
+            counts = other.counts;
+            objects = other.objects;
+        }
+
+        /** @param start First sample, relative to this chunk
+         *  @param end Sample after the last one, relative to this chunk
+         *  @return Chunk for that range, sharing the columns
+         */
+        Chunk slice(final int start, final int end)
+        {
+            if (start == 0  &&  end == length)
+                return this;
+            return new Chunk(this, start, end);
+        }
+
+        /** @param i Sample, relative to this chunk
+         *  @return Comparison of sample's time with the given time
+         */
+        int compareTime(final int i, final long secs, final int nano)
+        {
+            final int c = Long.compare(seconds[offset + i], secs);
+            if (c != 0)
+                return c;
+            return Integer.compare(nanos[offset + i], nano);
+        }
+    }
+
+    /** Builder for the columns of one chunk */
+    private class Builder
+    {
+        int size = 0;
+        final long[] seconds;
+        final int[] nanos;
+        final double[] values;
+        final byte[] kinds;
+        final byte[] severities;
+        final char[] statuses;
+        final int[] sources;
+        final char[] displays;
+        double[] minimum, maximum, stddev;
+        int[] counts;
+        VType[] objects;
+
+        Builder(final int capacity)
+        {
+            seconds = new long[capacity];
+            nanos = new int[capacity];
+            values = new double[capacity];
+            kinds = new byte[capacity];
+            severities = new byte[capacity];
+            statuses = new char[capacity];
+            sources = new int[capacity];
+            displays = new char[capacity];
+        }
+
+        private void allocateStatistics()
+        {
+            if (minimum != null)
+                return;
+            minimum = new double[seconds.length];
+            maximum = new double[seconds.length];
+            stddev = new double[seconds.length];
+            counts = new int[seconds.length];
+        }
+
+        private void setTime(final Instant time)
+        {
+            seconds[size] = time.getEpochSecond();
+            nanos[size] = time.getNano();
+        }
+
+        /** @param value Sample to add
+         *  @param source Index of its data source
+         */
+        void add(final VType value, final int source)
+        {
+            sources[size] = source;
+            if (! addColumns(value))
+            {   // Keep sample as it is
+                if (objects == null)
+                    objects = new VType[seconds.length];
+                objects[size] = value;
+                kinds[size] = OBJECT;
+                // Same position as PlotSample.getPosition()
+                final Instant time = value instanceof Time ? ((Time) value).getTimestamp() : null;
+                setTime(time != null ? time : Instant.now());
+            }
+            ++size;
+        }
+
+        /** @param value Sample to add
+         *  @return <code>true</code> if value was added to the columns
+         */
+        private boolean addColumns(final VType value)
+        {
+            // Only the exact archive types, since derived types could carry more
+            final byte kind;
+            if (value.getClass() == ArchiveVNumber.class)
+                kind = getKind(((ArchiveVNumber) value).getValue());
+            else if (value.getClass() == ArchiveVStatistics.class)
+                kind = STATISTICS;
+            else
+                return false;
+            if (kind == OBJECT)
+                return false;
+            final ArchiveVType archived = (ArchiveVType) value;
+            final Instant time = archived.getTimestamp();
+            final int status = lookup(status_index, status_dictionary, archived.getAlarmName());
+            final int display = lookupDisplay((Display) value);
+            if (time == null  ||  archived.getAlarmSeverity() == null  ||  status < 0  ||  display < 0)
+                return false;
+
+            setTime(time);
+            kinds[size] = kind;
+            severities[size] = (byte) archived.getAlarmSeverity().ordinal();
+            statuses[size] = (char) status;
+            displays[size] = (char) display;
+            if (kind != STATISTICS)
+                values[size] = ((ArchiveVNumber) value).getValue().doubleValue();
+            else
+            {
+                final ArchiveVStatistics stats = (ArchiveVStatistics) value;
+                allocateStatistics();
+                values[size] = stats.getAverage();
+                minimum[size] = stats.getMin();
+                maximum[size] = stats.getMax();
+                stddev[size] = stats.getStdDev();
+                counts[size] = stats.getNSamples();
+            }
+            return true;
+        }
+
+        /** @param chunk Chunk from which to copy
+         *  @param i Sample in that chunk
+         */
+        void copy(final Chunk chunk, final int i)
+        {
+            final int index = chunk.offset + i;
+            seconds[size] = chunk.seconds[index];
+            nanos[size] = chunk.nanos[index];
+            values[size] = chunk.values[index];
+            kinds[size] = chunk.kinds[index];
+            severities[size] = chunk.severities[index];
+            statuses[size] = chunk.statuses[index];
+            sources[size] = chunk.sources[index];
+            displays[size] = chunk.displays[index];
+            if (kinds[size] == STATISTICS)
+            {
+                allocateStatistics();
+                minimum[size] = chunk.minimum[index];
+                maximum[size] = chunk.maximum[index];
+                stddev[size] = chunk.stddev[index];
+                counts[size] = chunk.counts[index];
+            }
+            else if (kinds[size] == OBJECT)
+            {
+                if (objects == null)
+                    objects = new VType[seconds.length];
+                objects[size] = chunk.objects[index];
+            }
+            ++size;
+        }
+    }
+
+    /** Key for display meta data, comparing the content */
+    private static class DisplayKey
+    {
+        final Double[] limits;
+        final String units;
+        final NumberFormat format;
+
+        DisplayKey(final Display display)
+        {
+            limits = new Double[]
+            {
+                display.getLowerDisplayLimit(), display.getUpperDisplayLimit(),
+                display.getLowerWarningLimit(), display.getUpperWarningLimit(),
+                display.getLowerAlarmLimit(), display.getUpperAlarmLimit(),
+                display.getLowerCtrlLimit(), display.getUpperCtrlLimit()
+            };
+            units = display.getUnits();
+            format = display.getFormat();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(limits) * 31 + Objects.hashCode(units);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof DisplayKey))
+                return false;
+            final DisplayKey other = (DisplayKey) obj;
+            return Arrays.equals(limits, other.limits)  &&
+                   Objects.equals(units, other.units)  &&
+                   Objects.equals(format, other.format);
+        }
+    }
+
+    /** Waveform index */
+    final private AtomicInteger waveform_index;
+
+    /** Dictionaries. Entries are only removed by clear() */
+    final private List<String> status_dictionary = new ArrayList<>();
+    final private Map<String, Integer> status_index = new HashMap<>();
+    final private List<String> source_dictionary = new ArrayList<>();
+    final private Map<String, Integer> source_index = new HashMap<>();
+    final private List<Display> display_dictionary = new ArrayList<>();
+    final private Map<DisplayKey, Integer> display_index = new HashMap<>();
+
+    /** Chunks, ordered by time */
+    private List<Chunk> chunks = new ArrayList<>();
+
+    /** Index of the first sample in each chunk */
+    private int[] starts = new int[0];
+
+    /** Total number of samples */
+    private int size = 0;
+
+    /** @param waveform_index Waveform index used by the samples */
+    ColumnarSamples(final AtomicInteger waveform_index)
+    {
+        this.waveform_index = waveform_index;
+    }
+
+    /** @return Number of samples */
+    int size()
+    {
+        return size;
+    }
+
+    /** @return Number of chunks */
+    int getChunkCount()
+    {
+        return chunks.size();
+    }
+
+    /** @param i Sample index
+     *  @return {@link PlotSample} for that sample
+     */
+    PlotSample get(final int i)
+    {
+        if (i < 0  ||  i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " exceeds size " + size);
+        final int c = findChunk(i);
+        final Chunk chunk = chunks.get(c);
+        final int index = chunk.offset + i - starts[c];
+        final String source = source_dictionary.get(chunk.sources[index]);
+        if (chunk.kinds[index] == OBJECT)
+            return new PlotSample(waveform_index, source, chunk.objects[index]);
+        return new ColumnSample(source, chunk, index);
+    }
+
+    /** @param i Sample index
+     *  @return Index of chunk that holds the sample
+     */
+    private int findChunk(final int i)
+    {
+        final int c = Arrays.binarySearch(starts, i);
+        return c >= 0 ? c : -c - 2;
+    }
+
+    /** @param time Time stamp
+     *  @return Index of the last sample before that time, or -1
+     */
+    int findSampleLessThan(final Instant time)
+    {
+        return findFirst(time.getEpochSecond(), time.getNano(), false) - 1;
+    }
+
+    /** @param secs Seconds of time stamp
+     *  @param nano Nanoseconds of time stamp
+     *  @param after Look for samples after the time stamp, or at-or-after?
+     *  @return Index of first sample after (or at) the time, or <code>size</code>
+     */
+    private int findFirst(final long secs, final int nano, final boolean after)
+    {
+        final int limit = after ? 0 : -1;
+        // Locate chunk by its last sample, then the sample within that chunk
+        int low = 0, high = chunks.size();
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            final Chunk chunk = chunks.get(mid);
+            if (chunk.compareTime(chunk.length-1, secs, nano) > limit)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        if (low >= chunks.size())
+            return size;
+        final Chunk chunk = chunks.get(low);
+        int first = 0, last = chunk.length;
+        while (first < last)
+        {
+            final int mid = (first + last) >>> 1;
+            if (chunk.compareTime(mid, secs, nano) > limit)
+                last = mid;
+            else
+                first = mid + 1;
+        }
+        return starts[low] + first;
+    }
+
+    /** Merge new samples.
+     *
+     *  <p>Like {@link PlotSampleMerger}, the new samples replace
+     *  existing samples in their time range.
+     *
+     *  @param source Info about data source
+     *  @param add Samples to add, ordered by time
+     *  @return <code>true</code> if samples changed
+     */
+    boolean merge(final String source, final List<VType> add)
+    {
+        if (add.isEmpty())
+            return false;
+        Integer source_id = source_index.get(source);
+        if (source_id == null)
+        {
+            source_id = source_dictionary.size();
+            source_dictionary.add(source);
+            source_index.put(source, source_id);
+        }
+
+        // Turn the new samples into chunks
+        final List<Chunk> added = new ArrayList<>();
+        for (int start=0; start<add.size(); start += CHUNK_SIZE)
+        {
+            final int end = Math.min(start + CHUNK_SIZE, add.size());
+            final Builder builder = new Builder(end - start);
+            for (int i=start; i<end; ++i)
+                builder.add(add.get(i), source_id);
+            added.add(new Chunk(builder));
+        }
+
+        // Range of existing samples that's replaced by the new ones
+        final Chunk first = added.get(0), last = added.get(added.size()-1);
+        final int keep_before = findFirst(first.seconds[0], first.nanos[0], false);
+        final int keep_after = findFirst(last.seconds[last.length-1], last.nanos[last.length-1], true);
+
+        final List<Chunk> merged = new ArrayList<>();
+        addRange(merged, 0, keep_before);
+        for (Chunk chunk : added)
+            append(merged, chunk);
+        addRange(merged, Math.max(keep_before, keep_after), size);
+        setChunks(merged);
+        return true;
+    }
+
+    /** @param merged Chunks to which to add slices of the existing chunks
+     *  @param start First sample
+     *  @param end Sample after the last one
+     */
+    private void addRange(final List<Chunk> merged, final int start, final int end)
+    {
+        if (start >= end)
+            return;
+        for (int c = findChunk(start); c < chunks.size()  &&  starts[c] < end; ++c)
+        {
+            final Chunk chunk = chunks.get(c);
+            final int from = Math.max(start - starts[c], 0);
+            final int to = Math.min(end - starts[c], chunk.length);
+            append(merged, chunk.slice(from, to));
+        }
+    }
+
+    /** Add chunk, combining it with the previous chunk when both are small
+     *  @param merged Chunks
+     *  @param chunk Chunk to append
+     */
+    private void append(final List<Chunk> merged, final Chunk chunk)
+    {
+        final int count = merged.size();
+        if (count > 0)
+        {
+            final Chunk previous = merged.get(count - 1);
+            if ((previous.length < CHUNK_SIZE/4  ||  chunk.length < CHUNK_SIZE/4)  &&
+                previous.length + chunk.length <= CHUNK_SIZE)
+            {
+                final Builder builder = new Builder(previous.length + chunk.length);
+                for (int i=0; i<previous.length; ++i)
+                    builder.copy(previous, i);
+                for (int i=0; i<chunk.length; ++i)
+                    builder.copy(chunk, i);
+                merged.set(count - 1, new Chunk(builder));
+                return;
+            }
+        }
+        merged.add(chunk);
+    }
+
+    private void setChunks(final List<Chunk> merged)
+    {
+        chunks = merged;
+        starts = new int[merged.size()];
+        size = 0;
+        for (int c=0; c<starts.length; ++c)
+        {
+            starts[c] = size;
+            size += merged.get(c).length;
+        }
+    }
+
+    /** Delete all samples */
+    void clear()
+    {
+        setChunks(new ArrayList<>());
+        status_dictionary.clear();
+        status_index.clear();
+        source_dictionary.clear();
+        source_index.clear();
+        display_dictionary.clear();
+        display_index.clear();
+    }
+
+    /** @param index Map from text to index
+     *  @param dictionary List of texts
+     *  @param text Text to look up
+     *  @return Index of text in dictionary, -1 if dictionary is full
+     */
+    private static int lookup(final Map<String, Integer> index, final List<String> dictionary, final String text)
+    {
+        final Integer known = index.get(text);
+        if (known != null)
+            return known;
+        if (dictionary.size() >= MAX_DICTIONARY)
+            return -1;
+        final int added = dictionary.size();
+        dictionary.add(text);
+        index.put(text, added);
+        return added;
+    }
+
+    /** @param display Display meta data
+     *  @return Index of equivalent display info, -1 if dictionary is full
+     */
+    private int lookupDisplay(final Display display)
+    {
+        final DisplayKey key = new DisplayKey(display);
+        final Integer known = display_index.get(key);
+        if (known != null)
+            return known;
+        if (display_dictionary.size() >= MAX_DICTIONARY)
+            return -1;
+        final int added = display_dictionary.size();
+        display_dictionary.add(display);
+        display_index.put(key, added);
+        return added;
+    }
+
+    /** @param number Number
+     *  @return Kind of sample used to keep that number in the columns
+     */
+    private static byte getKind(final Number number)
+    {
+        if (number instanceof Double)
+            return DOUBLE;
+        if (number instanceof Float)
+            return FLOAT;
+        if (number instanceof Long)
+        {
+            final long value = number.longValue();
+            return (value > -MAX_EXACT_LONG  &&  value < MAX_EXACT_LONG) ? LONG : OBJECT;
+        }
+        if (number instanceof Integer)
+            return INTEGER;
+        if (number instanceof Short)
+            return SHORT;
+        if (number instanceof Byte)
+            return BYTE;
+        return OBJECT;
+    }
+
+    /** {@link PlotSample} that reads the columns */
+    private class ColumnSample extends PlotSample
+    {
+        final private Chunk chunk;
+        /** Index into the columns of the chunk */
+        final private int index;
+
+        ColumnSample(final String source, final Chunk chunk, final int index)
+        {
+            super(waveform_index, source, null, null);
+            this.chunk = chunk;
+            this.index = index;
+        }
+
+        @Override
+        public VType getVType()
+        {
+            final Instant time = getPosition();
+            final AlarmSeverity severity = SEVERITIES[chunk.severities[index]];
+            final String status = status_dictionary.get(chunk.statuses[index]);
+            final Display display = display_dictionary.get(chunk.displays[index]);
+            final double value = chunk.values[index];
+            final Number number;
+            switch (chunk.kinds[index])
+            {
+            case STATISTICS:
+                return new ArchiveVStatistics(time, severity, status, display, value,
+                        chunk.minimum[index], chunk.maximum[index], chunk.stddev[index], chunk.counts[index]);
+            case FLOAT:
+                number = Float.valueOf((float) value);
+                break;
+            case LONG:
+                number = Long.valueOf((long) value);
+                break;
+            case INTEGER:
+                number = Integer.valueOf((int) value);
+                break;
+            case SHORT:
+                number = Short.valueOf((short) value);
+                break;
+            case BYTE:
+                number = Byte.valueOf((byte) value);
+                break;
+            default:
+                number = Double.valueOf(value);
+            }
+            return new ArchiveVNumber(time, severity, status, display, number);
+        }
+
+        @Override
+        public Instant getPosition()
+        {
+            return Instant.ofEpochSecond(chunk.seconds[index], chunk.nanos[index]);
+        }
+
+        @Override
+        public double getValue()
+        {
+            // Scalar, so only element 0 is valid
+            if (waveform_index.get() != 0)
+                return Double.NaN;
+            return chunk.values[index];
+        }
+
+        private boolean hasStatistics()
+        {
+            return waveform_index.get() == 0  &&  chunk.kinds[index] == STATISTICS;
+        }
+
+        @Override
+        public double getStdDev()
+        {
+            return hasStatistics() ? chunk.stddev[index] : Double.NaN;
+        }
+
+        @Override
+        public double getMin()
+        {
+            return hasStatistics() ? chunk.minimum[index] : Double.NaN;
+        }
+
+        @Override
+        public double getMax()
+        {
+            return hasStatistics() ? chunk.maximum[index] : Double.NaN;
+        }
+
+        @Override
+        public String toString()
+        {
+            return VTypeHelper.toString(getVType());
+        }
+    }
+}
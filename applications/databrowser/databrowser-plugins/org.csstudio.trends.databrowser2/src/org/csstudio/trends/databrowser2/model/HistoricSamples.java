@@ -36,22 +36,19 @@ public class HistoricSamples extends PlotSamples
     // No locking in here, all access is via PVSamples
 
     /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    final private ColumnarSamples samples;
 
     /** If set, samples beyond this time are hidden from access */
     private Optional<Instant> border_time = Optional.empty();
 
-    /** Subset of samples.length that's below border_time
+    /** Subset of samples.size() that's below border_time
      *  @see #computeVisibleSize()
      */
     private int visible_size = 0;
 
-    /** Waveform index */
-    final private AtomicInteger waveform_index;
-
     HistoricSamples(final AtomicInteger waveform_index)
     {
-        this.waveform_index = waveform_index;
+        samples = new ColumnarSamples(waveform_index);
     }
 
     /** Define a new 'border' time beyond which no samples
@@ -72,12 +69,11 @@ public class HistoricSamples extends PlotSamples
     {
         if (border_time.isPresent())
         {
-            final int last_index = PlotSampleSearch.findSampleLessThan(
-                    samples, border_time.get());
+            final int last_index = samples.findSampleLessThan(border_time.get());
             visible_size = (last_index < 0)   ?   0   :   last_index + 1;
         }
         else
-            visible_size = samples.length;
+            visible_size = samples.size();
     }
 
     /** {@inheritDoc} */
@@ -87,7 +83,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return samples.get(i);
     }
 
     /** {@inheritDoc} */
@@ -101,7 +97,7 @@ public class HistoricSamples extends PlotSamples
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
-        return samples.length;
+        return samples.size();
     }
 
     /**
@@ -111,7 +107,7 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
-        return samples[i];
+        return samples.get(i);
     }
 
     /** Merge newly received archive data into historic samples
@@ -120,25 +116,15 @@ public class HistoricSamples extends PlotSamples
      */
     public void mergeArchivedData(final String source, final List<VType> result)
     {
-        // Anything new at all?
-        if (result.size() <= 0)
-            return;
-        // Turn IValues into PlotSamples
-        final PlotSample new_samples[] = new PlotSample[result.size()];
-        for (int i=0; i<new_samples.length; ++i)
-            new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
-        // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
-        if (merged == samples)
-            return;
-        samples = merged;
-        computeVisibleSize();
+        // Merge with existing samples, which turns them into columns
+        if (samples.merge(source, result))
+            computeVisibleSize();
     }
 
     /** Delete all samples */
     public void clear()
     {
         visible_size = 0;
-        samples = new PlotSample[0];
+        samples.clear();
     }
 }
@@ -12,6 +12,7 @@ import java.time.Duration;
 import org.csstudio.swt.rtplot.TraceType;
 import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
+import org.csstudio.trends.databrowser2.archive.ArchiveCache;
 import org.csstudio.trends.databrowser2.model.ArchiveRescale;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.preference.BooleanFieldEditor;
@@ -162,6 +163,13 @@ public class PreferencePage extends FieldEditorPreferencePage
         plotbins.setValidRange(10, 365*24*60*60);
         addField(plotbins);
 
+        // Archive cache: 0 (disabled) ... 10 GB, tool tip shows statistics
+        final IntegerFieldEditor cache_size = new IntegerFieldEditor(Preferences.ARCHIVE_CACHE_SIZE,
+                Messages.PrefPage_ArchiveCacheSize, parent);
+        cache_size.setValidRange(0, 10*1024);
+        ((Text)cache_size.getTextControl(parent)).setToolTipText(ArchiveCache.getInstance().getStatistics());
+        addField(cache_size);
+
         // Future Buffer: 10 ...
         final IntegerFieldEditor scroll_step = new IntegerFieldEditor(Preferences.SCROLL_STEP,
                 Messages.ScrollStepLbl, parent);
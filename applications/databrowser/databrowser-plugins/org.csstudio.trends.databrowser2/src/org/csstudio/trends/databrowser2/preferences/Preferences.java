@@ -54,7 +54,8 @@ public class Preferences
             OPACITY = "opacity",
             TRACE_TYPE = "trace_type",
             ARCHIVE_FETCH_DELAY = "archive_fetch_delay",
-            PLOT_BINS = "plot_bins", URLS = "urls", ARCHIVES = "archives",
+            PLOT_BINS = "plot_bins", ARCHIVE_PREVIEW_BINS = "archive_preview_bins",
+            ARCHIVE_FEDERATION = "archive_federation", URLS = "urls", ARCHIVES = "archives",
             USE_DEFAULT_ARCHIVES = "use_default_archives",
             PROMPT_FOR_ERRORS = "prompt_for_errors",
             ARCHIVE_RESCALE = "archive_rescale",
@@ -68,7 +69,10 @@ public class Preferences
             SCROLL_STEP = "scroll_step",
             USE_TRACE_NAMES = "use_trace_names",
             ALLOW_HIDE_TRACE = "allow_hide_trace",
-            ALLOW_REQUEST_RAW = "allow_request_raw";
+            ALLOW_REQUEST_RAW = "allow_request_raw",
+            ARCHIVE_CACHE_SIZE = "archive_cache_size",
+            ARCHIVE_CACHE_DIRECTORY = "archive_cache_directory",
+            ARCHIVE_CACHE_DISK_SIZE = "archive_cache_disk_size";
 
     public static boolean isAutomaticHistoryRefresh()
     {
@@ -169,6 +173,51 @@ public class Preferences
         return prefs.getInt(Activator.PLUGIN_ID, PLOT_BINS, 800, null);
     }
 
+    /** @return Number of bins for a first, coarse preview of archived data, 0 to disable */
+    public static int getArchivePreviewBins()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 0;
+        return prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_PREVIEW_BINS, 100, null);
+    }
+
+    /** @return <code>true</code> to read the data sources of an item as one federated archive */
+    public static boolean isArchiveFederation()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return false;
+        return prefs.getBoolean(Activator.PLUGIN_ID, ARCHIVE_FEDERATION, false, null);
+    }
+
+    /** @return Size limit of the archive cache in memory [MB], 0 to disable */
+    public static int getArchiveCacheSize()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 0;
+        return prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_CACHE_SIZE, 50, null);
+    }
+
+    /** @return Directory for archive cache files, empty to keep the cache only in memory */
+    public static String getArchiveCacheDirectory()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return "";
+        return prefs.getString(Activator.PLUGIN_ID, ARCHIVE_CACHE_DIRECTORY, "", null).trim();
+    }
+
+    /** @return Size limit of the archive cache files [MB] */
+    public static int getArchiveCacheDiskSize()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return 500;
+        return prefs.getInt(Activator.PLUGIN_ID, ARCHIVE_CACHE_DISK_SIZE, 500, null);
+    }
+
     public static ArchiveServerURL[] getArchiveServerURLs()
     {
         final IPreferencesService prefs = Platform.getPreferencesService();
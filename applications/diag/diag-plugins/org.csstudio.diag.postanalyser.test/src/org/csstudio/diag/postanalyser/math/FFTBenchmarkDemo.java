@@ -0,0 +1,56 @@
+package org.csstudio.diag.postanalyser.math;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/** Compare the FFT with the direct DFT, which {@link Fourier} used to compute.
+ *  <p>
+ *  Not a unit test because of the run time. Prints timing
+ *  for signal sizes up to a day of 10 Hz samples.
+ */
+@SuppressWarnings("nls")
+public class FFTBenchmarkDemo
+{
+    private static final int RUNS = 5;
+
+    private static double[] createSignal(final int N)
+    {
+        final Random random = new Random(N);
+        final double signal[] = new double[N];
+        for (int i=0; i<N; ++i)
+            signal[i] = Math.sin(i * 0.01) + 0.1*random.nextGaussian();
+        return signal;
+    }
+
+    /** @return Best time of RUNS in ms */
+    private static double time(final Runnable code)
+    {
+        // Warm up
+        code.run();
+        long best = Long.MAX_VALUE;
+        for (int run=0; run<RUNS; ++run)
+        {
+            final long start = System.nanoTime();
+            code.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    @Test
+    public void benchmark()
+    {
+        System.out.println("Points      Direct DFT [ms]   FFT [ms]   Welch [ms]");
+        for (int N : new int[] { 1000, 4096, 10000, 65536, 100000, 864000 })
+        {
+            final double signal[] = createSignal(N);
+            final double direct = N <= 10000
+                ? time(() -> Fourier.directAmplitudes(signal))
+                : Double.NaN;
+            final double fft = time(() -> new Fourier(0.1, signal));
+            final double welch = time(() -> new WelchSpectrum(0.1, signal, 4096, Filter.Type.Hanning));
+            System.out.format("%8d  %15.3f  %10.3f  %10.3f\n", N, direct, fft, welch);
+        }
+    }
+}
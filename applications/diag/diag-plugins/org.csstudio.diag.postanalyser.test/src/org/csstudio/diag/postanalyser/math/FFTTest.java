@@ -0,0 +1,185 @@
+package org.csstudio.diag.postanalyser.math;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/** Test of the FFT code against the direct discrete Fourier transform */
+@SuppressWarnings("nls")
+public class FFTTest
+{
+    private static final double EPS = 1e-8;
+
+    /** Direct DFT */
+    private static void dft(final double in_re[], final double in_im[],
+                            final double out_re[], final double out_im[])
+    {
+        final int N = in_re.length;
+        for (int k=0; k<N; ++k)
+        {
+            double re = 0, im = 0;
+            for (int n=0; n<N; ++n)
+            {
+                final double angle = -2.0*Math.PI * ((long)k*n % N) / N;
+                re += in_re[n]*Math.cos(angle) - in_im[n]*Math.sin(angle);
+                im += in_re[n]*Math.sin(angle) + in_im[n]*Math.cos(angle);
+            }
+            out_re[k] = re;
+            out_im[k] = im;
+        }
+    }
+
+    @Test
+    public void testComplex()
+    {
+        final Random random = new Random(42);
+        // Powers of two, even, odd and prime sizes
+        for (int N : new int[] { 1, 2, 8, 64, 3, 6, 12, 97, 100, 255 })
+        {
+            final double re[] = new double[N], im[] = new double[N];
+            for (int i=0; i<N; ++i)
+            {
+                re[i] = random.nextGaussian();
+                im[i] = random.nextGaussian();
+            }
+            final double exp_re[] = new double[N], exp_im[] = new double[N];
+            dft(re, im, exp_re, exp_im);
+
+            final FFT fft = new FFT(N);
+            fft.transform(re, im);
+            for (int k=0; k<N; ++k)
+            {
+                assertEquals("N=" + N + ", re[" + k + "]", exp_re[k], re[k], EPS);
+                assertEquals("N=" + N + ", im[" + k + "]", exp_im[k], im[k], EPS);
+            }
+
+            // Inverse
+            fft.inverse(re, im);
+            for (int k=0; k<N; ++k)
+            {
+                re[k] /= N;
+                im[k] /= N;
+            }
+            final double back_re[] = new double[N], back_im[] = new double[N];
+            dft(exp_re, exp_im, back_re, back_im);
+            for (int k=0; k<N; ++k)
+            {   // dft(dft(x))(k) = N x(-k)
+                assertEquals(back_re[(N-k) % N] / N, re[k], EPS);
+                assertEquals(back_im[(N-k) % N] / N, im[k], EPS);
+            }
+        }
+    }
+
+    @Test
+    public void testReal()
+    {
+        final Random random = new Random(17);
+        for (int N : new int[] { 1, 2, 3, 16, 30, 31, 100, 101, 128 })
+        {
+            final double signal[] = new double[N];
+            for (int i=0; i<N; ++i)
+                signal[i] = random.nextGaussian();
+            final double exp_re[] = new double[N], exp_im[] = new double[N];
+            dft(signal, new double[N], exp_re, exp_im);
+
+            final double re[] = new double[N/2+1], im[] = new double[N/2+1];
+            new RealFFT(N).transform(signal, re, im);
+            for (int k=0; k<=N/2; ++k)
+            {
+                assertEquals("N=" + N + ", re[" + k + "]", exp_re[k], re[k], EPS);
+                assertEquals("N=" + N + ", im[" + k + "]", exp_im[k], im[k], EPS);
+            }
+        }
+    }
+
+    @Test
+    public void testFourierMatchesDirect()
+    {
+        final Random random = new Random(3);
+        for (int N : new int[] { 0, 1, 2, 199, 200, 256 })
+        {
+            final double signal[] = new double[N];
+            for (int i=0; i<N; ++i)
+                signal[i] = random.nextGaussian() + Math.sin(i * 0.3);
+            final double expected[] = Fourier.directAmplitudes(signal);
+            final double ampl[] = new Fourier(1.0, signal).getAmplitudes();
+            assertEquals(expected.length, ampl.length);
+            for (int k=0; k<ampl.length; ++k)
+                assertEquals(expected[k], ampl[k], EPS);
+        }
+    }
+
+    @Test
+    public void testWelch()
+    {
+        // 1 kHz sampling, 50 Hz sine of amplitude 2 with noise
+        final double period = 0.001;
+        final int N = 100000;
+        final Random random = new Random(1);
+        final double signal[] = new double[N];
+        double noise_power = 0;
+        for (int i=0; i<N; ++i)
+        {
+            final double noise = 0.1 * random.nextGaussian();
+            noise_power += noise*noise;
+            signal[i] = 5.0 + 2.0*Math.sin(2.0*Math.PI * 50.0 * i * period) + noise;
+        }
+        noise_power /= N;
+
+        final WelchSpectrum psd = new WelchSpectrum(period, signal, 1000, Filter.Type.Hanning);
+        assertEquals(1000, psd.getSegmentLength());
+        assertEquals(199, psd.getSegmentCount());
+        final double freq[] = psd.getFrequencies();
+        final double density[] = psd.getDensity();
+        assertEquals(501, freq.length);
+        assertEquals(500.0, freq[freq.length-1], EPS);
+
+        // Peak at 50 Hz
+        int peak = 0;
+        for (int k=1; k<density.length; ++k)
+            if (density[k] > density[peak])
+                peak = k;
+        assertEquals(50.0, freq[peak], EPS);
+
+        // Integral of the density is the power: Sine 2^2/2 plus noise; DC is removed
+        double power = 0;
+        for (int k=0; k<density.length; ++k)
+            power += density[k] * (freq[1] - freq[0]);
+        assertEquals(2.0 + noise_power, power, 0.05);
+    }
+
+    @Test
+    public void testResample()
+    {
+        final double x[] = { 0.0, 1.0, 1.0, 3.0, 4.0 };
+        final double y[] = { 0.0, 1.0, 2.0, 4.0, 0.0 };
+        // Period (4-0)/4 = 1
+        assertEquals(1.0, Resampler.getPeriod(x), EPS);
+        final double result[] = Resampler.resample(x, y);
+        assertEquals(5, result.length);
+        assertEquals(0.0, result[0], EPS);
+        // Duplicate time stamp: Use the last sample
+        assertEquals(2.0, result[1], EPS);
+        assertEquals(3.0, result[2], EPS);
+        assertEquals(4.0, result[3], EPS);
+        assertEquals(0.0, result[4], EPS);
+
+        // Before and after the data
+        final double outside[] = Resampler.resample(x, y, -1.0, 6.0, 2);
+        assertEquals(0.0, outside[0], EPS);
+        assertEquals(0.0, outside[1], EPS);
+
+        // Uniform data is not changed, apart from rounding of the epoch seconds
+        final double ux[] = new double[100], uy[] = new double[100];
+        for (int i=0; i<ux.length; ++i)
+        {
+            ux[i] = 1e9 + 0.1*i;
+            uy[i] = Math.sin(i);
+        }
+        final double same[] = Resampler.resample(ux, uy);
+        for (int i=0; i<ux.length; ++i)
+            assertEquals(uy[i], same[i], 1e-4);
+    }
+}
@@ -15,6 +15,7 @@ public class Messages extends NLS
     public static String Algorithm_NoDataPoints;
     public static String Algorithm_NoSecondChannelError;
     public static String Algorithm_Original;
+    public static String Algorithm_PSD;
     public static String Algorithm_TimeAxisLabel;
     public static String Algorithm_XYArraysDiffer;
     public static String ExponentialFit_DecayMessage;
@@ -39,6 +40,7 @@ public class Messages extends NLS
     public static String LineFit_Error;
     public static String LineFit_Message;
     public static String MinMaxFinder_Message;
+    public static String PSD_Message;
     static
     {
         // initialize resource bundle
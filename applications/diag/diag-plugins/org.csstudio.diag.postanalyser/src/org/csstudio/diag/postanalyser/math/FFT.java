@@ -0,0 +1,197 @@
+package org.csstudio.diag.postanalyser.math;
+
+/** Fast Fourier transform of a fixed size.
+ *  <p>
+ *  Sizes that are a power of two use an iterative radix-2 transform.
+ *  Other sizes use Bluestein's algorithm, which expresses the transform
+ *  as a convolution that is computed with a power-of-two transform.
+ *  Both are <code>O(N log N)</code>.
+ *  <p>
+ *  Twiddle factors are computed once when the transform is created.
+ *  An instance can be used by several threads at the same time.
+ *  <p>
+ *  Computes <code>X(k) = sum{n} [ x(n) exp(-2 pi j k n/N) ]</code>
+ *  without normalization.
+ */
+public class FFT
+{
+    /** Transform size */
+    final private int N;
+
+    /** Is N a power of two? */
+    final private boolean radix2;
+
+    /** cos(2 pi k/N), sin(2 pi k/N) for k = 0 .. N/2-1 (radix-2 only) */
+    final private double cos[], sin[];
+
+    /** Power-of-two transform for the convolution (Bluestein only) */
+    final private FFT conv;
+
+    /** Chirp exp(-j pi k^2/N) for k = 0 .. N-1 (Bluestein only) */
+    final private double chirp_re[], chirp_im[];
+
+    /** Transform of the conjugate chirp filter (Bluestein only) */
+    final private double filter_re[], filter_im[];
+
+    /** Create transform
+     *  @param N Size of the transform, at least 1
+     */
+    public FFT(final int N)
+    {
+        if (N < 1)
+            throw new IllegalArgumentException("FFT size " + N); //$NON-NLS-1$
+        this.N = N;
+        radix2 = isPowerOfTwo(N);
+        if (radix2)
+        {
+            cos = new double[N/2];
+            sin = new double[N/2];
+            for (int k=0; k<N/2; ++k)
+            {
+                final double angle = 2.0*Math.PI * k / N;
+                cos[k] = Math.cos(angle);
+                sin[k] = Math.sin(angle);
+            }
+            conv = null;
+            chirp_re = chirp_im = filter_re = filter_im = null;
+        }
+        else
+        {
+            cos = sin = null;
+            final int M = nextPowerOfTwo(2*N - 1);
+            conv = new FFT(M);
+            chirp_re = new double[N];
+            chirp_im = new double[N];
+            for (int k=0; k<N; ++k)
+            {   // k^2 mod 2N keeps the angle small for large k
+                final double angle = Math.PI * ((long)k*k % (2L*N)) / N;
+                chirp_re[k] = Math.cos(angle);
+                chirp_im[k] = -Math.sin(angle);
+            }
+            filter_re = new double[M];
+            filter_im = new double[M];
+            filter_re[0] = chirp_re[0];
+            filter_im[0] = -chirp_im[0];
+            for (int k=1; k<N; ++k)
+            {
+                filter_re[k] = filter_re[M-k] = chirp_re[k];
+                filter_im[k] = filter_im[M-k] = -chirp_im[k];
+            }
+            conv.transform(filter_re, filter_im);
+        }
+    }
+
+    /** @return Size of the transform */
+    public int getSize()
+    {
+        return N;
+    }
+
+    /** @param n Number
+     *  @return <code>true</code> if n is a power of two
+     */
+    public static boolean isPowerOfTwo(final int n)
+    {
+        return n > 0  &&  (n & (n-1)) == 0;
+    }
+
+    /** @param n Number, at least 1
+     *  @return Smallest power of two that is at least n
+     */
+    public static int nextPowerOfTwo(final int n)
+    {
+        final int high = Integer.highestOneBit(n);
+        return high == n ? n : high << 1;
+    }
+
+    /** Compute forward transform in place
+     *  @param re Real part of N input values, replaced by the real part of the transform
+     *  @param im Imaginary part, replaced by the imaginary part of the transform
+     */
+    public void transform(final double re[], final double im[])
+    {
+        if (re.length < N  ||  im.length < N)
+            throw new IllegalArgumentException("Need " + N + " points"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (radix2)
+            radix2(re, im);
+        else
+            bluestein(re, im);
+    }
+
+    /** Compute inverse transform in place, without the 1/N normalization
+     *  @param re Real part of N input values, replaced by the real part of the inverse
+     *  @param im Imaginary part, replaced by the imaginary part of the inverse
+     */
+    public void inverse(final double re[], final double im[])
+    {
+        // ifft(x) = conj(fft(conj(x))), and swapping real and imaginary part
+        // is conj(x) multiplied by j
+        transform(im, re);
+    }
+
+    /** Iterative radix-2 decimation in time */
+    private void radix2(final double re[], final double im[])
+    {
+        // Bit-reversed order
+        for (int i=1, j=0; i<N; ++i)
+        {
+            int bit = N >> 1;
+            for (/**/; (j & bit) != 0; bit >>= 1)
+                j ^= bit;
+            j ^= bit;
+            if (i < j)
+            {
+                double tmp = re[i];  re[i] = re[j];  re[j] = tmp;
+                tmp = im[i];  im[i] = im[j];  im[j] = tmp;
+            }
+        }
+        // Butterflies
+        for (int size=2; size<=N; size <<= 1)
+        {
+            final int half = size/2;
+            final int step = N/size;
+            for (int i=0; i<N; i+=size)
+            {
+                for (int j=i, k=0; j<i+half; ++j, k+=step)
+                {
+                    final int l = j + half;
+                    // (re + j im) * exp(-2 pi j k/N)
+                    final double t_re =  re[l]*cos[k] + im[l]*sin[k];
+                    final double t_im = -re[l]*sin[k] + im[l]*cos[k];
+                    re[l] = re[j] - t_re;
+                    im[l] = im[j] - t_im;
+                    re[j] += t_re;
+                    im[j] += t_im;
+                }
+            }
+        }
+    }
+
+    /** Bluestein: X(k) = chirp(k) * sum{n} [ x(n) chirp(n) conj(chirp(k-n)) ] */
+    private void bluestein(final double re[], final double im[])
+    {
+        final int M = conv.getSize();
+        final double a_re[] = new double[M];
+        final double a_im[] = new double[M];
+        for (int n=0; n<N; ++n)
+        {
+            a_re[n] = re[n]*chirp_re[n] - im[n]*chirp_im[n];
+            a_im[n] = re[n]*chirp_im[n] + im[n]*chirp_re[n];
+        }
+        conv.transform(a_re, a_im);
+        for (int k=0; k<M; ++k)
+        {
+            final double r = a_re[k]*filter_re[k] - a_im[k]*filter_im[k];
+            a_im[k] = a_re[k]*filter_im[k] + a_im[k]*filter_re[k];
+            a_re[k] = r;
+        }
+        conv.inverse(a_re, a_im);
+        for (int k=0; k<N; ++k)
+        {
+            final double c_re = a_re[k] / M;
+            final double c_im = a_im[k] / M;
+            re[k] = c_re*chirp_re[k] - c_im*chirp_im[k];
+            im[k] = c_re*chirp_im[k] + c_im*chirp_re[k];
+        }
+    }
+}
@@ -35,6 +35,19 @@ public class Filter
         return output;
     }
 
+    /** Obtain all filter coefficients
+     *  @param type Window type
+     *  @param N Length of data
+     *  @return N filter coefficients
+     */
+    public static double[] coefficients(final Type type, final int N)
+    {
+        final double output[] = new double[N];
+        for (int i = 0; i < N; ++i)
+            output[i] = coeff(type, i, N);
+        return output;
+    }
+
     /** Obtain filter coefficient.
      *  @param type Window type
      *  @param i Index of filter coefficient, 0...N-1
@@ -46,8 +59,7 @@ public class Filter
         switch (type)
         {
         case Hamming:
-            return  (0.54 - 0.46 * Math.cos(2.0*Math.PI * i / (N - 1)))
-                  * 0.5 * (1. - Math.cos(2.0*Math.PI * i / (N - 1)));
+            return 0.54 - 0.46 * Math.cos(2.0*Math.PI * i / (N - 1));
         case Hanning:
             return 0.5 * (1.0 - Math.cos(2.0*Math.PI * i / (N - 1)));
         case Blackman:
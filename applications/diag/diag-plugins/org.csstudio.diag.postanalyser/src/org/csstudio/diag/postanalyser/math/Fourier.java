@@ -1,6 +1,8 @@
 package org.csstudio.diag.postanalyser.math;
 
 /** Perform FFT
+ *  <p>
+ *  Uses a {@link RealFFT}, i.e. <code>O(N log N)</code> for any number of points.
  *  @author Albert Kagarmanov
  *  @author Kay Kasemir
  */
@@ -38,6 +40,7 @@ public class Fourier
      *      half is a mirror image of the first half.
      *  </ul>
      *
+     *  @param period Sample period in seconds
      *  @param signal Real-valued input signal, N points
      *  @see #getAmplitudes()
      *  @see #getFrequencies()
@@ -46,11 +49,32 @@ public class Fourier
     {
         this.period = period;
         N = signal.length;
+        nyquist_index = N/2;
+        amplitude = new double[nyquist_index];
+        if (nyquist_index <= 0)
+            return;
+        final double re[] = new double[N/2 + 1];
+        final double im[] = new double[N/2 + 1];
+        new RealFFT(N).transform(signal, re, im);
+        for (int n = 0; n < nyquist_index; n++)
+            amplitude[n] = Math.sqrt(re[n]*re[n] + im[n]*im[n]) / N;
+    }
+
+    /** Compute the amplitudes with a direct discrete Fourier transform.
+     *  <p>
+     *  This is the original <code>O(N^2)</code> implementation,
+     *  kept as a reference for tests and benchmarks.
+     *  @param signal Real-valued input signal, N points
+     *  @return Amplitudes for 0 to Nyquist, see {@link #getAmplitudes()}
+     */
+    static double[] directAmplitudes(final double[] signal)
+    {
+        final int N = signal.length;
         final double exp_coeff = 2.0 * Math.PI / N;
 
         // FFT(n) = 1/N sum{k} [ signal(k) exp(-2 pi j k n/N) ]
-        nyquist_index = (int) Math.ceil(N/2);
-        amplitude = new double[nyquist_index];
+        final int nyquist_index = N/2;
+        final double amplitude[] = new double[nyquist_index];
         for (int n = 0; n < nyquist_index; n++)
         {
             // Compute sum{k} [ signal(k) exp(-2 pi j k n/N) ]
@@ -66,6 +90,7 @@ public class Fourier
             imag /= N;
             amplitude[n] = Math.sqrt(real*real + imag*imag);
         }
+        return amplitude;
     }
 
     /** @return Amplitude of FFT(signal) for 0 to Nyquist (N/2) */
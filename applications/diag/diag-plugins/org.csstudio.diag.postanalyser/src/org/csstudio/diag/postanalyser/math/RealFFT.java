@@ -0,0 +1,103 @@
+package org.csstudio.diag.postanalyser.math;
+
+/** Fast Fourier transform of a real-valued signal.
+ *  <p>
+ *  For an even size N, the N real values are packed into N/2 complex values,
+ *  transformed with an {@link FFT} of half the size,
+ *  and then separated into the spectrum of the real signal.
+ *  Odd sizes use a complex {@link FFT} of size N.
+ *  <p>
+ *  Since the spectrum of a real signal is symmetric,
+ *  only the points 0 (DC) to N/2 (Nyquist) are returned.
+ *  An instance can be used by several threads at the same time.
+ */
+public class RealFFT
+{
+    /** Signal size */
+    final private int N;
+
+    /** Transform of size N/2 for even N, otherwise N */
+    final private FFT fft;
+
+    /** cos(2 pi k/N), sin(2 pi k/N) for k = 0 .. N/2 (even N only) */
+    final private double cos[], sin[];
+
+    /** Create transform
+     *  @param N Size of the signal, at least 1
+     */
+    public RealFFT(final int N)
+    {
+        if (N < 1)
+            throw new IllegalArgumentException("FFT size " + N); //$NON-NLS-1$
+        this.N = N;
+        if (N % 2 == 0)
+        {
+            fft = new FFT(N/2);
+            cos = new double[N/2 + 1];
+            sin = new double[N/2 + 1];
+            for (int k=0; k<=N/2; ++k)
+            {
+                final double angle = 2.0*Math.PI * k / N;
+                cos[k] = Math.cos(angle);
+                sin[k] = Math.sin(angle);
+            }
+        }
+        else
+        {
+            fft = new FFT(N);
+            cos = sin = null;
+        }
+    }
+
+    /** @return Size of the signal */
+    public int getSize()
+    {
+        return N;
+    }
+
+    /** Compute transform
+     *  @param signal N real values
+     *  @param re Filled with the real part of points 0 .. N/2 of the transform
+     *  @param im Filled with the imaginary part of points 0 .. N/2 of the transform
+     */
+    public void transform(final double signal[], final double re[], final double im[])
+    {
+        final int bins = N/2 + 1;
+        if (signal.length < N  ||  re.length < bins  ||  im.length < bins)
+            throw new IllegalArgumentException("Need " + N + " points"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (cos == null)
+        {   // Odd size: complex transform of the signal
+            final double z_re[] = new double[N];
+            final double z_im[] = new double[N];
+            System.arraycopy(signal, 0, z_re, 0, N);
+            fft.transform(z_re, z_im);
+            System.arraycopy(z_re, 0, re, 0, bins);
+            System.arraycopy(z_im, 0, im, 0, bins);
+            return;
+        }
+        // z(n) = signal(2n) + j signal(2n+1)
+        final int H = N/2;
+        final double z_re[] = new double[H];
+        final double z_im[] = new double[H];
+        for (int n=0; n<H; ++n)
+        {
+            z_re[n] = signal[2*n];
+            z_im[n] = signal[2*n+1];
+        }
+        fft.transform(z_re, z_im);
+        // Even part E(k) = (Z(k) + conj(Z(H-k)))/2,
+        // odd part  O(k) = (Z(k) - conj(Z(H-k)))/2j,
+        // X(k) = E(k) + exp(-2 pi j k/N) O(k)
+        for (int k=0; k<=H; ++k)
+        {
+            final int i = k % H;
+            final int c = (H - k) % H;
+            final double a = z_re[i], b = z_im[i];
+            final double d = z_re[c], e = -z_im[c];
+            final double e_re = (a + d) / 2, e_im = (b + e) / 2;
+            final double o_re = (b - e) / 2, o_im = -(a - d) / 2;
+            re[k] = e_re + o_re*cos[k] + o_im*sin[k];
+            im[k] = e_im + o_im*cos[k] - o_re*sin[k];
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.csstudio.diag.postanalyser.math;
+
+/** Resample data with uneven spacing, like archived samples, onto a uniform grid.
+ *  <p>
+ *  Values between samples are linearly interpolated.
+ */
+public class Resampler
+{
+    /** Resample
+     *  @param x Positions of the samples, for example time stamps in seconds,
+     *           in ascending order. Duplicate positions are allowed.
+     *  @param y Values of the samples
+     *  @param start Position of the first output point
+     *  @param period Distance between output points
+     *  @param count Number of output points
+     *  @return <code>count</code> values at <code>start + i*period</code>.
+     *          Points before the first or after the last sample
+     *          use the value of that sample.
+     */
+    public static double[] resample(final double x[], final double y[],
+            final double start, final double period, final int count)
+    {
+        if (x.length != y.length  ||  x.length < 1)
+            throw new IllegalArgumentException("Need x and y of same, non-zero length"); //$NON-NLS-1$
+        final int N = x.length;
+        final double result[] = new double[count];
+        int j = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final double pos = start + i*period;
+            // Advance to the last sample at or before pos
+            while (j < N-1  &&  x[j+1] <= pos)
+                ++j;
+            if (pos <= x[j]  ||  j == N-1)
+                result[i] = y[j];
+            else
+            {
+                final double dx = x[j+1] - x[j];
+                result[i] = y[j] + (y[j+1] - y[j]) * (pos - x[j]) / dx;
+            }
+        }
+        return result;
+    }
+
+    /** Resample onto <code>x.length</code> points from the first to the last sample
+     *  @param x Positions of the samples, in ascending order
+     *  @param y Values of the samples
+     *  @return Values at evenly spaced positions. Same as <code>y</code>
+     *          if the samples were already evenly spaced.
+     */
+    public static double[] resample(final double x[], final double y[])
+    {
+        final int N = x.length;
+        if (N < 2)
+            return y;
+        return resample(x, y, x[0], getPeriod(x), N);
+    }
+
+    /** @param x Positions of the samples, in ascending order
+     *  @return Average distance between samples, 0 if fewer than 2 samples
+     */
+    public static double getPeriod(final double x[])
+    {
+        final int N = x.length;
+        if (N < 2)
+            return 0.0;
+        return (x[N-1] - x[0]) / (N-1);
+    }
+}
@@ -0,0 +1,119 @@
+package org.csstudio.diag.postanalyser.math;
+
+import java.util.stream.IntStream;
+
+import org.csstudio.diag.postanalyser.math.Filter.Type;
+
+/** Power spectral density by Welch's method.
+ *  <p>
+ *  The signal is split into segments that overlap by half.
+ *  Each segment has its mean removed, is windowed and transformed,
+ *  and the periodograms of all segments are averaged.
+ *  Compared to one transform of the whole signal, this trades frequency
+ *  resolution for much less noise, and the segments of long signals
+ *  are computed in parallel.
+ */
+public class WelchSpectrum
+{
+    /** Sample period in seconds */
+    final private double period;
+
+    /** Points per segment */
+    final private int segment_length;
+
+    /** Number of averaged segments */
+    final private int segments;
+
+    /** One-sided power spectral density, DC to Nyquist, in signal units^2 / Hz */
+    final private double density[];
+
+    /** Compute power spectral density
+     *  @param period Sample period in seconds
+     *  @param signal Real-valued input signal
+     *  @param segment_length Points per segment. Reduced to the signal length for short signals.
+     *  @param type Window applied to each segment
+     */
+    public WelchSpectrum(final double period, final double signal[],
+                         final int segment_length, final Type type)
+    {
+        if (signal.length < 2)
+            throw new IllegalArgumentException("Need at least 2 points"); //$NON-NLS-1$
+        this.period = period;
+        final int L = Math.max(2, Math.min(segment_length, signal.length));
+        this.segment_length = L;
+        final int step = Math.max(1, L/2);
+        segments = 1 + (signal.length - L) / step;
+
+        final double window[] = Filter.coefficients(type, L);
+        double window_power = 0.0;
+        for (double w : window)
+            window_power += w*w;
+        final RealFFT fft = new RealFFT(L);
+        final int bins = L/2 + 1;
+
+        // Each worker sums the periodograms of its segments, the sums are then combined
+        final double sum[] = IntStream.range(0, segments).parallel().collect(
+            () -> new double[bins],
+            (acc, s) -> addPeriodogram(signal, s*step, window, fft, acc),
+            (a, b) ->
+            {
+                for (int k=0; k<bins; ++k)
+                    a[k] += b[k];
+            });
+
+        // Scale to density, one-sided: Double all but DC and (for even L) Nyquist
+        density = sum;
+        final double scale = period / (window_power * segments);
+        for (int k=0; k<bins; ++k)
+        {
+            density[k] *= scale;
+            if (k > 0  &&  !(L % 2 == 0  &&  k == L/2))
+                density[k] *= 2;
+        }
+    }
+
+    private static void addPeriodogram(final double signal[], final int start,
+            final double window[], final RealFFT fft, final double acc[])
+    {
+        final int L = window.length;
+        double mean = 0.0;
+        for (int i=0; i<L; ++i)
+            mean += signal[start + i];
+        mean /= L;
+        final double segment[] = new double[L];
+        for (int i=0; i<L; ++i)
+            segment[i] = (signal[start + i] - mean) * window[i];
+        final double re[] = new double[acc.length];
+        final double im[] = new double[acc.length];
+        fft.transform(segment, re, im);
+        for (int k=0; k<acc.length; ++k)
+            acc[k] += re[k]*re[k] + im[k]*im[k];
+    }
+
+    /** @return Points per segment */
+    public int getSegmentLength()
+    {
+        return segment_length;
+    }
+
+    /** @return Number of averaged segments */
+    public int getSegmentCount()
+    {
+        return segments;
+    }
+
+    /** @return Frequency points in Hz; 0 to Nyquist */
+    public double[] getFrequencies()
+    {
+        final double freq[] = new double[density.length];
+        for (int k=0; k<freq.length; ++k)
+            freq[k] = k / (segment_length * period);
+        return freq;
+    }
+
+    /** @return One-sided power spectral density in signal units^2 / Hz; 0 to Nyquist */
+    public double[] getDensity()
+    {
+        return density;
+    }
+}
@@ -4,25 +4,32 @@ import org.csstudio.diag.postanalyser.Messages;
 import org.csstudio.diag.postanalyser.math.Filter;
 import org.csstudio.diag.postanalyser.math.Fourier;
 import org.csstudio.diag.postanalyser.math.Filter.Type;
+import org.csstudio.diag.postanalyser.math.Resampler;
 import org.csstudio.swt.chart.TraceType;
 import org.eclipse.osgi.util.NLS;
 
 /** An Algorithm that performs FFT.
  *  <p>
  *  The input signal isn't sampled at a fixed, known period.
- *  While a strict FFT isn't possible, we assume an average period
- *  of <code>(end - start)/sample_count</code> seconds.
+ *  It is resampled onto a uniform grid with the average period
+ *  of <code>(end - start)/(sample_count-1)</code> seconds.
  *  @author Kay Kasemir
  */
 public class FFTAlgorithm extends Algorithm
 {
-    private Type type;
+    protected Type type;
 
     public FFTAlgorithm()
     {
         super(Messages.Algorithm_FFT);
     }
 
+    /** @param name Name of the algorithm */
+    protected FFTAlgorithm(final String name)
+    {
+        super(name);
+    }
+
     /** Define the FFT window filter */
     public void setFilterType(Type type)
     {
@@ -51,8 +58,8 @@ public class FFTAlgorithm extends Algorithm
             error(Messages.Algorithm_NoDataPoints);
             return;
         }
-        final double period = (input.get(N-1).getX() - input.get(0).getX()) / N;
-        final double signal[] = Filter.window(input.getY(), type);
+        final double period = Resampler.getPeriod(input.getX());
+        final double signal[] = Filter.window(Resampler.resample(input.getX(), input.getY()), type);
         final Fourier fft = new Fourier(period, signal);
         message = NLS.bind(Messages.FFT_Message, input.getName());
         outputs = new AlgorithmOutput[]
@@ -63,7 +70,7 @@ public class FFTAlgorithm extends Algorithm
         };
     }
 
-    private void error(final String error)
+    protected void error(final String error)
     {
         message = error;
         outputs = new AlgorithmOutput[]
@@ -18,7 +18,8 @@ public class Model
             new ExpFitAlgorithm(),
             new GaussFitAlgorithm(),
             new CorrelationAlgorithm(),
-            new FFTAlgorithm()
+            new FFTAlgorithm(),
+            new PSDAlgorithm()
     };
 
     /** Channels */
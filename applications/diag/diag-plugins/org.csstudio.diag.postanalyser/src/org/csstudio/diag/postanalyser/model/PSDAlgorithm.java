@@ -0,0 +1,52 @@
+package org.csstudio.diag.postanalyser.model;
+
+import org.csstudio.diag.postanalyser.Messages;
+import org.csstudio.diag.postanalyser.math.Filter;
+import org.csstudio.diag.postanalyser.math.Resampler;
+import org.csstudio.diag.postanalyser.math.WelchSpectrum;
+import org.csstudio.swt.chart.TraceType;
+import org.eclipse.osgi.util.NLS;
+
+/** An Algorithm that computes the power spectral density by Welch's method.
+ *  <p>
+ *  Meant for long signals, for example a day of archived data,
+ *  where one FFT over all samples results in a very noisy spectrum.
+ *  The input is resampled like for the {@link FFTAlgorithm}.
+ */
+public class PSDAlgorithm extends FFTAlgorithm
+{
+    /** Points per segment */
+    private static final int SEGMENT_LENGTH = 4096;
+
+    public PSDAlgorithm()
+    {
+        super(Messages.Algorithm_PSD);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void process() throws Exception
+    {
+        x_axis_label = Messages.FFT_XAxisLabel;
+        if (input == null)
+            throw new IllegalArgumentException(Messages.Algorithm_NoDataPoints);
+        final int N = input.size();
+        if (N < 2)
+        {
+            error(Messages.Algorithm_NoDataPoints);
+            return;
+        }
+        final double period = Resampler.getPeriod(input.getX());
+        final double signal[] = Resampler.resample(input.getX(), input.getY());
+        final WelchSpectrum psd = new WelchSpectrum(period, signal, SEGMENT_LENGTH,
+                type == null ? Filter.Type.Hanning : type);
+        message = NLS.bind(Messages.PSD_Message, new Object[]
+                { input.getName(), psd.getSegmentCount(), psd.getSegmentLength() });
+        outputs = new AlgorithmOutput[]
+        {
+            new AlgorithmOutput(message,
+                    new XYChartSamples(psd.getFrequencies(),
+                                       psd.getDensity()), TraceType.Bars)
+        };
+    }
+}
@@ -33,6 +33,14 @@ public class Preferences {
         return threshold;
     }
 
+    public static int getRestoreMaxInFlight() {
+        int count = 100;
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service != null)
+            count = service.getInt(Plugin.ID, "restore_max_in_flight", count, null);
+        return count;
+    }
+
     public static boolean treatByteArrayAsString() {
         return getBoolOption("treat_byte_array_as_string");
     }
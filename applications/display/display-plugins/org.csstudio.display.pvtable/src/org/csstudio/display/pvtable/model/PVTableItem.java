@@ -9,6 +9,7 @@ package org.csstudio.display.pvtable.model;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
@@ -616,6 +617,24 @@ public class PVTableItem
         the_value.restore(the_pv, isUsingCompletion() ? completion_timeout_seconds : 0);
     }
 
+    /** Start to write saved value back to PV, do not wait for completion
+     *  @return {@link Future} that completes when the value was written,
+     *          or <code>null</code> if there is nothing to restore
+     *  @throws Exception on error
+     */
+    public Future<?> asyncRestore() throws Exception
+    {
+        if (isComment() || isMeasure()  ||  !isWritable())
+            return null;
+
+        final PV the_pv = pv.get();
+        final SavedValue the_value = saved.orElse(null);
+        if (the_pv == null || the_value == null)
+            return null;
+
+        return the_value.asyncRestore(the_pv, isUsingCompletion());
+    }
+
     /** @return Returns the saved_value */
     public Optional<SavedValue> getSavedValue()
     {
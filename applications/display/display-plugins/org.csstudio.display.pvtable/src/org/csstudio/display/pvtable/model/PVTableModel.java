@@ -13,13 +13,17 @@ import java.util.List;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.csstudio.display.pvtable.Messages;
+import org.csstudio.display.pvtable.Plugin;
 import org.csstudio.display.pvtable.Preferences;
 import org.csstudio.ui.util.dialogs.ExceptionDetailsErrorDialog;
+import org.csstudio.vtype.pv.ParallelWriter;
 import org.diirt.vtype.VType;
-import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Display;
@@ -415,6 +419,11 @@ public class PVTableModel implements PVTableItemListener
     }
 
     /** Restore saved values
+     *
+     *  <p>Writes to all PVs are started in parallel.
+     *  The completion timeout applies to each write,
+     *  with 0 starting the writes without waiting for completion.
+     *
      *  @param items Items to restore
      */
     public void restore(final List<PVTableItem> items)
@@ -422,25 +431,48 @@ public class PVTableModel implements PVTableItemListener
         // Perform in background task
         Job.create("Restore PV Table", monitor ->
         {
-            final SubMonitor progress = SubMonitor.convert(monitor, items.size()+1);
-            monitor.beginTask("Restore PVs", items.size());
+            final ParallelWriter writer = new ParallelWriter(Preferences.getRestoreMaxInFlight());
             for (PVTableItem item : items)
+                writer.add(item.getName(), item::asyncRestore);
+            monitor.beginTask("Restore PVs", items.size());
+            final List<ParallelWriter.Result> results;
+            try
             {
-                progress.subTask(item.getName());
-                try
-                {
-                    item.restore(completion_timeout_seconds);
-                }
-                catch (Exception ex)
-                {
-                    Display.getDefault().asyncExec(() ->
-                        ExceptionDetailsErrorDialog.openError(null, "Error",
-                                "Error restoring value for PV " + item.getName(), ex)
-                    );
-                    return;
-                }
-                monitor.worked(1);
+                results = writer.execute(completion_timeout_seconds, TimeUnit.SECONDS,
+                                         result -> monitor.worked(1), monitor::isCanceled);
+            }
+            catch (InterruptedException ex)
+            {
+                return;
+            }
+            finally
+            {
+                monitor.done();
+            }
+            final List<ParallelWriter.Result> failed = results.stream()
+                                                              .filter(result -> result.isStarted() && !result.isSuccess())
+                                                              .collect(Collectors.toList());
+            final List<ParallelWriter.Result> not_started = results.stream()
+                                                                   .filter(result -> !result.isStarted())
+                                                                   .collect(Collectors.toList());
+            if (failed.isEmpty()  &&  not_started.isEmpty())
+                return;
+            final StringBuilder message = new StringBuilder();
+            if (! failed.isEmpty())
+                message.append("Error restoring values for " + failed.size() + " of " + results.size() + " PVs");
+            if (! not_started.isEmpty())
+            {
+                if (message.length() > 0)
+                    message.append(", ");
+                message.append(not_started.size() + " of " + results.size() + " PVs were not written");
             }
+            final String details = Stream.concat(failed.stream(), not_started.stream())
+                                         .map(ParallelWriter.Result::toString)
+                                         .collect(Collectors.joining("\n"));
+            Plugin.getLogger().log(Level.WARNING, message + ":\n" + details);
+            Display.getDefault().asyncExec(() ->
+                ExceptionDetailsErrorDialog.openError(null, "Error", message.toString(), new Exception(details))
+            );
         }).schedule();
     }
 
@@ -8,7 +8,7 @@
 package org.csstudio.display.pvtable.model;
 
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import org.csstudio.display.pvtable.Preferences;
 import org.csstudio.vtype.pv.PV;
@@ -121,7 +121,7 @@ public class SavedArrayValue extends SavedValue
 
     /** {@inheritDoc} */
     @Override
-    public void restore(final PV pv, long completion_timeout_secs) throws Exception
+    public Future<?> asyncRestore(final PV pv, final boolean use_completion) throws Exception
     {
         // Determine what type to write based on current value of the PV
         final VType pv_type = pv.read();
@@ -132,10 +132,7 @@ public class SavedArrayValue extends SavedValue
             for (int i = 0; i < N; ++i)
                 data[i] = getSavedNumber(saved_value.get(i)).doubleValue();
 
-            if (completion_timeout_secs > 0)
-                pv.asyncWrite(data).get(completion_timeout_secs, TimeUnit.SECONDS);
-            else
-                pv.write(data);
+            return write(pv, data, use_completion);
         }
         else if (pv_type instanceof VNumberArray || pv_type instanceof VEnumArray)
         {   // Write any non-floating  number as int.
@@ -144,10 +141,7 @@ public class SavedArrayValue extends SavedValue
             final int[] data = new int[N];
             for (int i = 0; i < N; ++i)
                 data[i] = getSavedNumber(saved_value.get(i)).intValue();
-            if (completion_timeout_secs > 0)
-                pv.asyncWrite(data).get(completion_timeout_secs, TimeUnit.SECONDS);
-            else
-                pv.write(data);
+            return write(pv, data, use_completion);
         }
         else
             throw new Exception("Cannot write type " + pv_type.getClass().getName());
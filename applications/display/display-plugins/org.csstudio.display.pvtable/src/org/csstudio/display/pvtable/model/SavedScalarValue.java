@@ -7,7 +7,7 @@
  ******************************************************************************/
 package org.csstudio.display.pvtable.model;
 
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import org.csstudio.vtype.pv.PV;
 import org.diirt.vtype.VDouble;
@@ -64,33 +64,17 @@ public class SavedScalarValue extends SavedValue
 
     /** {@inheritDoc} */
     @Override
-    public void restore(final PV pv, long completion_timeout_secs) throws Exception
+    public Future<?> asyncRestore(final PV pv, final boolean use_completion) throws Exception
     {
         // Determine what type to write based on current value of the PV
         final VType pv_type = pv.read();
 
         if ((pv_type instanceof VDouble) || (pv_type instanceof VFloat))
-        {
-            if (completion_timeout_secs > 0)
-                pv.asyncWrite(Double.parseDouble(saved_value)).get(completion_timeout_secs, TimeUnit.SECONDS);
-            else
-                pv.write(Double.parseDouble(saved_value));
-        }
+            return write(pv, Double.parseDouble(saved_value), use_completion);
         else if (pv_type instanceof VNumber)
-        {
-            if (completion_timeout_secs > 0)
-                pv.asyncWrite(getSavedNumber(saved_value).longValue()).get(completion_timeout_secs, TimeUnit.SECONDS);
-            else
-                pv.write(getSavedNumber(saved_value).longValue());
-        }
-        else
-        {
-            // Write as text
-            if (completion_timeout_secs > 0)
-                pv.asyncWrite(saved_value).get(completion_timeout_secs, TimeUnit.SECONDS);
-            else
-                pv.write(saved_value);
-        }
+            return write(pv, getSavedNumber(saved_value).longValue(), use_completion);
+        else // Write as text
+            return write(pv, saved_value, use_completion);
     }
 
     /** {@inheritDoc} */
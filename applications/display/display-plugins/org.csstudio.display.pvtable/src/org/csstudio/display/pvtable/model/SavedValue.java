@@ -10,6 +10,9 @@ package org.csstudio.display.pvtable.model;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.csstudio.vtype.pv.PV;
 import org.diirt.util.array.IteratorDouble;
@@ -111,7 +114,35 @@ abstract public class SavedValue
      *  @param completion_timeout_secs Timeout for completion (put-callback) or 0 to not use completion
      *  @throws Exception on error, including timeout
      */
-    abstract public void restore(PV pv, long completion_timeout_secs) throws Exception;
+    public void restore(final PV pv, final long completion_timeout_secs) throws Exception
+    {
+        final Future<?> done = asyncRestore(pv, completion_timeout_secs > 0);
+        if (completion_timeout_secs > 0)
+            done.get(completion_timeout_secs, TimeUnit.SECONDS);
+    }
+
+    /** Start to restore saved value to PV, do not wait for completion
+     *
+     *  @param pv PV to write
+     *  @param use_completion Use completion (put-callback)?
+     *  @return {@link Future} that completes when the write completed
+     *  @throws Exception on error
+     */
+    abstract public Future<?> asyncRestore(PV pv, boolean use_completion) throws Exception;
+
+    /** @param pv PV to write
+     *  @param value Value to write
+     *  @param use_completion Use completion (put-callback)?
+     *  @return {@link Future} that completes when the write completed
+     *  @throws Exception on error
+     */
+    protected Future<?> write(final PV pv, final Object value, final boolean use_completion) throws Exception
+    {
+        if (use_completion)
+            return pv.asyncWrite(value);
+        pv.write(value);
+        return CompletableFuture.completedFuture(null);
+    }
 
     /** @return String representation for display purpose */
     @Override
@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.benchmark;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.opibuilder.OPIBuilderPlugin;
+import org.csstudio.opibuilder.datadefinition.WidgetIgnorableUITask;
+import org.csstudio.opibuilder.editparts.ExecutionMode;
+import org.csstudio.opibuilder.editparts.WidgetEditPartFactory;
+import org.csstudio.opibuilder.model.DisplayModel;
+import org.csstudio.opibuilder.persistence.OPIFileCache;
+import org.csstudio.opibuilder.persistence.XMLUtil;
+import org.csstudio.opibuilder.preferences.PreferencesHelper;
+import org.csstudio.opibuilder.runmode.PatchedScalableFreeformRootEditPart;
+import org.csstudio.opibuilder.runmode.PatchedScrollingGraphicalViewer;
+import org.csstudio.opibuilder.script.ScriptExecutionStatistics;
+import org.csstudio.opibuilder.util.GUIRefreshThread;
+import org.csstudio.opibuilder.util.MacrosInput;
+import org.csstudio.opibuilder.util.WidgetUpdateQueue;
+import org.csstudio.simplepv.SharedPVPool;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.gef.EditDomain;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.PlatformUI;
+import org.junit.Test;
+
+/**Benchmark of the BOY runtime.
+ * <p>
+ * For each OPI file, measures the time to load the display model
+ * (first load and cached reloads), to create the edit parts and figures
+ * in a shell, the memory used per widget, and then runs the display
+ * with simulated PVs while probing how long widget updates wait for the UI thread.
+ * Queue, PV and script statistics are collected along the way.
+ * The results are written as JSON.
+ * <p>
+ * Runs inside the UI test harness, not in the UI thread, so it needs a display
+ * (use Xvfb on a build server). Skipped by default, run with
+ * <pre>mvn verify -DskipBenchmark=false [-Dopi.benchmark.files=/path/a.opi,/path/b.opi]</pre>
+ * System properties:
+ * <ul>
+ * <li>opi.benchmark.files: Comma separated list of OPI files</li>
+ * <li>opi.benchmark.macros: Macros for the displays, "M=1,N=2"</li>
+ * <li>opi.benchmark.repeats: Number of loads per file</li>
+ * <li>opi.benchmark.update_period: Update period of the simulated PVs in ms</li>
+ * <li>opi.benchmark.duration: Run time of each display in seconds</li>
+ * <li>opi.benchmark.output: JSON output file, default is standard output</li>
+ * </ul>
+ */
+@SuppressWarnings("nls")
+public class OPIRuntimeBenchmark {
+
+    /** Period of the UI latency probes in ms */
+    private static final long PROBE_PERIOD = 50;
+
+    private final int repeats = Math.max(1, Integer.getInteger("opi.benchmark.repeats", 5));
+    private final long update_period = Long.getLong("opi.benchmark.update_period", 100);
+    private final long duration = Long.getLong("opi.benchmark.duration", 10);
+
+    @Test
+    public void runBenchmark() throws Exception {
+        final String files = System.getProperty("opi.benchmark.files");
+        assertTrue("No OPI files, set opi.benchmark.files", files != null && !files.trim().isEmpty());
+
+        // All PVs of the displays are simulated
+        final IEclipsePreferences prefs = InstanceScope.INSTANCE.getNode(OPIBuilderPlugin.PLUGIN_ID);
+        final String orig_layer = prefs.get(PreferencesHelper.PV_CONNECTION_LAYER, null);
+        prefs.put(PreferencesHelper.PV_CONNECTION_LAYER, SimulatedPVFactory.ID);
+        SimulatedPVFactory.setUpdatePeriod(update_period);
+
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("repeats", repeats);
+        result.put("update_period_ms", update_period);
+        result.put("duration_s", duration);
+        result.put("gui_refresh_cycle_ms", PreferencesHelper.getGUIRefreshCycle());
+        final List<Object> displays = new ArrayList<Object>();
+        try {
+            for (String file : files.split(","))
+                displays.add(benchmark(new File(file.trim())));
+        } finally {
+            if (orig_layer == null)
+                prefs.remove(PreferencesHelper.PV_CONNECTION_LAYER);
+            else
+                prefs.put(PreferencesHelper.PV_CONNECTION_LAYER, orig_layer);
+        }
+        result.put("displays", displays);
+
+        final String json = toJSON(result, "") + "\n";
+        final String output = System.getProperty("opi.benchmark.output");
+        if (output == null || output.isEmpty())
+            System.out.print(json);
+        else {
+            final File out = new File(output);
+            if (out.getParentFile() != null)
+                out.getParentFile().mkdirs();
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+                writer.write(json);
+            }
+            System.out.println("Benchmark results written to " + out.getAbsolutePath());
+        }
+    }
+
+    /** @param file OPI file
+     *  @return Results for that file
+     */
+    private Map<String, Object> benchmark(final File file) throws Exception {
+        assertTrue("Cannot read " + file, file.canRead());
+        final Display display = PlatformUI.getWorkbench().getDisplay();
+        final String macro_spec = System.getProperty("opi.benchmark.macros");
+        final MacrosInput macros = macro_spec == null || macro_spec.isEmpty()
+                ? null : MacrosInput.recoverFromString("true," + macro_spec);
+
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("file", file.getAbsolutePath());
+        result.put("size_bytes", file.length());
+
+        // Load: The first load parses the file, later loads use the OPI file cache
+        OPIFileCache.getInstance().clear();
+        final List<Double> load_ms = new ArrayList<Double>();
+        DisplayModel model = null;
+        for (int i = 0; i < repeats; ++i) {
+            final long start = System.nanoTime();
+            model = new DisplayModel(Path.fromOSString(file.getAbsolutePath()));
+            XMLUtil.fillDisplayModelFromInputStream(new FileInputStream(file), model, display, macros);
+            load_ms.add(millis(start));
+        }
+        final int widgets = model.getAllDescendants().size();
+        result.put("widgets", widgets);
+        result.put("load_first_ms", load_ms.get(0));
+        if (load_ms.size() > 1)
+            result.put("load_cached_ms", summarize(load_ms.subList(1, load_ms.size())));
+
+        // Create the edit parts and figures, which starts the PVs
+        final DisplayModel runtime_model = model;
+        final long used_before = usedMemory();
+        final Shell[] shell = new Shell[1];
+        final PatchedScrollingGraphicalViewer viewer = new PatchedScrollingGraphicalViewer();
+        final double[] create_ms = new double[1];
+        display.syncExec(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                shell[0] = new Shell(display, SWT.SHELL_TRIM);
+                shell[0].setLayout(new FillLayout());
+                viewer.createControl(shell[0]);
+                viewer.setRootEditPart(new PatchedScalableFreeformRootEditPart());
+                viewer.setEditPartFactory(new WidgetEditPartFactory(ExecutionMode.RUN_MODE));
+                new EditDomain().addViewer(viewer);
+                viewer.setContents(runtime_model);
+                runtime_model.setViewer(viewer);
+                shell[0].setSize(runtime_model.getSize().width, runtime_model.getSize().height);
+                shell[0].open();
+                while (display.readAndDispatch())
+                    ; // Paint the initial display
+                create_ms[0] = millis(start);
+            }
+        });
+        result.put("create_ms", create_ms[0]);
+        result.put("memory_per_widget_bytes", widgets > 0 ? (usedMemory() - used_before) / widgets : 0);
+
+        try {
+            result.put("runtime", run(display));
+        } finally {
+            display.syncExec(new Runnable() {
+                @Override
+                public void run() {
+                    runtime_model.setViewer(null);
+                    viewer.setContents(null);
+                    shell[0].dispose();
+                }
+            });
+        }
+        return result;
+    }
+
+    /** Run the display with simulated PVs and probe the UI latency
+     *  @param display Display
+     *  @return Runtime statistics
+     */
+    private Map<String, Object> run(final Display display) throws Exception {
+        final GUIRefreshThread refresh = GUIRefreshThread.getInstance(true);
+        final WidgetUpdateQueue queue = refresh.getTaskQueue();
+        queue.resetStatistics();
+        SharedPVPool.resetStatistics();
+        SimulatedPVFactory.resetUpdateCount();
+        ScriptExecutionStatistics.getScriptStatistics().reset();
+        ScriptExecutionStatistics.getRuleStatistics().reset();
+
+        // Probes go through the same queue as the widget updates.
+        // Each probe has its own identity, so it is not coalesced.
+        final List<Double> latency = Collections.synchronizedList(new ArrayList<Double>());
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(duration);
+        int probes = 0;
+        while (System.nanoTime() < end) {
+            final long posted = System.nanoTime();
+            refresh.addIgnorableTask(new WidgetIgnorableUITask(new Object(), new Runnable() {
+                @Override
+                public void run() {
+                    latency.add(millis(posted));
+                }
+            }, display));
+            ++probes;
+            Thread.sleep(PROBE_PERIOD);
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("pv_connections", SharedPVPool.getConnectionCount());
+        result.put("pv_clients", SharedPVPool.getClientCount());
+        result.put("pv_updates_per_s", SimulatedPVFactory.getUpdateCount() / seconds);
+        result.put("probes", probes);
+        final List<Double> copy;
+        synchronized (latency) {
+            copy = new ArrayList<Double>(latency);
+        }
+        result.put("probes_lost", probes - copy.size());
+        result.put("ui_latency_ms", summarize(copy));
+
+        final Map<String, Object> queue_stats = new LinkedHashMap<String, Object>();
+        queue_stats.put("added", queue.getAddedCount());
+        queue_stats.put("coalesced", queue.getCoalescedCount());
+        queue_stats.put("executed", queue.getExecutedCount());
+        queue_stats.put("executed_per_s", queue.getExecutedCount() / seconds);
+        queue_stats.put("deferred", queue.getDeferredCount());
+        queue_stats.put("drains", queue.getDrainCount());
+        queue_stats.put("drain_avg_ms", queue.getAverageDrainTime());
+        queue_stats.put("drain_max_ms", queue.getMaxDrainTime());
+        result.put("update_queue", queue_stats);
+
+        result.put("scripts", toMap(ScriptExecutionStatistics.getScriptStatistics()));
+        result.put("rules", toMap(ScriptExecutionStatistics.getRuleStatistics()));
+        return result;
+    }
+
+    private static Map<String, Object> toMap(final ScriptExecutionStatistics stats) {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("executions", stats.getExecutions());
+        result.put("errors", stats.getErrors());
+        result.put("avg_ms", stats.getAverageTime());
+        result.put("max_ms", stats.getMaxTime());
+        return result;
+    }
+
+    /** @param values Measurements
+     *  @return Count, min, average, median, 95th percentile and max
+     */
+    private static Map<String, Object> summarize(final List<Double> values) {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("count", values.size());
+        if (values.isEmpty())
+            return result;
+        final List<Double> sorted = new ArrayList<Double>(values);
+        Collections.sort(sorted);
+        double sum = 0;
+        for (double value : sorted)
+            sum += value;
+        result.put("min", sorted.get(0));
+        result.put("avg", sum / sorted.size());
+        result.put("p50", percentile(sorted, 50));
+        result.put("p95", percentile(sorted, 95));
+        result.put("max", sorted.get(sorted.size() - 1));
+        return result;
+    }
+
+    private static double percentile(final List<Double> sorted, final int percent) {
+        final int index = (int) Math.ceil(percent / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private static double millis(final long start_nanos) {
+        return (System.nanoTime() - start_nanos) / 1e6;
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** @param value Map, List, Number, Boolean or String
+     *  @param indent Indentation
+     *  @return JSON for the value
+     */
+    @SuppressWarnings("unchecked")
+    static String toJSON(final Object value, final String indent) {
+        final StringBuilder buf = new StringBuilder();
+        if (value instanceof Map) {
+            final String inner = indent + "  ";
+            buf.append("{");
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                buf.append(first ? "\n" : ",\n").append(inner);
+                buf.append(quote(entry.getKey())).append(": ").append(toJSON(entry.getValue(), inner));
+                first = false;
+            }
+            buf.append("\n").append(indent).append("}");
+        } else if (value instanceof List) {
+            final String inner = indent + "  ";
+            buf.append("[");
+            boolean first = true;
+            for (Object item : (List<Object>) value) {
+                buf.append(first ? "\n" : ",\n").append(inner).append(toJSON(item, inner));
+                first = false;
+            }
+            buf.append("\n").append(indent).append("]");
+        } else if (value instanceof Double || value instanceof Float) {
+            final double number = ((Number) value).doubleValue();
+            buf.append(Double.isNaN(number) || Double.isInfinite(number)
+                    ? "null" : String.format(Locale.ROOT, "%.3f", number));
+        } else if (value instanceof Number || value instanceof Boolean)
+            buf.append(value);
+        else if (value == null)
+            buf.append("null");
+        else
+            buf.append(quote(value.toString()));
+        return buf.toString();
+    }
+
+    private static String quote(final String text) {
+        final StringBuilder buf = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\')
+                buf.append('\\').append(c);
+            else if (c < 0x20)
+                buf.append(String.format("\\u%04x", (int) c));
+            else
+                buf.append(c);
+        }
+        return buf.append('"').toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.simplepv.IPV;
+import org.csstudio.simplepv.IPVListener;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/**Simulated PV that sends a sine wave of numbers at a fixed period.
+ * <p>
+ * Each PV starts at a different phase, derived from its name,
+ * so that widgets of a display do not all show the same value.
+ * Writes update the value and are reported as successful.
+ */
+class SimulatedPV implements IPV {
+
+    private final String name;
+    private final boolean readOnly;
+    private final long period_ms;
+    private final Executor notificationThread;
+    private final List<IPVListener> listeners = new CopyOnWriteArrayList<IPVListener>();
+    private final double phase;
+    private volatile VType value = null;
+    private volatile boolean paused = false;
+    private ScheduledFuture<?> updater = null;
+    private long step = 0;
+
+    SimulatedPV(final String name, final boolean readOnly, final long period_ms,
+            final Executor notificationThread) {
+        this.name = name;
+        this.readOnly = readOnly;
+        this.period_ms = period_ms;
+        this.notificationThread = notificationThread;
+        phase = (name.hashCode() & 0xFFFF) / 10000.0;
+    }
+
+    @Override
+    public void addListener(final IPVListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(final IPVListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public List<VType> getAllBufferedValues() {
+        final VType current = value;
+        return current == null ? null : Collections.singletonList(current);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public VType getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean isBufferingValues() {
+        return false;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return value != null;
+    }
+
+    @Override
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public synchronized boolean isStarted() {
+        return updater != null;
+    }
+
+    @Override
+    public boolean isWriteAllowed() {
+        return !readOnly;
+    }
+
+    @Override
+    public void setPaused(final boolean paused) {
+        this.paused = paused;
+    }
+
+    @Override
+    public void setValue(final Object new_value) throws Exception {
+        if (readOnly)
+            throw new Exception("PV " + name + " is read-only"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (new_value instanceof Number)
+            update(((Number) new_value).doubleValue());
+        notificationThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (IPVListener listener : listeners)
+                    listener.writeFinished(SimulatedPV.this, true);
+            }
+        });
+    }
+
+    @Override
+    public boolean setValue(final Object value, final int timeout) throws Exception {
+        setValue(value);
+        return true;
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        if (updater != null)
+            throw new IllegalStateException("PV " + name + " has already been started."); //$NON-NLS-1$ //$NON-NLS-2$
+        updater = SimulatedPVFactory.TIMER.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                update(Math.sin(phase + 0.1 * step++));
+            }
+        }, 0, period_ms, TimeUnit.MILLISECONDS);
+    }
+
+    private void update(final double number) {
+        final boolean first = value == null;
+        value = ValueFactory.newVDouble(number);
+        SimulatedPVFactory.countUpdate();
+        notificationThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (IPVListener listener : listeners) {
+                    if (first) {
+                        listener.connectionChanged(SimulatedPV.this);
+                        if (!readOnly)
+                            listener.writePermissionChanged(SimulatedPV.this);
+                    }
+                    if (!paused)
+                        listener.valueChanged(SimulatedPV.this);
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (updater == null)
+            return;
+        updater.cancel(false);
+        updater = null;
+        value = null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.benchmark;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.csstudio.simplepv.AbstractPVFactory;
+import org.csstudio.simplepv.ExceptionHandler;
+import org.csstudio.simplepv.IPV;
+
+/**Factory for {@link SimulatedPV}s, registered as PV connection layer "benchmark".
+ * <p>
+ * Every PV name is accepted. The PVs update at the rate set by {@link #setUpdatePeriod(long)},
+ * but not faster than the minimum update period requested by the client.
+ */
+public class SimulatedPVFactory extends AbstractPVFactory {
+
+    /** ID of the factory in the <code>org.csstudio.simplepv.pvfactory</code> extension point */
+    public static final String ID = "benchmark"; //$NON-NLS-1$
+
+    private static volatile long updatePeriod = 100;
+
+    private static final AtomicLong updates = new AtomicLong();
+
+    static final ScheduledExecutorService TIMER =
+            Executors.newScheduledThreadPool(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "SimulatedPV"); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /** @param period_ms Update period of all simulated PVs in milliseconds.
+     *                   Applies to PVs that are started afterwards.
+     */
+    public static void setUpdatePeriod(final long period_ms) {
+        updatePeriod = Math.max(1, period_ms);
+    }
+
+    /** @return Update period of simulated PVs in milliseconds */
+    public static long getUpdatePeriod() {
+        return updatePeriod;
+    }
+
+    /** @return Number of values sent by all simulated PVs */
+    public static long getUpdateCount() {
+        return updates.get();
+    }
+
+    /** Reset the update counter */
+    public static void resetUpdateCount() {
+        updates.set(0);
+    }
+
+    static void countUpdate() {
+        updates.incrementAndGet();
+    }
+
+    @Override
+    public IPV createPV(final String name, final boolean readOnly,
+            final long minUpdatePeriodInMs, final boolean bufferAllValues,
+            final Executor notificationThread,
+            final ExceptionHandler exceptionHandler) throws Exception {
+        return new SimulatedPV(name, readOnly, Math.max(minUpdatePeriodInMs, updatePeriod),
+                notificationThread);
+    }
+}
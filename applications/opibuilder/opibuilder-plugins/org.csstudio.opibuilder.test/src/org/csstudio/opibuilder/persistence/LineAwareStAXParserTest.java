@@ -0,0 +1,84 @@
+package org.csstudio.opibuilder.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.csstudio.opibuilder.persistence.LineAwareXMLParser.LineAwareElement;
+import org.jdom.Element;
+import org.jdom.Attribute;
+import org.junit.Test;
+
+/** JUnit test of the {@link LineAwareStAXParser}
+ *  by comparing its result with the {@link LineAwareXMLParser}
+ */
+@SuppressWarnings("nls")
+public class LineAwareStAXParserTest {
+
+    private static final String OPI =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<display typeId=\"org.csstudio.opibuilder.Display\" version=\"1.0.0\">\n" +
+        "  <!-- A comment -->\n" +
+        "  <name>Test &amp; Demo</name>\n" +
+        "  <widget typeId=\"org.csstudio.opibuilder.widgets.TextUpdate\" version=\"1.0.0\">\n" +
+        "    <pv_name>sim://sine</pv_name>\n" +
+        "    <text><![CDATA[a < b]]></text>\n" +
+        "    <scripts>\n" +
+        "      <path pathString=\"test.js\" checkConnect=\"true\">\n" +
+        "        <pv trig=\"true\">$(pv_name)</pv>\n" +
+        "      </path>\n" +
+        "    </scripts>\n" +
+        "  </widget>\n" +
+        "</display>\n";
+
+    private static InputStream stream() throws Exception {
+        return new ByteArrayInputStream(OPI.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testSameAsSAX() throws Exception {
+        final Element sax = LineAwareXMLParser.createBuilder().build(stream()).getRootElement();
+        final Element stax = LineAwareStAXParser.parse(stream());
+        assertSameElement(sax, stax);
+    }
+
+    /** Compare elements, ignoring comments */
+    private static void assertSameElement(final Element expected, final Element actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getText(), actual.getText());
+        assertEquals(((LineAwareElement) expected).getLineNumber(), ((LineAwareElement) actual).getLineNumber());
+        final List<?> attributes = expected.getAttributes();
+        assertEquals(attributes.size(), actual.getAttributes().size());
+        for (Object attribute : attributes)
+            assertEquals(((Attribute) attribute).getValue(),
+                         actual.getAttributeValue(((Attribute) attribute).getName()));
+        final List<?> children = expected.getChildren();
+        assertEquals(children.size(), actual.getChildren().size());
+        for (int i=0; i<children.size(); ++i)
+            assertSameElement((Element) children.get(i), (Element) actual.getChildren().get(i));
+    }
+
+    @Test
+    public void testContent() throws Exception {
+        final Element root = LineAwareStAXParser.parse(stream());
+        assertEquals("display", root.getName());
+        assertEquals("Test & Demo", root.getChildText("name"));
+        final Element widget = root.getChild("widget");
+        assertEquals("org.csstudio.opibuilder.widgets.TextUpdate", widget.getAttributeValue("typeId"));
+        assertEquals("a < b", widget.getChildText("text"));
+        assertEquals("$(pv_name)", widget.getChild("scripts").getChild("path").getChildText("pv"));
+    }
+
+    @Test
+    public void testLineNumbers() throws Exception {
+        final Element root = LineAwareStAXParser.parse(stream());
+        assertTrue(root instanceof LineAwareElement);
+        assertEquals(2, ((LineAwareElement) root).getLineNumber());
+        final List<?> children = root.getChildren();
+        assertEquals(4, ((LineAwareElement) children.get(0)).getLineNumber());
+        assertEquals(5, ((LineAwareElement) children.get(1)).getLineNumber());
+    }
+}
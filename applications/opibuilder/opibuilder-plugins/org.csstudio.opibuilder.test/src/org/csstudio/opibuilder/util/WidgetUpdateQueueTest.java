@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.opibuilder.datadefinition.WidgetIgnorableUITask;
+import org.junit.Test;
+
+/** JUnit test of the {@link WidgetUpdateQueue} */
+public class WidgetUpdateQueueTest {
+
+    private static WidgetIgnorableUITask createTask(final Object id, final List<String> log, final String text) {
+        return new WidgetIgnorableUITask(id, new Runnable() {
+            @Override
+            public void run() {
+                log.add(text);
+            }
+        }, null);
+    }
+
+    @Test
+    public void testCoalescing() {
+        final WidgetUpdateQueue queue = new WidgetUpdateQueue();
+        final List<String> log = new ArrayList<String>();
+        final Object a = new Object(), b = new Object();
+        queue.add(createTask(a, log, "a1"));
+        queue.add(createTask(b, log, "b1"));
+        queue.add(createTask(a, log, "a2"));
+        queue.add(createTask(a, log, "a3"));
+        assertEquals(2, queue.size());
+
+        assertEquals(2, queue.drain(0, null));
+        assertEquals("[a3, b1]", log.toString());
+        assertTrue(queue.isEmpty());
+        assertEquals(4, queue.getAddedCount());
+        assertEquals(2, queue.getCoalescedCount());
+        assertEquals(2, queue.getExecutedCount());
+        assertEquals(1, queue.getDrainCount());
+    }
+
+    @Test
+    public void testBudget() {
+        final WidgetUpdateQueue queue = new WidgetUpdateQueue();
+        final AtomicInteger runs = new AtomicInteger();
+        for (int i=0; i<10; ++i)
+            queue.add(new WidgetIgnorableUITask(new Object(), new Runnable() {
+                @Override
+                public void run() {
+                    runs.incrementAndGet();
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException ex) {
+                        // Ignore
+                    }
+                }
+            }, null));
+        // Budget is exhausted after the first task
+        assertEquals(1, queue.drain(1, null));
+        assertEquals(9, queue.size());
+        assertEquals(9, queue.getDeferredCount());
+        // Remaining tasks are executed by later drains
+        assertEquals(9, queue.drain(0, null));
+        assertEquals(10, runs.get());
+    }
+
+    @Test
+    public void testErrorHandling() {
+        final WidgetUpdateQueue queue = new WidgetUpdateQueue();
+        final List<String> log = new ArrayList<String>();
+        queue.add(new WidgetIgnorableUITask(new Object(), new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Test");
+            }
+        }, null));
+        queue.add(createTask(new Object(), log, "ok"));
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        queue.drain(0, new WidgetUpdateQueue.ErrorHandler() {
+            @Override
+            public void handleError(WidgetIgnorableUITask task, Throwable error) {
+                errors.add(error);
+            }
+        });
+        assertEquals(1, errors.size());
+        assertEquals("[ok]", log.toString());
+    }
+
+    @Test
+    public void testRequeue() {
+        final WidgetUpdateQueue queue = new WidgetUpdateQueue();
+        final List<String> log = new ArrayList<String>();
+        final Object a = new Object(), b = new Object();
+        queue.add(createTask(a, log, "a1"));
+        queue.add(createTask(b, log, "b1"));
+        final List<WidgetIgnorableUITask> tasks = queue.pollAll();
+        assertTrue(queue.isEmpty());
+
+        // Newer task for 'a' arrived while the polled ones were pending
+        queue.add(createTask(a, log, "a2"));
+        for (WidgetIgnorableUITask task : tasks)
+            queue.requeue(task);
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.getDeferredCount());
+
+        queue.drain(0, null);
+        assertEquals("[a2, b1]", log.toString());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final WidgetUpdateQueue queue = new WidgetUpdateQueue();
+        final Object[] ids = new Object[100];
+        for (int i=0; i<ids.length; ++i)
+            ids[i] = new Object();
+        final List<String> log = new ArrayList<String>();
+        final int threads = 4, updates = 10000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t=0; t<threads; ++t)
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i=0; i<updates; ++i)
+                        queue.add(createTask(ids[i % ids.length], log, "x"));
+                    done.countDown();
+                }
+            }).start();
+        done.await();
+        assertEquals(ids.length, queue.size());
+        assertEquals(ids.length, queue.pollAll().size());
+        assertEquals(threads * updates, queue.getAddedCount());
+        assertEquals(threads * updates - ids.length, queue.getCoalescedCount());
+        assertTrue(queue.isEmpty());
+    }
+}
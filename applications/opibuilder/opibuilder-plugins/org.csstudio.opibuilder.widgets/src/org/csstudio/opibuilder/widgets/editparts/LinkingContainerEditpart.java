@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.opibuilder.widgets.editparts;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -26,6 +28,7 @@ import org.csstudio.opibuilder.model.AbstractWidgetModel;
 import org.csstudio.opibuilder.model.ConnectionModel;
 import org.csstudio.opibuilder.model.DisplayModel;
 import org.csstudio.opibuilder.persistence.XMLUtil;
+import org.csstudio.opibuilder.preferences.PreferencesHelper;
 import org.csstudio.opibuilder.properties.IWidgetPropertyChangeHandler;
 import org.csstudio.opibuilder.util.GeometryUtil;
 import org.csstudio.opibuilder.util.OPIBuilderMacroUtil;
@@ -59,6 +62,12 @@ public class LinkingContainerEditpart extends AbstractLinkingContainerEditpart{
     private Map<ConnectionModel, PointList> originalPoints;
     private Point cropTranslation;
 
+    /** Listener for the visibility of this widget and its parents
+     *  while loading the OPI is postponed until the container is shown.
+     */
+    private PropertyChangeListener showListener;
+    private List<AbstractWidgetModel> showListenerModels;
+
     @Override
     protected IFigure doCreateFigure() {
         LinkingContainerFigure f = new LinkingContainerFigure();
@@ -158,7 +167,54 @@ public class LinkingContainerEditpart extends AbstractLinkingContainerEditpart{
         };
         setPropertyChangeHandler(LinkingContainerModel.PROP_RESIZE_BEHAVIOUR, handler);
         //loadWidgets(getWidgetModel(),true);
-        configureDisplayModel();
+        configureDisplayModelWhenShown();
+    }
+
+    /**
+     * Configure the display model right away, or, if the OPI is loaded lazily
+     * and the container is hidden, once it is shown for the first time.
+     */
+    private void configureDisplayModelWhenShown() {
+        if (getExecutionMode() != ExecutionMode.RUN_MODE ||
+                getWidgetModel().getDisplayModel() != null ||
+                !PreferencesHelper.isLazyLoadLinkingContainers() ||
+                XMLUtil.isShowing(getWidgetModel())) {
+            configureDisplayModel();
+            return;
+        }
+        showListener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if (!XMLUtil.isShowing(getWidgetModel()))
+                    return;
+                getViewer().getControl().getDisplay().asyncExec(() -> {
+                    if (showListener == null || !isActive())
+                        return;
+                    removeShowListener();
+                    configureDisplayModel();
+                });
+            }
+        };
+        showListenerModels = new ArrayList<AbstractWidgetModel>();
+        for (AbstractWidgetModel model = getWidgetModel(); model != null; model = model.getParent()) {
+            model.getProperty(AbstractWidgetModel.PROP_VISIBLE).addPropertyChangeListener(showListener);
+            showListenerModels.add(model);
+        }
+    }
+
+    private void removeShowListener() {
+        if (showListener == null)
+            return;
+        for (AbstractWidgetModel model : showListenerModels)
+            model.getProperty(AbstractWidgetModel.PROP_VISIBLE).removePropertyChangeListener(showListener);
+        showListenerModels = null;
+        showListener = null;
+    }
+
+    @Override
+    protected void doDeActivate() {
+        removeShowListener();
+        super.doDeActivate();
     }
 
     private static synchronized Integer getLinkingContainerID() {
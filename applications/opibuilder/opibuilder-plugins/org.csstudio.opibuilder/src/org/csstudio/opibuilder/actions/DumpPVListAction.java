@@ -12,6 +12,8 @@ import java.util.Arrays;
 import org.csstudio.opibuilder.OPIBuilderPlugin;
 import org.csstudio.opibuilder.editparts.AbstractBaseEditPart;
 import org.csstudio.opibuilder.editparts.DisplayEditpart;
+import org.csstudio.opibuilder.util.ConsoleService;
+import org.csstudio.simplepv.SharedPVPool;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.dialogs.IDialogConstants;
@@ -35,6 +37,7 @@ import org.eclipse.ui.IObjectActionDelegate;
 import org.eclipse.ui.IWorkbenchPart;
 
 /**Dump all PVs in the OPI.
+ * Statistics of the shared PVs are written to the console.
  * @author Xihui Chen
  *
  */
@@ -52,6 +55,7 @@ public class DumpPVListAction implements IObjectActionDelegate {
             Object[] allRuntimePVNames = ((DisplayEditpart)o).getAllRuntimePVNames().toArray();
 
             Arrays.sort(allRuntimePVNames);
+            ConsoleService.getInstance().writeInfo(SharedPVPool.getStatisticsReport());
             new PVListDialog(targetPart.getSite().getShell(), allRuntimePVNames).open();
         }
     }
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.persistence;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.csstudio.opibuilder.persistence.LineAwareXMLParser.LineAwareElement;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+/**
+ * Streaming (StAX) parser for OPI files.
+ * <p>
+ * Builds the {@link LineAwareElement} tree directly from an {@link XMLStreamReader}.
+ * Compared to the {@link LineAwareXMLParser}, no JDOM <code>Document</code>,
+ * SAX handler stack or DTD processing is involved, and comments and processing
+ * instructions are skipped.
+ * The widget properties still read their values from the created elements.
+ *
+ * @see LineAwareXMLParser
+ */
+public class LineAwareStAXParser {
+
+    private static final XMLInputFactory FACTORY;
+
+    static {
+        FACTORY = XMLInputFactory.newInstance();
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    /**
+     * Parse an XML stream
+     *
+     * @param stream the XML stream. The caller is responsible for closing it.
+     * @return root element of the XML
+     * @throws XMLStreamException on error
+     */
+    public static Element parse(final InputStream stream) throws XMLStreamException {
+        final XMLStreamReader reader;
+        synchronized (FACTORY) {
+            reader = FACTORY.createXMLStreamReader(stream);
+        }
+        try {
+            final Deque<Element> stack = new ArrayDeque<Element>();
+            Element root = null;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                {
+                    final Element element = new LineAwareElement(reader.getLocalName(),
+                            getNamespace(reader.getPrefix(), reader.getNamespaceURI()),
+                            reader.getLocation().getLineNumber());
+                    for (int i = 0; i < reader.getAttributeCount(); ++i)
+                        element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i),
+                                getNamespace(reader.getAttributePrefix(i), reader.getAttributeNamespace(i)));
+                    if (stack.isEmpty())
+                        root = element;
+                    else
+                        stack.peek().addContent(element);
+                    stack.push(element);
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT:
+                    stack.pop();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!stack.isEmpty())
+                        stack.peek().addContent(reader.getText());
+                    break;
+                default:
+                    // Ignore comments, processing instructions, DTD
+                }
+            }
+            return root;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Namespace getNamespace(final String prefix, final String uri) {
+        if (uri == null || uri.isEmpty())
+            return Namespace.NO_NAMESPACE;
+        return Namespace.getNamespace(prefix == null ? "" : prefix, uri); //$NON-NLS-1$
+    }
+}
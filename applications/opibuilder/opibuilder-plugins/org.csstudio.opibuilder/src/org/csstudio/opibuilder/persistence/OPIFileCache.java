@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.persistence;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jdom.Element;
+
+/**
+ * Cache of parsed OPI files.
+ * <p>
+ * Keeps the parsed XML element tree of recently loaded OPI files,
+ * keyed by the file path and validated by the modification time and size of the file.
+ * Widget models are created from the cached tree for every open,
+ * so each display still gets its own model and macros are applied as usual.
+ * The cached elements must therefore be treated as read-only.
+ * <p>
+ * Only files on the local file system or in the workspace are cached.
+ * Least recently used entries are removed when the cache is full.
+ */
+public class OPIFileCache {
+
+    private static final OPIFileCache INSTANCE = new OPIFileCache();
+
+    private static class Entry {
+        final long lastModified;
+        final long length;
+        final Element root;
+
+        Entry(final long lastModified, final long length, final Element root) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.root = root;
+        }
+    }
+
+    private volatile int capacity = 50;
+
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** @return the singleton instance */
+    public static OPIFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param capacity Maximum number of cached files. 0 disables the cache.
+     */
+    public void setCapacity(final int capacity) {
+        this.capacity = Math.max(0, capacity);
+        if (this.capacity == 0)
+            clear();
+    }
+
+    /** @return Maximum number of cached files */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param file the OPI file
+     * @return parsed root element of the file if it is cached and the file did not change since.
+     *         <code>null</code> otherwise.
+     */
+    public Element get(final File file) {
+        if (capacity <= 0 || file == null)
+            return null;
+        final String key = file.getAbsolutePath();
+        final Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry != null  &&
+            entry.lastModified == file.lastModified()  &&
+            entry.length == file.length()) {
+            hits.incrementAndGet();
+            return entry.root;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param file the OPI file
+     * @param root parsed root element of the file, must not be modified afterwards.
+     * @param lastModified modification time of the file before it was parsed
+     * @param length size of the file before it was parsed
+     */
+    public void put(final File file, final Element root, final long lastModified, final long length) {
+        if (capacity <= 0 || file == null || root == null)
+            return;
+        synchronized (cache) {
+            cache.put(file.getAbsolutePath(), new Entry(lastModified, length, root));
+        }
+    }
+
+    /** Remove all entries */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /** @return Number of cached files */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** @return Number of loads that were served from the cache */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return Number of loads that had to parse the file */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OPI file cache: %d/%d files, %d hits, %d misses", //$NON-NLS-1$
+                size(), capacity, getHitCount(), getMissCount());
+    }
+}
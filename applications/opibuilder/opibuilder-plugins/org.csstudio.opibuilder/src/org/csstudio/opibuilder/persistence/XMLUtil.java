@@ -9,6 +9,7 @@ package org.csstudio.opibuilder.persistence;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -25,6 +26,7 @@ import java.util.Set;
 import java.util.logging.Level;
 
 import javax.security.auth.login.FailedLoginException;
+import javax.xml.stream.XMLStreamException;
 
 import org.csstudio.apputil.macros.MacroUtil;
 import org.csstudio.opibuilder.OPIBuilderPlugin;
@@ -243,7 +245,7 @@ public class XMLUtil {
 
         }
 
-        Element root = inputStreamToXML(inputStream);
+        Element root = loadRootElement(opiPath, inputStream);
         if(root != null){
              XMLElementToWidgetSub(root, displayModel, trace, macrosInput_);
 
@@ -399,6 +401,7 @@ public class XMLUtil {
 
     private static void fillLinkingContainersSub(AbstractContainerModel container, List<IPath> trace,
             final MacrosInput macrosInput_) throws Exception{
+        final boolean lazy = PreferencesHelper.isLazyLoadLinkingContainers();
         if(container instanceof AbstractLinkingContainerModel) {
             AbstractLinkingContainerModel linkingContainer = (AbstractLinkingContainerModel)container;
             List<IPath> tempTrace = new ArrayList<IPath>();
@@ -409,6 +412,9 @@ public class XMLUtil {
         for(AbstractWidgetModel w : container.getAllDescendants()) {
             if(w instanceof AbstractLinkingContainerModel) {
                 AbstractLinkingContainerModel linkingContainer = (AbstractLinkingContainerModel)w;
+                // The edit part loads the OPI once the container is shown
+                if(lazy && !isShowing(linkingContainer))
+                    continue;
                 List<IPath> tempTrace = new ArrayList<IPath>();
                 tempTrace.addAll(trace);
                 fillLinkingContainerSub(linkingContainer, tempTrace, macrosInput_);
@@ -416,6 +422,19 @@ public class XMLUtil {
         }
     }
 
+    /**
+     * @param model widget model
+     * @return true if the widget and all its parents are visible.
+     */
+    public static boolean isShowing(AbstractWidgetModel model) {
+        while(model != null){
+            if(!model.isVisible())
+                return false;
+            model = model.getParent();
+        }
+        return true;
+    }
+
     @SuppressWarnings("rawtypes")
     private static void fillConnections(Element element, DisplayModel displayModel) throws Exception {
         if(element.getName().equals(XMLTAG_CONNECTION)) {
@@ -665,7 +684,44 @@ public class XMLUtil {
         return potentialTag.equals(xmlTag);
     }
 
+    /**Get the root element of an OPI file, from the {@link OPIFileCache} if possible.
+     * @param path path of the OPI file, may be null.
+     * @param stream the stream of the OPI file. Not read if the parsed file is cached.
+     * @return the root element, which must not be modified.
+     */
+    private static Element loadRootElement(IPath path, InputStream stream) throws Exception {
+        final OPIFileCache cache = OPIFileCache.getInstance();
+        cache.setCapacity(PreferencesHelper.getOPIFileCacheSize());
+        File file = null;
+        if(path != null && cache.getCapacity() > 0){
+            try {
+                file = ResourceUtil.getFile(path);
+            } catch (Exception e) {
+                // Not a local file, don't cache
+                file = null;
+            }
+        }
+        if(file == null)
+            return inputStreamToXML(stream);
+
+        Element root = cache.get(file);
+        if(root == null){
+            final long lastModified = file.lastModified();
+            final long length = file.length();
+            root = inputStreamToXML(stream);
+            cache.put(file, root, lastModified, length);
+        }
+        return root;
+    }
+
     private static Element inputStreamToXML(InputStream stream) throws JDOMException, IOException {
+        if(PreferencesHelper.isUseStAXParser()){
+            try {
+                return LineAwareStAXParser.parse(stream);
+            } catch (XMLStreamException e) {
+                throw new JDOMException(e.getMessage(), e);
+            }
+        }
         SAXBuilder saxBuilder = LineAwareXMLParser.createBuilder();
         Document doc = saxBuilder.build(stream);
         Element root = doc.getRootElement();
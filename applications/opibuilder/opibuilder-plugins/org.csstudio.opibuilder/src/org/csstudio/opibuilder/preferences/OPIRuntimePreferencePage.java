@@ -111,6 +111,15 @@ public class OPIRuntimePreferencePage extends FieldEditorPreferencePage
                 "The fastest refresh cycle for OPI GUI in millisecond");
         addField(guiRefreshCycleEditor);
 
+        IntegerFieldEditor guiRefreshBudgetEditor =
+            new IntegerFieldEditor(PreferencesHelper.OPI_GUI_REFRESH_BUDGET,
+                    "OPI GUI Refresh Budget (ms)", parent);
+        guiRefreshBudgetEditor.setValidRange(0, 5000);
+        guiRefreshBudgetEditor.getTextControl(parent).setToolTipText(
+                "The maximum time spent on updating widgets per GUI refresh cycle in millisecond.\n" +
+                "Remaining updates are postponed to the next cycle. 0 for no limit.");
+        addField(guiRefreshBudgetEditor);
+
         IntegerFieldEditor pulsingMinorPeriodFieldEditor =
                 new IntegerFieldEditor(PreferencesHelper.PULSING_ALARM_MINOR_PERIOD,
                         "Time period of MINOR alarm if pulsing alarm selected (ms)", parent);
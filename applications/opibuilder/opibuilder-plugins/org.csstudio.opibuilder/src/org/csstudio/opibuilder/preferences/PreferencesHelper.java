@@ -48,6 +48,7 @@ public class PreferencesHelper {
     public static final String RUN_MACROS= "macros"; //$NON-NLS-1$
     public static final String AUTOSAVE= "auto_save"; //$NON-NLS-1$
     public static final String OPI_GUI_REFRESH_CYCLE = "opi_gui_refresh_cycle"; //$NON-NLS-1$
+    public static final String OPI_GUI_REFRESH_BUDGET = "opi_gui_refresh_budget"; //$NON-NLS-1$
     public static final String NO_EDIT = "no_edit"; //$NON-NLS-1$
     public static final String TOP_OPIS = "top_opis"; //$NON-NLS-1$
     public static final String DISABLE_ADVANCED_GRAPHICS = "disable_advanced_graphics"; //$NON-NLS-1$
@@ -71,6 +72,9 @@ public class PreferencesHelper {
     public static final String SHOW_OPI_RUNTIME_STACKS = "show_opi_runtime_stacks"; //$NON-NLS-1$
     public static final String SWITCH_TO_OPI_EDITOR_PERSPECTIVE = "switch_to_opi_editor_perspective"; //$NON-NLS-1$
     public static final String FONT_DEFAULT_PIXELS_OR_POINTS = "font_default_pixels_or_points";
+    public static final String OPI_FILE_CACHE_SIZE = "opi_file_cache_size"; //$NON-NLS-1$
+    public static final String LAZY_LOAD_LINKING_CONTAINERS = "lazy_load_linking_containers"; //$NON-NLS-1$
+    public static final String USE_STAX_PARSER = "use_stax_parser"; //$NON-NLS-1$
 
     //The widgets that are hidden from palette.
     public static final String HIDDEN_WIDGETS="hidden_widgets"; //$NON-NLS-1$
@@ -198,6 +202,37 @@ public class PreferencesHelper {
         return service.getInt(OPIBuilderPlugin.PLUGIN_ID, OPI_GUI_REFRESH_CYCLE, 100, null);
     }
 
+    /**@return maximum time in ms spent on the UI thread per GUI refresh cycle.
+     * 0 for no limit.
+     */
+    public static Integer getGUIRefreshBudget(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        return service.getInt(OPIBuilderPlugin.PLUGIN_ID, OPI_GUI_REFRESH_BUDGET, 50, null);
+    }
+
+    /**@return number of parsed OPI files kept in memory. 0 disables the cache.
+     */
+    public static int getOPIFileCacheSize(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        return service.getInt(OPIBuilderPlugin.PLUGIN_ID, OPI_FILE_CACHE_SIZE, 50, null);
+    }
+
+    /**@return true if linking containers that are hidden when the OPI is loaded,
+     * for example on inactive tabs, should only load their OPI when they are first shown.
+     */
+    public static boolean isLazyLoadLinkingContainers(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        return service.getBoolean(OPIBuilderPlugin.PLUGIN_ID, LAZY_LOAD_LINKING_CONTAINERS, false, null);
+    }
+
+    /**@return true if OPI files are parsed with the streaming (StAX) parser,
+     * false to use the JDOM SAXBuilder.
+     */
+    public static boolean isUseStAXParser(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        return service.getBoolean(OPIBuilderPlugin.PLUGIN_ID, USE_STAX_PARSER, true, null);
+    }
+
     public static Integer getPulsingAlarmMinorPeriod(){
         final IPreferencesService service = Platform.getPreferencesService();
         return service.getInt(OPIBuilderPlugin.PLUGIN_ID, PULSING_ALARM_MINOR_PERIOD, 3000, null);
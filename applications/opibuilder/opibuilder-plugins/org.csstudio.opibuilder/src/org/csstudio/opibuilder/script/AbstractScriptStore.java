@@ -250,9 +250,14 @@ public abstract class AbstractScriptStore implements IScriptStore{
             @Override
             public void run() {
                 if ((!scriptData.isStopExecuteOnError() || !errorInScript) && !unRegistered) {
+                    final long start = System.nanoTime();
                     try {
                         execScript(triggerPV);
+                        ScriptExecutionStatistics.getStatistics(scriptData)
+                            .record(System.nanoTime() - start, false);
                     } catch (Exception e) {
+                        ScriptExecutionStatistics.getStatistics(scriptData)
+                            .record(System.nanoTime() - start, true);
                         errorInScript = true;
                         final String notExecuteWarning = "\nThe script or rule will not be executed afterwards. " +
                                 "You can change this setting in script dialog.";
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution time statistics of scripts or rules.
+ * Updated by the {@link AbstractScriptStore} for every execution.
+ */
+public class ScriptExecutionStatistics {
+
+    private static final ScriptExecutionStatistics scripts = new ScriptExecutionStatistics("Scripts"); //$NON-NLS-1$
+    private static final ScriptExecutionStatistics rules = new ScriptExecutionStatistics("Rules"); //$NON-NLS-1$
+
+    private final String name;
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private volatile long maxNanos = 0;
+
+    private ScriptExecutionStatistics(final String name) {
+        this.name = name;
+    }
+
+    /** @return Statistics for all scripts */
+    public static ScriptExecutionStatistics getScriptStatistics() {
+        return scripts;
+    }
+
+    /** @return Statistics for all rules */
+    public static ScriptExecutionStatistics getRuleStatistics() {
+        return rules;
+    }
+
+    /** @param scriptData Script or rule
+     *  @return Statistics for that type of script
+     */
+    static ScriptExecutionStatistics getStatistics(final ScriptData scriptData) {
+        return scriptData instanceof RuleScriptData ? rules : scripts;
+    }
+
+    /** @param nanos Duration of one execution in nanoseconds
+     *  @param error <code>true</code> if the execution failed
+     */
+    void record(final long nanos, final boolean error) {
+        executions.incrementAndGet();
+        if (error)
+            errors.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        if (nanos > maxNanos)
+            maxNanos = nanos;
+    }
+
+    /** @return Number of executions */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /** @return Number of executions that failed */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /** @return Total execution time in milliseconds */
+    public double getTotalTime() {
+        return totalNanos.get() / 1e6;
+    }
+
+    /** @return Average execution time in milliseconds */
+    public double getAverageTime() {
+        final long count = executions.get();
+        return count > 0 ? totalNanos.get() / 1e6 / count : 0.0;
+    }
+
+    /** @return Longest execution time in milliseconds */
+    public double getMaxTime() {
+        return maxNanos / 1e6;
+    }
+
+    /** Reset all counters */
+    public void reset() {
+        executions.set(0);
+        errors.set(0);
+        totalNanos.set(0);
+        maxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d executions, %d errors, avg %.3f ms, max %.3f ms", //$NON-NLS-1$
+                name, getExecutions(), getErrors(), getAverageTime(), getMaxTime());
+    }
+}
@@ -69,7 +69,7 @@ public class BOYPVFactory{
             String pvConnectionLayer = PreferencesHelper.getPVConnectionLayer();
             if(pvConnectionLayer == null || pvConnectionLayer.isEmpty())
                 throw new Exception("PV connection layer is not configured in preference.");
-            AbstractPVFactory pvFactory = SimplePVLayer.getPVFactory
+            AbstractPVFactory pvFactory = SimplePVLayer.getSharedPVFactory
                     (pvConnectionLayer);
             if(pvFactory == null)
                 throw new Exception("No such PVFactory extension available: " + pvConnectionLayer);
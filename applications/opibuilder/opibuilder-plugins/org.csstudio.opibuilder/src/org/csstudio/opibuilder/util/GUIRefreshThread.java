@@ -7,7 +7,10 @@
  ******************************************************************************/
 package org.csstudio.opibuilder.util;
 
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.csstudio.opibuilder.OPIBuilderPlugin;
@@ -22,6 +25,12 @@ import org.eclipse.swt.widgets.Display;
  * A singleton back thread which will help to execute tasks for OPI GUI refreshing.
  * This thread sleeps for a time which can be set in the preference page. It can
  * help throttle the unnecessary repaint caused by fast PV value updating.
+ * <p>
+ * Tasks are kept in a {@link WidgetUpdateQueue} which holds only the latest
+ * task per widget property. Once per refresh cycle, the queue is drained by
+ * a single runnable on the UI thread. The drain stops when the per-frame budget
+ * is exhausted, and remaining tasks wait for the next frame, so the UI stays
+ * responsive under load.
  *
  * @author Xihui Chen
  *
@@ -38,21 +47,25 @@ public final class GUIRefreshThread implements Runnable {
     private static GUIRefreshThread editingInstance;
 
     /**
-     * A LinkedHashset, which contains {@link WidgetIgnorableUITask}.
-     * It will be processed by this thread periodically. Use hashset
-     * can help to improve the performance.
+     * The queue of {@link WidgetIgnorableUITask}s, keeping only the latest task
+     * per widget property.
+     * It will be processed by this thread periodically.
      */
-    //private ConcurrentLinkedQueue<WidgetIgnorableUITask> tasksQueue;
-    private LinkedHashSet<WidgetIgnorableUITask> tasksQueue;
+    private final WidgetUpdateQueue tasksQueue;
     private Thread thread;
 
     private int guiRefreshCycle = 100;
 
+    /** Maximum time in ms spent on the UI thread per refresh cycle, 0 for 'no limit' */
+    private volatile int guiRefreshBudget = 0;
+
     private long start;
 
     private volatile boolean asyncEmpty = true;
 
-    private Runnable resetAsyncEmpty;
+    private final Runnable drainQueue;
+
+    private final WidgetUpdateQueue.ErrorHandler errorHandler;
 
     private Display rcpDisplay;
 
@@ -63,16 +76,26 @@ public final class GUIRefreshThread implements Runnable {
      */
     private GUIRefreshThread(boolean isRuntime) {
         this.isRuntime = isRuntime;
-        //tasksQueue = new ConcurrentLinkedQueue<WidgetIgnorableUITask>();
         if(!OPIBuilderPlugin.isRAP()){
             rcpDisplay = DisplayUtils.getDisplay();
         }
-        tasksQueue = new LinkedHashSet<WidgetIgnorableUITask>();
-        resetAsyncEmpty = new Runnable() {
+        tasksQueue = new WidgetUpdateQueue();
+        errorHandler = new WidgetUpdateQueue.ErrorHandler() {
+            @Override
+            public void handleError(WidgetIgnorableUITask task, Throwable error) {
+                OPIBuilderPlugin.getLogger().log(Level.WARNING,
+                        "GUI refresh error for " + task, error); //$NON-NLS-1$
+            }
+        };
+        drainQueue = new Runnable() {
 
             @Override
             public void run() {
-                asyncEmpty = true;
+                try {
+                    tasksQueue.drain(guiRefreshBudget, errorHandler);
+                } finally {
+                    asyncEmpty = true;
+                }
             }
         };
         reLoadGUIRefreshCycle();
@@ -101,8 +124,10 @@ public final class GUIRefreshThread implements Runnable {
      * Reschedule this task upon the new GUI refresh cycle.
      */
     public void reLoadGUIRefreshCycle(){
-        if(isRuntime)
+        if(isRuntime){
             guiRefreshCycle = PreferencesHelper.getGUIRefreshCycle();
+            guiRefreshBudget = PreferencesHelper.getGUIRefreshBudget();
+        }
     }
 
     /**Set GUI Refresh Cycle. This should be temporarily used only. It must be
@@ -117,17 +142,34 @@ public final class GUIRefreshThread implements Runnable {
         return guiRefreshCycle;
     }
 
+    /**Set the maximum time spent on the UI thread per refresh cycle.
+     * This should be temporarily used only. It must be
+     * reset by calling {@link #reLoadGUIRefreshCycle()} to ensure consistency.
+     * @param guiRefreshBudget budget in ms, 0 for no limit.
+     */
+    public void setGUIRefreshBudget(int guiRefreshBudget) {
+        this.guiRefreshBudget = guiRefreshBudget;
+    }
+
+    public int getGUIRefreshBudget() {
+        return guiRefreshBudget;
+    }
+
+    /**
+     * @return the task queue, which provides statistics about coalesced
+     *         and deferred updates and the time spent draining the queue.
+     */
+    public WidgetUpdateQueue getTaskQueue() {
+        return tasksQueue;
+    }
+
     /**
      * {@inheritDoc}.
      */
     @Override
     public void run() {
-        boolean isEmpty;
         while (true) {
-            synchronized (this){
-                    isEmpty = tasksQueue.isEmpty();
-            }
-            if(!isEmpty){
+            if(!tasksQueue.isEmpty()){
                     start = System.currentTimeMillis();
                     if(OPIBuilderPlugin.isRAP())
                         rapProcessQueue();
@@ -152,67 +194,87 @@ public final class GUIRefreshThread implements Runnable {
     }
 
     /**
-     * Process the complete queue in RCP.
+     * Process the queue in RCP: Schedule one drain of the queue on the UI thread.
      */
     private void rcpProcessQueue() {
         //avoid add too many stuff to Display async queue.
         if(!asyncEmpty)
             return;
-        asyncEmpty = false;
-        Object[] tasksArray;
-        //copy the tasks queue.
-        synchronized (this) {
-            tasksArray = tasksQueue.toArray();
-            tasksQueue.clear();
-        }
         if (rcpDisplay == null || rcpDisplay.isDisposed())
             return;
-        for (Object o : tasksArray) {
-            try {
-                rcpDisplay.asyncExec(((WidgetIgnorableUITask) o)
-                        .getRunnableTask());
-            } catch (Exception e) {
-                OPIBuilderPlugin.getLogger().log(Level.WARNING,
-                        "Display has been disposed.", e); //$NON-NLS-1$
-            }
+        asyncEmpty = false;
+        try {
+            rcpDisplay.asyncExec(drainQueue);
+        } catch (Exception e) {
+            asyncEmpty = true;
+            OPIBuilderPlugin.getLogger().log(Level.WARNING,
+                    "Display has been disposed.", e); //$NON-NLS-1$
         }
-        rcpDisplay.asyncExec(resetAsyncEmpty);
     }
 
     /**
-     * Process the complete queue in RAP.
+     * Process the complete queue in RAP: Each session has its own display,
+     * so schedule one batch per display. Each batch is limited by the
+     * same per-frame budget as the RCP drain.
      */
     private void rapProcessQueue() {
-        Object[] tasksArray;
-        //copy the tasks queue.
-        synchronized (this) {
-            tasksArray = tasksQueue.toArray();
-            tasksQueue.clear();
+        final List<WidgetIgnorableUITask> tasks = tasksQueue.pollAll();
+        final Map<Display, BatchTask> batches = new HashMap<Display, BatchTask>();
+        for(WidgetIgnorableUITask task : tasks){
+            Display display = task.getDisplay();
+            if(display == null || display.isDisposed())
+                continue;
+            BatchTask batch = batches.get(display);
+            if(batch == null){
+                batch = new BatchTask();
+                batches.put(display, batch);
+            }
+            batch.tasks.add(task);
         }
-        for(Object o : tasksArray){
-            Display display = ((WidgetIgnorableUITask)o).getDisplay();
-                if(display!=null && !display.isDisposed())
-                    try {
-                        display.asyncExec(((WidgetIgnorableUITask) o).getRunnableTask());
-                    } catch (Exception e) {
-                        OPIBuilderPlugin.getLogger().log(Level.WARNING, "GUI refresh error", e); //$NON-NLS-1$
-                    }
+        for(Map.Entry<Display, BatchTask> entry : batches.entrySet()){
+            try {
+                entry.getKey().asyncExec(entry.getValue());
+            } catch (Exception e) {
+                OPIBuilderPlugin.getLogger().log(Level.WARNING, "GUI refresh error", e); //$NON-NLS-1$
+            }
         }
     }
 
     /**
      * Adds the specified runnable to the queue.
+     * A pending task for the same widget property is replaced.
      *
      * @param task
      *            the ignorable UI task.
      */
-    public synchronized void addIgnorableTask(final WidgetIgnorableUITask task) {
-        tasksQueue.remove(task);
+    public void addIgnorableTask(final WidgetIgnorableUITask task) {
         tasksQueue.add(task);
-
     }
 
+    /** Runs a batch of tasks for one display.
+     *  Tasks that do not fit into the refresh budget are returned to the queue
+     *  for the next refresh cycle.
+     */
+    private class BatchTask implements Runnable {
+        private final List<WidgetIgnorableUITask> tasks = new ArrayList<WidgetIgnorableUITask>();
 
-
-
+        @Override
+        public void run() {
+            final long budget = guiRefreshBudget;
+            final long deadline = budget > 0 ? System.nanoTime() + budget * 1000000L : Long.MAX_VALUE;
+            for(int i=0; i<tasks.size(); ++i){
+                if(System.nanoTime() >= deadline){
+                    for(int j=i; j<tasks.size(); ++j)
+                        tasksQueue.requeue(tasks.get(j));
+                    return;
+                }
+                final WidgetIgnorableUITask task = tasks.get(i);
+                try {
+                    task.getRunnableTask().run();
+                } catch (Exception e) {
+                    errorHandler.handleError(task, e);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.csstudio.opibuilder.datadefinition.WidgetIgnorableUITask;
+
+/** Lock-free queue of {@link WidgetIgnorableUITask}s that keeps only the
+ *  latest task per identify object.
+ *
+ *  <p>Each identify object owns one "latest value" slot.
+ *  Adding a task to an occupied slot replaces the pending task, which is
+ *  counted as coalesced, without re-queuing the slot.
+ *  Slots are drained in the order in which they were first filled.
+ *
+ *  <p>Producers (PV threads) and the consumer (UI thread) never block each other.
+ *
+ *  @see GUIRefreshThread
+ */
+public class WidgetUpdateQueue {
+
+    /** Latest pending task per slot.
+     *  Key and value are both tasks; {@link WidgetIgnorableUITask#equals(Object)}
+     *  compares the identify object, so a newer task replaces the value of the slot.
+     */
+    private final ConcurrentHashMap<WidgetIgnorableUITask, WidgetIgnorableUITask> slots =
+            new ConcurrentHashMap<WidgetIgnorableUITask, WidgetIgnorableUITask>();
+
+    /** Slots in the order in which they became occupied */
+    private final ConcurrentLinkedQueue<WidgetIgnorableUITask> order =
+            new ConcurrentLinkedQueue<WidgetIgnorableUITask>();
+
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong drains = new AtomicLong();
+    private final AtomicLong totalDrainNanos = new AtomicLong();
+    private volatile long lastDrainNanos = 0;
+    private volatile long maxDrainNanos = 0;
+
+    /** @param task Task to add. Replaces a pending task with the same identify object. */
+    public void add(final WidgetIgnorableUITask task) {
+        added.incrementAndGet();
+        if (slots.put(task, task) == null)
+            order.add(task);
+        else
+            coalesced.incrementAndGet();
+    }
+
+    /** @return <code>true</code> if no task is pending */
+    public boolean isEmpty() {
+        return order.isEmpty();
+    }
+
+    /** @return Number of pending tasks (one per occupied slot) */
+    public int size() {
+        return slots.size();
+    }
+
+    /** Remove the oldest occupied slot
+     *  @return Latest task of that slot or <code>null</code> if queue is empty
+     */
+    public WidgetIgnorableUITask poll() {
+        WidgetIgnorableUITask key;
+        while ((key = order.poll()) != null) {
+            final WidgetIgnorableUITask task = slots.remove(key);
+            if (task != null)
+                return task;
+        }
+        return null;
+    }
+
+    /** Remove all pending tasks
+     *  @return Latest task of every occupied slot, oldest slot first
+     */
+    public List<WidgetIgnorableUITask> pollAll() {
+        final List<WidgetIgnorableUITask> tasks = new ArrayList<WidgetIgnorableUITask>(slots.size());
+        WidgetIgnorableUITask task;
+        while ((task = poll()) != null)
+            tasks.add(task);
+        return tasks;
+    }
+
+    /** Return a task that was polled but not executed to the queue
+     *  because the time budget was exhausted.
+     *  If a newer task for the same identify object is already pending,
+     *  the returned task is dropped.
+     *  @param task Task to re-queue
+     */
+    public void requeue(final WidgetIgnorableUITask task) {
+        deferred.incrementAndGet();
+        if (slots.putIfAbsent(task, task) == null)
+            order.add(task);
+    }
+
+    /** Execute pending tasks on the calling thread until queue is empty
+     *  or time budget is exhausted.
+     *  Tasks that do not fit into the budget remain queued for the next drain.
+     *
+     *  @param budget_ms Time budget in milliseconds, <code>0</code> for 'no limit'
+     *  @param handler Handler for errors thrown by a task, may be <code>null</code>
+     *  @return Number of executed tasks
+     */
+    public int drain(final long budget_ms, final ErrorHandler handler) {
+        final long start = System.nanoTime();
+        final long deadline = budget_ms > 0 ? start + budget_ms * 1000000L : Long.MAX_VALUE;
+        int count = 0;
+        WidgetIgnorableUITask task;
+        while ((task = poll()) != null) {
+            try {
+                task.getRunnableTask().run();
+            } catch (Throwable ex) {
+                if (handler != null)
+                    handler.handleError(task, ex);
+            }
+            ++count;
+            if (System.nanoTime() >= deadline)
+                break;
+        }
+        final long duration = System.nanoTime() - start;
+        executed.addAndGet(count);
+        if (task != null)
+            deferred.addAndGet(size());
+        drains.incrementAndGet();
+        totalDrainNanos.addAndGet(duration);
+        lastDrainNanos = duration;
+        if (duration > maxDrainNanos)
+            maxDrainNanos = duration;
+        return count;
+    }
+
+    /** @return Total number of added tasks */
+    public long getAddedCount() {
+        return added.get();
+    }
+
+    /** @return Number of tasks that were dropped because a newer task
+     *          for the same identify object arrived before they were executed
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /** @return Number of tasks that were executed via {@link #drain(long, ErrorHandler)} */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    /** @return Number of tasks that were postponed to a later drain because
+     *          the time budget of a drain was exhausted
+     */
+    public long getDeferredCount() {
+        return deferred.get();
+    }
+
+    /** @return Number of drains */
+    public long getDrainCount() {
+        return drains.get();
+    }
+
+    /** @return Duration of the last drain in milliseconds */
+    public double getLastDrainTime() {
+        return lastDrainNanos / 1e6;
+    }
+
+    /** @return Longest drain in milliseconds */
+    public double getMaxDrainTime() {
+        return maxDrainNanos / 1e6;
+    }
+
+    /** @return Average drain time in milliseconds */
+    public double getAverageDrainTime() {
+        final long count = drains.get();
+        if (count <= 0)
+            return 0.0;
+        return totalDrainNanos.get() / 1e6 / count;
+    }
+
+    /** Reset all counters */
+    public void resetStatistics() {
+        added.set(0);
+        coalesced.set(0);
+        executed.set(0);
+        deferred.set(0);
+        drains.set(0);
+        totalDrainNanos.set(0);
+        lastDrainNanos = 0;
+        maxDrainNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Widget updates: %d added, %d coalesced, %d executed, %d deferred, " + //$NON-NLS-1$
+                "%d drains (last %.1f ms, max %.1f ms, avg %.1f ms)", //$NON-NLS-1$
+                getAddedCount(), getCoalescedCount(), getExecutedCount(), getDeferredCount(),
+                getDrainCount(), getLastDrainTime(), getMaxDrainTime(), getAverageDrainTime());
+    }
+
+    /** Handler for errors of executed tasks */
+    public interface ErrorHandler {
+        /** @param task Task that failed
+         *  @param error Error
+         */
+        public void handleError(WidgetIgnorableUITask task, Throwable error);
+    }
+}
@@ -0,0 +1,180 @@
+package org.csstudio.simplepv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link SharedPVFactory} and {@link SharedPVPool} */
+@SuppressWarnings("nls")
+public class SharedPVFactoryTest {
+
+    /** Executes notifications right away */
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /** PV that counts start/stop and allows sending events */
+    private static class TestPV implements IPV {
+        final String name;
+        final List<IPVListener> listeners = new CopyOnWriteArrayList<>();
+        boolean started = false;
+
+        TestPV(final String name) {
+            this.name = name;
+        }
+
+        void fireValue() {
+            for (IPVListener l : listeners)
+                l.valueChanged(this);
+        }
+
+        @Override public void addListener(IPVListener listener) { listeners.add(listener); }
+        @Override public void removeListener(IPVListener listener) { listeners.remove(listener); }
+        @Override public List<VType> getAllBufferedValues() { return null; }
+        @Override public String getName() { return name; }
+        @Override public VType getValue() { return null; }
+        @Override public boolean isBufferingValues() { return false; }
+        @Override public boolean isConnected() { return started; }
+        @Override public boolean isPaused() { return false; }
+        @Override public boolean isStarted() { return started; }
+        @Override public boolean isWriteAllowed() { return false; }
+        @Override public void setPaused(boolean paused) { }
+        @Override public void setValue(Object value) throws Exception { }
+        @Override public boolean setValue(Object value, int timeout) throws Exception { return true; }
+        @Override public void start() throws Exception { started = true; }
+        @Override public void stop() { started = false; }
+    }
+
+    private static class TestFactory extends AbstractPVFactory {
+        final List<TestPV> created = new ArrayList<>();
+
+        @Override
+        public IPV createPV(String name, boolean readOnly, long minUpdatePeriodInMs, boolean bufferAllValues,
+                Executor notificationThread, ExceptionHandler exceptionHandler) throws Exception {
+            final TestPV pv = new TestPV(name);
+            created.add(pv);
+            return pv;
+        }
+    }
+
+    @Test
+    public void testSharing() throws Exception {
+        final TestFactory factory = new TestFactory();
+        final SharedPVFactory shared = new SharedPVFactory(factory);
+
+        final IPV a = shared.createPV("shared_a", true, 100, false, DIRECT, null);
+        final IPV b = shared.createPV("shared_a", true, 100, false, DIRECT, null);
+        final IPV other_rate = shared.createPV("shared_a", true, 500, false, DIRECT, null);
+        assertEquals(0, factory.created.size());
+
+        a.start();
+        b.start();
+        other_rate.start();
+        // 'a' and 'b' share one PV, different update period uses another PV
+        assertEquals(2, factory.created.size());
+        final TestPV pv = factory.created.get(0);
+        assertTrue(pv.isStarted());
+
+        // Value updates are fanned out, with the handle as the event source
+        final AtomicInteger a_updates = new AtomicInteger(), b_updates = new AtomicInteger();
+        a.addListener(new IPVListener.Stub() {
+            @Override
+            public void valueChanged(IPV source) {
+                assertSame(a, source);
+                a_updates.incrementAndGet();
+            }
+        });
+        b.addListener(new IPVListener.Stub() {
+            @Override
+            public void valueChanged(IPV source) {
+                assertSame(b, source);
+                b_updates.incrementAndGet();
+            }
+        });
+        // Listeners added to started, connected PVs get an initial update
+        assertEquals(1, a_updates.get());
+        assertEquals(1, b_updates.get());
+        pv.fireValue();
+        assertEquals(2, a_updates.get());
+        assertEquals(2, b_updates.get());
+
+        // Pausing one handle does not affect the other
+        b.setPaused(true);
+        pv.fireValue();
+        assertEquals(3, a_updates.get());
+        assertEquals(2, b_updates.get());
+
+        // Shared PV is stopped when the last client stops
+        a.stop();
+        assertTrue(pv.isStarted());
+        pv.fireValue();
+        assertEquals(3, a_updates.get());
+        b.stop();
+        assertFalse(pv.isStarted());
+        other_rate.stop();
+        assertFalse(factory.created.get(1).isStarted());
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        final TestFactory factory = new TestFactory();
+        final SharedPVFactory shared = new SharedPVFactory(factory);
+        final List<IPV> pvs = new ArrayList<>();
+        for (int i=0; i<40; ++i) {
+            final IPV pv = shared.createPV("stats_pv", false, 100, false, DIRECT, null);
+            pv.start();
+            pvs.add(pv);
+        }
+        assertEquals(1, factory.created.size());
+        factory.created.get(0).fireValue();
+
+        SharedPVPool.Statistics stats = null;
+        for (SharedPVPool.Statistics s : SharedPVPool.getStatistics())
+            if (s.getName().equals("stats_pv"))
+                stats = s;
+        assertEquals(40, stats.getClients());
+        assertEquals(1, stats.getUpdates());
+        System.out.println(SharedPVPool.getStatisticsReport());
+
+        for (IPV pv : pvs)
+            pv.stop();
+        for (SharedPVPool.Statistics s : SharedPVPool.getStatistics())
+            assertFalse(s.getName().equals("stats_pv"));
+    }
+
+    @Test
+    public void testWriteUnstarted() throws Exception {
+        final TestFactory factory = new TestFactory();
+        final SharedPVFactory shared = new SharedPVFactory(factory);
+        final IPV pv = shared.createPV("write_pv", false, 100, false, DIRECT, null);
+
+        // Write of a handle that was not started uses the pool
+        // and does not leave the PV running
+        assertTrue(pv.setValue(42, 1000));
+        assertEquals(1, factory.created.size());
+        assertFalse(factory.created.get(0).isStarted());
+        for (SharedPVPool.Statistics s : SharedPVPool.getStatistics())
+            assertFalse(s.getName().equals("write_pv"));
+
+        // Write of a started handle uses its shared PV
+        pv.start();
+        assertEquals(2, factory.created.size());
+        assertTrue(pv.setValue(42, 1000));
+        assertEquals(2, factory.created.size());
+        assertTrue(factory.created.get(1).isStarted());
+        pv.stop();
+    }
+}
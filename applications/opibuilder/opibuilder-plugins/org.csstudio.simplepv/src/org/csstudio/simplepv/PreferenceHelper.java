@@ -17,6 +17,7 @@ import org.eclipse.core.runtime.preferences.IPreferencesService;
 public class PreferenceHelper {
 
     final public static String DEFAULT_PVFACTORY="default_pvfactory"; //$NON-NLS-1$
+    final public static String SHARE_PVS="share_pvs"; //$NON-NLS-1$
 
 
      /** @param preferenceName Preference identifier
@@ -32,4 +33,12 @@ public class PreferenceHelper {
         return getString(DEFAULT_PVFACTORY);
     }
 
+    /** @return <code>true</code> if {@link SimplePVLayer#getSharedPVFactory(String)}
+     *          should share PVs
+     */
+    public static boolean isSharingPVs(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        return service.getBoolean(SimplePVPlugin.PLUGIN_ID, SHARE_PVS, true, null);
+    }
+
 }
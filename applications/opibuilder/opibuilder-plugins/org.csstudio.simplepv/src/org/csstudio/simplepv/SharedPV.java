@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.diirt.vtype.VType;
+
+/**A client's handle to a PV in the {@link SharedPVPool}.
+ * <p>
+ * Each handle has its own listeners, pause state and exception handler.
+ * While started, it references the shared underlying PV and forwards
+ * the events of that PV to its listeners, using the handle as the event source.
+ * <p>
+ * Note that write results are reported to all clients of a shared PV.
+ */
+class SharedPV implements IPV {
+
+    private static final Logger logger = Logger.getLogger(SharedPV.class.getName());
+
+    private final SharedPVPool.Key key;
+    private final ExceptionHandler exceptionHandler;
+    private final List<IPVListener> listeners = new CopyOnWriteArrayList<IPVListener>();
+    private volatile IPV pv = null;
+    private volatile boolean paused = false;
+
+    /** Forwards events of the shared PV to the listeners of this handle */
+    private final IPVListener forwarder = new IPVListener() {
+        @Override
+        public void connectionChanged(final IPV pv) {
+            for (IPVListener l : listeners)
+                l.connectionChanged(SharedPV.this);
+        }
+
+        @Override
+        public void exceptionOccurred(final IPV pv, final Exception exception) {
+            if (exceptionHandler != null)
+                exceptionHandler.handleException(exception);
+            else
+                for (IPVListener l : listeners)
+                    l.exceptionOccurred(SharedPV.this, exception);
+        }
+
+        @Override
+        public void valueChanged(final IPV pv) {
+            if (paused)
+                return;
+            for (IPVListener l : listeners)
+                l.valueChanged(SharedPV.this);
+        }
+
+        @Override
+        public void writeFinished(final IPV pv, final boolean isWriteSucceeded) {
+            for (IPVListener l : listeners)
+                l.writeFinished(SharedPV.this, isWriteSucceeded);
+        }
+
+        @Override
+        public void writePermissionChanged(final IPV pv) {
+            for (IPVListener l : listeners)
+                l.writePermissionChanged(SharedPV.this);
+        }
+    };
+
+    SharedPV(final SharedPVPool.Key key, final ExceptionHandler exceptionHandler) {
+        this.key = key;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    @Override
+    public void addListener(final IPVListener listener) {
+        listeners.add(listener);
+        final IPV shared = pv;
+        if (shared == null)
+            return;
+        // Like the underlying PVs, give a later added listener the current state
+        key.notificationThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (shared.isConnected() && !paused) {
+                    listener.connectionChanged(SharedPV.this);
+                    listener.valueChanged(SharedPV.this);
+                }
+                if (!key.readOnly && shared.isWriteAllowed())
+                    listener.writePermissionChanged(SharedPV.this);
+            }
+        });
+    }
+
+    @Override
+    public void removeListener(final IPVListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public List<VType> getAllBufferedValues() {
+        final IPV shared = pv;
+        return shared == null ? null : shared.getAllBufferedValues();
+    }
+
+    @Override
+    public String getName() {
+        return key.name;
+    }
+
+    @Override
+    public VType getValue() {
+        final IPV shared = pv;
+        return shared == null ? null : shared.getValue();
+    }
+
+    @Override
+    public boolean isBufferingValues() {
+        final IPV shared = pv;
+        return shared == null ? key.bufferAllValues : shared.isBufferingValues();
+    }
+
+    @Override
+    public boolean isConnected() {
+        final IPV shared = pv;
+        return shared != null && shared.isConnected();
+    }
+
+    @Override
+    public boolean isPaused() {
+        return pv != null && paused;
+    }
+
+    @Override
+    public boolean isStarted() {
+        return pv != null;
+    }
+
+    @Override
+    public boolean isWriteAllowed() {
+        final IPV shared = pv;
+        return shared != null && shared.isWriteAllowed();
+    }
+
+    /** Only pauses the notifications of this client,
+     *  the shared PV stays active for the other clients.
+     */
+    @Override
+    public void setPaused(final boolean paused) {
+        this.paused = paused;
+    }
+
+    @Override
+    public void setValue(final Object value) throws Exception {
+        final IPV shared = pv;
+        if (shared == null)
+            throw new Exception("The PV " + key.name + " is not started yet or has been closed."); //$NON-NLS-1$ //$NON-NLS-2$
+        shared.setValue(value);
+    }
+
+    @Override
+    public boolean setValue(final Object value, final int timeout) throws Exception {
+        final IPV shared = pv;
+        if (shared != null)
+            return shared.setValue(value, timeout);
+        // Not started: Use the shared PV just for this write
+        final IPV temporary = SharedPVPool.acquire(key);
+        try {
+            return temporary.setValue(value, timeout);
+        } finally {
+            SharedPVPool.release(key);
+        }
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        if (pv != null)
+            throw new IllegalStateException("PV " + key.name + " has already been started."); //$NON-NLS-1$ //$NON-NLS-2$
+        final IPV shared = SharedPVPool.acquire(key);
+        shared.addListener(forwarder);
+        pv = shared;
+    }
+
+    @Override
+    public synchronized void stop() {
+        final IPV shared = pv;
+        if (shared == null) {
+            logger.log(Level.WARNING, "PV " + key.name + " has already been stopped or was not started yet."); //$NON-NLS-1$ //$NON-NLS-2$
+            return;
+        }
+        pv = null;
+        shared.removeListener(forwarder);
+        SharedPVPool.release(key);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
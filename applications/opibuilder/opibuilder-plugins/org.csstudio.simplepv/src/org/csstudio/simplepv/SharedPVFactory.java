@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv;
+
+import java.util.concurrent.Executor;
+
+/**A PV factory that shares the PVs of another factory.
+ * <p>
+ * PVs with the same name, read-only flag, update period, buffering and
+ * notification thread use one PV of the wrapped factory.
+ * See {@link SharedPVPool}.
+ */
+public class SharedPVFactory extends AbstractPVFactory {
+
+    private final AbstractPVFactory factory;
+
+    /** @param factory Factory that creates the shared PVs */
+    public SharedPVFactory(final AbstractPVFactory factory) {
+        this.factory = factory;
+    }
+
+    /** @return Factory that creates the shared PVs */
+    public AbstractPVFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public IPV createPV(final String name, final boolean readOnly,
+            final long minUpdatePeriodInMs, final boolean bufferAllValues,
+            final Executor notificationThread,
+            final ExceptionHandler exceptionHandler) throws Exception {
+        return new SharedPV(new SharedPVPool.Key(factory, name, readOnly,
+                minUpdatePeriodInMs, bufferAllValues, notificationThread), exceptionHandler);
+    }
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.simplepv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**Reference-counted pool of PVs that are shared between clients.
+ * <p>
+ * PVs created by a {@link SharedPVFactory} with the same name, read-only flag,
+ * update period, buffering and notification thread share one underlying
+ * {@link IPV} of the wrapped factory, i.e. one connection, one value stream
+ * and one update throttle. The underlying PV is started when the first client
+ * starts and stopped when the last client stops.
+ * Events of the underlying PV are fanned out to the listeners of each client.
+ */
+public class SharedPVPool {
+
+    /** Key of a shared PV */
+    static final class Key {
+        final AbstractPVFactory factory;
+        final String name;
+        final boolean readOnly;
+        final long minUpdatePeriodInMs;
+        final boolean bufferAllValues;
+        final Executor notificationThread;
+
+        Key(final AbstractPVFactory factory, final String name, final boolean readOnly,
+            final long minUpdatePeriodInMs, final boolean bufferAllValues,
+            final Executor notificationThread) {
+            this.factory = factory;
+            this.name = name;
+            this.readOnly = readOnly;
+            this.minUpdatePeriodInMs = minUpdatePeriodInMs;
+            this.bufferAllValues = bufferAllValues;
+            this.notificationThread = notificationThread;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = name.hashCode();
+            result = 31 * result + System.identityHashCode(factory);
+            result = 31 * result + (readOnly ? 1 : 0);
+            result = 31 * result + (int) (minUpdatePeriodInMs ^ (minUpdatePeriodInMs >>> 32));
+            result = 31 * result + (bufferAllValues ? 1 : 0);
+            result = 31 * result + System.identityHashCode(notificationThread);
+            return result;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return factory == other.factory  &&
+                   name.equals(other.name)  &&
+                   readOnly == other.readOnly  &&
+                   minUpdatePeriodInMs == other.minUpdatePeriodInMs  &&
+                   bufferAllValues == other.bufferAllValues  &&
+                   notificationThread == other.notificationThread;
+        }
+    }
+
+    /** Shared PV with reference count and statistics */
+    static final class Entry {
+        final Key key;
+        /** Completed when the PV has been created and started */
+        final CompletableFuture<IPV> pv = new CompletableFuture<IPV>();
+        final AtomicInteger references = new AtomicInteger(1);
+        final AtomicLong updates = new AtomicLong();
+        volatile long since = System.currentTimeMillis();
+
+        Entry(final Key key) {
+            this.key = key;
+        }
+
+        /**Create and start the PV
+         * @throws Exception on error
+         */
+        void create() throws Exception {
+            final IPV created = key.factory.createPV(key.name, key.readOnly, key.minUpdatePeriodInMs,
+                    key.bufferAllValues, key.notificationThread, null);
+            created.addListener(new IPVListener.Stub() {
+                @Override
+                public void valueChanged(final IPV pv) {
+                    updates.incrementAndGet();
+                }
+            });
+            created.start();
+            pv.complete(created);
+        }
+    }
+
+    /** Statistics of one shared PV */
+    public static final class Statistics {
+        private final String name;
+        private final long minUpdatePeriodInMs;
+        private final boolean bufferAllValues;
+        private final int clients;
+        private final long updates;
+        private final double updateRate;
+
+        Statistics(final Entry entry, final int clients) {
+            name = entry.key.name;
+            minUpdatePeriodInMs = entry.key.minUpdatePeriodInMs;
+            bufferAllValues = entry.key.bufferAllValues;
+            this.clients = clients;
+            updates = entry.updates.get();
+            final long millis = System.currentTimeMillis() - entry.since;
+            updateRate = millis > 0 ? updates * 1000.0 / millis : 0.0;
+        }
+
+        /** @return PV name */
+        public String getName() {
+            return name;
+        }
+
+        /** @return Minimum update period of the shared PV in milliseconds */
+        public long getMinUpdatePeriod() {
+            return minUpdatePeriodInMs;
+        }
+
+        /** @return <code>true</code> if the shared PV buffers all values */
+        public boolean isBufferingValues() {
+            return bufferAllValues;
+        }
+
+        /** @return Number of started clients that share the PV */
+        public int getClients() {
+            return clients;
+        }
+
+        /** @return Number of value updates since the PV was connected or the statistics were reset */
+        public long getUpdates() {
+            return updates;
+        }
+
+        /** @return Average value updates per second */
+        public double getUpdateRate() {
+            return updateRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d ms%s): %d clients, %d updates, %.1f updates/sec", //$NON-NLS-1$
+                    name, minUpdatePeriodInMs, bufferAllValues ? ", buffered" : "", //$NON-NLS-1$ //$NON-NLS-2$
+                    clients, updates, updateRate);
+        }
+    }
+
+    private static final Logger logger = Logger.getLogger(SharedPVPool.class.getName());
+
+    private static final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+
+    /**Get the shared PV for a key, creating and starting it if necessary.
+     * Each call must be balanced by {@link #release(Key)}.
+     * <p>
+     * The PV is created and started outside of the map's lock.
+     * Clients that request the same PV meanwhile wait for it,
+     * while other PVs can be acquired and released concurrently.
+     * @param key Key of the PV
+     * @return Shared PV
+     * @throws Exception on error in creating or starting the PV
+     */
+    static IPV acquire(final Key key) throws Exception {
+        final boolean[] added = new boolean[1];
+        final Entry entry = entries.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.references.incrementAndGet();
+                return existing;
+            }
+            added[0] = true;
+            return new Entry(k);
+        });
+        if (added[0]) {
+            try {
+                entry.create();
+            } catch (Exception ex) {
+                // Clients waiting for this entry receive the same error
+                entries.remove(key, entry);
+                entry.pv.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+        try {
+            return entry.pv.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception)
+                throw (Exception) ex.getCause();
+            throw ex;
+        } catch (InterruptedException ex) {
+            // Not waiting any longer, drop the reference
+            release(key);
+            throw ex;
+        }
+    }
+
+    /**Release a shared PV. The PV is stopped when it is no longer referenced.
+     * @param key Key of the PV
+     */
+    static void release(final Key key) {
+        final boolean released[] = new boolean[1];
+        final Entry removed[] = new Entry[1];
+        entries.computeIfPresent(key, (k, entry) -> {
+            released[0] = true;
+            if (entry.references.decrementAndGet() > 0)
+                return entry;
+            removed[0] = entry;
+            return null;
+        });
+        if (!released[0])
+            logger.log(Level.WARNING, "Shared PV " + key.name + " was not in use"); //$NON-NLS-1$ //$NON-NLS-2$
+        if (removed[0] == null)
+            return;
+        // Stop outside of the map's lock.
+        // An entry whose creation was interrupted stops the PV once it's created.
+        removed[0].pv.thenAccept(pv -> {
+            try {
+                pv.stop();
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, "Error stopping PV " + key.name, ex); //$NON-NLS-1$
+            }
+        });
+    }
+
+    /** @return Number of underlying PV connections */
+    public static int getConnectionCount() {
+        return entries.size();
+    }
+
+    /** @return Number of started clients, which may be larger than
+     *          the number of connections because they share PVs
+     */
+    public static int getClientCount() {
+        int count = 0;
+        for (Entry entry : entries.values())
+            count += entry.references.get();
+        return count;
+    }
+
+    /** @return Statistics of all shared PVs, sorted by name */
+    public static List<Statistics> getStatistics() {
+        final List<Statistics> result = new ArrayList<Statistics>(entries.size());
+        for (Entry entry : entries.values())
+            result.add(new Statistics(entry, entry.references.get()));
+        Collections.sort(result, new Comparator<Statistics>() {
+            @Override
+            public int compare(final Statistics a, final Statistics b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        return result;
+    }
+
+    /** Reset the update counters of all shared PVs */
+    public static void resetStatistics() {
+        final long now = System.currentTimeMillis();
+        for (Entry entry : entries.values()) {
+            entry.updates.set(0);
+            entry.since = now;
+        }
+    }
+
+    /** @return Summary and statistics of all shared PVs, one per line */
+    public static String getStatisticsReport() {
+        final List<Statistics> statistics = getStatistics();
+        int clients = 0;
+        double rate = 0.0;
+        for (Statistics s : statistics) {
+            clients += s.getClients();
+            rate += s.getUpdateRate();
+        }
+        final StringBuilder buf = new StringBuilder();
+        buf.append(String.format("Shared PVs: %d connections, %d clients, %.1f updates/sec", //$NON-NLS-1$
+                statistics.size(), clients, rate));
+        for (Statistics s : statistics)
+            buf.append('\n').append(s);
+        return buf.toString();
+    }
+}
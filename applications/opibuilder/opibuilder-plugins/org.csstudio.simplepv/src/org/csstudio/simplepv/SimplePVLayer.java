@@ -26,6 +26,8 @@ public class SimplePVLayer {
 
     private static Map<String, AbstractPVFactory> factoryMap = new HashMap<String, AbstractPVFactory>(4);
 
+    private static Map<String, AbstractPVFactory> sharedFactoryMap = new HashMap<String, AbstractPVFactory>(4);
+
     /**If there is only one {@link AbstractPVFactory} implementation, return it.
      * If there are multiple implementations, return the default PV factory which
      * is configured in the preference.
@@ -50,7 +52,7 @@ public class SimplePVLayer {
      * @return the PV Factory. null if not exist.
      * @throws CoreException on loading extensions error.
      */
-    public static AbstractPVFactory getPVFactory(String pvFactoryId) throws CoreException{
+    public static synchronized AbstractPVFactory getPVFactory(String pvFactoryId) throws CoreException{
         if(!factoryMap.containsKey(pvFactoryId)){
             AbstractPVFactory pvFactory = createPVFactory(pvFactoryId);
             factoryMap.put(pvFactoryId, pvFactory);
@@ -58,6 +60,24 @@ public class SimplePVLayer {
         return factoryMap.get(pvFactoryId);
     }
 
+    /**Get a PV Factory from its ID that shares PVs between clients.
+     * PVs with the same name, read-only flag, update period, buffering and
+     * notification thread use one connection. See {@link SharedPVPool}.
+     * If sharing is disabled in the preferences, this is the same as {@link #getPVFactory(String)}.
+     * @param pvFactoryId ID of the PV Factory extension.
+     * @return the PV Factory. null if not exist.
+     * @throws CoreException on loading extensions error.
+     */
+    public static synchronized AbstractPVFactory getSharedPVFactory(String pvFactoryId) throws CoreException{
+        if(!PreferenceHelper.isSharingPVs())
+            return getPVFactory(pvFactoryId);
+        if(!sharedFactoryMap.containsKey(pvFactoryId)){
+            AbstractPVFactory pvFactory = getPVFactory(pvFactoryId);
+            sharedFactoryMap.put(pvFactoryId, pvFactory == null ? null : new SharedPVFactory(pvFactory));
+        }
+        return sharedFactoryMap.get(pvFactoryId);
+    }
+
     private static AbstractPVFactory createPVFactory(String pvFactoryID) throws CoreException{
         IExtensionRegistry extReg = Platform.getExtensionRegistry();
         IConfigurationElement[] confElements =
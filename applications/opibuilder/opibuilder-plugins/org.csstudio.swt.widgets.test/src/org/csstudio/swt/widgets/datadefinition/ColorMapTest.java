@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.widgets.datadefinition;
+
+import static org.junit.Assert.assertEquals;
+
+import org.csstudio.swt.widgets.datadefinition.ColorMap.PredefinedColorMap;
+import org.eclipse.swt.graphics.ImageData;
+import org.junit.Test;
+
+/** JUnit test of the {@link ColorMap} image conversion */
+public class ColorMapTest {
+
+    private static double[] createData(final int width, final int height) {
+        final double[] data = new double[width * height];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (i * 37) % 1000 - 100.0;
+        return data;
+    }
+
+    /** Pixels written directly to the image data match ImageData.setPixel() */
+    @Test
+    public void testFillImageData() {
+        final int width = 13, height = 7;
+        final double[] data = createData(width, height);
+        final ColorMap map = new ColorMap(PredefinedColorMap.JET, true, true);
+        final int[] table = map.getPixelLookupTable();
+
+        final ImageData expected = new ImageData(width, height, 24, map.getPalette());
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x) {
+                int index = (int) ((data[y * width + x] - 0) / (800 - 0) * 255);
+                index = Math.max(0, Math.min(255, index));
+                expected.setPixel(x, y, table[index]);
+            }
+
+        final ImageData image = new ImageData(width, height, 24, map.getPalette());
+        ColorMap.fillImageData(table, new DoubleArrayWrapper(data), width, 0, 0, width, height, 800, 0, image);
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                assertEquals("Pixel " + x + ", " + y, expected.getPixel(x, y), image.getPixel(x, y));
+
+        // The same as the original conversion
+        final ImageData drawn = map.drawImage(new DoubleArrayWrapper(data), width, height, 800, 0, null, false);
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                assertEquals(drawn.getPixel(x, y), image.getPixel(x, y));
+    }
+
+    /** A region of the data is sampled down to the size of the image */
+    @Test
+    public void testDownsample() {
+        final int width = 40, height = 30;
+        final double[] data = createData(width, height);
+        final ColorMap map = new ColorMap(PredefinedColorMap.GrayScale, true, true);
+        final int[] table = map.getPixelLookupTable();
+
+        // Region of 20x10 pixels at 10, 5 into 5x2 image: every 4th column, every 5th row
+        final ImageData image = new ImageData(5, 2, 24, map.getPalette());
+        ColorMap.fillImageData(table, new DoubleArrayWrapper(data), width, 10, 5, 20, 10, 255, 0, image);
+        for (int y = 0; y < 2; ++y)
+            for (int x = 0; x < 5; ++x) {
+                final double value = data[(5 + y * 5) * width + 10 + x * 4];
+                final int index = Math.max(0, Math.min(255, (int) value));
+                assertEquals(table[index], image.getPixel(x, y));
+            }
+    }
+}
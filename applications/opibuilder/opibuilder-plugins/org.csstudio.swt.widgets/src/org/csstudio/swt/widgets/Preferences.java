@@ -42,6 +42,15 @@ public class Preferences
         return use_advanced_graphics;
     }
 
+    /** @return <code>true</code> if intensity graphs render large images in a background thread */
+    public static boolean isIntensityGraphAsyncRendering()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null)
+            return true;
+        return prefs.getBoolean(Activator.PLUGIN_ID, "intensity_graph_async_rendering", true, null);
+    }
+
     public static int getURLFileLoadTimeout(){
          final IPreferencesService prefs = Platform.getPreferencesService();
          if (prefs == null)
@@ -226,6 +226,8 @@ public class ColorMap {
                     }
 
 
+            }else if(imageData.depth == 24 && imageData.width == dataWidth && imageData.height == dataHeight){
+                fillImageData(pixelLookupTable, dataArray, dataWidth, 0, 0, dataWidth, dataHeight, max, min, imageData);
             }else{
                 for (int y = 0; y < dataHeight; y++) {
                     for (int x = 0; x < dataWidth; x++) {
@@ -245,6 +247,83 @@ public class ColorMap {
             return imageData;
     }
 
+    /**Fill 24 bit image data from a region of the source data, using a pixel lookup table.
+     * The region is scaled to the size of the image data by nearest neighbor sampling,
+     * so a large region is only read at the pixels that are shown.
+     * The pixels are written directly to the data bytes of the image data.
+     * This method only reads its arguments, so it can be called in a non-UI thread.
+     * @param pixelLookupTable 256 pixel values, see {@link #getPixelLookupTable()}
+     * @param dataArray the source data
+     * @param dataWidth number of columns of dataArray
+     * @param left first column of the region
+     * @param top first row of the region
+     * @param width number of columns of the region
+     * @param height number of rows of the region
+     * @param max the value that maps to the last entry of the lookup table
+     * @param min the value that maps to the first entry of the lookup table
+     * @param imageData the 24 bit image data to be filled.
+     */
+    public static void fillImageData(final int[] pixelLookupTable, final IPrimaryArrayWrapper dataArray,
+            final int dataWidth, final int left, final int top, final int width, final int height,
+            final double max, final double min, final ImageData imageData){
+        final int imageWidth = imageData.width;
+        final int imageHeight = imageData.height;
+        final byte[] data = imageData.data;
+        final int bytesPerLine = imageData.bytesPerLine;
+        final double range = max - min;
+        // Byte order of ImageData.setPixel() for depth 24
+        final byte[] b0 = new byte[256], b1 = new byte[256], b2 = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            b0[i] = (byte) ((pixelLookupTable[i] >> 16) & 0xFF);
+            b1[i] = (byte) ((pixelLookupTable[i] >> 8) & 0xFF);
+            b2[i] = (byte) (pixelLookupTable[i] & 0xFF);
+        }
+        final int[] columns = new int[imageWidth];
+        for (int x = 0; x < imageWidth; x++)
+            columns[x] = left + (int) ((long) x * width / imageWidth);
+        for (int y = 0; y < imageHeight; y++) {
+            final int row = (top + (int) ((long) y * height / imageHeight)) * dataWidth;
+            int pos = y * bytesPerLine;
+            for (int x = 0; x < imageWidth; x++) {
+                int index = (int) ((dataArray.get(row + columns[x]) - min) / range * 255);
+                if (index < 0)
+                    index = 0;
+                else if (index > 255)
+                    index = 255;
+                data[pos++] = b0[index];
+                data[pos++] = b1[index];
+                data[pos++] = b2[index];
+            }
+        }
+    }
+
+    /**Get the pixel lookup table that maps the range from min to max to 256 pixels of
+     * the palette. When the color map does not auto scale, the range is
+     * {@link #getColorMapMin()} to {@link #getColorMapMax()}.
+     * A new table is created when the color map changes, an existing table is never modified,
+     * so it can be handed to another thread.
+     * @return the pixel lookup table
+     */
+    public int[] getPixelLookupTable() {
+        if(colorsLookupTable == null)
+            getColorsLookupTable();
+        return pixelLookupTable;
+    }
+
+    /**
+     * @return the lowest value of the color map. Only valid after the lookup table was calculated.
+     */
+    public double getColorMapMin() {
+        return colorMapMin;
+    }
+
+    /**
+     * @return the highest value of the color map. Only valid after the lookup table was calculated.
+     */
+    public double getColorMapMax() {
+        return colorMapMax;
+    }
+
     /**Calculate the image data from source data based on the color map.
      * @param dataArray the source data
      * @param dataWidth number of columns of dataArray; This will be the width of image data.
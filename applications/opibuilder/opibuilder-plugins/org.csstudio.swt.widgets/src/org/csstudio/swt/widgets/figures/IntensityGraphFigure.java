@@ -14,6 +14,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.csstudio.swt.widgets.Preferences;
 import org.csstudio.swt.widgets.datadefinition.ByteArrayWrapper;
 import org.csstudio.swt.widgets.datadefinition.ColorMap;
 import org.csstudio.swt.widgets.datadefinition.ColorMap.PredefinedColorMap;
@@ -297,8 +298,9 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
             inDefaultPosition = false;
             if(updatedCrossDataIndex){
                 crossDataIndex = graphArea.getDataLocation(crossX, crossY);
-                if(croppedDataArray != null)
-                    fireProfileDataChanged(croppedDataArray, croppedDataWidth, croppedDataHeight);
+                final IPrimaryArrayWrapper cropped = graphArea.getCroppedDataArray();
+                if(cropped != null)
+                    fireProfileDataChanged(cropped, croppedDataWidth, croppedDataHeight);
             }
             hLine.setPoints(new PointList(new int[]{bounds.x,crossY, bounds.width+bounds.x, crossY}));
             vLine.setPoints(new PointList(new int[]{crossX, bounds.y, crossX, bounds.y + bounds.height}));
@@ -377,6 +379,76 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
         }
 
 
+        /**
+         * @return the cropped data array. It is only created when needed
+         * if the image is rendered in the background.
+         */
+        private synchronized IPrimaryArrayWrapper getCroppedDataArray(){
+            if(cropPending){
+                cropPending = false;
+                croppedDataArray = cropDataArray(cropLeft, cropRight, cropTop, cropBottom);
+            }
+            return croppedDataArray;
+        }
+
+        /**
+         * @param clientArea the client area
+         * @return size of the image for the client area, which is the size of
+         * the cropped data, sampled down where the client area is smaller.
+         */
+        private Dimension getImageSize(Rectangle clientArea){
+            return new Dimension(Math.min(clientArea.width, croppedDataWidth),
+                    Math.min(clientArea.height, croppedDataHeight));
+        }
+
+        /**
+         * @param clientArea the client area
+         * @return true if the image is rendered in the background for this data and client area.
+         */
+        private boolean isAsyncRendered(Rectangle clientArea){
+            return asyncRendering && !inRGBMode && clientArea.width > 0 && clientArea.height > 0
+                    && croppedDataWidth > 0 && croppedDataHeight > 0
+                    && croppedDataWidth * croppedDataHeight >= ASYNC_RENDERING_THRESHOLD
+                    && dataArray.getSize() >= dataWidth * dataHeight;
+        }
+
+        /**Render the current data in the background.
+         * @param clientArea the client area
+         */
+        private void submitFrame(Rectangle clientArea){
+            if(renderer == null)
+                renderer = new IntensityGraphRenderer(Display.getCurrent(),
+                        new IntensityGraphRenderer.Listener() {
+                    @Override
+                    public void imageRendered(Image image) {
+                        //drawn in the UI thread meanwhile?
+                        if(!isAsyncRendered(getClientArea())){
+                            image.dispose();
+                            return;
+                        }
+                        if(bufferedImage != null)
+                            bufferedImage.dispose();
+                        bufferedImage = image;
+                        repaint();
+                    }
+                });
+            final int[] pixelLookupTable = colorMap.getPixelLookupTable();
+            final double frameMax = colorMap.isAutoScale() ? max : colorMap.getColorMapMax();
+            final double frameMin = colorMap.isAutoScale() ? min : colorMap.getColorMapMin();
+            asyncImageSize = getImageSize(clientArea);
+            //the caller may reuse the data array while the renderer reads it
+            final double[] frameData = new double[croppedDataWidth*croppedDataHeight];
+            for(int row=0; row<croppedDataHeight; row++){
+                final int offset = (cropTop + row)*dataWidth + cropLeft;
+                for(int col=0; col<croppedDataWidth; col++)
+                    frameData[row*croppedDataWidth + col] = dataArray.get(offset + col);
+            }
+            renderer.submit(new IntensityGraphRenderer.Frame(new DoubleArrayWrapper(frameData),
+                    croppedDataWidth, 0, 0, croppedDataWidth, croppedDataHeight,
+                    asyncImageSize.width, asyncImageSize.height, frameMax, frameMin,
+                    pixelLookupTable, colorMap.getPalette()));
+        }
+
         /**Get data index location on cropped data array from geometry location.
          * @param x x much be inside graph area.
          * @param y y much be inside graph area
@@ -410,10 +482,20 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
             if(dataArray == null)
                 return;
             Rectangle clientArea = getClientArea();
+            final boolean async = isAsyncRendered(clientArea);
+            //render again in the background when the size shown on screen changed
+            if(async && !dataDirty && bufferedImage != null
+                    && !getImageSize(clientArea).equals(asyncImageSize))
+                dataDirty = true;
+            //wait for the image that is rendered in the background
+            if(async && !dataDirty && bufferedImage == null
+                    && renderer != null && renderer.isBusy())
+                return;
             //draw image if data is dirty or bufferedImage has not been created yet
             if(dataDirty || bufferedImage == null){
                 dataDirty = false;
-                if(bufferedImage != null){
+                //keep showing the old image until the background rendering is done
+                if(bufferedImage != null && !async){
                     bufferedImage.dispose();
                     bufferedImage = null;
                 }
@@ -440,48 +522,58 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
                 if(dataWidth - cropLeft - cropRight < 0 || dataHeight - cropTop - cropBottom < 0)
                     return;
 
-                croppedDataArray = cropDataArray(cropLeft, cropRight, cropTop, cropBottom);
+                if(async){
+                    //crop only when the cropped data is needed
+                    croppedDataArray = null;
+                    cropPending = true;
+                    if(!profileListeners.isEmpty())
+                        fireProfileDataChanged(getCroppedDataArray(), croppedDataWidth, croppedDataHeight);
+                    submitFrame(clientArea);
+                    if(bufferedImage == null)
+                        return;
+                }else{
+                    croppedDataArray = cropDataArray(cropLeft, cropRight, cropTop, cropBottom);
 
-                fireProfileDataChanged(croppedDataArray, croppedDataWidth, croppedDataHeight);
+                    fireProfileDataChanged(croppedDataArray, croppedDataWidth, croppedDataHeight);
 //                for(ROIFigure roiFigure : roiMap.values()){
 //                    roiFigure.fireROIUpdated();
 //                }
-                boolean shrink= false;
-                if(clientArea.width*clientArea.height < croppedDataHeight * croppedDataWidth){
-                    shrink = true;
-                }
-
-
-                if(shrink){
-                    if(bufferedImageData == null || bufferedImageData.width != clientArea.width
-                            || bufferedImageData.height !=clientArea.height){
-                        bufferedImageData = new ImageData(clientArea.width, clientArea.height, 24, colorMap.getPalette());
+                    boolean shrink= false;
+                    if(clientArea.width*clientArea.height < croppedDataHeight * croppedDataWidth){
+                        shrink = true;
                     }
-                }else if(bufferedImageData == null || bufferedImageData.width != croppedDataWidth
-                        || bufferedImageData.height !=croppedDataHeight)
-                    bufferedImageData = new ImageData(croppedDataWidth, croppedDataHeight, 24, colorMap.getPalette());
-
-
-                ImageData imageData = null;
-                if(inRGBMode)
-                    try {
-                        imageData = drawRGBImage(croppedDataArray,
-                                croppedDataWidth, croppedDataHeight,
-                                max, min, bufferedImageData, shrink);
-                    } catch (IllegalArgumentException e) {
-                        graphics.drawText("Drawing Exception: RGB value is not between 0 and 255." +
-                    "\nPlease check if the data or color depth is correct.",
-                                clientArea.getLocation());
-                    }
-                else
-                    imageData = colorMap.drawImage(croppedDataArray,
-                                croppedDataWidth, croppedDataHeight,
-                                max, min, bufferedImageData, shrink);
 
-                if(imageData == null)
-                    return;
-                bufferedImage = new Image(Display.getCurrent(), imageData);
 
+                    if(shrink){
+                        if(bufferedImageData == null || bufferedImageData.width != clientArea.width
+                                || bufferedImageData.height !=clientArea.height){
+                            bufferedImageData = new ImageData(clientArea.width, clientArea.height, 24, colorMap.getPalette());
+                        }
+                    }else if(bufferedImageData == null || bufferedImageData.width != croppedDataWidth
+                            || bufferedImageData.height !=croppedDataHeight)
+                        bufferedImageData = new ImageData(croppedDataWidth, croppedDataHeight, 24, colorMap.getPalette());
+
+
+                    ImageData imageData = null;
+                    if(inRGBMode)
+                        try {
+                            imageData = drawRGBImage(croppedDataArray,
+                                    croppedDataWidth, croppedDataHeight,
+                                    max, min, bufferedImageData, shrink);
+                        } catch (IllegalArgumentException e) {
+                            graphics.drawText("Drawing Exception: RGB value is not between 0 and 255." +
+                        "\nPlease check if the data or color depth is correct.",
+                                    clientArea.getLocation());
+                        }
+                    else
+                        imageData = colorMap.drawImage(croppedDataArray,
+                                    croppedDataWidth, croppedDataHeight,
+                                    max, min, bufferedImageData, shrink);
+
+                    if(imageData == null)
+                        return;
+                    bufferedImage = new Image(Display.getCurrent(), imageData);
+                }
             }
 
 
@@ -522,6 +614,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
          *  @return PixelInfo for that mouse location
          */
         synchronized PixelInfo getPixelInfoForMouseLocation(final int x, final int y) {
+            final IPrimaryArrayWrapper croppedDataArray = getCroppedDataArray();
             if(croppedDataArray == null)
                 return null;
             final Point dataLocation = getDataLocation(x, y);
@@ -721,6 +814,13 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
     private boolean dataDirty;  //true if the image need to be redrawn
     private ImageData bufferedImageData;
     private Image bufferedImage; //the buffered image
+
+    /** Images with at least this many pixels of cropped data are rendered in the background */
+    public static final int ASYNC_RENDERING_THRESHOLD = 256*256;
+    private boolean asyncRendering = Preferences.isIntensityGraphAsyncRendering();
+    private IntensityGraphRenderer renderer;
+    private Dimension asyncImageSize;
+    private boolean cropPending; //true if the cropped data array has not been created for current data
     private List<IProfileDataChangeLisenter> profileListeners;
     private List<IPixelInfoListener> pixelInfoListeners = new ArrayList<IPixelInfoListener>();
     private List<IPixelInfoProvider> pixelInfoProviders;
@@ -890,6 +990,10 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
     }
 
     public void dispose(){
+        if(renderer != null){
+            renderer.dispose();
+            renderer = null;
+        }
         if(bufferedImage != null){
             bufferedImage.dispose();
             bufferedImage = null;
@@ -1312,7 +1416,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
      *
      */
     public final void setDataArray(double[] data) {
-        if(dataArray instanceof DoubleArrayWrapper){
+        if(!asyncRendering && dataArray instanceof DoubleArrayWrapper){
             ((DoubleArrayWrapper)dataArray).setData(data);
         }else
             dataArray = new DoubleArrayWrapper(data);
@@ -1328,7 +1432,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
      *
      */
     public final void setDataArray(short[] data) {
-        if(dataArray instanceof ShortArrayWrapper){
+        if(!asyncRendering && dataArray instanceof ShortArrayWrapper){
             ((ShortArrayWrapper)dataArray).setData(data);
         }else
             dataArray = new ShortArrayWrapper(data);
@@ -1343,7 +1447,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
      *
      */
     public final void setDataArray(byte[] data) {
-        if(dataArray instanceof ByteArrayWrapper){
+        if(!asyncRendering && dataArray instanceof ByteArrayWrapper){
             ((ByteArrayWrapper)dataArray).setData(data);
         }else
             dataArray = new ByteArrayWrapper(data);
@@ -1358,7 +1462,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
      *
      */
     public final void setDataArray(int[] data) {
-        if(dataArray instanceof IntArrayWrapper){
+        if(!asyncRendering && dataArray instanceof IntArrayWrapper){
             ((IntArrayWrapper)dataArray).setData(data);
         }else
             dataArray = new IntArrayWrapper(data);
@@ -1373,7 +1477,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
      *
      */
     public final void setDataArray(long[] data) {
-        if(dataArray instanceof LongArrayWrapper){
+        if(!asyncRendering && dataArray instanceof LongArrayWrapper){
             ((LongArrayWrapper)dataArray).setData(data);
         }else
             dataArray = new LongArrayWrapper(data);
@@ -1388,7 +1492,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
      *
      */
     public final void setDataArray(float[] data) {
-        if(dataArray instanceof FloatArrayWrapper){
+        if(!asyncRendering && dataArray instanceof FloatArrayWrapper){
             ((FloatArrayWrapper)dataArray).setData(data);
         }else
             dataArray = new FloatArrayWrapper(data);
@@ -1407,6 +1511,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
     public synchronized final void setDataArray(IPrimaryArrayWrapper dataWrapper){
         dataArray = dataWrapper;
         croppedDataArray = null;
+        cropPending = false;
         dataDirty = true;
         graphArea.repaint();
     }
@@ -1582,6 +1687,63 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
     public ColorDepth getColorDepth() {
         return colorDepth;
     }
+    /**
+     * @return true if large images are rendered in a background thread.
+     */
+    public boolean isAsyncRendering() {
+        return asyncRendering;
+    }
+
+    /**Render images with at least {@link #ASYNC_RENDERING_THRESHOLD} pixels
+     * in a background thread. The data is converted with the lookup table of the color map and
+     * sampled down to the size on screen. When data arrives faster than it can be rendered,
+     * only the latest data is shown. The renderer works on a copy of the cropped data,
+     * so callers may reuse their data arrays.
+     * RGB images are always rendered in the UI thread.
+     * The default is set by the intensity_graph_async_rendering preference.
+     * @param asyncRendering true to render large images in the background.
+     */
+    public void setAsyncRendering(boolean asyncRendering) {
+        this.asyncRendering = asyncRendering;
+        dataDirty = true;
+        repaint();
+    }
+
+    /**
+     * @return images shown per second by the background rendering, updated about once a second.
+     */
+    public double getFrameRate() {
+        return renderer == null ? 0 : renderer.getFrameRate();
+    }
+
+    /**
+     * @return number of images shown by the background rendering.
+     */
+    public long getShownFrames() {
+        return renderer == null ? 0 : renderer.getShownFrames();
+    }
+
+    /**
+     * @return number of images that were not shown because newer data arrived.
+     */
+    public long getDroppedFrames() {
+        return renderer == null ? 0 : renderer.getDroppedFrames();
+    }
+
+    /**
+     * @return average time to render an image in the background in milliseconds.
+     */
+    public double getAverageRenderTime() {
+        return renderer == null ? 0 : renderer.getAverageRenderTime();
+    }
+
+    /**Reset the rendering statistics.
+     */
+    public void resetRenderStatistics() {
+        if(renderer != null)
+            renderer.resetStatistics();
+    }
+
     /**Set Color depth of the image.
      * See http://en.wikipedia.org/wiki/Color_depth
      * @param colorDepth the colorDepth to set
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2010 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.widgets.figures;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+import org.csstudio.swt.widgets.Activator;
+import org.csstudio.swt.widgets.datadefinition.ColorMap;
+import org.csstudio.swt.widgets.datadefinition.IPrimaryArrayWrapper;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.widgets.Display;
+
+/**Renders the images of an {@link IntensityGraphFigure} in a worker thread.
+ * <p>
+ * Each frame is converted to pixels with the pixel lookup table of the color map,
+ * sampled down to the size that is shown on screen,
+ * into image data buffers that are reused.
+ * Only the SWT {@link Image} is created in the UI thread.
+ * <p>
+ * When frames arrive faster than they can be rendered or shown,
+ * only the latest frame is kept and the older ones are dropped.
+ */
+class IntensityGraphRenderer {
+
+    /** Receives the rendered images in the UI thread */
+    interface Listener {
+        /** @param image New image. The listener must dispose it. */
+        void imageRendered(Image image);
+    }
+
+    /** Data and settings of one frame, captured in the UI thread */
+    static final class Frame {
+        final IPrimaryArrayWrapper data;
+        final int dataWidth, left, top, width, height;
+        final int imageWidth, imageHeight;
+        final double max, min;
+        final int[] pixelLookupTable;
+        final PaletteData palette;
+
+        Frame(final IPrimaryArrayWrapper data, final int dataWidth,
+              final int left, final int top, final int width, final int height,
+              final int imageWidth, final int imageHeight,
+              final double max, final double min,
+              final int[] pixelLookupTable, final PaletteData palette) {
+            this.data = data;
+            this.dataWidth = dataWidth;
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.max = max;
+            this.min = min;
+            this.pixelLookupTable = pixelLookupTable;
+            this.palette = palette;
+        }
+    }
+
+    /** Number of image data buffers to keep for reuse */
+    private static final int MAX_FREE_BUFFERS = 2;
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "IntensityGraphRenderer"); //$NON-NLS-1$
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final Display display;
+    private final Listener listener;
+
+    /** Latest frame that is waiting to be rendered */
+    private final AtomicReference<Frame> pending = new AtomicReference<Frame>();
+    /** Is a render task scheduled for this renderer? */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /** Latest rendered image data that is waiting to be shown */
+    private final AtomicReference<ImageData> ready = new AtomicReference<ImageData>();
+    private final ConcurrentLinkedQueue<ImageData> freeBuffers = new ConcurrentLinkedQueue<ImageData>();
+    private volatile boolean disposed = false;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong shown = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private long windowStart = System.nanoTime();
+    private int windowFrames = 0;
+    private volatile double frameRate = 0.0;
+
+    private final Runnable renderTask = new Runnable() {
+        @Override
+        public void run() {
+            renderPending();
+        }
+    };
+
+    private final Runnable showTask = new Runnable() {
+        @Override
+        public void run() {
+            showReady();
+        }
+    };
+
+    /** @param display Display of the figure
+     *  @param listener Receives the rendered images
+     */
+    IntensityGraphRenderer(final Display display, final Listener listener) {
+        this.display = display;
+        this.listener = listener;
+    }
+
+    /** @param frame Frame to render, replaces a frame that was not rendered yet */
+    void submit(final Frame frame) {
+        if (disposed)
+            return;
+        submitted.incrementAndGet();
+        if (pending.getAndSet(frame) != null)
+            dropped.incrementAndGet();
+        if (scheduled.compareAndSet(false, true))
+            EXECUTOR.execute(renderTask);
+    }
+
+    /** @return <code>true</code> if a frame is being rendered or waits to be shown */
+    boolean isBusy() {
+        return scheduled.get() || ready.get() != null;
+    }
+
+    /** Render frames until no new frame is pending. Called in worker thread. */
+    private void renderPending() {
+        while (true) {
+            final Frame frame = pending.getAndSet(null);
+            if (frame == null) {
+                scheduled.set(false);
+                // A frame submitted after the check above, but before the flag was cleared?
+                if (pending.get() != null && scheduled.compareAndSet(false, true))
+                    continue;
+                return;
+            }
+            if (disposed)
+                return;
+            final long start = System.nanoTime();
+            final ImageData imageData;
+            try {
+                imageData = render(frame);
+            } catch (Exception ex) {
+                // The data array changed size while rendering, skip this frame
+                Activator.getLogger().log(Level.FINE, "Cannot render intensity graph image", ex); //$NON-NLS-1$
+                dropped.incrementAndGet();
+                continue;
+            }
+            renderNanos.addAndGet(System.nanoTime() - start);
+            rendered.incrementAndGet();
+            final ImageData stale = ready.getAndSet(imageData);
+            if (stale == null) {
+                if (!display.isDisposed())
+                    display.asyncExec(showTask);
+            } else {
+                // The UI thread did not show the previous image yet
+                dropped.incrementAndGet();
+                recycle(stale);
+            }
+        }
+    }
+
+    private ImageData render(final Frame frame) {
+        ImageData imageData = freeBuffers.poll();
+        if (imageData == null || imageData.width != frame.imageWidth
+                || imageData.height != frame.imageHeight || imageData.palette != frame.palette)
+            imageData = new ImageData(frame.imageWidth, frame.imageHeight, 24, frame.palette);
+        ColorMap.fillImageData(frame.pixelLookupTable, frame.data, frame.dataWidth,
+                frame.left, frame.top, frame.width, frame.height,
+                frame.max, frame.min, imageData);
+        return imageData;
+    }
+
+    /** Show the latest rendered image. Called in UI thread. */
+    private void showReady() {
+        final ImageData imageData = ready.getAndSet(null);
+        if (imageData == null || disposed || display.isDisposed())
+            return;
+        final Image image = new Image(display, imageData);
+        // The image has its own copy of the pixels
+        recycle(imageData);
+        shown.incrementAndGet();
+        updateFrameRate();
+        listener.imageRendered(image);
+    }
+
+    private void recycle(final ImageData imageData) {
+        if (freeBuffers.size() < MAX_FREE_BUFFERS)
+            freeBuffers.offer(imageData);
+    }
+
+    private void updateFrameRate() {
+        ++windowFrames;
+        final long now = System.nanoTime();
+        final long elapsed = now - windowStart;
+        if (elapsed >= 1000000000L) {
+            frameRate = windowFrames * 1e9 / elapsed;
+            windowStart = now;
+            windowFrames = 0;
+        }
+    }
+
+    /** @return Number of submitted frames */
+    long getSubmittedFrames() {
+        return submitted.get();
+    }
+
+    /** @return Number of frames that were dropped because newer frames arrived */
+    long getDroppedFrames() {
+        return dropped.get();
+    }
+
+    /** @return Number of frames that were shown */
+    long getShownFrames() {
+        return shown.get();
+    }
+
+    /** @return Frames shown per second, updated about once a second */
+    double getFrameRate() {
+        return frameRate;
+    }
+
+    /** @return Average time to render a frame in the worker thread in milliseconds */
+    double getAverageRenderTime() {
+        final long frames = rendered.get();
+        return frames > 0 ? renderNanos.get() / 1e6 / frames : 0.0;
+    }
+
+    /** Reset the statistics */
+    void resetStatistics() {
+        submitted.set(0);
+        dropped.set(0);
+        rendered.set(0);
+        shown.set(0);
+        renderNanos.set(0);
+    }
+
+    /** Stop rendering, drop pending frames */
+    void dispose() {
+        disposed = true;
+        pending.set(null);
+        ready.set(null);
+        freeBuffers.clear();
+    }
+}
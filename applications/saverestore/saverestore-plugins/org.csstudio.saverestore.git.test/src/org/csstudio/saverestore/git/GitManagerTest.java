@@ -509,6 +509,43 @@ public class GitManagerTest {
         assertEquals(1, snapshots.size());
     }
 
+    @Test
+    public void testSnapshotIndex() throws Exception {
+        Branch newBranch = manager.createBranch(branch, "foobar");
+        SaveSet set = new SaveSet(newBranch, Optional.of(new BaseLevel(newBranch, branchBase)),
+            branchSaveSet.getPath(), GitDataProvider.ID);
+        List<Snapshot> snapshots = manager.getSnapshots(set, 0, Optional.empty());
+        assertEquals(3, snapshots.size());
+        assertTrue("Index is stored in the git directory",
+            new File(new File(repositoryPath, ".git"), SnapshotIndex.FILE_NAME).exists());
+        // commit a snapshot without the manager, the index has to pick it up
+        Snapshot external = new Snapshot(set, Instant.ofEpochMilli(time + 20000), "external succotash", "marvin");
+        try (Git git = Git.open(repositoryPath)) {
+            git.checkout().setName("foobar").call();
+            writeSnapshot(git, new VSnapshot(external, branchV1.getEntries(), Instant.ofEpochMilli(time + 20000)));
+        }
+        snapshots = manager.getSnapshots(set, 0, Optional.empty());
+        assertEquals(4, snapshots.size());
+        assertTrue(external.almostEquals(snapshots.get(0)));
+        snapshots = manager.findSnapshotsByCommentOrUser("marvin", newBranch, false, true, Optional.empty(),
+            Optional.empty());
+        assertEquals(1, snapshots.size());
+        // another manager uses the stored index
+        GitManager other = new GitManager() {
+
+            @Override
+            protected Credentials getCredentials(Optional<Credentials> previous) {
+                return new Credentials("", new char[0], false);
+            }
+        };
+        other.initialise(repositoryPath.toURI(), repositoryPath);
+        snapshots = other.findSnapshotsByCommentOrUser("succotash", newBranch, true, false, Optional.empty(),
+            Optional.empty());
+        assertEquals(2, snapshots.size());
+        other.dispose();
+        // branch is deleted in teardown
+    }
+
     @Test
     public void testDeleteSaveSet() throws IOException, GitAPIException {
         SaveSet newSaveSet = new SaveSet(secondBranch, Optional.of(secondBase), new String[] { "created", "set2.bms" },
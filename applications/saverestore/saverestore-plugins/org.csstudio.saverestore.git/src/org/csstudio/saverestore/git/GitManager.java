@@ -32,7 +32,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -55,15 +60,10 @@ import org.eclipse.jgit.api.CommitCommand;
 import org.eclipse.jgit.api.CreateBranchCommand.SetupUpstreamMode;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand.ListMode;
-import org.eclipse.jgit.api.LogCommand;
 import org.eclipse.jgit.api.PullResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.RefNotFoundException;
 import org.eclipse.jgit.api.errors.TransportException;
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.diff.RawTextComparator;
-import org.eclipse.jgit.errors.StopWalkException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -74,36 +74,26 @@ import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.revwalk.filter.AndRevFilter;
-import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
-import org.eclipse.jgit.revwalk.filter.CommitterRevFilter;
-import org.eclipse.jgit.revwalk.filter.MessageRevFilter;
-import org.eclipse.jgit.revwalk.filter.OrRevFilter;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.TagOpt;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
-import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
-import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 /**
  * <code>GitManager<code> provide access to the git features required by the save and restore application.
+ * <p>
+ * Snapshots are listed and searched using the {@link SnapshotIndex}, which is stored in the git directory. Those read
+ * operations do not checkout the branch and can run concurrently. Operations that change the repository or the
+ * working tree are exclusive.
  *
  * @author <a href="mailto:miha.novak@cosylab.com">Miha Novak</a>
  */
 public class GitManager {
 
-    @FunctionalInterface
-    private static interface TriFunction<A, B, C, R> {
-        R apply(A a, B b, C c) throws IOException, GitAPIException;
-    }
-
     private static final String GIT_PATH_DELIMITER = "/";
     // tags of git specific parameters for the snapshot
     private static final String PARAM_GIT_REVISION = "gitRevision";
@@ -122,6 +112,10 @@ public class GitManager {
     private File repositoryPath;
     private boolean automatic = true;
     private boolean localOnly = false;
+    private SnapshotIndex index;
+    // the read lock is used by operations that only read from the repository, the write lock by those that change
+    // the repository or the checked out branch
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     @SuppressWarnings("unchecked")
     private static final List<String> EMPTY_LIST = Collections.EMPTY_LIST;
@@ -173,11 +167,16 @@ public class GitManager {
      *
      * @return true if only local or false for remote only
      */
-    synchronized boolean isLocalOnly() {
-        return localOnly;
+    boolean isLocalOnly() {
+        lock.readLock().lock();
+        try {
+            return localOnly;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
-    private synchronized void checkInitialised() throws IllegalStateException {
+    private void checkInitialised() throws IllegalStateException {
         if (git == null) {
             throw new IllegalStateException("Git has not been initialised.");
         }
@@ -186,8 +185,10 @@ public class GitManager {
     /**
      * Dispose of all resources allocated by this manager.
      */
-    public synchronized void dispose() {
+    public void dispose() {
+        lock.writeLock().lock();
         try {
+            index = null;
             if (repository != null) {
                 repository.close();
                 repository = null;
@@ -198,6 +199,8 @@ public class GitManager {
             }
         } catch (Exception e) {
             SaveRestoreService.LOGGER.log(Level.SEVERE, "Git cleanup error.", e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -207,11 +210,16 @@ public class GitManager {
      *
      * @param automatic true if automatic synchronisation should be enabled
      */
-    public synchronized void setAutomaticSynchronisation(boolean automatic) {
-        if (localOnly && automatic) {
-            return;
+    public void setAutomaticSynchronisation(boolean automatic) {
+        lock.writeLock().lock();
+        try {
+            if (localOnly && automatic) {
+                return;
+            }
+            this.automatic = automatic;
+        } finally {
+            lock.writeLock().unlock();
         }
-        this.automatic = automatic;
     }
 
     /**
@@ -224,15 +232,24 @@ public class GitManager {
      * @return true if initialisation was successful or false otherwise (cancelled due to lack of permissions)
      * @throws GitAPIException in case of an error
      */
-    public synchronized boolean initialise(URI remoteRepository, File destinationDirectory) throws GitAPIException {
-        if (!internalInitialise(remoteRepository, destinationDirectory)) {
-            deleteFolder(destinationDirectory);
-            return internalInitialise(remoteRepository, destinationDirectory);
+    public boolean initialise(URI remoteRepository, File destinationDirectory) throws GitAPIException {
+        lock.writeLock().lock();
+        try {
+            boolean initialised = internalInitialise(remoteRepository, destinationDirectory);
+            if (!initialised) {
+                deleteFolder(destinationDirectory);
+                initialised = internalInitialise(remoteRepository, destinationDirectory);
+            }
+            if (repository != null) {
+                index = new SnapshotIndex(new File(repository.getDirectory(), SnapshotIndex.FILE_NAME));
+            }
+            return initialised;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return true;
     }
 
-    private synchronized boolean internalInitialise(URI remoteRepository, File destinationDirectory)
+    private boolean internalInitialise(URI remoteRepository, File destinationDirectory)
         throws GitAPIException {
         if (!remoteRepository.toString().contains("://")) {
             // it is not git:// or http:// or https:// or ssh://
@@ -331,7 +348,7 @@ public class GitManager {
      * @throws GitAPIException if there was an exception during the checkout
      * @throws IOException if the current branch cannot be determined
      */
-    private synchronized void setBranch(Branch branch) throws GitAPIException, IOException {
+    private void setBranch(Branch branch) throws GitAPIException, IOException {
         checkInitialised();
         if (!branch.getShortName().equals(repository.getBranch())) {
             Ref ref = null;
@@ -348,33 +365,78 @@ public class GitManager {
         }
     }
 
+    /**
+     * Makes sure that the given branch exists locally. Read operations do not checkout the branch, but if the local
+     * branch does not exist yet, it is created and checked out in the same way as by the operations that change the
+     * repository.
+     *
+     * @param branch the branch that should exist
+     * @throws GitAPIException if there was an exception during the checkout
+     * @throws IOException if the branch could not be resolved
+     */
+    private void ensureBranch(Branch branch) throws GitAPIException, IOException {
+        lock.readLock().lock();
+        try {
+            checkInitialised();
+            if (repository.resolve(Constants.R_HEADS + branch.getShortName()) != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            setBranch(branch);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the snapshot index up to date with the checked out branch and the tags, so that the next search does not
+     * have to index the changes. The index is updated on every search anyway, therefore a failure is only logged.
+     */
+    private void updateIndex() {
+        try {
+            index.update(repository, repository.getBranch());
+            index.updateTags(repository, repository.getTags());
+        } catch (IOException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, "Snapshot index could not be updated.", e);
+        }
+    }
+
     /**
      * Returns the list of all branches in the repository.
      *
      * @return the list of branches
      * @throws GitAPIException if the branches could not be read
      */
-    public synchronized List<Branch> getBranches() throws GitAPIException {
-        checkInitialised();
-        List<Ref> branchesRef = git.branchList().setListMode(ListMode.ALL).call();
-        List<Branch> branches = new ArrayList<>(branchesRef.size());
-        for (Ref b : branchesRef) {
-            String name = b.getName();
-            if ("HEAD".equals(name)) {
-                continue;
-            }
-            Branch branch;
-            if (name.indexOf('/') > 0) {
-                branch = new Branch(name, name.substring(name.lastIndexOf('/') + 1));
-            } else {
-                branch = new Branch(name, name);
-            }
-            if (!branches.contains(branch)) {
-                branches.add(branch);
+    public List<Branch> getBranches() throws GitAPIException {
+        lock.readLock().lock();
+        try {
+            checkInitialised();
+            List<Ref> branchesRef = git.branchList().setListMode(ListMode.ALL).call();
+            List<Branch> branches = new ArrayList<>(branchesRef.size());
+            for (Ref b : branchesRef) {
+                String name = b.getName();
+                if ("HEAD".equals(name)) {
+                    continue;
+                }
+                Branch branch;
+                if (name.indexOf('/') > 0) {
+                    branch = new Branch(name, name.substring(name.lastIndexOf('/') + 1));
+                } else {
+                    branch = new Branch(name, name);
+                }
+                if (!branches.contains(branch)) {
+                    branches.add(branch);
+                }
             }
+            Collections.sort(branches);
+            return branches;
+        } finally {
+            lock.readLock().unlock();
         }
-        Collections.sort(branches);
-        return branches;
     }
 
     /**
@@ -384,15 +446,21 @@ public class GitManager {
      * @return true if changes in the local repository were made
      * @throws GitAPIException if there is an error during push or pull
      */
-    public synchronized boolean synchronise(Optional<Credentials> cp) throws GitAPIException {
-        checkInitialised();
-        Credentials c = cp.isPresent() ? cp.get() : getCredentials(Optional.empty());
-        if (c != null) {
-            Object[] obj = pull(c);
-            push((Credentials) obj[0], true);
-            return (Boolean) obj[1];
+    public boolean synchronise(Optional<Credentials> cp) throws GitAPIException {
+        lock.writeLock().lock();
+        try {
+            checkInitialised();
+            Credentials c = cp.isPresent() ? cp.get() : getCredentials(Optional.empty());
+            if (c != null) {
+                Object[] obj = pull(c);
+                push((Credentials) obj[0], true);
+                updateIndex();
+                return (Boolean) obj[1];
+            }
+            return false;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return false;
     }
 
     /**
@@ -410,32 +478,37 @@ public class GitManager {
      * @throws IOException in case of an IO error
      * @throws ParseException if the snapshot content could not be parsed
      */
-    public synchronized Result<Boolean> importData(SaveSet source, Branch toBranch, Optional<BaseLevel> toBaseLevel,
+    public Result<Boolean> importData(SaveSet source, Branch toBranch, Optional<BaseLevel> toBaseLevel,
         ImportType type) throws GitAPIException, IOException, ParseException {
-        checkInitialised();
-        boolean oldAutomatic = this.automatic;
-        setAutomaticSynchronisation(false);
-        Credentials cred = getCredentials(Optional.empty());
-        Object[] obj = pull(cred);
-        ChangeType change = (Boolean) obj[1] ? ChangeType.PULL : ChangeType.SAVE;
-        cred = (Credentials) obj[0];
+        lock.writeLock().lock();
         try {
-            if (source.getName().isEmpty()) {
-                // it is a folder
-                List<SaveSet> sets = getSaveSets(source.getBaseLevel(), source.getBranch(),
-                    Optional.of(source.getPathAsString()));
-                for (SaveSet s : sets) {
-                    importSaveSet(s, toBaseLevel, toBranch, type, cred);
+            checkInitialised();
+            boolean oldAutomatic = this.automatic;
+            setAutomaticSynchronisation(false);
+            Credentials cred = getCredentials(Optional.empty());
+            Object[] obj = pull(cred);
+            ChangeType change = (Boolean) obj[1] ? ChangeType.PULL : ChangeType.SAVE;
+            cred = (Credentials) obj[0];
+            try {
+                if (source.getName().isEmpty()) {
+                    // it is a folder
+                    List<SaveSet> sets = getSaveSets(source.getBaseLevel(), source.getBranch(),
+                        Optional.of(source.getPathAsString()));
+                    for (SaveSet s : sets) {
+                        importSaveSet(s, toBaseLevel, toBranch, type, cred);
+                    }
+                } else {
+                    // single save set
+                    importSaveSet(source, toBaseLevel, toBranch, type, cred);
                 }
-            } else {
-                // single save set
-                importSaveSet(source, toBaseLevel, toBranch, type, cred);
+            } finally {
+                setAutomaticSynchronisation(oldAutomatic);
             }
+            push(cred, true);
+            return new Result<>(true, change);
         } finally {
-            setAutomaticSynchronisation(oldAutomatic);
+            lock.writeLock().unlock();
         }
-        push(cred, true);
-        return new Result<>(true, change);
     }
 
     private void importSaveSet(SaveSet source, Optional<BaseLevel> toBaseLevel, Branch toBranch, ImportType type,
@@ -472,18 +545,23 @@ public class GitManager {
      * @param branch the branch from which to retrieve base levels
      * @return the list of base levels
      */
-    public synchronized List<BaseLevel> getBaseLevels(Branch branch) throws GitAPIException, IOException {
-        setBranch(branch);
-        File[] files = repositoryPath.listFiles();
-        List<BaseLevel> baseLevels = new ArrayList<>();
-        if (files != null) {
-            for (File f : files) {
-                if (f.isDirectory() && f.getName().charAt(0) != '.') {
-                    baseLevels.add(new BaseLevel(branch, f.getName(), f.getName()));
+    public List<BaseLevel> getBaseLevels(Branch branch) throws GitAPIException, IOException {
+        lock.writeLock().lock();
+        try {
+            setBranch(branch);
+            File[] files = repositoryPath.listFiles();
+            List<BaseLevel> baseLevels = new ArrayList<>();
+            if (files != null) {
+                for (File f : files) {
+                    if (f.isDirectory() && f.getName().charAt(0) != '.') {
+                        baseLevels.add(new BaseLevel(branch, f.getName(), f.getName()));
+                    }
                 }
             }
+            return baseLevels;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return baseLevels;
     }
 
     /**
@@ -495,9 +573,14 @@ public class GitManager {
      * @return the list of save sets
      * @throws IOException if the current branch could not be retrieved
      */
-    public synchronized List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch branch)
+    public List<SaveSet> getSaveSets(Optional<BaseLevel> baseLevel, Branch branch)
         throws IOException, GitAPIException {
-        return getSaveSets(baseLevel, branch, Optional.empty());
+        lock.writeLock().lock();
+        try {
+            return getSaveSets(baseLevel, branch, Optional.empty());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -560,18 +643,21 @@ public class GitManager {
      * @param revision optional revision number; if not given head revision is used
      * @return the content of the save set file
      * @throws IOException if there was an error reading the contents of the file
-     * @throws GitAPIException if setting the branch failed
+     * @throws GitAPIException if creating the branch failed
      */
-    public synchronized SaveSetData loadSaveSetData(SaveSet descriptor, Optional<String> revision)
+    public SaveSetData loadSaveSetData(SaveSet descriptor, Optional<String> revision)
         throws IOException, GitAPIException {
-        setBranch(descriptor.getBranch());
-        String path = convertPathToString(descriptor, FileType.SAVE_SET);
+        ensureBranch(descriptor.getBranch());
+        lock.readLock().lock();
         try {
-            return loadFile(revision, path, FileType.SAVE_SET, SaveSetData.class, descriptor);
+            String path = convertPathToString(descriptor, FileType.SAVE_SET);
+            return loadFile(descriptor.getBranch(), revision, path, FileType.SAVE_SET, SaveSetData.class, descriptor);
         } catch (ParseException e) {
             // cannot happen, but just in case, make a log
             SaveRestoreService.LOGGER.log(Level.SEVERE, "Unexpected error when loading save set content", e);
             return null;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -585,34 +671,42 @@ public class GitManager {
      * @throws IOException if the commits could not be read
      * @throws GitAPIException if the commits could not be read
      */
-    public synchronized List<Snapshot> getSnapshots(SaveSet saveSet, int numberOfRevisions,
+    public List<Snapshot> getSnapshots(SaveSet saveSet, int numberOfRevisions,
         Optional<Snapshot> fromThisOneBack) throws IOException, GitAPIException {
-        setBranch(saveSet.getBranch());
-        List<Snapshot> snapshots = new ArrayList<>();
-
-        String path = convertPathToString(saveSet, FileType.SNAPSHOT);
-        path = path.replace(FileType.SAVE_SET.directory, FileType.SNAPSHOT.directory);
-        path = path.replace(FileType.SAVE_SET.suffix, FileType.SNAPSHOT.suffix);
-
-        String rev = fromThisOneBack.isPresent() ? fromThisOneBack.get().getParameters().get(PARAM_GIT_REVISION) : null;
-        List<RevCommit> fileRevisions = findCommitsFor(path, numberOfRevisions, Optional.ofNullable(rev));
-        Map<String, RevTag> tags = loadTagsForRevisions(fileRevisions);
-        String branch = saveSet.getBranch().getShortName();
-        for (RevCommit commit : fileRevisions) {
-            String revision = commit.getName();
-            if (rev != null && rev.equals(revision)) {
-                // do not return the revision that the client already knows
-                continue;
+        ensureBranch(saveSet.getBranch());
+        lock.readLock().lock();
+        try {
+            checkInitialised();
+            List<Snapshot> snapshots = new ArrayList<>();
+
+            String path = convertPathToString(saveSet, FileType.SNAPSHOT);
+            path = path.replace(FileType.SAVE_SET.directory, FileType.SNAPSHOT.directory);
+            path = path.replace(FileType.SAVE_SET.suffix, FileType.SNAPSHOT.suffix);
+
+            String rev = fromThisOneBack.isPresent() ? fromThisOneBack.get().getParameters().get(PARAM_GIT_REVISION)
+                : null;
+            String branch = saveSet.getBranch().getShortName();
+            List<SnapshotIndex.Commit> fileRevisions = findCommitsFor(path, numberOfRevisions,
+                Optional.ofNullable(rev), index.update(repository, branch));
+            SnapshotIndex.Tags tags = index.updateTags(repository, repository.getTags());
+            for (SnapshotIndex.Commit commit : fileRevisions) {
+                String revision = commit.revision;
+                if (rev != null && rev.equals(revision)) {
+                    // do not return the revision that the client already knows
+                    continue;
+                }
+                MetaInfo meta = commit.toMetaInfo();
+                Map<String, String> parameters = new HashMap<>();
+                parameters.put(PARAM_GIT_REVISION, revision);
+                insertTagData(findTag(tags, revision, branch), parameters, revision, branch);
+                Snapshot snapshot = new Snapshot(saveSet, meta.timestamp.toInstant(), meta.comment, meta.creator,
+                    parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters, EMPTY_LIST);
+                snapshots.add(snapshot);
             }
-            MetaInfo meta = getMetaInfoFromCommit(commit);
-            Map<String, String> parameters = new HashMap<>();
-            parameters.put(PARAM_GIT_REVISION, revision);
-            insertTagData(tags.get(revision), parameters, revision, branch);
-            Snapshot snapshot = new Snapshot(saveSet, meta.timestamp.toInstant(), meta.comment, meta.creator,
-                parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters, EMPTY_LIST);
-            snapshots.add(snapshot);
+            return snapshots;
+        } finally {
+            lock.readLock().unlock();
         }
-        return snapshots;
     }
 
     /**
@@ -623,12 +717,18 @@ public class GitManager {
      * @throws ParseException if
      * @throws IOException
      */
-    public synchronized VSnapshot loadSnapshotData(Snapshot snapshot)
+    public VSnapshot loadSnapshotData(Snapshot snapshot)
         throws ParseException, IOException, GitAPIException {
-        setBranch(snapshot.getSaveSet().getBranch());
-        String path = convertPathToString(snapshot.getSaveSet(), FileType.SNAPSHOT);
-        return loadFile(Optional.ofNullable(snapshot.getParameters().get(PARAM_GIT_REVISION)), path, FileType.SNAPSHOT,
-            VSnapshot.class, snapshot);
+        ensureBranch(snapshot.getSaveSet().getBranch());
+        lock.readLock().lock();
+        try {
+            String path = convertPathToString(snapshot.getSaveSet(), FileType.SNAPSHOT);
+            return loadFile(snapshot.getSaveSet().getBranch(),
+                Optional.ofNullable(snapshot.getParameters().get(PARAM_GIT_REVISION)), path, FileType.SNAPSHOT,
+                VSnapshot.class, snapshot);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -640,9 +740,14 @@ public class GitManager {
      * @throws IOException if writing to the file failed
      * @throws GitAPIException if committing the file failed
      */
-    public synchronized Result<SaveSetData> saveSaveSet(SaveSetData data, String comment)
+    public Result<SaveSetData> saveSaveSet(SaveSetData data, String comment)
         throws IOException, GitAPIException {
-        return saveSaveSet(data, comment, null);
+        lock.writeLock().lock();
+        try {
+            return saveSaveSet(data, comment, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -696,38 +801,43 @@ public class GitManager {
      * @throws IOException in case of an error
      * @throws GitAPIException in case of an error
      */
-    public synchronized Result<SaveSet> deleteSaveSet(SaveSet set, String comment) throws IOException, GitAPIException {
-        checkInitialised();
-        SaveSet deleted = null;
-        ChangeType change = ChangeType.NONE;
-        delete: {
-            Credentials cp = getCredentials(Optional.empty());
-            if (cp != null) {
-                setBranch(set.getBranch());
-                change = ChangeType.SAVE;
-                if (automatic) {
-                    Object[] obj = pull(cp);
-                    cp = (Credentials) obj[0];
-                    change = (Boolean) obj[1] ? ChangeType.PULL : change;
-                    if (cp == null) {
-                        break delete;
-                    }
-                }
-                String relativePath = convertPathToString(set, FileType.SAVE_SET);
-                if (deleteFile(relativePath, repositoryPath)) {
-                    deleted = set;
-                    commit(relativePath, new MetaInfo(comment, cp.getUsername(), UNKNOWN, null, null), true);
-                    // delete also the snapshot file
-                    relativePath = convertPathToString(set, FileType.SNAPSHOT);
-                    deleteFile(relativePath, repositoryPath);
-                    commit(relativePath, new MetaInfo(comment, cp.getUsername(), null, null, null), true);
+    public Result<SaveSet> deleteSaveSet(SaveSet set, String comment) throws IOException, GitAPIException {
+        lock.writeLock().lock();
+        try {
+            checkInitialised();
+            SaveSet deleted = null;
+            ChangeType change = ChangeType.NONE;
+            delete: {
+                Credentials cp = getCredentials(Optional.empty());
+                if (cp != null) {
+                    setBranch(set.getBranch());
+                    change = ChangeType.SAVE;
                     if (automatic) {
-                        push(cp, false);
+                        Object[] obj = pull(cp);
+                        cp = (Credentials) obj[0];
+                        change = (Boolean) obj[1] ? ChangeType.PULL : change;
+                        if (cp == null) {
+                            break delete;
+                        }
+                    }
+                    String relativePath = convertPathToString(set, FileType.SAVE_SET);
+                    if (deleteFile(relativePath, repositoryPath)) {
+                        deleted = set;
+                        commit(relativePath, new MetaInfo(comment, cp.getUsername(), UNKNOWN, null, null), true);
+                        // delete also the snapshot file
+                        relativePath = convertPathToString(set, FileType.SNAPSHOT);
+                        deleteFile(relativePath, repositoryPath);
+                        commit(relativePath, new MetaInfo(comment, cp.getUsername(), null, null, null), true);
+                        if (automatic) {
+                            push(cp, false);
+                        }
                     }
                 }
             }
+            return new Result<>(deleted, change);
+        } finally {
+            lock.writeLock().unlock();
         }
-        return new Result<>(deleted, change);
     }
 
     /**
@@ -739,9 +849,14 @@ public class GitManager {
      * @throws IOException if writing the file failed
      * @throws GitAPIException if committing the file failed
      */
-    public synchronized Result<VSnapshot> saveSnapshot(VSnapshot snapshot, String comment)
+    public Result<VSnapshot> saveSnapshot(VSnapshot snapshot, String comment)
         throws IOException, GitAPIException {
-        return saveSnapshot(snapshot, comment, snapshot.getTimestamp(), null);
+        lock.writeLock().lock();
+        try {
+            return saveSnapshot(snapshot, comment, snapshot.getTimestamp(), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -799,10 +914,15 @@ public class GitManager {
      * @throws GitAPIException in case of an error
      * @throws IOException in case of an error
      */
-    public synchronized Branch createBranch(Branch oldBranch, String branch) throws GitAPIException, IOException {
-        setBranch(oldBranch);
-        git.branchCreate().setName(branch).call();
-        return new Branch(branch, branch);
+    public Branch createBranch(Branch oldBranch, String branch) throws GitAPIException, IOException {
+        lock.writeLock().lock();
+        try {
+            setBranch(oldBranch);
+            git.branchCreate().setName(branch).call();
+            return new Branch(branch, branch);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -815,87 +935,70 @@ public class GitManager {
      * @throws IOException if writing the file failed
      * @throws GitAPIException if committing the file failed
      */
-    public synchronized Result<Snapshot> tagSnapshot(Snapshot snapshot, String name, String message)
+    public Result<Snapshot> tagSnapshot(Snapshot snapshot, String name, String message)
         throws IOException, GitAPIException, DataProviderException {
-        if (name != null && TAG_PATTERN.matcher(name).replaceAll("").length() != name.length()) {
-            throw new DataProviderException("Tag name contains invalid characters.");
-        }
-        checkInitialised();
-        Snapshot snp = null;
-        ChangeType change = ChangeType.NONE;
-        tag: {
-            Credentials cp = getCredentials(Optional.empty());
-            if (cp != null) {
-                setBranch(snapshot.getSaveSet().getBranch());
-                change = ChangeType.SAVE;
-                if (automatic) {
-                    Object[] obj = pull(cp);
-                    cp = (Credentials) obj[0];
-                    change = (Boolean) obj[1] ? ChangeType.PULL : change;
-                    if (cp == null) {
-                        break tag;
+        lock.writeLock().lock();
+        try {
+            if (name != null && TAG_PATTERN.matcher(name).replaceAll("").length() != name.length()) {
+                throw new DataProviderException("Tag name contains invalid characters.");
+            }
+            checkInitialised();
+            Snapshot snp = null;
+            ChangeType change = ChangeType.NONE;
+            tag: {
+                Credentials cp = getCredentials(Optional.empty());
+                if (cp != null) {
+                    setBranch(snapshot.getSaveSet().getBranch());
+                    change = ChangeType.SAVE;
+                    if (automatic) {
+                        Object[] obj = pull(cp);
+                        cp = (Credentials) obj[0];
+                        change = (Boolean) obj[1] ? ChangeType.PULL : change;
+                        if (cp == null) {
+                            break tag;
+                        }
                     }
-                }
-                // remove the existing tag
-                String revision = snapshot.getParameters().get(PARAM_GIT_REVISION);
-                RevCommit commit = getCommitFromRevision(revision);
-                RevTag existingTag = loadTagsForRevisions(Arrays.asList(commit)).get(revision);
-                if (existingTag != null) {
-                    git.tagDelete().setTags(existingTag.getTagName()).call();
-                    if (!localOnly) {
-                        RefSpec refSpec = new RefSpec().setSource(null)
-                            .setDestination("refs/tags/" + existingTag.getTagName());
-                        git.push().setCredentialsProvider(toCredentialsProvider(cp)).setRefSpecs(refSpec).call();
+                    // remove the existing tag
+                    String revision = snapshot.getParameters().get(PARAM_GIT_REVISION);
+                    RevCommit commit = getCommitFromRevision(revision);
+                    String branchName = snapshot.getSaveSet().getBranch().getShortName();
+                    SnapshotIndex.Tag existingTag = findTag(index.updateTags(repository, repository.getTags()),
+                        revision, branchName);
+                    if (existingTag != null) {
+                        git.tagDelete().setTags(existingTag.name).call();
+                        if (!localOnly) {
+                            RefSpec refSpec = new RefSpec().setSource(null)
+                                .setDestination("refs/tags/" + existingTag.name);
+                            git.push().setCredentialsProvider(toCredentialsProvider(cp)).setRefSpecs(refSpec).call();
+                        }
                     }
-                }
 
-                Map<String, String> parameters = new HashMap<>();
-                parameters.put(PARAM_GIT_REVISION, revision);
-                String tagName = null;
-                String tagMessage = null;
-                if (name != null && !name.isEmpty()) {
-                    String gitTagName = composeTagName(snapshot.getSaveSet().getBranch(),
-                        snapshot.getSaveSet().getBaseLevel(), snapshot.getSaveSet().getPath(), name);
-                    PersonIdent tagger = new PersonIdent(cp.getUsername(), UNKNOWN);
-                    git.tag().setName(gitTagName).setMessage(message).setTagger(tagger).setObjectId(commit).call();
-                    if (automatic) {
-                        push(cp, true);
+                    Map<String, String> parameters = new HashMap<>();
+                    parameters.put(PARAM_GIT_REVISION, revision);
+                    String tagName = null;
+                    String tagMessage = null;
+                    if (name != null && !name.isEmpty()) {
+                        String gitTagName = composeTagName(snapshot.getSaveSet().getBranch(),
+                            snapshot.getSaveSet().getBaseLevel(), snapshot.getSaveSet().getPath(), name);
+                        PersonIdent tagger = new PersonIdent(cp.getUsername(), UNKNOWN);
+                        git.tag().setName(gitTagName).setMessage(message).setTagger(tagger).setObjectId(commit).call();
+                        if (automatic) {
+                            push(cp, true);
+                        }
+                        parameters.put(PARAM_GIT_TAG_NAME, gitTagName);
+                        parameters.put(PARAM_TAG_CREATOR, cp.getUsername());
+                        tagName = name;
+                        tagMessage = message;
                     }
-                    parameters.put(PARAM_GIT_TAG_NAME, gitTagName);
-                    parameters.put(PARAM_TAG_CREATOR, cp.getUsername());
-                    tagName = name;
-                    tagMessage = message;
-                }
-                snp = new Snapshot(snapshot.getSaveSet(), snapshot.getDate(), snapshot.getComment(),
-                    snapshot.getOwner(), tagName, tagMessage, parameters, EMPTY_LIST);
-            }
-        }
-        return new Result<>(snp, change);
-    }
-
-    /**
-     * Load the tags for the list of revisions provided as parameter. The tags are returned in a map, where the key is
-     * the revision name and the value is the actual tag object.
-     *
-     * @param revisions the list of revisions for which to load the tags
-     * @return the map of all revision and tags pairs
-     * @throws GitAPIException if there was an error loading the tags
-     * @throws IOException in case of an IO error
-     */
-    private Map<String, RevTag> loadTagsForRevisions(List<RevCommit> revisions) throws GitAPIException, IOException {
-        Map<String, Ref> tags = repository.getTags();
-        Map<String, RevTag> ret = new HashMap<>();
-        try (RevWalk walk = new RevWalk(repository)) {
-            for (RevCommit rev : revisions) {
-                String s = Git.wrap(repository).describe().setTarget(rev).call();
-                Ref tt = tags.get(s);
-                if (tt != null) {
-                    RevTag t = walk.parseTag(tt.getObjectId());
-                    ret.put(rev.getName(), t);
+                    updateIndex();
+                    snp = new Snapshot(snapshot.getSaveSet(), snapshot.getDate(), snapshot.getComment(),
+                        snapshot.getOwner(), tagName, tagMessage, parameters, EMPTY_LIST);
                 }
             }
+            return new Result<>(snp, change);
+        } finally {
+            lock.writeLock().unlock();
         }
-        return ret;
     }
 
     /**
@@ -921,6 +1024,7 @@ public class GitManager {
                 new PersonIdent(metaInfo.creator, metaInfo.eMail, metaInfo.timestamp, TimeZone.getTimeZone("GMT")));
         }
         RevCommit commit = command.call();
+        updateIndex();
         return getMetaInfoFromCommit(commit);
     }
 
@@ -1030,65 +1134,51 @@ public class GitManager {
     }
 
     /**
-     * @return the head commit.
+     * @param branch the branch
+     * @return the head commit of the given branch.
      *
      * @throws IOException if exception occurs
      */
-    private RevCommit getHeadCommit() throws IOException {
+    private RevCommit getBranchHeadCommit(Branch branch) throws IOException {
         try (RevWalk revWalk = new RevWalk(repository)) {
-            return revWalk.parseCommit(repository.resolve(Constants.HEAD));
+            return revWalk.parseCommit(repository.resolve(Constants.R_HEADS + branch.getShortName()));
         }
     }
 
     /**
-     * Retrieves the specified number of revisions of the given file. If the requested number is less than 1, all
-     * revisions are returned.
+     * Retrieves the specified number of revisions of the given file from the indexed branch. If the requested number
+     * is less than 1, all revisions are returned. Revisions which deleted or renamed any file are skipped.
      *
      * @param filePath file path
      * @param numberOfSnapshots number of snapshots revisions to load
      * @param fromRevisionBack the revision at which to start
+     * @param branch the indexed branch
      *
      * @return all revisions of the given file.
      */
-    private List<RevCommit> findCommitsFor(String filePath, int numberOfsnapshots, Optional<String> fromRevisionBack)
-        throws GitAPIException, IOException {
-        List<RevCommit> commitsList = new ArrayList<>();
-        ObjectId obj = fromRevisionBack.isPresent() ? ObjectId.fromString(fromRevisionBack.get())
-            : repository.resolve(Constants.HEAD);
-        LogCommand log = git.log().add(obj).addPath(filePath);
+    private static List<SnapshotIndex.Commit> findCommitsFor(String filePath, int numberOfsnapshots,
+        Optional<String> fromRevisionBack, SnapshotIndex.BranchData branch) {
+        List<SnapshotIndex.Commit> commitsList = new ArrayList<>();
+        int start = 0;
+        if (fromRevisionBack.isPresent()) {
+            String revision = fromRevisionBack.get();
+            while (start < branch.commits.size() && !revision.equals(branch.commits.get(start).revision)) {
+                start++;
+            }
+        }
+        int num = Integer.MAX_VALUE;
         if (numberOfsnapshots > 0) {
             // in case we are not going from the head, increase the number of logs by one, because we
             // don't need to first revision, which is already the same as fromRevisionBack
-            int num = fromRevisionBack.isPresent() ? numberOfsnapshots + 1 : numberOfsnapshots;
-            log.setMaxCount(num);
+            num = fromRevisionBack.isPresent() ? numberOfsnapshots + 1 : numberOfsnapshots;
         }
-        Iterable<RevCommit> commits = log.call();
-        // in theory diff is not needed here if everybody only used the Save and Restore application on this repository
-        // however, if someone manually changed the path to a file there can be an issue. Doing a diff increases the
-        // search time for ~70%
-        try (RevWalk revWalk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
-            for (RevCommit commit : commits) {
-                boolean renamed = false;
-                AbstractTreeIterator oldTreeIterator = new EmptyTreeIterator();
-                if (commit.getParents().length != 0) {
-                    RevCommit parentCommit = revWalk.parseCommit(commit.getParents()[0].getId());
-                    oldTreeIterator = new CanonicalTreeParser(null, objectReader, parentCommit.getTree());
-                }
-                AbstractTreeIterator newTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getTree());
-                try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-                    diffFormatter.setRepository(repository);
-                    diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-                    diffFormatter.setDetectRenames(true);
-                    List<DiffEntry> diffs = diffFormatter.scan(oldTreeIterator, newTreeIterator);
-                    for (DiffEntry diff : diffs) {
-                        if (diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.DELETE
-                            || diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.RENAME) {
-                            renamed = true;
-                            break;
-                        }
-                    }
-                }
-                if (!renamed) {
+        for (int i = start; i < branch.commits.size() && num > 0; i++) {
+            SnapshotIndex.Commit commit = branch.commits.get(i);
+            if (commit.paths.contains(filePath)) {
+                num--;
+                // in theory this is not needed if everybody only used the Save and Restore application on this
+                // repository, however, if someone manually changed the path to a file there can be an issue
+                if (!commit.removal) {
                     commitsList.add(commit);
                 }
             }
@@ -1108,17 +1198,16 @@ public class GitManager {
      * @throws GitAPIException in case of a git error
      * @throws IOException in case of an IO error
      */
-    public synchronized List<Snapshot> findSnapshotsByTag(String partialTagNameOrMessage, Branch branch,
+    public List<Snapshot> findSnapshotsByTag(String partialTagNameOrMessage, Branch branch,
         Optional<Date> start, Optional<Date> end) throws GitAPIException, IOException {
         final Pattern pattern = Pattern.compile(".*" + partialTagNameOrMessage.toLowerCase(Locale.UK) + ".*");
-        return findSnapshotsByTag(branch, start, end, (w, r, n) -> {
+        return findSnapshotsByTag(branch, start, end, (n, t) -> {
             String tagName = n.substring(n.indexOf('(') + 1, n.length() - 1).toLowerCase(Locale.UK);
             if (pattern.matcher(tagName).matches()) {
-                return w.parseTag(r.getObjectId());
+                return true;
             } else {
-                RevTag tag = w.parseTag(r.getObjectId());
-                String message = tag.getFullMessage().toLowerCase(Locale.UK).replace("\n", " ");
-                return pattern.matcher(message).matches() ? tag : null;
+                String message = t.message.toLowerCase(Locale.UK).replace("\n", " ");
+                return pattern.matcher(message).matches();
             }
         });
     }
@@ -1135,13 +1224,12 @@ public class GitManager {
      * @throws GitAPIException in case of a git error
      * @throws IOException in case of an IO error
      */
-    public synchronized List<Snapshot> findSnapshotsByTagMessage(String partialMessage, Branch branch,
+    public List<Snapshot> findSnapshotsByTagMessage(String partialMessage, Branch branch,
         Optional<Date> start, Optional<Date> end) throws GitAPIException, IOException {
         final Pattern pattern = Pattern.compile(".*" + partialMessage.toLowerCase(Locale.UK) + ".*");
-        return findSnapshotsByTag(branch, start, end, (w, r, n) -> {
-            RevTag tag = w.parseTag(r.getObjectId());
-            String message = tag.getFullMessage().toLowerCase().replace("\n", " ");
-            return pattern.matcher(message).matches() ? tag : null;
+        return findSnapshotsByTag(branch, start, end, (n, t) -> {
+            String message = t.message.toLowerCase().replace("\n", " ");
+            return pattern.matcher(message).matches();
         });
     }
 
@@ -1157,44 +1245,39 @@ public class GitManager {
      * @throws GitAPIException in case of a git error
      * @throws IOException in case of an IO error
      */
-    public synchronized List<Snapshot> findSnapshotsByTagName(String partialTagName, Branch branch,
+    public List<Snapshot> findSnapshotsByTagName(String partialTagName, Branch branch,
         Optional<Date> start, Optional<Date> end) throws GitAPIException, IOException {
         final Pattern pattern = Pattern.compile(".*" + partialTagName.toLowerCase(Locale.UK) + ".*");
-        return findSnapshotsByTag(branch, start, end, (w, r, n) -> {
+        return findSnapshotsByTag(branch, start, end, (n, t) -> {
             String tagName = n.substring(n.indexOf('(') + 1, n.length() - 1).toLowerCase();
-            return pattern.matcher(tagName).matches() ? w.parseTag(r.getObjectId()) : null;
+            return pattern.matcher(tagName).matches();
         });
     }
 
     /**
-     * Find all snapshots that are tagged and can be matched by the given trifunction.
+     * Find all snapshots that are tagged and can be matched by the given predicate.
      *
      * @param branch the name of the branch on which the snapshot should be located
      * @param start only commits done after start will be accepted
      * @param end only commits done before end will be accepted
-     * @param f function that receives the revision walk, the tag reference, the nice tag name and returns the actual
-     *            revision tag if the tag is accepted or null if rejected
+     * @param f predicate that receives the nice tag name and the indexed tag and returns true if the tag is accepted
      * @return the list of all snapshots that match criterion
      * @throws GitAPIException in case of a Git related error
      * @throws IOException in case of an IO error
      */
     private List<Snapshot> findSnapshotsByTag(Branch branch, Optional<Date> start, Optional<Date> end,
-        TriFunction<RevWalk, Ref, String, RevTag> f) throws GitAPIException, IOException {
-        setBranch(branch);
-        List<Snapshot> snapshots = new ArrayList<>();
-        Map<String, Ref> tags = repository.getTags();
-        String branchName = new StringBuilder(branch.getShortName().length() + 2).append('(')
-            .append(branch.getShortName()).append(')').toString();
-        try (RevWalk walk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
-            RevFilter timeFilter = null;
-            if (start.isPresent() && end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.between(start.get(), end.get());
-            } else if (start.isPresent()) {
-                timeFilter = CommitTimeRevFilter.after(start.get());
-            } else if (end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.before(end.get());
-            }
-            for (Map.Entry<String, Ref> r : tags.entrySet()) {
+        BiPredicate<String, SnapshotIndex.Tag> f) throws GitAPIException, IOException {
+        ensureBranch(branch);
+        lock.readLock().lock();
+        try {
+            checkInitialised();
+            List<Snapshot> snapshots = new ArrayList<>();
+            SnapshotIndex.BranchData data = index.update(repository, branch.getShortName());
+            SnapshotIndex.Tags tags = index.updateTags(repository, repository.getTags());
+            String branchName = new StringBuilder(branch.getShortName().length() + 2).append('(')
+                .append(branch.getShortName()).append(')').toString();
+            Predicate<SnapshotIndex.Commit> timeFilter = createTimeFilter(start, end);
+            for (Map.Entry<String, SnapshotIndex.Tag> r : tags.byName.entrySet()) {
                 String name = r.getKey();
                 // check if the tag branch name is correct
                 if (name.charAt(0) == '(') {
@@ -1204,60 +1287,27 @@ public class GitManager {
                         continue;
                     }
                 }
-                RevTag tag = f.apply(walk, r.getValue(), name);
-                if (tag != null) {
-                    String revision = tag.getObject().getId().getName();
-                    RevCommit commit = getCommitFromRevision(revision);
-                    if (timeFilter != null) {
-                        try {
-                            if (!timeFilter.include(walk, commit)) {
-                                continue;
-                            }
-                        } catch (StopWalkException e) {
-                            // thrown by the filter, because it expects that commit times are ordered. That is generally
-                            // true, but not in this case, because we are not walking through the tree
-                            continue;
-                        }
-                    }
-                    getPathFromCommit(commit, walk, objectReader)
-                        .ifPresent(p -> pathToSaveSet(p, repositoryPath, branch, FileType.SNAPSHOT).ifPresent(e -> {
-                            MetaInfo meta = getMetaInfoFromCommit(commit);
-                            Map<String, String> parameters = new HashMap<>();
-                            insertTagData(tag, parameters, revision, branch.getShortName());
-                            snapshots.add(new Snapshot(e, meta.timestamp.toInstant(), meta.comment, meta.creator,
-                                parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters,
-                                EMPTY_LIST));
-                        }));
+                SnapshotIndex.Tag tag = r.getValue();
+                if (!f.test(name, tag)) {
+                    continue;
                 }
-            }
-        }
-        return snapshots;
-    }
-
-    private Optional<String> getPathFromCommit(RevCommit commit, RevWalk walk, ObjectReader objectReader)
-        throws GitAPIException, IOException {
-        // Utility method to get the path to the snapshot file that changed in the given commit.
-        // Should always at most one.
-        AbstractTreeIterator oldTreeIterator = new EmptyTreeIterator();
-        if (commit.getParents().length != 0) {
-            RevCommit parentCommit = walk.parseCommit(commit.getParents()[0].getId());
-            oldTreeIterator = new CanonicalTreeParser(null, objectReader, parentCommit.getTree());
-        }
-        AbstractTreeIterator newTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getTree());
-        try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-            diffFormatter.setRepository(repository);
-            diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-            List<DiffEntry> diffs = diffFormatter.scan(oldTreeIterator, newTreeIterator);
-            for (DiffEntry diff : diffs) {
-                if (diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.DELETE
-                    || diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.RENAME
-                    || !diff.getNewPath().endsWith(FileType.SNAPSHOT.suffix)) {
+                Optional<SnapshotIndex.Commit> commit = index.getCommit(repository, tag.revision);
+                if (!commit.isPresent() || (timeFilter != null && !timeFilter.test(commit.get()))) {
                     continue;
                 }
-                return Optional.of(diff.getNewPath());
+                pathToSaveSet(commit.get().paths.get(0), data.saveSets, branch, FileType.SNAPSHOT).ifPresent(e -> {
+                    MetaInfo meta = commit.get().toMetaInfo();
+                    Map<String, String> parameters = new HashMap<>();
+                    insertTagData(tag, parameters, tag.revision, branch.getShortName());
+                    snapshots.add(new Snapshot(e, meta.timestamp.toInstant(), meta.comment, meta.creator,
+                        parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters,
+                        EMPTY_LIST));
+                });
             }
+            return snapshots;
+        } finally {
+            lock.readLock().unlock();
         }
-        return Optional.empty();
     }
 
     /**
@@ -1266,7 +1316,7 @@ public class GitManager {
      * provided, only commits that belong to that time range are search and any snapshot with a comment or user that
      * contain the partial text and is located on the given branch matches the criteria. This method is faster than
      * making separate search for user and comment and combining the results, because this method only traverses the
-     * revision tree once.
+     * indexed commits once.
      *
      * @param partialText the partial comment or username that we search for
      * @param branch the branch on which to search
@@ -1278,89 +1328,86 @@ public class GitManager {
      * @throws IOException in case of an error
      * @throws GitAPIException in case of branch checkout or tags loading error
      */
-    public synchronized List<Snapshot> findSnapshotsByCommentOrUser(String partialText, final Branch branch,
+    public List<Snapshot> findSnapshotsByCommentOrUser(String partialText, final Branch branch,
         boolean byComment, boolean byUser, Optional<Date> start, Optional<Date> end)
             throws IOException, GitAPIException {
-        setBranch(branch);
-        List<Snapshot> snapshots = new ArrayList<>();
-        List<RevCommit> revisions = new ArrayList<>();
-        try (RevWalk revWalk = new RevWalk(repository); ObjectReader objectReader = repository.newObjectReader()) {
-            revWalk.markStart(getHeadCommit());
-            RevFilter userCommentFilter = null;
+        Predicate<SnapshotIndex.Commit> userCommentFilter = null;
+        if (byComment || byUser) {
+            // same as the git message and committer filters: case insensitive and the text may be a regular expression
+            final Pattern pattern = Pattern.compile(partialText, Pattern.CASE_INSENSITIVE);
+            Predicate<SnapshotIndex.Commit> commentFilter = c -> c.comment != null
+                && pattern.matcher(c.comment).find();
+            Predicate<SnapshotIndex.Commit> userFilter = c -> pattern
+                .matcher(c.creator + " <" + c.email + ">").find();
             if (byComment && byUser) {
-                userCommentFilter = OrRevFilter.create(MessageRevFilter.create(partialText),
-                    CommitterRevFilter.create(partialText));
+                userCommentFilter = commentFilter.or(userFilter);
             } else if (byComment) {
-                userCommentFilter = MessageRevFilter.create(partialText);
-            } else if (byUser) {
-                userCommentFilter = CommitterRevFilter.create(partialText);
-            }
-            RevFilter timeFilter = null;
-            if (start.isPresent() && end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.between(start.get(), end.get());
-            } else if (start.isPresent()) {
-                timeFilter = CommitTimeRevFilter.after(start.get());
-            } else if (end.isPresent()) {
-                timeFilter = CommitTimeRevFilter.before(end.get());
-            }
-            if (userCommentFilter == null && timeFilter == null) {
-                throw new IllegalArgumentException("No search parameters provided.");
-            } else if (userCommentFilter != null && timeFilter != null) {
-                revWalk.setRevFilter(AndRevFilter.create(userCommentFilter, timeFilter));
-            } else if (userCommentFilter != null) {
-                revWalk.setRevFilter(userCommentFilter);
+                userCommentFilter = commentFilter;
             } else {
-                revWalk.setRevFilter(timeFilter);
+                userCommentFilter = userFilter;
             }
-            for (RevCommit commit : revWalk) {
-                AbstractTreeIterator oldTreeIterator = new EmptyTreeIterator();
-                if (commit.getParents().length != 0) {
-                    oldTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getParents()[0].getTree());
+        }
+        Predicate<SnapshotIndex.Commit> timeFilter = createTimeFilter(start, end);
+        final Predicate<SnapshotIndex.Commit> filter;
+        if (userCommentFilter == null && timeFilter == null) {
+            throw new IllegalArgumentException("No search parameters provided.");
+        } else if (userCommentFilter != null && timeFilter != null) {
+            filter = userCommentFilter.and(timeFilter);
+        } else if (userCommentFilter != null) {
+            filter = userCommentFilter;
+        } else {
+            filter = timeFilter;
+        }
+        ensureBranch(branch);
+        lock.readLock().lock();
+        try {
+            checkInitialised();
+            final List<Snapshot> snapshots = new ArrayList<>();
+            final String branchName = branch.getShortName();
+            SnapshotIndex.BranchData data = index.update(repository, branchName);
+            SnapshotIndex.Tags tags = index.updateTags(repository, repository.getTags());
+            for (SnapshotIndex.Commit commit : data.commits) {
+                if (!filter.test(commit)) {
+                    continue;
                 }
-                AbstractTreeIterator newTreeIterator = new CanonicalTreeParser(null, objectReader, commit.getTree());
-                try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-                    diffFormatter.setRepository(repository);
-                    diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-                    diffFormatter.setDetectRenames(true);
-                    List<DiffEntry> diffs = diffFormatter.scan(oldTreeIterator, newTreeIterator);
-                    for (DiffEntry diff : diffs) {
-                        if (diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.DELETE
-                            || diff.getChangeType() == org.eclipse.jgit.diff.DiffEntry.ChangeType.RENAME
-                            || !diff.getNewPath().endsWith(FileType.SNAPSHOT.suffix)) {
-                            continue;
-                        }
-                        pathToSaveSet(diff.getNewPath(), repositoryPath, branch, FileType.SNAPSHOT).ifPresent(e -> {
-                            MetaInfo mi = getMetaInfoFromCommit(commit);
-                            Map<String, String> parameters = new HashMap<>();
-                            parameters.put(PARAM_GIT_REVISION, mi.revision);
-                            revisions.add(commit);
-                            snapshots.add(new Snapshot(e, mi.timestamp.toInstant(), mi.comment, mi.creator, parameters,
-                                new ArrayList<>(0)));
-                        });
-                    }
+                for (String path : commit.paths) {
+                    pathToSaveSet(path, data.saveSets, branch, FileType.SNAPSHOT).ifPresent(e -> {
+                        MetaInfo mi = commit.toMetaInfo();
+                        Map<String, String> parameters = new HashMap<>();
+                        insertTagData(findTag(tags, mi.revision, branchName), parameters, mi.revision, branchName);
+                        snapshots.add(new Snapshot(e, mi.timestamp.toInstant(), mi.comment, mi.creator,
+                            parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters,
+                            EMPTY_LIST));
+                    });
                 }
             }
+            return snapshots;
+        } finally {
+            lock.readLock().unlock();
         }
-        final Map<String, RevTag> tags = loadTagsForRevisions(revisions);
-        final List<Snapshot> ret = new ArrayList<>();
-        final String branchName = branch.getShortName();
-        snapshots.forEach(s -> {
-            String revision = s.getParameters().get(PARAM_GIT_REVISION);
-            if (tags.get(revision) == null) {
-                ret.add(s);
-            } else {
-                Map<String, String> parameters = new HashMap<>(s.getParameters());
-                insertTagData(tags.get(revision), parameters, revision, branchName);
-                ret.add(new Snapshot(s.getSaveSet(), s.getDate(), s.getComment(), s.getOwner(),
-                    parameters.remove(PARAM_TAG_NAME), parameters.remove(PARAM_TAG_MESSAGE), parameters, EMPTY_LIST));
-            }
-        });
-        return ret;
+    }
+
+    /**
+     * Creates a filter that accepts the commits made in the given time window. As in git, the times are compared with
+     * a resolution of one second.
+     *
+     * @param start only commits done after start will be accepted
+     * @param end only commits done before end will be accepted
+     * @return the filter or null if neither start nor end are provided
+     */
+    private static Predicate<SnapshotIndex.Commit> createTimeFilter(Optional<Date> start, Optional<Date> end) {
+        if (!start.isPresent() && !end.isPresent()) {
+            return null;
+        }
+        final long from = start.isPresent() ? start.get().getTime() / 1000L : Long.MIN_VALUE;
+        final long to = end.isPresent() ? end.get().getTime() / 1000L : Long.MAX_VALUE;
+        return c -> c.commitTime >= from && c.commitTime <= to;
     }
 
     /**
      * Read the contents of the file.
      *
+     * @param branch the branch from which the file is loaded if the revision is not given
      * @param revision the revision to load
      * @param path the path to the file (relative to the repository root)
      * @param fileType the type of file that is being loaded
@@ -1371,9 +1418,10 @@ public class GitManager {
      * @throws ParseException if parsing the timestamp data failed (for snapshots only)
      * @throws IOException if reading the data failed
      */
-    private <T> T loadFile(Optional<String> revision, String path, FileType fileType, Class<T> type, Object descriptor)
-        throws ParseException, IOException {
-        RevCommit revCommit = revision.isPresent() ? getCommitFromRevision(revision.get()) : getHeadCommit();
+    private <T> T loadFile(Branch branch, Optional<String> revision, String path, FileType fileType, Class<T> type,
+        Object descriptor) throws ParseException, IOException {
+        RevCommit revCommit = revision.isPresent() ? getCommitFromRevision(revision.get())
+            : getBranchHeadCommit(branch);
         try (ObjectReader objectReader = repository.newObjectReader(); TreeWalk treeWalk = new TreeWalk(objectReader)) {
             CanonicalTreeParser treeParser = new CanonicalTreeParser();
             treeParser.reset(objectReader, revCommit.getTree());
@@ -1481,18 +1529,17 @@ public class GitManager {
     }
 
     /**
-     * Converts the <code>pathToFile</code> to a save set. The repository is expected to be checkout on the correct
-     * branch. If the path is valid so that the save set can be determined and if the file actually still exists at the
-     * HEAD of the branch, it is returned. If the path is not valid, or the file does not exist, an empty object is
-     * returned.
+     * Converts the <code>pathToFile</code> to a save set. If the path is valid so that the save set can be determined
+     * and if the file actually still exists at the HEAD of the branch, it is returned. If the path is not valid, or the
+     * file does not exist, an empty object is returned.
      *
      * @param pathToFile the path to file
-     * @param repositoryPath the path to the root of the repository
+     * @param saveSets the paths of all save set files at the HEAD of the branch
      * @param branch the branch for the save set
      * @param fromType the type of the file under the given path
      * @return the save set if found or empty if not found
      */
-    private static Optional<SaveSet> pathToSaveSet(String pathToFile, File repositoryPath, Branch branch,
+    private static Optional<SaveSet> pathToSaveSet(String pathToFile, Set<String> saveSets, Branch branch,
         FileType fromType) {
         String[] p = pathToFile.split(GIT_PATH_DELIMITER);
         BaseLevel baseLevel = null;
@@ -1524,8 +1571,7 @@ public class GitManager {
         }
         SaveSet saveSet = new SaveSet(branch, Optional.ofNullable(baseLevel), newPath, GitDataProvider.ID);
         String path = convertPathToString(saveSet, FileType.SAVE_SET);
-        File fullPath = new File(repositoryPath, path);
-        return fullPath.exists() ? Optional.of(saveSet) : Optional.empty();
+        return saveSets.contains(path) ? Optional.of(saveSet) : Optional.empty();
     }
 
     /**
@@ -1688,6 +1734,24 @@ public class GitManager {
         return sb.toString();
     }
 
+    /**
+     * Find the tag of the given revision, which belongs to the given branch. Tags that do not specify the branch
+     * belong to all branches.
+     *
+     * @param tags all tags
+     * @param revision the revision hash
+     * @param branchName the branch name for which the tag should be loaded
+     * @return the tag or null if the revision is not tagged on the branch
+     */
+    private static SnapshotIndex.Tag findTag(SnapshotIndex.Tags tags, String revision, String branchName) {
+        for (SnapshotIndex.Tag tag : tags.forRevision(revision)) {
+            if (tag.name.charAt(0) != '(' || branchName.equals(tag.name.substring(1, tag.name.indexOf(')')))) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
     /**
      * Check if the tags contain a tag for the given revision and if yes, fill in the parameters map with the important
      * tag information.
@@ -1698,11 +1762,11 @@ public class GitManager {
      * @param branchName the branch name for which the tag should be loaded
      * @return true if the tag exists or false otherwise
      */
-    private static boolean insertTagData(RevTag tag, Map<String, String> parameters, String revision,
+    private static boolean insertTagData(SnapshotIndex.Tag tag, Map<String, String> parameters, String revision,
         String branchName) {
         parameters.put(PARAM_GIT_REVISION, revision);
         if (tag != null) {
-            String niceTagName = tag.getTagName();
+            String niceTagName = tag.name;
             boolean acceptTag = true;
             if (niceTagName.charAt(0) == '(') {
                 String branch = niceTagName.substring(1, niceTagName.indexOf(')'));
@@ -1716,9 +1780,9 @@ public class GitManager {
                     niceTagName = niceTagName.substring(niceTagName.lastIndexOf('(') + 1, niceTagName.length() - 1);
                 }
                 parameters.put(PARAM_TAG_NAME, niceTagName);
-                parameters.put(PARAM_GIT_TAG_NAME, tag.getTagName());
-                parameters.put(PARAM_TAG_MESSAGE, tag.getFullMessage());
-                parameters.put(PARAM_TAG_CREATOR, tag.getTaggerIdent().getName());
+                parameters.put(PARAM_GIT_TAG_NAME, tag.name);
+                parameters.put(PARAM_TAG_MESSAGE, tag.message);
+                parameters.put(PARAM_TAG_CREATOR, tag.tagger);
                 return true;
             }
         }
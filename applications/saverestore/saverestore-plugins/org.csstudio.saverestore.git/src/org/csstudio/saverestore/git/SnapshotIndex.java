@@ -0,0 +1,567 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * Contact Information:
+ *   Facility for Rare Isotope Beam
+ *   Michigan State University
+ *   East Lansing, MI 48824-1321
+ *   http://frib.msu.edu
+ */
+package org.csstudio.saverestore.git;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+import org.csstudio.saverestore.SaveRestoreService;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+/**
+ * <code>SnapshotIndex</code> is an index of the commits that changed snapshot files, the tags and the save set files of
+ * each branch in the repository. The index is stored in the git directory, so that it survives restarts, and is
+ * updated incrementally: when the head of a branch moves forward only the new commits are read, when it moves in any
+ * other way (e.g. the branch was recreated) the history of the branch is indexed again. Commits that have already been
+ * read for another branch are never read again.
+ * <p>
+ * All methods are thread safe. The branch and tag data returned by this index are immutable, so they can be used
+ * without holding any locks.
+ */
+final class SnapshotIndex {
+
+    /** The name of the index file in the git directory */
+    static final String FILE_NAME = "saverestore-index";
+
+    private static final int MAGIC = 0x53524958;
+    private static final int VERSION = 1;
+
+    /**
+     * <code>Commit</code> describes a commit, which added or modified at least one snapshot file.
+     */
+    static final class Commit {
+        final String revision;
+        // commit time in seconds, which is what the git commit time filters compare
+        final int commitTime;
+        final String comment;
+        final String creator;
+        final String email;
+        final long timestamp;
+        // true if the commit deleted or renamed any file
+        final boolean removal;
+        // paths of the snapshot files added or modified by this commit
+        final List<String> paths;
+
+        Commit(String revision, int commitTime, String comment, String creator, String email, long timestamp,
+            boolean removal, List<String> paths) {
+            this.revision = revision;
+            this.commitTime = commitTime;
+            this.comment = comment;
+            this.creator = creator;
+            this.email = email;
+            this.timestamp = timestamp;
+            this.removal = removal;
+            this.paths = Collections.unmodifiableList(paths);
+        }
+
+        /**
+         * @return the meta info describing this commit
+         */
+        MetaInfo toMetaInfo() {
+            return new MetaInfo(comment, creator, email, new Date(timestamp), revision);
+        }
+    }
+
+    /**
+     * <code>Tag</code> describes an annotated tag.
+     */
+    static final class Tag {
+        final String name;
+        final String revision;
+        final String message;
+        final String tagger;
+        // id of the tag object, used to detect if the tag was replaced
+        private final String id;
+
+        Tag(String name, String id, String revision, String message, String tagger) {
+            this.name = name;
+            this.id = id;
+            this.revision = revision;
+            this.message = message;
+            this.tagger = tagger;
+        }
+    }
+
+    /**
+     * <code>Tags</code> is an immutable view of all annotated tags in the repository.
+     */
+    static final class Tags {
+        // tags sorted by name
+        final Map<String, Tag> byName;
+        private final Map<String, List<Tag>> byRevision;
+
+        private Tags(Map<String, Tag> byName) {
+            this.byName = Collections.unmodifiableMap(byName);
+            this.byRevision = new HashMap<>(byName.size());
+            byName.values().forEach(t -> byRevision.computeIfAbsent(t.revision, r -> new ArrayList<>(1)).add(t));
+        }
+
+        /**
+         * @param revision the commit revision
+         * @return all tags of the given commit
+         */
+        List<Tag> forRevision(String revision) {
+            List<Tag> tags = byRevision.get(revision);
+            return tags == null ? Collections.emptyList() : Collections.unmodifiableList(tags);
+        }
+    }
+
+    /**
+     * <code>BranchData</code> is an immutable view of the indexed data of a single branch.
+     */
+    static final class BranchData {
+        // id of the head commit
+        final String head;
+        // all snapshot commits reachable from the head in the revision walk order (newest first)
+        final List<Commit> commits;
+        // paths of all save set files at the head
+        final Set<String> saveSets;
+
+        private BranchData(String head, List<Commit> commits, Set<String> saveSets) {
+            this.head = head;
+            this.commits = Collections.unmodifiableList(commits);
+            this.saveSets = Collections.unmodifiableSet(saveSets);
+        }
+    }
+
+    private static final BranchData EMPTY_BRANCH = new BranchData(null, new ArrayList<>(0), new HashSet<>(0));
+
+    private final File file;
+    private final Map<String, Commit> commits = new HashMap<>();
+    // revisions of commits that do not change any snapshot files
+    private final Set<String> otherCommits = new HashSet<>();
+    private final Map<String, BranchData> branches = new HashMap<>();
+    private Tags tags = new Tags(new TreeMap<>());
+    // ids of the lightweight tags by tag name
+    private Map<String, String> otherTags = new HashMap<>();
+
+    /**
+     * Constructs a new index and loads the previously stored data from the given file if it exists.
+     *
+     * @param file the file in which the index is stored
+     */
+    SnapshotIndex(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Brings the index of the given branch up to date and returns it. If the branch does not exist, empty data is
+     * returned.
+     *
+     * @param repository the repository to read the data from
+     * @param branch the short name of the branch
+     * @return the indexed data of the branch
+     * @throws IOException if the repository could not be read
+     */
+    synchronized BranchData update(Repository repository, String branch) throws IOException {
+        ObjectId headId = repository.resolve(Constants.R_HEADS + branch);
+        if (headId == null) {
+            return EMPTY_BRANCH;
+        }
+        BranchData data = branches.get(branch);
+        if (data != null && headId.getName().equals(data.head)) {
+            return data;
+        }
+        long start = System.nanoTime();
+        List<Commit> newCommits = new ArrayList<>();
+        List<Commit> oldCommits = Collections.emptyList();
+        Set<String> saveSets = new HashSet<>();
+        try (ObjectReader reader = repository.newObjectReader(); RevWalk walk = new RevWalk(reader);
+            DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setRepository(repository);
+            formatter.setDiffComparator(RawTextComparator.DEFAULT);
+            formatter.setDetectRenames(true);
+            RevCommit head = walk.parseCommit(headId);
+            RevCommit oldHead = data == null ? null : parseCommit(walk, data.head);
+            if (oldHead != null && walk.isMergedInto(oldHead, head)) {
+                // branch moved forward, only read the new commits
+                oldCommits = data.commits;
+                walk.reset();
+                walk.markUninteresting(oldHead);
+            } else {
+                walk.reset();
+            }
+            walk.markStart(head);
+            for (RevCommit commit : walk) {
+                String revision = commit.getName();
+                Commit c = commits.get(revision);
+                if (c == null && !otherCommits.contains(revision)) {
+                    c = readCommit(commit, walk, reader, formatter);
+                    if (c == null) {
+                        otherCommits.add(revision);
+                    } else {
+                        commits.put(revision, c);
+                    }
+                }
+                if (c != null) {
+                    newCommits.add(c);
+                }
+            }
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.addTree(head.getTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(PathSuffixFilter.create(FileType.SAVE_SET.suffix));
+                while (treeWalk.next()) {
+                    saveSets.add(treeWalk.getPathString());
+                }
+            }
+        }
+        List<Commit> all = new ArrayList<>(newCommits.size() + oldCommits.size());
+        all.addAll(newCommits);
+        all.addAll(oldCommits);
+        data = new BranchData(headId.getName(), all, saveSets);
+        branches.put(branch, data);
+        SaveRestoreService.LOGGER.log(Level.FINE, "Indexed {0} new snapshot commits on branch {1} in {2} ms.",
+            new Object[] { newCommits.size(), branch, (System.nanoTime() - start) / 1000000 });
+        store();
+        return data;
+    }
+
+    /**
+     * Brings the tags up to date with the given tag references and returns them. Only the tags that were added or
+     * replaced since the last update are read from the repository. Lightweight tags are ignored.
+     *
+     * @param repository the repository to read the tags from
+     * @param refs the tag references by tag name
+     * @return all annotated tags
+     * @throws IOException if the tags could not be read
+     */
+    synchronized Tags updateTags(Repository repository, Map<String, Ref> refs) throws IOException {
+        boolean changed = refs.size() != tags.byName.size() + otherTags.size();
+        Map<String, Tag> newTags = new TreeMap<>();
+        Map<String, String> newOtherTags = new HashMap<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (Map.Entry<String, Ref> r : refs.entrySet()) {
+                ObjectId id = r.getValue().getObjectId();
+                if (id == null) {
+                    continue;
+                }
+                if (id.getName().equals(otherTags.get(r.getKey()))) {
+                    newOtherTags.put(r.getKey(), id.getName());
+                    continue;
+                }
+                Tag tag = tags.byName.get(r.getKey());
+                if (tag == null || !tag.id.equals(id.getName())) {
+                    changed = true;
+                    RevObject object = walk.parseAny(id);
+                    if (!(object instanceof RevTag)) {
+                        // lightweight tag, save and restore only creates annotated tags
+                        newOtherTags.put(r.getKey(), id.getName());
+                        continue;
+                    }
+                    RevTag revTag = (RevTag) object;
+                    PersonIdent tagger = revTag.getTaggerIdent();
+                    tag = new Tag(revTag.getTagName(), id.getName(), revTag.getObject().getName(),
+                        revTag.getFullMessage(), tagger == null ? null : tagger.getName());
+                }
+                newTags.put(r.getKey(), tag);
+            }
+        }
+        if (changed) {
+            tags = new Tags(newTags);
+            otherTags = newOtherTags;
+            store();
+        }
+        return tags;
+    }
+
+    /**
+     * Returns the indexed commit for the given revision. If the revision has not been indexed yet (e.g. it is not
+     * located on any of the indexed branches), the commit is read from the repository.
+     *
+     * @param repository the repository to read the commit from
+     * @param revision the revision of the commit
+     * @return the commit if it changed any snapshot files, or empty otherwise
+     * @throws IOException if the commit could not be read
+     */
+    synchronized Optional<Commit> getCommit(Repository repository, String revision) throws IOException {
+        Commit c = commits.get(revision);
+        if (c == null && !otherCommits.contains(revision)) {
+            try (ObjectReader reader = repository.newObjectReader(); RevWalk walk = new RevWalk(reader);
+                DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                formatter.setRepository(repository);
+                formatter.setDiffComparator(RawTextComparator.DEFAULT);
+                formatter.setDetectRenames(true);
+                RevCommit commit = parseCommit(walk, revision);
+                c = commit == null ? null : readCommit(commit, walk, reader, formatter);
+            }
+            if (c == null) {
+                otherCommits.add(revision);
+            } else {
+                commits.put(revision, c);
+            }
+        }
+        return Optional.ofNullable(c);
+    }
+
+    /**
+     * Parse the commit with the given revision.
+     *
+     * @param walk the walk to use for parsing
+     * @param revision the revision to parse
+     * @return the commit, or null if the revision does not exist or is not a commit
+     */
+    private static RevCommit parseCommit(RevWalk walk, String revision) {
+        try {
+            return walk.parseCommit(ObjectId.fromString(revision));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the data of the given commit. A merge commit only changes the files that differ from all of its parents,
+     * the same as in the git log of a file.
+     *
+     * @param commit the commit to read
+     * @param walk the walk, which parsed the commit
+     * @param reader the reader used to read the trees
+     * @param formatter the formatter that scans the changes
+     * @return the commit data, or null if no snapshot files were added or modified by this commit
+     * @throws IOException if the commit could not be read
+     */
+    private static Commit readCommit(RevCommit commit, RevWalk walk, ObjectReader reader, DiffFormatter formatter)
+        throws IOException {
+        RevCommit[] parents = commit.getParents();
+        Set<String> paths = null;
+        boolean removal = false;
+        int n = Math.max(1, parents.length);
+        for (int i = 0; i < n; i++) {
+            AbstractTreeIterator oldTreeIterator = new EmptyTreeIterator();
+            if (parents.length != 0) {
+                RevCommit parent = walk.parseCommit(parents[i]);
+                oldTreeIterator = new CanonicalTreeParser(null, reader, parent.getTree());
+            }
+            AbstractTreeIterator newTreeIterator = new CanonicalTreeParser(null, reader, commit.getTree());
+            Set<String> changed = new LinkedHashSet<>();
+            for (DiffEntry diff : formatter.scan(oldTreeIterator, newTreeIterator)) {
+                if (diff.getChangeType() == ChangeType.DELETE || diff.getChangeType() == ChangeType.RENAME) {
+                    // as in the log of a file, only the changes against the first parent are considered
+                    removal |= i == 0;
+                } else if (diff.getNewPath().endsWith(FileType.SNAPSHOT.suffix)) {
+                    changed.add(diff.getNewPath());
+                }
+            }
+            if (paths == null) {
+                paths = changed;
+            } else {
+                paths.retainAll(changed);
+            }
+            if (paths.isEmpty()) {
+                return null;
+            }
+        }
+        walk.parseBody(commit);
+        PersonIdent committer = commit.getCommitterIdent();
+        return new Commit(commit.getName(), commit.getCommitTime(), commit.getFullMessage(), committer.getName(),
+            committer.getEmailAddress(), committer.getWhen().getTime(), removal, new ArrayList<>(paths));
+    }
+
+    /**
+     * Load the index from the file. If the file does not exist or cannot be read, the index starts empty.
+     */
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                SaveRestoreService.LOGGER.log(Level.INFO,
+                    () -> String.format("Snapshot index %s has an unknown format and will be rebuilt.", file));
+                return;
+            }
+            int n = in.readInt();
+            List<Commit> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                String revision = readString(in);
+                int commitTime = in.readInt();
+                String comment = readString(in);
+                String creator = readString(in);
+                String email = readString(in);
+                long timestamp = in.readLong();
+                boolean removal = in.readBoolean();
+                int m = in.readInt();
+                List<String> paths = new ArrayList<>(m);
+                for (int j = 0; j < m; j++) {
+                    paths.add(readString(in));
+                }
+                Commit c = new Commit(revision, commitTime, comment, creator, email, timestamp, removal, paths);
+                list.add(c);
+                commits.put(revision, c);
+            }
+            n = in.readInt();
+            byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+            for (int i = 0; i < n; i++) {
+                in.readFully(raw);
+                otherCommits.add(ObjectId.fromRaw(raw).getName());
+            }
+            n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String branch = readString(in);
+                String head = readString(in);
+                int m = in.readInt();
+                List<Commit> branchCommits = new ArrayList<>(m);
+                for (int j = 0; j < m; j++) {
+                    branchCommits.add(list.get(in.readInt()));
+                }
+                m = in.readInt();
+                Set<String> saveSets = new HashSet<>(m);
+                for (int j = 0; j < m; j++) {
+                    saveSets.add(readString(in));
+                }
+                branches.put(branch, new BranchData(head, branchCommits, saveSets));
+            }
+            n = in.readInt();
+            Map<String, Tag> byName = new TreeMap<>();
+            for (int i = 0; i < n; i++) {
+                String key = readString(in);
+                byName.put(key, new Tag(readString(in), readString(in), readString(in), readString(in),
+                    readString(in)));
+            }
+            tags = new Tags(byName);
+        } catch (IOException | RuntimeException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, e,
+                () -> String.format("Snapshot index %s could not be read and will be rebuilt.", file));
+            commits.clear();
+            otherCommits.clear();
+            branches.clear();
+            tags = new Tags(new TreeMap<>());
+        }
+    }
+
+    /**
+     * Store the index into the file. Commits that are no longer referenced by any branch or tag are dropped. The
+     * index is only a cache of the repository, so if it cannot be stored, a warning is logged and the index is rebuilt
+     * after the next restart.
+     */
+    private void store() {
+        Set<String> referenced = new HashSet<>();
+        branches.values().forEach(b -> b.commits.forEach(c -> referenced.add(c.revision)));
+        tags.byName.values().forEach(t -> referenced.add(t.revision));
+        commits.keySet().retainAll(referenced);
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(commits.size());
+                Map<String, Integer> positions = new HashMap<>(commits.size());
+                for (Commit c : commits.values()) {
+                    positions.put(c.revision, positions.size());
+                    writeString(out, c.revision);
+                    out.writeInt(c.commitTime);
+                    writeString(out, c.comment);
+                    writeString(out, c.creator);
+                    writeString(out, c.email);
+                    out.writeLong(c.timestamp);
+                    out.writeBoolean(c.removal);
+                    out.writeInt(c.paths.size());
+                    for (String p : c.paths) {
+                        writeString(out, p);
+                    }
+                }
+                out.writeInt(otherCommits.size());
+                for (String revision : otherCommits) {
+                    ObjectId.fromString(revision).copyRawTo(out);
+                }
+                out.writeInt(branches.size());
+                for (Map.Entry<String, BranchData> b : branches.entrySet()) {
+                    writeString(out, b.getKey());
+                    writeString(out, b.getValue().head);
+                    out.writeInt(b.getValue().commits.size());
+                    for (Commit c : b.getValue().commits) {
+                        out.writeInt(positions.get(c.revision));
+                    }
+                    out.writeInt(b.getValue().saveSets.size());
+                    for (String s : b.getValue().saveSets) {
+                        writeString(out, s);
+                    }
+                }
+                out.writeInt(tags.byName.size());
+                for (Map.Entry<String, Tag> t : tags.byName.entrySet()) {
+                    writeString(out, t.getKey());
+                    Tag tag = t.getValue();
+                    writeString(out, tag.name);
+                    writeString(out, tag.id);
+                    writeString(out, tag.revision);
+                    writeString(out, tag.message);
+                    writeString(out, tag.tagger);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            SaveRestoreService.LOGGER.log(Level.WARNING, e,
+                () -> String.format("Snapshot index %s could not be stored.", file));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
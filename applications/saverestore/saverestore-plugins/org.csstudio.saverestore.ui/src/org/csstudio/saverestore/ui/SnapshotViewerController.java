@@ -27,13 +27,16 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -61,10 +64,10 @@ import org.csstudio.saverestore.ui.util.GUIUpdateThrottle;
 import org.csstudio.saverestore.ui.util.VTypePair;
 import org.csstudio.ui.fx.util.FXDetailsDialog;
 import org.csstudio.ui.fx.util.FXMessageDialog;
+import org.csstudio.vtype.pv.ParallelWriter;
 import org.diirt.datasource.PVManager;
 import org.diirt.datasource.PVReader;
 import org.diirt.datasource.PVWriter;
-import org.diirt.datasource.PVWriterEvent;
 import org.diirt.datasource.PVWriterListener;
 import org.diirt.vtype.Alarm;
 import org.diirt.vtype.AlarmSeverity;
@@ -852,80 +855,64 @@ public class SnapshotViewerController {
     /**
      * Restore the values from the snapshot and set them on the PVs. Only the snapshot that belongs to this viewer can
      * be restored. This method should not be called from the UI thread.
+     * <p>
+     * The writes to all PVs are started without waiting for earlier writes to complete, up to the number of writes in
+     * flight defined by the preferences. The restore timeout applies to each write.
      *
      * @param s the snapshot
      */
     public void restoreSnapshot(VSnapshot s) {
-        Map<PV, PVWriterListener<?>> restorablePVs = new HashMap<>();
+        final Map<PV, PVWriterListener<?>> restorablePVs = new HashMap<>();
         try {
             suspend();
-            List<SnapshotEntry> entries = s.getEntries();
-            final Map<PV, PVWriterEvent<?>> restoredPVs = new HashMap<>();
-            for (SnapshotEntry entry : entries) {
+            final SaveRestoreService service = SaveRestoreService.getInstance();
+            final ParallelWriter writer = new ParallelWriter(service.getMaxRestoresInFlight());
+            final Set<TableEntry> filtered = new HashSet<>(filteredList);
+            for (SnapshotEntry entry : s.getEntries()) {
                 final TableEntry e = items.get(entry.getPVName());
                 // only restore the value if the entry is in the filtered list as well
-                if (filteredList.contains(e) && e.selectedProperty().get() && !e.readOnlyProperty().get()) {
+                if (filtered.contains(e) && e.selectedProperty().get() && !e.readOnlyProperty().get()) {
                     final PV pv = pvs.get(e);
-                    if (pv.writer != null) {
-                        PVWriterListener<?> l = w -> {
-                            restoredPVs.put(pv, w);
-                            synchronized (restoredPVs) {
-                                restoredPVs.notifyAll();
-                            }
-                        };
-                        restorablePVs.put(pv, l);
-                        pv.writer.addPVWriterListener(l);
-                        Object val = Utilities.toRawValue(entry.getValue());
-                        if (val != null) {
+                    final Object val = Utilities.toRawValue(entry.getValue());
+                    if (pv.writer != null && val != null) {
+                        writer.add(pv.pvName, () -> {
+                            final CompletableFuture<Object> done = new CompletableFuture<>();
+                            PVWriterListener<?> l = w -> {
+                                if (w.isWriteSucceeded()) {
+                                    done.complete(null);
+                                } else if (w.isWriteFailed()) {
+                                    Exception ex = w.getPvWriter().lastWriteException();
+                                    done.completeExceptionally(ex == null ? new Exception("Unknown error") : ex);
+                                }
+                            };
+                            restorablePVs.put(pv, l);
+                            pv.writer.addPVWriterListener(l);
                             pv.writer.write(val);
-                        }
+                            return done;
+                        });
                     }
                 }
             }
+
+            List<ParallelWriter.Result> results;
             try {
-                long time = System.currentTimeMillis();
-                while (System.currentTimeMillis() - time < 30000
-                    && !SaveRestoreService.getInstance().isCurrentJobCancelled()) {
-                    synchronized (restoredPVs) {
-                        if (restoredPVs.size() == restorablePVs.size()) {
-                            break;
-                        } else {
-                            restoredPVs.wait(100);
-                        }
-                    }
-                }
+                results = writer.execute(service.getRestoreTimeout(), TimeUnit.SECONDS, null,
+                    service::isCurrentJobCancelled);
             } catch (InterruptedException e) {
-                // ignore
-            }
-
-            List<String> messages = new ArrayList<>();
-            for (Map.Entry<PV, PVWriterEvent<?>> pv : restoredPVs.entrySet()) {
-                if (pv.getValue().isWriteFailed()) {
-                    StringBuilder sb = new StringBuilder(200);
-                    sb.append(pv.getKey().pvName).append(':').append(' ');
-                    Exception e = pv.getValue().getPvWriter().lastWriteException();
-                    if (e == null || e.getMessage() == null || e.getMessage().isEmpty()) {
-                        sb.append("Unknown error");
-                    } else {
-                        sb.append(e.getMessage());
-                    }
-                    messages.add(sb.toString());
-                }
+                return;
             }
 
-            if (restoredPVs.size() != restorablePVs.size()) {
-                // not all PVs responded in time
-                for (PV pv : restorablePVs.keySet()) {
-                    if (restoredPVs.containsKey(pv)) {
-                        messages.add(pv.pvName + ": Timeout");
-                    }
-                }
+            List<String> messages = results.stream().filter(r -> !r.isSuccess()).map(ParallelWriter.Result::toString)
+                .sorted().collect(Collectors.toList());
+            if (SaveRestoreService.LOGGER.isLoggable(Level.FINER)) {
+                results.forEach(r -> SaveRestoreService.LOGGER.log(Level.FINER, r.toString()));
             }
             if (messages.isEmpty()) {
-                SaveRestoreService.LOGGER.log(Level.FINE, "Restored snapshot {0}: {1}.",
-                    new Object[] { s.getSaveSet().getFullyQualifiedName(), s.getSnapshot().get() });
+                double slowest = results.stream().mapToDouble(ParallelWriter.Result::getLatency).max().orElse(0);
+                SaveRestoreService.LOGGER.log(Level.FINE, "Restored snapshot {0}: {1}. Slowest of {2} writes took {3} ms.",
+                    new Object[] { s.getSaveSet().getFullyQualifiedName(), s.getSnapshot().get(), results.size(),
+                        slowest });
             } else {
-                Collections.sort(messages);
                 StringBuilder sb = new StringBuilder(messages.size() * 200);
                 messages.forEach(e -> sb.append(e).append('\n'));
                 SaveRestoreService.LOGGER.log(Level.WARNING,
@@ -68,6 +68,22 @@ public class PreferencesPage extends FieldEditorPreferencePage implements IWorkb
                           + "they can be opened in a new editor or added as\n"
                           + "compared snapshots to the current editor");
         addField(newSnapshots);
+        IntegerFieldEditor restoresInFlight = new IntegerFieldEditor(SaveRestoreService.PREF_MAX_RESTORES_IN_FLIGHT,
+            "Number of PVs written in parallel on restore", parent);
+        restoresInFlight.setValidRange(1, Integer.MAX_VALUE);
+        restoresInFlight.getLabelControl(parent)
+            .setToolTipText("Set the maximum number of PV writes that are in progress at\n"
+                          + "the same time when a snapshot is restored. Further writes\n"
+                          + "are started as soon as earlier writes complete.");
+        addField(restoresInFlight);
+        IntegerFieldEditor restoreTimeout = new IntegerFieldEditor(SaveRestoreService.PREF_RESTORE_TIMEOUT,
+            "Restore timeout per PV write (seconds)", parent);
+        restoreTimeout.setValidRange(1, Integer.MAX_VALUE);
+        restoreTimeout.getLabelControl(parent)
+            .setToolTipText("Set the time to wait for each write of a restore to complete,\n"
+                          + "counted from the start of that write. The whole restore may take longer.\n"
+                          + "Writes that did not complete by then are reported as timed out.");
+        addField(restoreTimeout);
 
     }
 
@@ -59,6 +59,10 @@ public class SaveRestoreService {
     public static final String PREF_NUMBER_OF_SNAPSHOTS = "maxNumberOfSnapshotsInBatch";
     /** Property that defines if new snapshots should be open in compare mode or in a separate editor */
     public static final String PREF_OPEN_NEW_SNAPSHOTS_IN_COMPARE_VIEW = "openNewSnapshotsInCompareView";
+    /** Property that defines the maximum number of PVs that are written in parallel when restoring a snapshot */
+    public static final String PREF_MAX_RESTORES_IN_FLIGHT = "maxRestoresInFlight";
+    /** Property that defines the time in seconds to wait for the completion of each write of a restore */
+    public static final String PREF_RESTORE_TIMEOUT = "restoreTimeout";
     /** Plug-in ID */
     public static final String PLUGIN_ID = "org.csstudio.saverestore";
     /** The common logger */
@@ -409,6 +413,37 @@ public class SaveRestoreService {
         }
     }
 
+    /**
+     * When a snapshot is restored, the writes to all PVs are started without waiting for the earlier writes to
+     * complete. The number returned by this method limits the number of writes that were started but did not complete.
+     *
+     * @return maximum number of PVs written in parallel
+     */
+    public int getMaxRestoresInFlight() {
+        try {
+            int max = getPreferences().getInt(PREF_MAX_RESTORES_IN_FLIGHT);
+            return max > 0 ? max : 100;
+        } catch (RuntimeException e) {
+            return 100;
+        }
+    }
+
+    /**
+     * Returns the time in seconds to wait for the completion of each write when a snapshot is restored. The time is
+     * counted from the start of the write, so a restore of many PVs may take longer in total. Writes that do not
+     * complete within this time are reported as timed out.
+     *
+     * @return the restore timeout per write in seconds
+     */
+    public int getRestoreTimeout() {
+        try {
+            int timeout = getPreferences().getInt(PREF_RESTORE_TIMEOUT);
+            return timeout > 0 ? timeout : 30;
+        } catch (RuntimeException e) {
+            return 30;
+        }
+    }
+
     /**
      * Returns true if new snapshots (the ones taken by the user) are opened in compare view or if a separate editor is
      * created.
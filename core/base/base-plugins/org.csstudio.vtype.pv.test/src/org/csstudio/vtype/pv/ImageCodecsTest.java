@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.csstudio.vtype.pv.pva.ImageCodecs;
+import org.junit.Test;
+
+/** JUnit test of {@link ImageCodecs}
+ *
+ *  <p>Uses hand-assembled LZ4 blocks and blosc frames.
+ */
+@SuppressWarnings("nls")
+public class ImageCodecsTest
+{
+    /** @return LZ4 block that only contains literals */
+    private static byte[] lz4Literals(final byte[] data)
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int length = data.length;
+        if (length < 15)
+            buf.write(length << 4);
+        else
+        {
+            buf.write(0xF0);
+            length -= 15;
+            while (length >= 255)
+            {
+                buf.write(255);
+                length -= 255;
+            }
+            buf.write(length);
+        }
+        buf.write(data, 0, data.length);
+        return buf.toByteArray();
+    }
+
+    @Test
+    public void testLZ4() throws Exception
+    {
+        // "abc", then match of offset 3, length 9 which overlaps, then literals "xyz"
+        final byte[] compressed = { 0x35, 'a', 'b', 'c', 3, 0, 0x30, 'x', 'y', 'z' };
+        final byte[] result = new byte[20];
+        final int length = ImageCodecs.lz4(compressed, 0, compressed.length, result, 0, result.length);
+        assertThat(new String(result, 0, length), equalTo("abcabcabcabcxyz"));
+
+        // Long literal run
+        final byte[] data = new byte[1000];
+        for (int i=0; i<data.length; ++i)
+            data[i] = (byte) i;
+        final byte[] block = lz4Literals(data);
+        final byte[] decoded = new byte[data.length];
+        assertThat(ImageCodecs.lz4(block, 0, block.length, decoded, 0, decoded.length), equalTo(data.length));
+        assertTrue(Arrays.equals(decoded, data));
+
+        // Buffer too small
+        try
+        {
+            ImageCodecs.lz4(block, 0, block.length, new byte[10], 0, 10);
+            fail("Decoded into small buffer");
+        }
+        catch (Exception ex)
+        {
+            assertThat(ex.getMessage(), equalTo("LZ4 literals exceed buffer"));
+        }
+
+        // Invalid offset
+        try
+        {
+            final byte[] bad = { 0x10, 'a', 5, 0, 0x00 };
+            ImageCodecs.lz4(bad, 0, bad.length, result, 0, result.length);
+            fail("Decoded invalid offset");
+        }
+        catch (Exception ex)
+        {
+            assertTrue(ex.getMessage().contains("offset"));
+        }
+    }
+
+    /** @return Blosc frame header */
+    private static ByteBuffer bloscHeader(final int capacity, final int flags, final int typesize,
+                                          final int nbytes, final int blocksize)
+    {
+        final ByteBuffer frame = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put((byte) 2).put((byte) 1).put((byte) flags).put((byte) typesize);
+        frame.putInt(nbytes).putInt(blocksize).putInt(0);
+        return frame;
+    }
+
+    @Test
+    public void testBloscMemcpy() throws Exception
+    {
+        final byte[] data = { 1, 2, 3, 4, 5 };
+        final ByteBuffer frame = bloscHeader(ImageCodecs.BLOSC_HEADER + data.length, 0x2, 1, data.length, data.length);
+        frame.put(data);
+        final byte[] src = frame.array();
+        final byte[] result = new byte[ImageCodecs.bloscSize(src)];
+        assertThat(ImageCodecs.blosc(src, src.length, result, new byte[0]), equalTo(data.length));
+        assertTrue(Arrays.equals(result, data));
+    }
+
+    @Test
+    public void testBloscShuffleLZ4() throws Exception
+    {
+        // 256 shorts, one block, shuffled into low bytes and high bytes
+        final int N = 256, nbytes = 2*N;
+        final short[] values = new short[N];
+        final byte[] low = new byte[N], high = new byte[N];
+        for (int i=0; i<N; ++i)
+        {
+            values[i] = (short) (i * 257 + 3);
+            low[i] = (byte) values[i];
+            high[i] = (byte) (values[i] >> 8);
+        }
+        // Low bytes are LZ4 compressed, high bytes stored as is
+        final byte[] low_lz4 = lz4Literals(low);
+        final int size = ImageCodecs.BLOSC_HEADER + 4 + 4 + low_lz4.length + 4 + high.length;
+        final ByteBuffer frame = bloscHeader(size, (1 << 5) | 0x1, 2, nbytes, nbytes);
+        frame.putInt(ImageCodecs.BLOSC_HEADER + 4);
+        frame.putInt(low_lz4.length).put(low_lz4);
+        frame.putInt(high.length).put(high);
+        final byte[] src = frame.array();
+        ByteBuffer.wrap(src).order(ByteOrder.LITTLE_ENDIAN).putInt(12, size);
+
+        final byte[] result = new byte[ImageCodecs.bloscSize(src)];
+        final byte[] scratch = new byte[ImageCodecs.bloscBlockSize(src)];
+        assertThat(ImageCodecs.blosc(src, src.length, result, scratch), equalTo(nbytes));
+        final short[] decoded = new short[N];
+        ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(decoded);
+        assertTrue(Arrays.equals(decoded, values));
+    }
+
+    @Test
+    public void testBloscUnsupported() throws Exception
+    {
+        // zlib compressor
+        final byte[] src = bloscHeader(32, (3 << 5) | 0x1, 2, 16, 16).array();
+        try
+        {
+            ImageCodecs.blosc(src, src.length, new byte[16], new byte[16]);
+            fail("Decoded zlib");
+        }
+        catch (Exception ex)
+        {
+            assertTrue(ex.getMessage().contains("not supported"));
+        }
+    }
+
+    @Test
+    public void testJPEG() throws Exception
+    {
+        final int width = 64, height = 32;
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y=0; y<height; ++y)
+            for (int x=0; x<width; ++x)
+                image.getRaster().setSample(x, y, 0, 100);
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", buf);
+        final byte[] jpeg = buf.toByteArray();
+
+        final byte[] pixels = ImageCodecs.jpeg(jpeg, jpeg.length);
+        assertThat(pixels.length, equalTo(width * height));
+        // Uniform image survives the lossy compression
+        for (byte pixel : pixels)
+            assertTrue(Math.abs((pixel & 0xFF) - 100) <= 2);
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.vtype.pv.jca.DBRDisplay;
+import org.csstudio.vtype.pv.jca.DBRHelper;
+import org.diirt.util.array.ListNumber;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VNumberArray;
+import org.junit.Test;
+
+import gov.aps.jca.dbr.DBR_CTRL_Double;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+
+/** Benchmark of decoding waveform updates from JCA
+ *
+ *  <p>Decodes waveforms the way {@link org.csstudio.vtype.pv.jca.JCA_PV}
+ *  does for monitor updates, without network,
+ *  while several consumers of each value access its data and meta data.
+ *
+ *  <p>Compares display information created for each update
+ *  with display information shared between updates.
+ */
+@SuppressWarnings("nls")
+public class JCAWaveformBenchmarkDemo
+{
+    private static final int SIZE = 10000, UPDATES = 50000, CONSUMERS = 4;
+
+    private static DBR_CTRL_Double createMetadata()
+    {
+        final DBR_CTRL_Double metadata = new DBR_CTRL_Double();
+        metadata.setUnits("mm");
+        metadata.setPrecision((short) 3);
+        metadata.setLowerDispLimit(-10.0);
+        metadata.setUpperDispLimit(10.0);
+        metadata.setLowerAlarmLimit(-8.0);
+        metadata.setUpperAlarmLimit(8.0);
+        metadata.setLowerWarningLimit(-5.0);
+        metadata.setUpperWarningLimit(5.0);
+        metadata.setLowerCtrlLimit(-9.0);
+        metadata.setUpperCtrlLimit(9.0);
+        return metadata;
+    }
+
+    /** Access value like a plot, a text widget, ... would */
+    private static double consume(final VNumberArray value)
+    {
+        final Display display = value;
+        final ListNumber data = value.getData();
+        double sum = data.getDouble(0) + data.getDouble(data.size()-1);
+        sum += value.getSizes().getInt(0);
+        sum += display.getUpperDisplayLimit() + display.getLowerCtrlLimit();
+        sum += display.getUnits().length();
+        sum += display.getFormat().getMaximumFractionDigits();
+        return sum;
+    }
+
+    private static long run(final DBR_CTRL_Double metadata, final DBR_TIME_Double[] updates, final boolean shared) throws Exception
+    {
+        final DBRDisplay display = DBRDisplay.forMetadata(metadata);
+        double check = 0;
+        final long start = System.nanoTime();
+        for (int i=0; i<UPDATES; ++i)
+        {
+            final DBR_TIME_Double dbr = updates[i % updates.length];
+            final VNumberArray value = (VNumberArray) (shared
+                ? DBRHelper.decodeValue(true, metadata, display, dbr)
+                : DBRHelper.decodeValue(true, metadata, dbr));
+            for (int c=0; c<CONSUMERS; ++c)
+                check += consume(value);
+        }
+        final long nanos = System.nanoTime() - start;
+        assertThat(Double.isNaN(check), equalTo(false));
+        return nanos;
+    }
+
+    @Test
+    public void benchmarkWaveformUpdates() throws Exception
+    {
+        final DBR_CTRL_Double metadata = createMetadata();
+        final DBR_TIME_Double[] updates = new DBR_TIME_Double[10];
+        for (int u=0; u<updates.length; ++u)
+        {
+            final double[] data = new double[SIZE];
+            for (int i=0; i<SIZE; ++i)
+                data[i] = Math.sin(2*Math.PI*(i+u)/SIZE);
+            updates[u] = new DBR_TIME_Double(data);
+        }
+
+        // Warm up, then measure
+        for (int pass=0; pass<3; ++pass)
+        {
+            final long per_update = run(metadata, updates, false) / UPDATES;
+            final long shared = run(metadata, updates, true) / UPDATES;
+            System.out.println(String.format("%d updates of %d elements, %d consumers: " +
+                                             "%5d ns/update with display per update, %5d ns/update with shared display",
+                                             UPDATES, SIZE, CONSUMERS, per_update, shared));
+        }
+        System.out.println("Update rate with shared display: " +
+                           TimeUnit.SECONDS.toNanos(1) * UPDATES / run(metadata, updates, true) + " Hz");
+    }
+}
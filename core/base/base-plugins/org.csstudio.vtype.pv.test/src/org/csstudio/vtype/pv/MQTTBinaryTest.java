@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.csstudio.vtype.pv.mqtt.TopicSubscribers;
+import org.csstudio.vtype.pv.mqtt.VTypeToFromBinary;
+import org.csstudio.vtype.pv.mqtt.VTypeToFromString;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VDouble;
+import org.diirt.vtype.VDoubleArray;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.Test;
+
+/** JUnit test of the binary MQTT encoding and topic dispatch
+ *
+ *  <p>Uses a local stand-in for the broker
+ *  that passes published messages directly to the subscribers.
+ */
+@SuppressWarnings("nls")
+public class MQTTBinaryTest
+{
+    /** Broker stand-in */
+    private static class LocalBroker
+    {
+        final TopicSubscribers subscribers = new TopicSubscribers();
+
+        void publish(final String topic, final byte[] payload)
+        {
+            subscribers.dispatch(topic, new MqttMessage(payload));
+        }
+    }
+
+    private static VType roundtrip(final VType value) throws Exception
+    {
+        final byte[] payload = VTypeToFromBinary.toBytes(value);
+        assertTrue(VTypeToFromBinary.isBinary(payload));
+        return VTypeToFromBinary.fromBytes(payload);
+    }
+
+    @Test
+    public void testEncoding() throws Exception
+    {
+        final Instant time = Instant.ofEpochSecond(1500000000, 123456789);
+        VType value = roundtrip(ValueFactory.newVDouble(3.14, ValueFactory.newAlarm(AlarmSeverity.MINOR, "LOW"),
+                                                        ValueFactory.newTime(time), ValueFactory.displayNone()));
+        assertThat(value, instanceOf(VDouble.class));
+        assertThat(((VDouble) value).getValue(), equalTo(3.14));
+        assertThat(((VDouble) value).getAlarmSeverity(), equalTo(AlarmSeverity.MINOR));
+        assertThat(((VDouble) value).getAlarmName(), equalTo("LOW"));
+        assertThat(((VDouble) value).getTimestamp(), equalTo(time));
+
+        value = roundtrip(ValueFactory.newVString("Hello, J\u00fcrgen", ValueFactory.alarmNone(), ValueFactory.timeNow()));
+        assertThat(((VString) value).getValue(), equalTo("Hello, J\u00fcrgen"));
+
+        value = roundtrip(ValueFactory.newVEnum(1, Arrays.asList("Off", "On"), ValueFactory.alarmNone(), ValueFactory.timeNow()));
+        assertThat(((VEnum) value).getIndex(), equalTo(1));
+        assertThat(((VEnum) value).getValue(), equalTo("On"));
+
+        value = roundtrip(ValueFactory.newVStringArray(Arrays.asList("a", "", "c"), ValueFactory.alarmNone(), ValueFactory.timeNow()));
+        assertThat(((VStringArray) value).getData(), equalTo(Arrays.asList("a", "", "c")));
+
+        value = roundtrip(ValueFactory.newVDoubleArray(new ArrayDouble(1.0, 2.0, 3.0), ValueFactory.alarmNone(),
+                                                       ValueFactory.timeNow(), ValueFactory.displayNone()));
+        assertThat(value, instanceOf(VDoubleArray.class));
+        assertThat(((VNumberArray) value).getData(), equalTo(new ArrayDouble(1.0, 2.0, 3.0)));
+
+        value = roundtrip(ValueFactory.newVNumberArray(new ArrayShort(new short[] { 1, -2, 3 }), ValueFactory.alarmNone(),
+                                                       ValueFactory.timeNow(), ValueFactory.displayNone()));
+        assertThat(((VNumberArray) value).getData(), equalTo(new ArrayShort(new short[] { 1, -2, 3 })));
+
+        // Text payload is not mistaken for binary
+        assertThat(VTypeToFromBinary.isBinary("[1, 2, 3]".getBytes()), equalTo(false));
+    }
+
+    @Test
+    public void testTopicFilters() throws Exception
+    {
+        assertTrue(TopicSubscribers.matches("sensors/+/temp", "sensors/a/temp"));
+        assertTrue(! TopicSubscribers.matches("sensors/+/temp", "sensors/a/b/temp"));
+        assertTrue(TopicSubscribers.matches("sensors/#", "sensors/a/b/temp"));
+        assertTrue(TopicSubscribers.matches("sensors/#", "sensors"));
+        assertTrue(TopicSubscribers.matches("#", "sensors/a"));
+        assertTrue(! TopicSubscribers.matches("#", "$SYS/uptime"));
+        assertTrue(! TopicSubscribers.matches("sensors/a", "sensors/ab"));
+
+        final LocalBroker broker = new LocalBroker();
+        final AtomicInteger exact = new AtomicInteger(), wildcard = new AtomicInteger();
+        final TopicSubscribers.Subscriber exact_sub = (topic, msg) -> exact.incrementAndGet();
+        final TopicSubscribers.Subscriber wildcard_sub = (topic, msg) -> wildcard.incrementAndGet();
+        assertTrue(broker.subscribers.add("sensors/a/temp", exact_sub));
+        assertTrue(broker.subscribers.add("sensors/+/temp", wildcard_sub));
+        broker.publish("sensors/a/temp", new byte[0]);
+        broker.publish("sensors/b/temp", new byte[0]);
+        broker.publish("other", new byte[0]);
+        assertThat(exact.get(), equalTo(1));
+        assertThat(wildcard.get(), equalTo(2));
+
+        assertTrue(broker.subscribers.remove("sensors/+/temp", wildcard_sub));
+        broker.publish("sensors/b/temp", new byte[0]);
+        assertThat(wildcard.get(), equalTo(2));
+    }
+
+    /** @return Messages per second */
+    private static double measure(final String encoding, final LocalBroker broker, final byte[] payload)
+    {
+        final int N = 2000;
+        final long start = System.nanoTime();
+        for (int i=0; i<N; ++i)
+            broker.publish("sensors/array", payload);
+        final double rate = N / ((System.nanoTime() - start) / 1e9);
+        System.out.println(String.format("%-6s: %6d bytes per message, %8.1f messages per second",
+                                         encoding, payload.length, rate));
+        return rate;
+    }
+
+    @Test
+    public void testThroughput() throws Exception
+    {
+        final double[] data = new double[1000];
+        for (int i=0; i<data.length; ++i)
+            data[i] = Math.sin(i * 0.01) * 1000.0;
+        final VType value = ValueFactory.newVDoubleArray(new ArrayDouble(data), ValueFactory.alarmNone(),
+                                                         ValueFactory.timeNow(), ValueFactory.displayNone());
+
+        // Subscriber decodes like MQTT_PV
+        final AtomicReference<VType> received = new AtomicReference<>();
+        final LocalBroker broker = new LocalBroker();
+        broker.subscribers.add("sensors/#", (topic, msg) ->
+        {
+            final byte[] payload = msg.getPayload();
+            if (VTypeToFromBinary.isBinary(payload))
+                received.set(VTypeToFromBinary.fromBytes(payload));
+            else
+                received.set(VTypeToFromString.convert(new String(payload), VDoubleArray.class, null));
+        });
+
+        final byte[] text = VTypeToFromString.ToString(value).getBytes();
+        final byte[] binary = VTypeToFromBinary.toBytes(value);
+        for (int pass=0; pass<3; ++pass)
+        {
+            measure("Text", broker, text);
+            measure("Binary", broker, binary);
+        }
+        assertThat(((VNumberArray) received.get()).getData(), equalTo(new ArrayDouble(data)));
+        assertTrue(binary.length < text.length);
+    }
+}
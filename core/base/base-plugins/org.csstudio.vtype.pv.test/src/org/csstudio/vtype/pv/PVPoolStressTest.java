@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** Stress test of the {@link PVPool}
+ *
+ *  <p>Many threads get and release PVs from a factory
+ *  that is slow to create PVs.
+ */
+@SuppressWarnings("nls")
+public class PVPoolStressTest
+{
+    private static final String TYPE = "stress";
+
+    /** PV that checks if it is used after being closed */
+    private static class StressPV extends PV
+    {
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        StressPV(final String name)
+        {
+            super(name);
+        }
+
+        @Override
+        public void write(final Object new_value) throws Exception
+        {
+            // NOP
+        }
+
+        @Override
+        protected void close()
+        {
+            if (! closed.compareAndSet(false, true))
+                fail("Closed " + getName() + " twice");
+            closes.incrementAndGet();
+        }
+    }
+
+    private static final AtomicInteger creations = new AtomicInteger(), closes = new AtomicInteger();
+
+    /** Delay of the factory for PV names that start with "slow" */
+    private static volatile long slow_millis = 0;
+
+    @Before
+    public void setup()
+    {
+        creations.set(0);
+        closes.set(0);
+        PVPool.addPVFactory(new PVFactory()
+        {
+            @Override
+            public String getType()
+            {
+                return TYPE;
+            }
+
+            @Override
+            public PV createPV(final String name, final String base_name) throws Exception
+            {
+                creations.incrementAndGet();
+                if (base_name.startsWith("slow"))
+                    Thread.sleep(slow_millis);
+                else if (ThreadLocalRandom.current().nextInt(100) == 0)
+                    Thread.sleep(1);
+                if (base_name.contains("bad"))
+                    throw new Exception("Cannot create " + name);
+                return new StressPV(name);
+            }
+        });
+    }
+
+    @Test(timeout=60000)
+    public void testGetAndRelease() throws Exception
+    {
+        final int threads = 16, names = 200, total = 100000;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final AtomicInteger operations = new AtomicInteger();
+        final List<Future<?>> results = new ArrayList<>();
+        final long start = System.currentTimeMillis();
+        for (int t=0; t<threads; ++t)
+            results.add(pool.submit(() ->
+            {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final List<PV> held = new ArrayList<>();
+                while (operations.incrementAndGet() <= total)
+                {
+                    final String name = TYPE + "://pv" + random.nextInt(names);
+                    final PV pv = PVPool.getPV(name);
+                    assertThat(pv.getName(), equalTo(name));
+                    if (((StressPV) pv).closed.get())
+                        fail("Got closed PV " + name);
+                    held.add(pv);
+                    // Hold up to a few PVs, release in random order
+                    if (held.size() > 5  ||  random.nextBoolean())
+                        PVPool.releasePV(held.remove(random.nextInt(held.size())));
+                }
+                for (PV pv : held)
+                    PVPool.releasePV(pv);
+                return null;
+            }));
+        for (Future<?> result : results)
+            result.get();
+        pool.shutdown();
+        final long millis = System.currentTimeMillis() - start;
+        System.out.println(total + " PVs obtained and released by " + threads + " threads in " + millis + " ms, " +
+                           creations.get() + " created");
+
+        // Every created PV has been closed, none remain in pool
+        assertThat(PVPool.getPVReferences().size(), equalTo(0));
+        assertThat(closes.get(), equalTo(creations.get()));
+    }
+
+    @Test(timeout=60000)
+    public void testSlowFactory() throws Exception
+    {
+        slow_millis = 2000;
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final CountDownLatch started = new CountDownLatch(1);
+
+        // Several threads request the same slow PV
+        final List<Future<PV>> slow = new ArrayList<>();
+        for (int i=0; i<5; ++i)
+            slow.add(pool.submit(() ->
+            {
+                started.countDown();
+                return PVPool.getPV(TYPE + "://slow");
+            }));
+        started.await();
+        Thread.sleep(100);
+
+        // Other PVs are not blocked by the slow one
+        final long start = System.currentTimeMillis();
+        for (int i=0; i<100; ++i)
+            PVPool.releasePV(PVPool.getPV(TYPE + "://fast" + i));
+        final long millis = System.currentTimeMillis() - start;
+        assertTrue("Fast PVs took " + millis + " ms", millis < 1000);
+
+        // Slow PV was created once and shared
+        final PV pv = slow.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<PV> other : slow)
+            assertTrue(other.get() == pv);
+        assertThat(creations.get(), equalTo(101));
+        for (Future<PV> other : slow)
+            PVPool.releasePV(other.get());
+        assertThat(PVPool.getPVReferences().size(), equalTo(0));
+        pool.shutdown();
+        slow_millis = 0;
+    }
+
+    @Test(timeout=60000)
+    public void testFailedCreation() throws Exception
+    {
+        slow_millis = 500;
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        final List<Future<PV>> results = new ArrayList<>();
+        for (int i=0; i<5; ++i)
+            results.add(pool.submit(() -> PVPool.getPV(TYPE + "://slowbad")));
+        for (Future<PV> result : results)
+        {
+            try
+            {
+                result.get();
+                fail("Created bad PV");
+            }
+            catch (Exception ex)
+            {
+                assertTrue(ex.getCause().getMessage().contains("Cannot create"));
+            }
+        }
+        assertThat(PVPool.getPVReferences().size(), equalTo(0));
+        pool.shutdown();
+        slow_millis = 0;
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/** JUnit test of the {@link ParallelWriter}
+ *
+ *  <p>Uses futures that complete after a delay
+ *  instead of actual PVs.
+ */
+@SuppressWarnings("nls")
+public class ParallelWriterTest
+{
+    final private ScheduledExecutorService timer = Executors.newScheduledThreadPool(4);
+
+    final private AtomicInteger active = new AtomicInteger(), max_active = new AtomicInteger();
+
+    @After
+    public void shutdown()
+    {
+        timer.shutdownNow();
+    }
+
+    /** @return Write that completes after a delay */
+    private ParallelWriter.Write delayedWrite(final long millis, final Exception error)
+    {
+        return () ->
+        {
+            max_active.accumulateAndGet(active.incrementAndGet(), Math::max);
+            final CompletableFuture<Object> done = new CompletableFuture<>();
+            timer.schedule(() ->
+            {
+                active.decrementAndGet();
+                if (error == null)
+                    done.complete(null);
+                else
+                    done.completeExceptionally(error);
+            }, millis, TimeUnit.MILLISECONDS);
+            return done;
+        };
+    }
+
+    @Test(timeout=10000)
+    public void testParallelWrites() throws Exception
+    {
+        final ParallelWriter writer = new ParallelWriter(10);
+        for (int i=0; i<100; ++i)
+            writer.add("pv" + i, delayedWrite(50, null));
+
+        final AtomicInteger progress = new AtomicInteger();
+        final long start = System.currentTimeMillis();
+        final List<ParallelWriter.Result> results = writer.execute(5, TimeUnit.SECONDS,
+                                                                   result -> progress.incrementAndGet(), null);
+        final long millis = System.currentTimeMillis() - start;
+
+        assertThat(results.size(), equalTo(100));
+        assertThat(progress.get(), equalTo(100));
+        for (int i=0; i<100; ++i)
+        {
+            final ParallelWriter.Result result = results.get(i);
+            assertThat(result.getName(), equalTo("pv" + i));
+            assertThat(result.isSuccess(), equalTo(true));
+            assertTrue(result.getLatency() >= 40.0);
+        }
+        // Serial writes would take 5 seconds
+        assertTrue(millis < 2500);
+        assertThat(max_active.get(), equalTo(10));
+    }
+
+    @Test(timeout=10000)
+    public void testErrors() throws Exception
+    {
+        final ParallelWriter writer = new ParallelWriter(100);
+        writer.add("ok", delayedWrite(10, null));
+        writer.add("failed", delayedWrite(10, new Exception("Put failed")));
+        writer.add("not started", () -> { throw new Exception("Not connected"); });
+        writer.add("nothing to write", () -> null);
+        writer.add("slow", delayedWrite(5000, null));
+
+        final List<ParallelWriter.Result> results = writer.execute(500, TimeUnit.MILLISECONDS, null, null);
+        assertThat(results.get(0).isSuccess(), equalTo(true));
+
+        assertThat(results.get(1).isSuccess(), equalTo(false));
+        assertThat(results.get(1).getError().getMessage(), equalTo("Put failed"));
+
+        assertThat(results.get(2).isSuccess(), equalTo(false));
+        assertThat(results.get(2).getError().getMessage(), equalTo("Not connected"));
+
+        assertThat(results.get(3).isSuccess(), equalTo(true));
+
+        assertThat(results.get(4).isSuccess(), equalTo(false));
+        assertThat(results.get(4).isTimeout(), equalTo(true));
+        assertThat(results.get(4).getLatency(), equalTo(-1.0));
+    }
+
+    @Test(timeout=10000)
+    public void testPolledFuture() throws Exception
+    {
+        // Future that is not a CompletionStage
+        final Future<?> done = timer.schedule(() -> null, 100, TimeUnit.MILLISECONDS);
+        final ParallelWriter writer = new ParallelWriter(1);
+        writer.add("polled", () -> done);
+        final List<ParallelWriter.Result> results = writer.execute(5, TimeUnit.SECONDS, null, null);
+        assertThat(results.get(0).isSuccess(), equalTo(true));
+        assertTrue(results.get(0).getLatency() >= 90.0);
+    }
+
+    @Test(timeout=10000)
+    public void testCancel() throws Exception
+    {
+        final ParallelWriter writer = new ParallelWriter(1);
+        for (int i=0; i<10; ++i)
+            writer.add("pv" + i, delayedWrite(100, null));
+        final long start = System.currentTimeMillis();
+        final List<ParallelWriter.Result> results = writer.execute(5, TimeUnit.SECONDS, null,
+                                                                   () -> System.currentTimeMillis() - start > 250);
+        assertThat(results.get(0).isSuccess(), equalTo(true));
+        // Write in flight at the time of cancellation
+        assertThat(results.get(2).isSuccess(), equalTo(false));
+        assertThat(results.get(2).getError(), is(instanceOf(CancellationException.class)));
+        // Writes that were never started
+        assertThat(results.get(9).isSuccess(), equalTo(false));
+        assertThat(results.get(9).isTimeout(), equalTo(false));
+        assertThat(results.get(9).isStarted(), equalTo(false));
+    }
+
+    @Test(timeout=10000)
+    public void testTimeoutPerWrite() throws Exception
+    {
+        // Writes complete within the timeout, all of them together don't
+        final ParallelWriter writer = new ParallelWriter(1);
+        for (int i=0; i<3; ++i)
+            writer.add("pv" + i, delayedWrite(300, null));
+        writer.add("slow", delayedWrite(2000, null));
+        writer.add("after slow", delayedWrite(10, null));
+        final List<ParallelWriter.Result> results = writer.execute(500, TimeUnit.MILLISECONDS, null, null);
+        for (int i=0; i<3; ++i)
+            assertThat(results.get(i).isSuccess(), equalTo(true));
+        assertThat(results.get(3).isTimeout(), equalTo(true));
+        // Slot of the timed-out write is used for the next one
+        assertThat(results.get(4).isSuccess(), equalTo(true));
+    }
+
+    @Test(timeout=10000)
+    public void testNoWait() throws Exception
+    {
+        final ParallelWriter writer = new ParallelWriter(1);
+        writer.add("slow", delayedWrite(5000, null));
+        writer.add("not started", () -> { throw new Exception("Not connected"); });
+        final long start = System.currentTimeMillis();
+        final List<ParallelWriter.Result> results = writer.execute(0, TimeUnit.SECONDS, null, null);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertThat(results.get(0).isSuccess(), equalTo(true));
+        assertThat(results.get(0).getLatency(), equalTo(-1.0));
+        assertThat(results.get(1).isSuccess(), equalTo(false));
+        assertThat(results.get(1).getError().getMessage(), equalTo("Not connected"));
+    }
+}
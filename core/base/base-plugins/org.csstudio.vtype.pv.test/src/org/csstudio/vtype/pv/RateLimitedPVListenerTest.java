@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link RateLimitedPVListener}
+ *
+ *  <p>Uses a PV that sends updates much faster
+ *  than a slow listener can handle them.
+ */
+@SuppressWarnings("nls")
+public class RateLimitedPVListenerTest
+{
+    /** PV with updates triggered by the test */
+    private static class TestPV extends PV
+    {
+        TestPV()
+        {
+            super("test");
+        }
+
+        @Override
+        public void write(final Object new_value) throws Exception
+        {
+            // NOP
+        }
+
+        void update(final VType value)
+        {
+            notifyListenersOfValue(value);
+        }
+
+        void disconnect()
+        {
+            notifyListenersOfDisconnect();
+        }
+    }
+
+    /** Value with a number */
+    private static class TestValue implements VType
+    {
+        final int number;
+
+        TestValue(final int number)
+        {
+            this.number = number;
+        }
+
+        @Override
+        public String toString()
+        {
+            return Integer.toString(number);
+        }
+    }
+
+    /** Listener that records events and takes some time for each value */
+    private static class SlowListener extends PVListenerAdapter
+    {
+        final List<Object> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final int last;
+        volatile Thread thread;
+
+        SlowListener(final int last)
+        {
+            this.last = last;
+        }
+
+        @Override
+        public void valueChanged(final PV pv, final VType value)
+        {
+            thread = Thread.currentThread();
+            events.add(value);
+            try
+            {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException ex)
+            {
+                // Ignore
+            }
+            if (((TestValue) value).number == last)
+                done.countDown();
+        }
+
+        @Override
+        public void disconnected(final PV pv)
+        {
+            events.add("disconnected");
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testLatestValueWins() throws Exception
+    {
+        final TestPV pv = new TestPV();
+        final int N = 10000;
+        final SlowListener slow = new SlowListener(N-1);
+        final RateLimitedPVListener limited = pv.addListener(slow, 10, TimeUnit.MILLISECONDS);
+
+        // Sending all values does not wait for the slow listener
+        final long start = System.currentTimeMillis();
+        for (int i=0; i<N; ++i)
+            pv.update(new TestValue(i));
+        final long millis = System.currentTimeMillis() - start;
+        assertTrue("Sending took " + millis + " ms", millis < 5000);
+
+        // Last value is delivered
+        assertTrue(slow.done.await(5, TimeUnit.SECONDS));
+        System.out.println(limited);
+        assertThat(limited.getReceivedUpdates(), equalTo((long) N));
+        assertThat(limited.getDroppedUpdates() + slow.events.size(), equalTo((long) N));
+        assertTrue(slow.events.size() < N);
+        assertTrue(slow.thread != Thread.currentThread());
+
+        // Values are delivered in order
+        int previous = -1;
+        for (Object event : slow.events)
+        {
+            final int number = ((TestValue) event).number;
+            assertTrue(number > previous);
+            previous = number;
+        }
+        pv.removeListener(slow);
+    }
+
+    @Test(timeout=10000)
+    public void testDisconnect() throws Exception
+    {
+        final TestPV pv = new TestPV();
+        final SlowListener slow = new SlowListener(3);
+        final RateLimitedPVListener limited = pv.addListener(slow, 500, TimeUnit.MILLISECONDS);
+
+        // First value is delivered right away, then rate limit applies
+        pv.update(new TestValue(0));
+        Thread.sleep(100);
+        pv.update(new TestValue(1));
+        pv.disconnect();
+        pv.update(new TestValue(2));
+        pv.update(new TestValue(3));
+        assertTrue(slow.done.await(5, TimeUnit.SECONDS));
+
+        // Value 1 is obsolete because of the disconnect, 2 replaced by 3
+        assertThat(slow.events.size(), equalTo(3));
+        assertThat(((TestValue) slow.events.get(0)).number, equalTo(0));
+        assertThat(slow.events.get(1), equalTo("disconnected"));
+        assertThat(((TestValue) slow.events.get(2)).number, equalTo(3));
+        assertThat(limited.getDroppedUpdates(), equalTo(2L));
+    }
+
+    @Test(timeout=10000)
+    public void testRemove() throws Exception
+    {
+        final TestPV pv = new TestPV();
+        final SlowListener slow = new SlowListener(-1);
+        final RateLimitedPVListener limited = pv.addListener(slow, 200, TimeUnit.MILLISECONDS);
+        assertThat(limited.getListener(), sameInstance(slow));
+
+        pv.update(new TestValue(0));
+        Thread.sleep(50);
+        pv.update(new TestValue(1));
+        // Removing the original listener removes the rate limited wrapper
+        pv.removeListener(slow);
+        Thread.sleep(400);
+        assertThat(slow.events.size(), equalTo(1));
+    }
+}
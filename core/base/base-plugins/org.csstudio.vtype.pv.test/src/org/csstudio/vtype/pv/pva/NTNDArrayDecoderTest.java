@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.pva;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of the {@link NTNDArrayDecoder}
+ *
+ *  <p>Placed in the package of the decoder, which is not public.
+ */
+@SuppressWarnings("nls")
+public class NTNDArrayDecoderTest
+{
+    /** @param condition Condition to await
+     *  @throws Exception on timeout
+     */
+    private static void await(final BooleanSupplier condition) throws Exception
+    {
+        final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (! condition.getAsBoolean())
+        {
+            if (System.currentTimeMillis() > end)
+                throw new Exception("Timeout");
+            Thread.sleep(10);
+        }
+    }
+
+    /** Image that is decoded while the PV disconnects is not delivered */
+    @Test
+    public void testDisconnect() throws Exception
+    {
+        final List<VType> values = new CopyOnWriteArrayList<>();
+        final NTNDArrayDecoder decoder = new NTNDArrayDecoder("test", values::add);
+        final VType stale = new VType() {}, fresh = new VType() {};
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+
+        decoder.submit(() ->
+        {
+            started.countDown();
+            release.await();
+            return stale;
+        });
+        started.await();
+        decoder.reset();
+        // Image received after reconnect
+        decoder.submit(() -> fresh);
+        release.countDown();
+
+        await(() -> values.size() > 0);
+        assertThat(values.get(0), equalTo(fresh));
+        assertThat(values.size(), equalTo(1));
+        assertThat(decoder.getDroppedCount(), equalTo(1L));
+    }
+
+    /** Nothing is delivered after close */
+    @Test
+    public void testClose() throws Exception
+    {
+        final List<VType> values = new CopyOnWriteArrayList<>();
+        final NTNDArrayDecoder decoder = new NTNDArrayDecoder("test", values::add);
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+
+        decoder.submit(() ->
+        {
+            started.countDown();
+            release.await();
+            return new VType() {};
+        });
+        started.await();
+        decoder.close();
+        release.countDown();
+        // Images received after close are ignored
+        decoder.submit(() -> new VType() {});
+
+        await(() -> decoder.getDroppedCount() >= 2);
+        assertThat(values.size(), equalTo(0));
+    }
+}
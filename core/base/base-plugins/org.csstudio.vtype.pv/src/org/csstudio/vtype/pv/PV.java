@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -74,10 +75,49 @@ abstract public class PV
         listeners.add(listener);
     }
 
-    /** @param listener Listener that will no longer receive value updates */
+    /** Request notifications of PV updates at a limited rate.
+     *
+     *  <p>The listener is invoked on a shared thread pool
+     *  instead of the thread of the PV implementation,
+     *  at most once per period.
+     *  When values arrive faster, only the most recent value is delivered.
+     *  The last value is always delivered.
+     *
+     *  <p>As with {@link #addListener(PVListener)}, caller must
+     *  <code>removeListener()</code> when updates are no longer desired.
+     *
+     *  @param listener Listener that will receive value updates
+     *  @param min_period Minimum period between updates
+     *  @param unit Unit of the period
+     *  @return {@link RateLimitedPVListener} that was added, providing the number of dropped updates
+     *  @see #removeListener(PVListener)
+     */
+    public RateLimitedPVListener addListener(final PVListener listener, final long min_period, final TimeUnit unit)
+    {
+        final RateLimitedPVListener limited = new RateLimitedPVListener(listener, min_period, unit);
+        addListener(limited);
+        return limited;
+    }
+
+    /** @param listener Listener that will no longer receive value updates.
+     *                  May be the listener originally passed to {@link #addListener(PVListener, long, TimeUnit)}
+     */
     public void removeListener(final PVListener listener)
     {
-        listeners.remove(listener);
+        if (listeners.remove(listener))
+        {
+            if (listener instanceof RateLimitedPVListener)
+                ((RateLimitedPVListener) listener).close();
+            return;
+        }
+        for (PVListener existing : listeners)
+            if (existing instanceof RateLimitedPVListener  &&
+                ((RateLimitedPVListener) existing).getListener() == listener  &&
+                listeners.remove(existing))
+            {
+                ((RateLimitedPVListener) existing).close();
+                return;
+            }
     }
 
     /** Read current value
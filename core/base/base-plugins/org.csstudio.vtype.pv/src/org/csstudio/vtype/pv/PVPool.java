@@ -8,9 +8,11 @@
 package org.csstudio.vtype.pv;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import org.csstudio.vtype.pv.RefCountMap.ReferencedEntry;
 
@@ -36,6 +38,10 @@ import org.csstudio.vtype.pv.RefCountMap.ReferencedEntry;
  *  <p>Note also that "loc://x(3.14)" and "loc://x(14)" will be treated
  *  as different PVs.
  *
+ *  <p>The pool does not hold a lock while a factory creates a PV.
+ *  A slow factory only delays the threads that request the same PV name,
+ *  while PVs with other names can be obtained and released concurrently.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -50,17 +56,20 @@ public class PVPool
     final public static String SEPARATOR = "://";
 
     /** Map of PV type prefixes to PV factories */
-    final private static Map<String, PVFactory> factories = new HashMap<>();
+    final private static Map<String, PVFactory> factories = new ConcurrentHashMap<>();
 
     /** Default PV name type prefix */
-    private static String default_type;
+    private static volatile String default_type;
 
-    /** PV Pool
-     *  SYNC on 'pool':
-     *  Otherwise, two threads concurrently looking for a new PV would both add it.
-     */
+    /** PV Pool, using the name of the PV */
     final private static RefCountMap<String, PV> pool = new RefCountMap<>();
 
+    /** PVs that are being created, using the name provided by the user.
+     *  Threads that request a PV which is being created
+     *  wait for its creation instead of creating it again.
+     */
+    final private static ConcurrentHashMap<String, CompletableFuture<PV>> pending = new ConcurrentHashMap<>();
+
     /** Singleton */
     private PVPool()
     {
@@ -121,21 +130,67 @@ public class PVPool
      */
     public static PV getPV(final String name) throws Exception
     {
-        PV pv;
-        synchronized (pool)
-        {   // Try to locate PV in pool
-            pv = pool.get(name);
-            if (pv == null)
+        while (true)
+        {
+            // Try to locate PV in pool
+            final PV pv = pool.get(name);
+            if (pv != null)
+                return pv;
+
+            // Create the PV unless another thread is already creating it
+            final CompletableFuture<PV> creation = new CompletableFuture<>();
+            final CompletableFuture<PV> other = pending.putIfAbsent(name, creation);
+            if (other == null)
+                return createAndAddPV(name, creation);
+
+            // Await PV created by other thread, then add reference.
+            // If the PV has been released and closed in the meantime, try again.
+            final PV created;
+            try
+            {
+                created = other.get();
+            }
+            catch (ExecutionException ex)
             {
-                pv = createPV(name);
-                // Actual name may differ from the provided name.
-                // For example, "loc://x(2)", "loc://x" and "loc://x<VDouble>(4)"
-                // will be the same PV "loc://x" in the pool.
-                if (pool.get(pv.getName()) == null) // Increment reference?
-                    pool.put(pv.getName(), pv);     // Add new PV
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+                throw ex;
             }
+            if (pool.addRef(created.getName(), created))
+                return created;
+        }
+    }
+
+    /** Create PV and add it to the pool
+     *  @param name PV name
+     *  @param creation Future for other threads that request the same name
+     *  @return {@link PV}
+     *  @throws Exception on error
+     */
+    private static PV createAndAddPV(final String name, final CompletableFuture<PV> creation) throws Exception
+    {
+        try
+        {
+            final PV pv = createPV(name);
+            // Actual name may differ from the provided name.
+            // For example, "loc://x(2)", "loc://x" and "loc://x<VDouble>(4)"
+            // will be the same PV "loc://x" in the pool.
+            // Another thread may have created it under a different provided name.
+            final PV pooled = pool.putOrGet(pv.getName(), pv);
+            if (pooled != pv)
+                pv.close();
+            creation.complete(pooled);
+            return pooled;
+        }
+        catch (Throwable ex)
+        {
+            creation.completeExceptionally(ex);
+            throw ex;
+        }
+        finally
+        {
+            pending.remove(name, creation);
         }
-        return pv;
     }
 
     /** Create
@@ -177,11 +232,7 @@ public class PVPool
     /** @param pv PV to be released */
     public static void releasePV(final PV pv)
     {
-        final int references;
-        synchronized (pool)
-        {
-            references = pool.release(pv.getName());
-        }
+        final int references = pool.release(pv.getName());
         if (references == 0)
             pv.close();
     }
@@ -189,9 +240,6 @@ public class PVPool
     /** @return PVs currently in the pool with reference count information */
     public static Collection<ReferencedEntry<PV>> getPVReferences()
     {
-        synchronized (pool)
-        {
-            return pool.getEntries();
-        }
+        return pool.getEntries();
     }
 }
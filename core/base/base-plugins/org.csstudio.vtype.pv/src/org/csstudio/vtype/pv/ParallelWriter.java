@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Write values to many PVs in parallel
+ *
+ *  <p>Writes are started without waiting for the completion
+ *  of earlier writes, up to a maximum number of writes in flight.
+ *  Completion is tracked via the {@link Future} of each write,
+ *  for example the one returned by {@link PV#asyncWrite(Object)}.
+ *  Futures that are also a {@link CompletionStage} report their completion,
+ *  other futures are polled.
+ *
+ *  <p>Each write needs to complete within the timeout, counted from its start.
+ *  With a timeout of 0, writes are started without waiting for their completion.
+ *  The result of each write includes its latency or the reason for failure.
+ */
+@SuppressWarnings("nls")
+public class ParallelWriter
+{
+    /** One write */
+    @FunctionalInterface
+    public static interface Write
+    {
+        /** Start the write, do not wait for its completion
+         *  @return {@link Future} that completes when the write completed, or <code>null</code> if done
+         *  @throws Exception on error
+         */
+        public Future<?> start() throws Exception;
+    }
+
+    /** Listener to progress of the writes */
+    @FunctionalInterface
+    public static interface Listener
+    {
+        /** Invoked in the thread that called {@link ParallelWriter#execute}
+         *  @param result Result of one write
+         */
+        public void writeCompleted(Result result);
+    }
+
+    /** Result of one write */
+    public static class Result
+    {
+        final private String name;
+        final private long latency_nanos;
+        final private Throwable error;
+        final private boolean timeout;
+        final private boolean started;
+
+        Result(final String name, final long latency_nanos, final Throwable error, final boolean timeout,
+               final boolean started)
+        {
+            this.name = name;
+            this.latency_nanos = latency_nanos;
+            this.error = error;
+            this.timeout = timeout;
+            this.started = started;
+        }
+
+        /** @return Name of the write, usually the PV name */
+        public String getName()
+        {
+            return name;
+        }
+
+        /** @return <code>true</code> if write completed without error,
+         *          or was started without waiting for its completion
+         */
+        public boolean isSuccess()
+        {
+            return started  &&  error == null  &&  !timeout;
+        }
+
+        /** @return <code>true</code> if write did not complete within the timeout */
+        public boolean isTimeout()
+        {
+            return timeout;
+        }
+
+        /** @return <code>false</code> if the write was never started, for example because of cancellation */
+        public boolean isStarted()
+        {
+            return started;
+        }
+
+        /** @return Error of a failed write, or <code>null</code> */
+        public Throwable getError()
+        {
+            return error;
+        }
+
+        /** @return Time from start to completion of the write in milliseconds,
+         *          or -1 if it did not complete or its completion was not awaited
+         */
+        public double getLatency()
+        {
+            return latency_nanos < 0 ? -1.0 : latency_nanos / 1e6;
+        }
+
+        @Override
+        public String toString()
+        {
+            if (! started)
+                return name + ": Not written";
+            if (timeout)
+                return name + ": Timeout";
+            if (error != null)
+            {
+                final String message = error.getMessage();
+                return name + ": " + (message == null || message.isEmpty() ? error.getClass().getSimpleName() : message);
+            }
+            if (latency_nanos < 0)
+                return name + ": Written";
+            return String.format("%s: OK (%.1f ms)", name, getLatency());
+        }
+    }
+
+    /** Write that was started */
+    private static class Pending
+    {
+        final int index;
+        final long start;
+        final long deadline;
+        final Future<?> future;
+        volatile long end;
+
+        Pending(final int index, final long start, final long deadline, final Future<?> future)
+        {
+            this.index = index;
+            this.start = start;
+            this.deadline = deadline;
+            this.future = future;
+        }
+    }
+
+    /** Period for polling futures that do not report their completion */
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    final private static Logger logger = Logger.getLogger(ParallelWriter.class.getName());
+
+    final private int max_in_flight;
+
+    final private List<String> names = new ArrayList<>();
+
+    final private List<Write> writes = new ArrayList<>();
+
+    /** @param max_in_flight Maximum number of writes that are started but did not complete */
+    public ParallelWriter(final int max_in_flight)
+    {
+        this.max_in_flight = Math.max(1, max_in_flight);
+    }
+
+    /** @param name Name of the write, usually the PV name
+     *  @param write Write to perform
+     */
+    public void add(final String name, final Write write)
+    {
+        names.add(name);
+        writes.add(write);
+    }
+
+    /** @param pv PV to write
+     *  @param value Value to write, see {@link PV#asyncWrite(Object)}
+     */
+    public void add(final PV pv, final Object value)
+    {
+        add(pv.getName(), () -> pv.asyncWrite(value));
+    }
+
+    /** @return Number of writes */
+    public int size()
+    {
+        return writes.size();
+    }
+
+    /** Perform all writes
+     *
+     *  <p>Blocks the calling thread until all writes completed or timed out,
+     *  or the writes are cancelled.
+     *  Writes that did not complete within the timeout are reported as timed out.
+     *  When cancelled, writes that did not complete yet
+     *  fail with a {@link CancellationException},
+     *  and writes that were not started yet are reported as such.
+     *
+     *  @param timeout Timeout for each write, 0 to not wait for completion
+     *  @param unit Unit of the timeout
+     *  @param listener Listener to progress, may be <code>null</code>
+     *  @param cancelled Checked while waiting, may be <code>null</code>
+     *  @return Result of each write, in the order in which they were added
+     *  @throws InterruptedException when interrupted
+     */
+    public List<Result> execute(final long timeout, final TimeUnit unit,
+                                final Listener listener, final BooleanSupplier cancelled) throws InterruptedException
+    {
+        final int N = writes.size();
+        final Result[] results = new Result[N];
+        final long timeout_nanos = unit.toNanos(timeout);
+        // All writes use the same timeout, so start order is also deadline order
+        final Set<Pending> in_flight = new LinkedHashSet<>();
+        final BlockingQueue<Pending> completed = new LinkedBlockingQueue<>();
+        final List<Pending> polled = new ArrayList<>();
+        int next = 0, done = 0;
+        boolean cancel = false;
+        while (done < N)
+        {
+            cancel = cancelled != null  &&  cancelled.getAsBoolean();
+            if (cancel)
+                break;
+
+            // Start writes
+            while (next < N  &&  in_flight.size() < max_in_flight)
+            {
+                final int index = next++;
+                final long start = System.nanoTime();
+                Future<?> future;
+                try
+                {
+                    future = writes.get(index).start();
+                }
+                catch (Exception ex)
+                {
+                    future = failedFuture(ex);
+                }
+                if (future == null)
+                    future = CompletableFuture.completedFuture(null);
+                if (timeout_nanos <= 0  &&  !future.isDone())
+                {   // Don't wait for completion
+                    results[index] = new Result(names.get(index), -1, null, false, true);
+                    ++done;
+                    if (listener != null)
+                        listener.writeCompleted(results[index]);
+                    continue;
+                }
+                final Pending pending = new Pending(index, start, start + timeout_nanos, future);
+                in_flight.add(pending);
+                if (future instanceof CompletionStage)
+                    ((CompletionStage<?>) future).whenComplete((value, error) ->
+                    {
+                        pending.end = System.nanoTime();
+                        completed.offer(pending);
+                    });
+                else
+                    polled.add(pending);
+            }
+
+            // Check futures that do not report completion
+            final Iterator<Pending> iter = polled.iterator();
+            while (iter.hasNext())
+            {
+                final Pending pending = iter.next();
+                if (pending.future.isDone())
+                {
+                    pending.end = System.nanoTime();
+                    iter.remove();
+                    completed.offer(pending);
+                }
+            }
+
+            // Collect completed writes, waiting until the next write is due
+            Pending pending = completed.poll();
+            if (pending == null  &&  !in_flight.isEmpty())
+            {   // Wake up to poll futures or check for cancellation
+                long wait = in_flight.iterator().next().deadline - System.nanoTime();
+                if (!polled.isEmpty()  ||  cancelled != null)
+                    wait = Math.min(wait, POLL_NANOS);
+                if (wait > 0)
+                    pending = completed.poll(wait, TimeUnit.NANOSECONDS);
+            }
+            while (pending != null)
+            {
+                // Ignore writes that already timed out
+                if (in_flight.remove(pending))
+                {
+                    ++done;
+                    results[pending.index] = complete(pending);
+                    if (listener != null)
+                        listener.writeCompleted(results[pending.index]);
+                }
+                pending = completed.poll();
+            }
+
+            // Writes that did not complete in time
+            final long now = System.nanoTime();
+            final Iterator<Pending> expired = in_flight.iterator();
+            while (expired.hasNext())
+            {
+                pending = expired.next();
+                if (pending.deadline - now > 0)
+                    break;
+                expired.remove();
+                polled.remove(pending);
+                ++done;
+                results[pending.index] = new Result(names.get(pending.index), -1, null, true, true);
+                if (listener != null)
+                    listener.writeCompleted(results[pending.index]);
+            }
+        }
+
+        // Writes that were cancelled
+        for (int i=0; i<N; ++i)
+        {
+            if (results[i] != null)
+                continue;
+            if (i < next)
+                results[i] = new Result(names.get(i), -1, new CancellationException("Cancelled while writing"), false, true);
+            else
+                results[i] = new Result(names.get(i), -1, null, false, false);
+            if (listener != null)
+                listener.writeCompleted(results[i]);
+        }
+        if (logger.isLoggable(Level.FINE))
+            logger.log(Level.FINE, "Wrote {0} PVs, {1} failed",
+                       new Object[] { N, Arrays.stream(results).filter(r -> !r.isSuccess()).count() });
+        return Arrays.asList(results);
+    }
+
+    private Result complete(final Pending pending)
+    {
+        final String name = names.get(pending.index);
+        try
+        {
+            pending.future.get(0, TimeUnit.NANOSECONDS);
+            return new Result(name, pending.end - pending.start, null, false, true);
+        }
+        catch (ExecutionException ex)
+        {
+            return new Result(name, pending.end - pending.start, ex.getCause(), false, true);
+        }
+        catch (Exception ex)
+        {
+            return new Result(name, pending.end - pending.start, ex, false, true);
+        }
+    }
+
+    private static Future<?> failedFuture(final Exception error)
+    {
+        final CompletableFuture<?> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
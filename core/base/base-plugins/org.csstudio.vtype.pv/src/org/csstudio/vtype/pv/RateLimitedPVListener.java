@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.csstudio.vtype.pv.internal.Preferences;
+import org.diirt.vtype.VType;
+
+/** {@link PVListener} that limits the rate of updates to another listener
+ *
+ *  <p>Events are received in the thread of the PV implementation,
+ *  for example the Channel Access callback thread,
+ *  and delivered to the wrapped listener on a shared thread pool,
+ *  at most once per period.
+ *  A slow listener thus no longer delays other listeners
+ *  or other channels.
+ *
+ *  <p>When values arrive faster than they can be delivered,
+ *  the most recent value replaces older values that are still pending.
+ *  Replaced values are counted as dropped.
+ *  The last value is always delivered.
+ *  Permission changes and disconnects are never dropped,
+ *  and all events are delivered in the order in which they were received.
+ *
+ *  @see PV#addListener(PVListener, long, TimeUnit)
+ */
+@SuppressWarnings("nls")
+public class RateLimitedPVListener implements PVListener
+{
+    /** Shared thread pool for delivering events */
+    private static final ScheduledExecutorService executor;
+
+    static
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory threads = target ->
+        {
+            final Thread thread = new Thread(target, "PVListener-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ScheduledThreadPoolExecutor pool =
+            new ScheduledThreadPoolExecutor(Math.max(1, Preferences.getListenerThreads()), threads);
+        pool.setRemoveOnCancelPolicy(true);
+        executor = pool;
+    }
+
+    /** Pending event for a change in permissions */
+    private static class Permissions
+    {
+        final boolean readonly;
+
+        Permissions(final boolean readonly)
+        {
+            this.readonly = readonly;
+        }
+    }
+
+    /** Pending event for a disconnect */
+    private static final Object DISCONNECTED = new Object();
+
+    final private PVListener listener;
+
+    final private long period_nanos;
+
+    final private AtomicLong received = new AtomicLong(), dropped = new AtomicLong();
+
+    /** Events that have not been delivered.
+     *  Values are {@link VType}, other events {@link Permissions} or {@link #DISCONNECTED}.
+     *  SYNC on this.
+     */
+    private final List<Object> pending = new ArrayList<>();
+
+    /** PV that sent the pending events. SYNC on this */
+    private PV pv;
+
+    /** Is a delivery scheduled? SYNC on this */
+    private boolean scheduled = false;
+
+    /** Earliest time for the next delivery. SYNC on this */
+    private long next_delivery = System.nanoTime();
+
+    /** Has the listener been removed from the PV? */
+    private volatile boolean closed = false;
+
+    /** @param listener Listener that will receive the events
+     *  @param min_period Minimum period between deliveries, 0 to only decouple the listener from the PV thread
+     *  @param unit Unit of the period
+     */
+    public RateLimitedPVListener(final PVListener listener, final long min_period, final TimeUnit unit)
+    {
+        this.listener = listener;
+        this.period_nanos = unit.toNanos(Math.max(0, min_period));
+    }
+
+    /** @return Listener that receives the events */
+    public PVListener getListener()
+    {
+        return listener;
+    }
+
+    /** @return Number of values received from the PV */
+    public long getReceivedUpdates()
+    {
+        return received.get();
+    }
+
+    /** @return Number of values that were replaced by a newer value before they could be delivered */
+    public long getDroppedUpdates()
+    {
+        return dropped.get();
+    }
+
+    /** Stop delivering events */
+    void close()
+    {
+        closed = true;
+        synchronized (this)
+        {
+            pending.clear();
+        }
+    }
+
+    @Override
+    public void permissionsChanged(final PV pv, final boolean readonly)
+    {
+        add(pv, new Permissions(readonly));
+    }
+
+    @Override
+    public void valueChanged(final PV pv, final VType value)
+    {
+        received.incrementAndGet();
+        add(pv, value);
+    }
+
+    @Override
+    public void disconnected(final PV pv)
+    {
+        add(pv, DISCONNECTED);
+    }
+
+    private synchronized void add(final PV pv, final Object event)
+    {
+        if (closed)
+            return;
+        this.pv = pv;
+        final int last = pending.size() - 1;
+        if (event instanceof VType  &&  last >= 0  &&  pending.get(last) instanceof VType)
+        {   // Latest value wins
+            pending.set(last, event);
+            dropped.incrementAndGet();
+        }
+        else
+        {
+            if (event == DISCONNECTED)
+            {   // Values received before the disconnect are obsolete
+                final Iterator<Object> iter = pending.iterator();
+                while (iter.hasNext())
+                    if (iter.next() instanceof VType)
+                    {
+                        iter.remove();
+                        dropped.incrementAndGet();
+                    }
+            }
+            pending.add(event);
+        }
+        schedule();
+    }
+
+    /** Schedule delivery of pending events. SYNC on this */
+    private void schedule()
+    {
+        if (scheduled  ||  pending.isEmpty())
+            return;
+        scheduled = true;
+        final long delay = next_delivery - System.nanoTime();
+        executor.schedule(this::deliver, Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    /** Deliver pending events, called on the executor */
+    private void deliver()
+    {
+        final PV pv;
+        final Object[] events;
+        synchronized (this)
+        {
+            pv = this.pv;
+            events = pending.toArray();
+            pending.clear();
+        }
+        for (Object event : events)
+        {
+            if (closed)
+                break;
+            try
+            {
+                if (event instanceof VType)
+                    listener.valueChanged(pv, (VType) event);
+                else if (event instanceof Permissions)
+                    listener.permissionsChanged(pv, ((Permissions) event).readonly);
+                else
+                    listener.disconnected(pv);
+            }
+            catch (Throwable ex)
+            {
+                PV.logger.log(Level.WARNING, pv.getName() + " PVListener error", ex);
+            }
+        }
+        synchronized (this)
+        {
+            next_delivery = System.nanoTime() + period_nanos;
+            scheduled = false;
+            // Events that arrived while delivering
+            schedule();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Rate limited " + listener + ", " + dropped.get() + " of " + received.get() + " updates dropped";
+    }
+}
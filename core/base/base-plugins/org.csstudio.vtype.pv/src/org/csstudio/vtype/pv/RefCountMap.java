@@ -7,16 +7,17 @@
  ******************************************************************************/
 package org.csstudio.vtype.pv;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Map that keeps reference count for its objects
  *
- *  <p>Caller may need to synchronize calls to this map,
- *  because there is no atomic operation to check if an item exists,
- *  and if not, create and add it to the map.
+ *  <p>Thread-safe. Each call is atomic with respect to the key
+ *  that it accesses, without locking the complete map.
+ *  {@link #putOrGet(Object, Object)} allows checking if an item exists
+ *  and adding it if not in one atomic operation.
  *
  *  @param <K> Key data type
  *  @param <E> Entry data type
@@ -29,7 +30,7 @@ public class RefCountMap<K, E>
     public static class ReferencedEntry<E>
     {
         final private E entry;
-        private int references = 1;
+        private volatile int references = 1;
 
         ReferencedEntry(E entry)
         {
@@ -65,7 +66,7 @@ public class RefCountMap<K, E>
         }
     }
 
-    final private Map<K, ReferencedEntry<E>> map = new HashMap<>();
+    final private ConcurrentHashMap<K, ReferencedEntry<E>> map = new ConcurrentHashMap<>();
 
     /** Get an item.
      *  On success, a reference count is added to the item.
@@ -74,11 +75,33 @@ public class RefCountMap<K, E>
      */
     public E get(final K key)
     {
-        final ReferencedEntry<E> entry = map.get(key);
-        if (entry == null)
-            return null;
-        entry.addRef();
-        return entry.getEntry();
+        final ReferencedEntry<E> entry = map.computeIfPresent(key, (k, existing) ->
+        {
+            existing.addRef();
+            return existing;
+        });
+        return entry == null ? null : entry.getEntry();
+    }
+
+    /** Add a reference to a specific item
+     *  @param key Key for item
+     *  @param item The item that is expected under the key
+     *  @return <code>true</code> if a reference was added,
+     *          <code>false</code> if the key is not in the map or refers to a different item
+     */
+    public boolean addRef(final K key, final E item)
+    {
+        final boolean[] added = { false };
+        map.computeIfPresent(key, (k, existing) ->
+        {
+            if (existing.getEntry() == item)
+            {
+                existing.addRef();
+                added[0] = true;
+            }
+            return existing;
+        });
+        return added[0];
     }
 
     /** Add item to map with initial reference count of 1
@@ -87,9 +110,26 @@ public class RefCountMap<K, E>
      */
     public void put(final K key, final E entry)
     {
-        if (map.containsKey(key))
+        if (map.putIfAbsent(key, new ReferencedEntry<E>(entry)) != null)
             throw new IllegalStateException("Already referenced " + key);
-        map.put(key,  new ReferencedEntry<E>(entry));
+    }
+
+    /** Add item to map with initial reference count of 1,
+     *  unless the map already holds an item for the key,
+     *  in which case a reference count is added to the existing item
+     *  @param key Item key
+     *  @param entry The item to add
+     *  @return Item that is now in the map, either the existing one or the added one
+     */
+    public E putOrGet(final K key, final E entry)
+    {
+        return map.compute(key, (k, existing) ->
+        {
+            if (existing == null)
+                return new ReferencedEntry<E>(entry);
+            existing.addRef();
+            return existing;
+        }).getEntry();
     }
 
     /** Release an item from the map
@@ -98,18 +138,21 @@ public class RefCountMap<K, E>
      */
     public int release(final K key)
     {
-        final ReferencedEntry<E> entry = map.get(key);
-        if (entry == null)
+        // Remaining references, or -1 if key was not found
+        final int[] remaining = { -1 };
+        map.computeIfPresent(key, (k, existing) ->
+        {
+            remaining[0] = existing.decRef();
+            return remaining[0] <= 0 ? null : existing;
+        });
+        if (remaining[0] < 0)
             throw new IllegalStateException("No reference found for " + key);
-        final int remaining = entry.decRef();
-        if (remaining <= 0)
-            map.remove(key);
-        return remaining;
+        return remaining[0];
     }
 
     /** @return Entries in map */
     public Collection<ReferencedEntry<E>> getEntries()
     {
-        return Collections.unmodifiableCollection(map.values());
+        return Collections.unmodifiableCollection(new ArrayList<>(map.values()));
     }
 }
@@ -27,6 +27,22 @@ public class Preferences
         return service.getString(plugin, setting, default_value, null);
     }
 
+    private static boolean getBoolean(final String plugin, final String setting, final boolean default_value)
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return default_value;
+        return service.getBoolean(plugin, setting, default_value, null);
+    }
+
+    private static int getInt(final String plugin, final String setting, final int default_value)
+    {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return default_value;
+        return service.getInt(plugin, setting, default_value, null);
+    }
+
     public static String defaultType()
     {
         return getString(PVPlugin.ID, "default_type", JCA_PVFactory.TYPE);
@@ -38,4 +54,22 @@ public class Preferences
         return getString(PVPlugin.ID, "mqtt_broker", MQTT_PVFactory.BROKER_URL);
     }
 
+    /** @return Publish all MQTT values in binary encoding? */
+    public static boolean isMQTTBinary()
+    {
+        return getBoolean(PVPlugin.ID, "mqtt_binary", false);
+    }
+
+    /** @return Suffix of MQTT topics that use binary encoding, may be empty */
+    public static String getMQTTBinarySuffix()
+    {
+        return getString(PVPlugin.ID, "mqtt_binary_suffix", "/vtype");
+    }
+
+    /** @return Number of threads for delivering updates to rate limited listeners */
+    public static int getListenerThreads()
+    {
+        return getInt(PVPlugin.ID, "listener_threads", 2);
+    }
+
 }
@@ -9,111 +9,93 @@ package org.csstudio.vtype.pv.jca;
 
 import java.text.NumberFormat;
 
-import org.diirt.util.text.NumberFormats;
 import org.diirt.vtype.Display;
 
-import gov.aps.jca.dbr.CTRL;
 import gov.aps.jca.dbr.GR;
-import gov.aps.jca.dbr.PRECISION;
 import gov.aps.jca.dbr.TIME;
 /** Wrap DBR as VType
+ *
+ *  <p>Display information is provided by a {@link DBRDisplay},
+ *  which can be shared by all values of a channel.
  *
  *  <p>Based on ideas from org.epics.pvmanager.jca, Gabriele Carcassi
  *  @author Kay Kasemir
  */
-@SuppressWarnings("nls")
 public class DBRAlarmTimeDisplayWrapper<T_DBR extends TIME> extends DBRAlarmTimeWrapper<T_DBR> implements Display
 {
-    final private GR metadata;
+    final private Display display;
 
     public DBRAlarmTimeDisplayWrapper(final GR metadata, final T_DBR dbr)
+    {
+        this(DBRDisplay.forMetadata(metadata), dbr);
+    }
+
+    /** @param display Display information, shared with other values of the channel
+     *  @param dbr DBR with value, alarm and time stamp
+     */
+    public DBRAlarmTimeDisplayWrapper(final Display display, final T_DBR dbr)
     {
         super(dbr);
-        this.metadata = metadata;
+        this.display = display;
     }
 
     @Override
     public Double getLowerDisplayLimit()
     {
-        if (metadata == null)
-            return Double.NaN;
-        return metadata.getLowerDispLimit().doubleValue();
+        return display.getLowerDisplayLimit();
     }
 
     @Override
     public Double getLowerCtrlLimit()
     {
-        if (metadata instanceof CTRL)
-            return ((CTRL)metadata).getLowerCtrlLimit().doubleValue();
-        return getLowerDisplayLimit();
+        return display.getLowerCtrlLimit();
     }
 
     @Override
     public Double getLowerAlarmLimit()
     {
-        if (metadata == null)
-            return Double.NaN;
-        return metadata.getLowerAlarmLimit().doubleValue();
+        return display.getLowerAlarmLimit();
     }
 
     @Override
     public Double getLowerWarningLimit()
     {
-        if (metadata == null)
-            return Double.NaN;
-        return metadata.getLowerWarningLimit().doubleValue();
+        return display.getLowerWarningLimit();
     }
 
     @Override
     public String getUnits()
     {
-        if (metadata == null)
-            return "?";
-        return metadata.getUnits();
+        return display.getUnits();
     }
 
     @Override
-    public synchronized NumberFormat getFormat()
+    public NumberFormat getFormat()
     {
-        if (metadata instanceof PRECISION)
-        {
-            final int precision = ((PRECISION) metadata).getPrecision();
-            if (precision >= 0)
-                return NumberFormats.format(precision);
-            return NumberFormats.toStringFormat();
-        }
-        return NumberFormats.format(0);
+        return display.getFormat();
     }
 
     @Override
     public Double getUpperWarningLimit()
     {
-        if (metadata == null)
-            return Double.NaN;
-        return metadata.getUpperWarningLimit().doubleValue();
+        return display.getUpperWarningLimit();
     }
 
     @Override
     public Double getUpperAlarmLimit()
     {
-        if (metadata == null)
-            return Double.NaN;
-        return metadata.getUpperAlarmLimit().doubleValue();
+        return display.getUpperAlarmLimit();
     }
 
     @Override
     public Double getUpperCtrlLimit()
     {
-        if (metadata instanceof CTRL)
-            return ((CTRL)metadata).getUpperCtrlLimit().doubleValue();
-        return getUpperDisplayLimit();
+        return display.getUpperCtrlLimit();
     }
 
     @Override
     public Double getUpperDisplayLimit()
     {
-        if (metadata == null)
-            return Double.NaN;
-        return metadata.getUpperDispLimit().doubleValue();
+        return display.getUpperDisplayLimit();
     }
 }
@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.vtype.pv.jca;
 
+import org.diirt.vtype.Display;
 import org.diirt.vtype.VType;
 
 import gov.aps.jca.dbr.DBR;
@@ -19,7 +20,6 @@ import gov.aps.jca.dbr.DBR_TIME_Enum;
 import gov.aps.jca.dbr.DBR_TIME_Float;
 import gov.aps.jca.dbr.DBR_TIME_Int;
 import gov.aps.jca.dbr.DBR_TIME_Short;
-import gov.aps.jca.dbr.GR;
 import gov.aps.jca.dbr.LABELS;
 
 /** Helper for handling DBR types
@@ -67,13 +67,26 @@ public class DBRHelper
     }
 
     public static VType decodeValue(final boolean is_array, final Object metadata, final DBR dbr) throws Exception
+    {
+        return decodeValue(is_array, metadata, DBRDisplay.forMetadata(metadata), dbr);
+    }
+
+    /** @param is_array Decode as array?
+     *  @param metadata Meta data of the channel
+     *  @param display Display information for the meta data, shared by all values of the channel
+     *  @param dbr Value to decode
+     *  @return {@link VType}
+     *  @throws Exception on error
+     */
+    public static VType decodeValue(final boolean is_array, final Object metadata, final Display display,
+                                    final DBR dbr) throws Exception
     {
         // Rough guess, but somewhat in order of most frequently used type
         if (dbr instanceof DBR_TIME_Double)
         {
             if (is_array)
-                return new VTypeForDoubleArray((GR) metadata, (DBR_TIME_Double) dbr);
-            return new VTypeForDouble((GR) metadata, (DBR_TIME_Double) dbr);
+                return new VTypeForDoubleArray(display, (DBR_TIME_Double) dbr);
+            return new VTypeForDouble(display, (DBR_TIME_Double) dbr);
         }
 
         if (dbr instanceof DBR_String)
@@ -110,29 +123,29 @@ public class DBRHelper
         if (dbr instanceof DBR_TIME_Float)
         {
             if (is_array)
-                return new VTypeForFloatArray((GR) metadata, (DBR_TIME_Float) dbr);
-            return new VTypeForFloat((GR) metadata, (DBR_TIME_Float) dbr);
+                return new VTypeForFloatArray(display, (DBR_TIME_Float) dbr);
+            return new VTypeForFloat(display, (DBR_TIME_Float) dbr);
         }
 
         if (dbr instanceof DBR_TIME_Int)
         {
             if (is_array)
-                return new VTypeForIntArray((GR) metadata, (DBR_TIME_Int) dbr);
-            return new VTypeForInt((GR) metadata, (DBR_TIME_Int) dbr);
+                return new VTypeForIntArray(display, (DBR_TIME_Int) dbr);
+            return new VTypeForInt(display, (DBR_TIME_Int) dbr);
         }
 
         if (dbr instanceof DBR_TIME_Short)
         {
             if (is_array)
-                return new VTypeForShortArray((GR) metadata, (DBR_TIME_Short) dbr);
-           return new VTypeForShort((GR) metadata, (DBR_TIME_Short) dbr);
+                return new VTypeForShortArray(display, (DBR_TIME_Short) dbr);
+           return new VTypeForShort(display, (DBR_TIME_Short) dbr);
         }
 
         if (dbr instanceof DBR_TIME_Byte)
         {
             if (is_array)
-                return new VTypeForByteArray((GR) metadata, (DBR_TIME_Byte) dbr);
-           return new VTypeForByte((GR) metadata, (DBR_TIME_Byte) dbr);
+                return new VTypeForByteArray(display, (DBR_TIME_Byte) dbr);
+           return new VTypeForByte(display, (DBR_TIME_Byte) dbr);
         }
 
         throw new Exception("Cannot handle " + dbr.getClass().getName());
@@ -74,6 +74,11 @@ public class JCA_PV extends PV implements ConnectionListener, MonitorListener, A
      */
     private volatile DBR metadata = null;
 
+    /** Display information for the meta data.
+     *  Shared by all values until the meta data changes.
+     */
+    private volatile DBRDisplay display = DBRDisplay.NONE;
+
     /** Listener to initial get-callback for meta data */
     final private GetListener meta_get_listener = (GetEvent ev) ->
     {
@@ -83,12 +88,12 @@ public class JCA_PV extends PV implements ConnectionListener, MonitorListener, A
         // to provide meta data
         if (ev.getStatus().isSuccessful())
         {
-            metadata = ev.getDBR();
+            setMetadata(ev.getDBR());
             logger.log(Level.FINE, "{0} received meta data: {1}", new Object[] { getName(), metadata });
         }
         else
         {
-            metadata = null;
+            setMetadata(null);
             logger.log(Level.FINE, "{0} has no meta data: {1}", new Object[] { getName(), ev.getStatus() });
         }
         // If channel changed its type, cancel potentially existing subscription
@@ -105,12 +110,19 @@ public class JCA_PV extends PV implements ConnectionListener, MonitorListener, A
     {
         if (ev.getStatus().isSuccessful())
         {
-            metadata = ev.getDBR();
+            setMetadata(ev.getDBR());
             logger.log(Level.FINE, "{0} received new meta data: {1}", new Object[] { getName(), metadata });
             monitorChanged(ev);
         }
     };
 
+    /** @param new_metadata Meta data, may be <code>null</code> */
+    private void setMetadata(final DBR new_metadata)
+    {
+        display = DBRDisplay.forMetadata(new_metadata);
+        metadata = new_metadata;
+    }
+
     /** Value update subscription.
      *  Non-zero value also used to indicate access right change subscription.
      */
@@ -338,7 +350,7 @@ public class JCA_PV extends PV implements ConnectionListener, MonitorListener, A
             final CAStatus status = ev.getStatus();
             if (status != null  &&  status.isSuccessful())
             {
-                final VType value = DBRHelper.decodeValue(is_array, metadata, ev.getDBR());
+                final VType value = DBRHelper.decodeValue(is_array, metadata, display, ev.getDBR());
                 logger.log(Level.FINE, "{0} = {1}", new Object[] { getName(), value });
                 notifyListenersOfValue(value);
             }
@@ -362,7 +374,7 @@ public class JCA_PV extends PV implements ConnectionListener, MonitorListener, A
             {
                 if (ev.getStatus().isSuccessful())
                 {
-                    final VType value = DBRHelper.decodeValue(is_array, metadata, ev.getDBR());
+                    final VType value = DBRHelper.decodeValue(is_array, metadata, display, ev.getDBR());
                     logger.log(Level.FINE, "{0} get-callback {1}", new Object[] { getName(), value });
                     complete(value);
                 }
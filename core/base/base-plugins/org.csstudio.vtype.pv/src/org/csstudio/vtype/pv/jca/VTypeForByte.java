@@ -10,6 +10,7 @@ package org.csstudio.vtype.pv.jca;
 import gov.aps.jca.dbr.DBR_TIME_Byte;
 import gov.aps.jca.dbr.GR;
 
+import org.diirt.vtype.Display;
 import org.diirt.vtype.VByte;
 import org.diirt.vtype.VTypeToString;
 
@@ -25,6 +26,14 @@ public class VTypeForByte extends DBRAlarmTimeDisplayWrapper<DBR_TIME_Byte> impl
         super(metadata, dbr);
     }
 
+    /** @param display Display information, shared with other values of the channel
+     *  @param dbr DBR with value, alarm and time stamp
+     */
+    public VTypeForByte(final Display display, final DBR_TIME_Byte dbr)
+    {
+        super(display, dbr);
+    }
+
     @Override
     public Byte getValue()
     {
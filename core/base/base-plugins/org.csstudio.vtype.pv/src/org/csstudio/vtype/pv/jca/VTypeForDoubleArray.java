@@ -17,38 +17,65 @@ import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ListDouble;
 import org.diirt.util.array.ListInt;
 import org.diirt.vtype.ArrayDimensionDisplay;
+import org.diirt.vtype.Display;
 import org.diirt.vtype.VDoubleArray;
 import org.diirt.vtype.VTypeToString;
 import org.diirt.vtype.ValueUtil;
 
 /** Wrap DBR as VType
+ *
+ *  <p>The list views of the DBR data are created once, on first access,
+ *  and then shared by all users of the value.
  *
  *  <p>Based on ideas from org.epics.pvmanager.jca, Gabriele Carcassi
  *  @author Kay Kasemir
  */
 public class VTypeForDoubleArray extends DBRAlarmTimeDisplayWrapper<DBR_TIME_Double> implements VDoubleArray
 {
+    /** Cached views, created on first access */
+    private volatile ListDouble data;
+    private volatile ListInt sizes;
+    private volatile List<ArrayDimensionDisplay> dimension_display;
+
     public VTypeForDoubleArray(final GR metadata, final DBR_TIME_Double dbr)
     {
         super(metadata, dbr);
     }
 
+    /** @param display Display information, shared with other values of the channel
+     *  @param dbr DBR with value, alarm and time stamp
+     */
+    public VTypeForDoubleArray(final Display display, final DBR_TIME_Double dbr)
+    {
+        super(display, dbr);
+    }
+
     @Override
     public List<ArrayDimensionDisplay> getDimensionDisplay()
     {
-        return ValueUtil.defaultArrayDisplay(this);
+        // Benign race: Concurrent callers might each create an equivalent instance
+        List<ArrayDimensionDisplay> result = dimension_display;
+        if (result == null)
+            dimension_display = result = ValueUtil.defaultArrayDisplay(this);
+        return result;
     }
 
     @Override
     public ListInt getSizes()
     {
-        return new ArrayInt(dbr.getDoubleValue().length);
+        ListInt result = sizes;
+        if (result == null)
+            sizes = result = new ArrayInt(dbr.getDoubleValue().length);
+        return result;
     }
 
     @Override
     public ListDouble getData()
     {
-        return new ArrayDouble(dbr.getDoubleValue());
+        ListDouble result = data;
+        if (result == null)
+            data = result = new ArrayDouble(dbr.getDoubleValue());
+        return result;
     }
 
     @Override
@@ -12,6 +12,7 @@ import gov.aps.jca.dbr.LABELS;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.diirt.util.array.ArrayInt;
@@ -29,6 +30,10 @@ public class VTypeForEnumArray extends DBRAlarmTimeWrapper<DBR_TIME_Enum> implem
 {
     final private LABELS labels;
 
+    /** Cached views, created on first access */
+    private volatile List<String> data;
+    private volatile ListInt sizes;
+
     public VTypeForEnumArray(final LABELS labels, final DBR_TIME_Enum dbr)
     {
         super(dbr);
@@ -44,11 +49,23 @@ public class VTypeForEnumArray extends DBRAlarmTimeWrapper<DBR_TIME_Enum> implem
     @Override
     public ListInt getSizes()
     {
-        return new ArrayInt(dbr.getEnumValue().length);
+        ListInt result = sizes;
+        if (result == null)
+            sizes = result = new ArrayInt(dbr.getEnumValue().length);
+        return result;
     }
 
     @Override
     public List<String> getData()
+    {
+        // Benign race: Concurrent callers might each create an equivalent list
+        List<String> result = data;
+        if (result == null)
+            data = result = Collections.unmodifiableList(createData());
+        return result;
+    }
+
+    private List<String> createData()
     {
         final String[] labels = this.labels.getLabels();
         final short[] enum_indices = dbr.getEnumValue();
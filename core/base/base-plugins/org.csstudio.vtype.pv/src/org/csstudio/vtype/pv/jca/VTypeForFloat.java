@@ -10,6 +10,7 @@ package org.csstudio.vtype.pv.jca;
 import gov.aps.jca.dbr.DBR_TIME_Float;
 import gov.aps.jca.dbr.GR;
 
+import org.diirt.vtype.Display;
 import org.diirt.vtype.VFloat;
 import org.diirt.vtype.VTypeToString;
 
@@ -25,6 +26,14 @@ public class VTypeForFloat extends DBRAlarmTimeDisplayWrapper<DBR_TIME_Float> im
         super(metadata, dbr);
     }
 
+    /** @param display Display information, shared with other values of the channel
+     *  @param dbr DBR with value, alarm and time stamp
+     */
+    public VTypeForFloat(final Display display, final DBR_TIME_Float dbr)
+    {
+        super(display, dbr);
+    }
+
     @Override
     public Float getValue()
     {
@@ -120,7 +120,7 @@ public class LocalPVFactory implements PVFactory
     {
         synchronized (local_pvs)
         {
-            local_pvs.remove(pv.getName());
+            local_pvs.remove(pv.getName(), pv);
         }
     }
 
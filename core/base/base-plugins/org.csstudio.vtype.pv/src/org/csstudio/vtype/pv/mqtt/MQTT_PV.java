@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.logging.Level;
 
 import org.csstudio.vtype.pv.PV;
+import org.csstudio.vtype.pv.internal.Preferences;
 import org.diirt.vtype.VDouble;
 import org.diirt.vtype.VDoubleArray;
 import org.diirt.vtype.VEnum;
@@ -22,10 +23,16 @@ import org.diirt.vtype.VType;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
 /** MQTT Process Variable
+ *
+ *  <p>Values are published as text,
+ *  or in the binary encoding of {@link VTypeToFromBinary}
+ *  when enabled by preference or the topic suffix.
+ *  Received messages may use either encoding.
+ *
  *  @author Megan Grodowitz
  */
 @SuppressWarnings("nls")
-public class MQTT_PV extends PV
+public class MQTT_PV extends PV implements TopicSubscribers.Subscriber
 {
     static final MQTT_PVConn conx = new MQTT_PVConn();
 
@@ -33,6 +40,9 @@ public class MQTT_PV extends PV
 
     private Class<? extends VType> type;
 
+    /** Publish values in binary encoding? */
+    private boolean binary;
+
 
     protected MQTT_PV(final String name, final String base_name) throws Exception
     {
@@ -56,6 +66,9 @@ public class MQTT_PV extends PV
     {
         final String[] ntv = parseName(base_name);
         topicStr = ntv[0];
+        final String suffix = Preferences.getMQTTBinarySuffix();
+        binary = Preferences.isMQTTBinary()  ||
+                 (!suffix.isEmpty()  &&  topicStr.endsWith(suffix));
 
         if (ntv[1] != null) {
             //topicStr += ntv[1];
@@ -147,12 +160,15 @@ public class MQTT_PV extends PV
     {
         if (new_value == null)
             throw new Exception(getName() + " got null");
+        if (TopicSubscribers.isFilter(topicStr))
+            throw new Exception(getName() + " cannot publish to topic filter " + topicStr);
 
-        final String pubMsg;
+        final byte[] pubMsg;
         try
         {
             final VType value = VTypeToFromString.convert(new_value, type, read());
-            pubMsg = VTypeToFromString.ToString(value);
+            pubMsg = binary ? VTypeToFromBinary.toBytes(value)
+                            : VTypeToFromString.ToString(value).getBytes();
         }
         catch (Exception ex)
         {
@@ -186,27 +202,28 @@ public class MQTT_PV extends PV
     /**
      * Called when a message arrives from a subscribed topic
      */
+    @Override
     public void messageArrived(String topic, MqttMessage msg) throws Exception
     {
-        final String new_value = msg.toString();
-        System.out.println("MQTT_PV Message arrived: " + topic + " : " + msg.toString());
-
-        if (!topic.equals(topicStr))
+        if (!TopicSubscribers.matches(topicStr, topic))
         {
             logger.log(Level.SEVERE, "Got message with topic " + topic + " != " + topicStr);
             throw new Exception(getName() + " topic mismatch");
         }
 
+        final byte[] payload = msg.getPayload();
         try
         {
-            final VType value = VTypeToFromString.convert(new_value, type, read());
+            final VType value;
+            if (VTypeToFromBinary.isBinary(payload))
+                value = VTypeToFromBinary.fromBytes(payload);
+            else
+                value = VTypeToFromString.convert(new String(payload), type, read());
             notifyListenersOfValue(value);
         }
         catch (Exception ex)
         {
-            logger.log(Level.SEVERE, "Could not parse message: '" + new_value + "' to " + getName());
-            ex.printStackTrace();
-            //throw new Exception("Failed to parse message", ex);
+            logger.log(Level.SEVERE, "Could not parse message for " + getName(), ex);
         }
     }
 
@@ -9,9 +9,6 @@ package org.csstudio.vtype.pv.mqtt;
 
 import java.net.InetAddress;
 import java.net.NetworkInterface;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 
@@ -35,7 +32,7 @@ public class MQTT_PVConn implements MqttCallback
     MqttClient myClient;
     MqttConnectOptions connOpt;
 
-    final Map<String, Set<MQTT_PV>> subscribers = new ConcurrentHashMap<String, Set<MQTT_PV>>();
+    final TopicSubscribers subscribers = new TopicSubscribers();
 
     volatile private String brokerURL;
     volatile private String clientID;
@@ -60,20 +57,9 @@ public class MQTT_PVConn implements MqttCallback
     @Override
     public void messageArrived(String topic, MqttMessage msg) throws Exception
     {
-        System.out.println("MQTT Connections Message arrived: " + topic + " : " + msg.toString());
-
-        //Synchronize this so a pv can't unsubscribe and leave an invalid pointer in the map while we deliver message
-        synchronized(subscribers)
-        {
-            if (subscribers.containsKey(topic))
-            {
-                for (MQTT_PV pv : subscribers.get(topic))
-                {
-                    pv.messageArrived(topic, msg);
-                }
-            }
-        }
-
+        PV.logger.log(Level.FINER, "MQTT message arrived: {0}", topic);
+        // No lock: Subscribers can be added or removed while delivering messages
+        subscribers.dispatch(topic, msg);
     }
 
     public void subscribeTopic (String topicStr, MQTT_PV pv) throws Exception
@@ -85,19 +71,15 @@ public class MQTT_PVConn implements MqttCallback
             throw new Exception("MQTT subscribe failed: no broker connection");
         }
 
-        if (!subscribers.containsKey(topicStr))
+        // Lock so that topic is not unsubscribed at the broker while subscribing
+        synchronized(subscribers)
         {
-            synchronized(subscribers)
+            if (subscribers.add(topicStr, pv))
             {
-                if (!subscribers.containsKey(topicStr))
-                {
-                    subscribers.put(topicStr, ConcurrentHashMap.newKeySet());
-                    int subQoS = 0;
-                    myClient.subscribe(topicStr, subQoS);
-                }
+                int subQoS = 0;
+                myClient.subscribe(topicStr, subQoS);
             }
         }
-        subscribers.get(topicStr).add(pv);
     }
 
     public void unsubscribeTopic (String topicStr, MQTT_PV pv) throws Exception
@@ -109,34 +91,31 @@ public class MQTT_PVConn implements MqttCallback
             throw new Exception("MQTT unsubscribe failed: no broker connection");
         }
 
-        if (!subscribers.containsKey(topicStr))
+        if (!subscribers.contains(topicStr))
         {
             PV.logger.log(Level.WARNING, "Could not unsubscribe to mqtt topic \"" + topicStr
                     + "\" due to no internal record of topic");
             throw new Exception("MQTT unsubscribe failed: no topic record");
         }
 
-        subscribers.get(topicStr).remove(pv);
-
-        if (subscribers.get(topicStr).size() == 0)
+        synchronized(subscribers)
         {
-            synchronized(subscribers)
+            if (subscribers.remove(topicStr, pv))
+                myClient.unsubscribe(topicStr);
+            if (subscribers.isEmpty())
             {
-                if (subscribers.get(topicStr).size() == 0)
-                {
-                    subscribers.remove(topicStr);
-                    myClient.unsubscribe(topicStr);
-                }
-                if (subscribers.isEmpty())
-                {
-                    disconnect();
-                }
+                disconnect();
             }
         }
 
     }
 
     public void publishTopic(String topicStr, String pubMsg, int pubQoS, boolean retained) throws Exception
+    {
+        publishTopic(topicStr, pubMsg.getBytes(), pubQoS, retained);
+    }
+
+    public void publishTopic(String topicStr, byte[] payload, int pubQoS, boolean retained) throws Exception
     {
         if ((!is_connected) && (!connect()))
         {
@@ -146,19 +125,19 @@ public class MQTT_PVConn implements MqttCallback
         }
 
         MqttTopic topic = myClient.getTopic(topicStr);
-        MqttMessage message = new MqttMessage(pubMsg.getBytes());
+        MqttMessage message = new MqttMessage(payload);
         message.setQos(pubQoS);
         message.setRetained(retained);
 
         // Publish the message
-        System.out.println("Publishing \"" + pubMsg + "\" to topic \"" + topic + "\" qos " + pubQoS);
+        PV.logger.log(Level.FINER, "Publishing {0} bytes to topic \"{1}\" qos {2}",
+                      new Object[] { payload.length, topic, pubQoS });
         MqttDeliveryToken token = null;
         try {
             // publish message to broker
             token = topic.publish(message);
             // Wait until the message has been delivered to the broker
             token.waitForCompletion();
-            Thread.sleep(100);
         } catch (Exception ex) {
             throw new Exception("Failed to publish message to broker", ex);
         }
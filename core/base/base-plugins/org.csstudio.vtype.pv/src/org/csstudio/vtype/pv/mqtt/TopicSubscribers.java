@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.mqtt;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.csstudio.vtype.pv.PV;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+
+/** Subscribers to MQTT topics
+ *
+ *  <p>Messages are dispatched without locking,
+ *  so subscribing or unsubscribing does not delay the delivery of messages.
+ *  A subscriber that is removed while a message is dispatched
+ *  might still receive that message.
+ *
+ *  <p>Topics may be filters with the MQTT wildcards '+' and '#'.
+ *  A message is delivered to the subscribers of its topic
+ *  and to those of all matching filters.
+ */
+@SuppressWarnings("nls")
+public class TopicSubscribers
+{
+    /** Subscriber to a topic */
+    @FunctionalInterface
+    public static interface Subscriber
+    {
+        /** @param topic Topic of the message
+         *  @param msg Received message
+         *  @throws Exception on error
+         */
+        public void messageArrived(String topic, MqttMessage msg) throws Exception;
+    }
+
+    /** Subscribers by topic or topic filter */
+    final private Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /** Topic filters with wildcards, subset of the keys in 'subscribers' */
+    final private Set<String> filters = ConcurrentHashMap.newKeySet();
+
+    /** @param topic Topic or topic filter
+     *  @return <code>true</code> if topic contains wildcards
+     */
+    public static boolean isFilter(final String topic)
+    {
+        return topic.indexOf('+') >= 0  ||  topic.indexOf('#') >= 0;
+    }
+
+    /** @param filter Topic filter, may contain wildcards
+     *  @param topic Topic of a message
+     *  @return <code>true</code> if the topic matches the filter
+     */
+    public static boolean matches(final String filter, final String topic)
+    {
+        int f = 0, t = 0;
+        final int f_len = filter.length(), t_len = topic.length();
+        // Wildcards do not match topics that start with '$'
+        if (t_len > 0  &&  topic.charAt(0) == '$'  &&  f_len > 0  &&  (filter.charAt(0) == '+'  ||  filter.charAt(0) == '#'))
+            return false;
+        while (f < f_len)
+        {
+            final char c = filter.charAt(f);
+            if (c == '#')
+                // Matches the remaining levels, including the parent level
+                return true;
+            if (c == '+')
+            {   // Matches one level
+                while (t < t_len  &&  topic.charAt(t) != '/')
+                    ++t;
+                ++f;
+                continue;
+            }
+            if (t >= t_len)
+            {   // "a/#" also matches "a"
+                return filter.regionMatches(f, "/#", 0, 2)  &&  f + 2 == f_len;
+            }
+            if (c != topic.charAt(t))
+                return false;
+            ++f;
+            ++t;
+        }
+        return t == t_len;
+    }
+
+    /** @param topic Topic or topic filter
+     *  @param subscriber Subscriber to add
+     *  @return <code>true</code> if this is the first subscriber to the topic
+     */
+    public synchronized boolean add(final String topic, final Subscriber subscriber)
+    {
+        Set<Subscriber> subs = subscribers.get(topic);
+        final boolean first = subs == null;
+        if (first)
+        {
+            subs = ConcurrentHashMap.newKeySet();
+            subscribers.put(topic, subs);
+            if (isFilter(topic))
+                filters.add(topic);
+        }
+        subs.add(subscriber);
+        return first;
+    }
+
+    /** @param topic Topic or topic filter
+     *  @param subscriber Subscriber to remove
+     *  @return <code>true</code> if this was the last subscriber to the topic
+     */
+    public synchronized boolean remove(final String topic, final Subscriber subscriber)
+    {
+        final Set<Subscriber> subs = subscribers.get(topic);
+        if (subs == null)
+            return false;
+        subs.remove(subscriber);
+        if (! subs.isEmpty())
+            return false;
+        filters.remove(topic);
+        subscribers.remove(topic);
+        return true;
+    }
+
+    /** @param topic Topic or topic filter
+     *  @return <code>true</code> if there are subscribers to the topic
+     */
+    public boolean contains(final String topic)
+    {
+        return subscribers.containsKey(topic);
+    }
+
+    /** @return <code>true</code> if there are no subscribers */
+    public boolean isEmpty()
+    {
+        return subscribers.isEmpty();
+    }
+
+    /** Deliver message to subscribers
+     *  @param topic Topic of the message
+     *  @param msg Message
+     *  @return Number of subscribers that received the message
+     */
+    public int dispatch(final String topic, final MqttMessage msg)
+    {
+        int count = deliver(subscribers.get(topic), topic, msg);
+        if (! filters.isEmpty())
+            for (String filter : filters)
+                if (matches(filter, topic))
+                    count += deliver(subscribers.get(filter), topic, msg);
+        return count;
+    }
+
+    private int deliver(final Set<Subscriber> subs, final String topic, final MqttMessage msg)
+    {
+        if (subs == null)
+            return 0;
+        int count = 0;
+        for (Subscriber sub : subs)
+        {
+            try
+            {
+                sub.messageArrived(topic, msg);
+            }
+            catch (Throwable ex)
+            {
+                PV.logger.log(Level.WARNING, "MQTT subscriber error for topic " + topic, ex);
+            }
+            ++count;
+        }
+        return count;
+    }
+}
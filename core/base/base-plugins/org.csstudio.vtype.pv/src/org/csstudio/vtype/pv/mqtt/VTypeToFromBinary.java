@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.mqtt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diirt.util.array.ArrayByte;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayFloat;
+import org.diirt.util.array.ArrayInt;
+import org.diirt.util.array.ArrayLong;
+import org.diirt.util.array.ArrayShort;
+import org.diirt.util.array.ListByte;
+import org.diirt.util.array.ListFloat;
+import org.diirt.util.array.ListInt;
+import org.diirt.util.array.ListLong;
+import org.diirt.util.array.ListNumber;
+import org.diirt.util.array.ListShort;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VByte;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VInt;
+import org.diirt.vtype.VLong;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VShort;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Binary encoding of VTypes for MQTT messages
+ *
+ *  <p>Compact alternative to {@link VTypeToFromString}.
+ *  All numbers are little endian.
+ *  <pre>
+ *  byte[3]     0, 'V', 'T'
+ *  byte        version
+ *  byte        type code
+ *  long, int   time stamp: epoch seconds, nanoseconds
+ *  byte        alarm severity
+ *  string      alarm name
+ *  ...         value, depending on type
+ *  </pre>
+ *  Strings are written as int length and UTF-8 bytes.
+ *  Arrays are written as int length and the raw elements.
+ *
+ *  <p>The payload starts with a zero byte,
+ *  which distinguishes it from a text message.
+ */
+@SuppressWarnings("nls")
+public class VTypeToFromBinary
+{
+    private static final byte[] MAGIC = { 0, 'V', 'T' };
+    private static final byte VERSION = 1;
+
+    private static final byte DOUBLE = 1, LONG = 2, STRING = 3, ENUM = 4,
+                              DOUBLE_ARRAY = 10, FLOAT_ARRAY = 11, LONG_ARRAY = 12,
+                              INT_ARRAY = 13, SHORT_ARRAY = 14, BYTE_ARRAY = 15, STRING_ARRAY = 16;
+
+    /** @param payload Message payload
+     *  @return <code>true</code> if payload uses the binary encoding
+     */
+    public static boolean isBinary(final byte[] payload)
+    {
+        return payload.length > MAGIC.length  &&
+               payload[0] == MAGIC[0]  &&  payload[1] == MAGIC[1]  &&  payload[2] == MAGIC[2];
+    }
+
+    /** @param value Value to encode
+     *  @return Binary payload
+     *  @throws Exception if type is not supported
+     */
+    public static byte[] toBytes(final VType value) throws Exception
+    {
+        final byte[] alarm_name;
+        final AlarmSeverity severity;
+        if (value instanceof Alarm)
+        {
+            severity = ((Alarm) value).getAlarmSeverity();
+            alarm_name = ((Alarm) value).getAlarmName().getBytes(StandardCharsets.UTF_8);
+        }
+        else
+        {
+            severity = AlarmSeverity.NONE;
+            alarm_name = new byte[0];
+        }
+        final Instant time = value instanceof Time ? ((Time) value).getTimestamp() : Instant.now();
+
+        // Determine type and size of the value
+        final byte type;
+        int size;
+        ListNumber numbers = null;
+        List<String> strings = null;
+        if (value instanceof VNumberArray)
+        {
+            numbers = ((VNumberArray) value).getData();
+            final int element_size;
+            if (numbers instanceof ListByte)
+            {
+                type = BYTE_ARRAY;
+                element_size = 1;
+            }
+            else if (numbers instanceof ListShort)
+            {
+                type = SHORT_ARRAY;
+                element_size = 2;
+            }
+            else if (numbers instanceof ListInt)
+            {
+                type = INT_ARRAY;
+                element_size = 4;
+            }
+            else if (numbers instanceof ListLong)
+            {
+                type = LONG_ARRAY;
+                element_size = 8;
+            }
+            else if (numbers instanceof ListFloat)
+            {
+                type = FLOAT_ARRAY;
+                element_size = 4;
+            }
+            else
+            {
+                type = DOUBLE_ARRAY;
+                element_size = 8;
+            }
+            size = 4 + numbers.size() * element_size;
+        }
+        else if (value instanceof VStringArray)
+        {
+            type = STRING_ARRAY;
+            strings = ((VStringArray) value).getData();
+            size = 4 + 4*strings.size();
+            for (String s : strings)
+                size += s.length() * 3;
+        }
+        else if (value instanceof VEnum)
+        {
+            type = ENUM;
+            strings = ((VEnum) value).getLabels();
+            size = 4 + 4 + 4*strings.size();
+            for (String s : strings)
+                size += s.length() * 3;
+        }
+        else if (value instanceof VString)
+        {
+            type = STRING;
+            size = 4 + ((VString) value).getValue().length() * 3;
+        }
+        else if (value instanceof VLong  ||  value instanceof VInt  ||
+                 value instanceof VShort  ||  value instanceof VByte)
+        {
+            type = LONG;
+            size = 8;
+        }
+        else if (value instanceof VNumber)
+        {
+            type = DOUBLE;
+            size = 8;
+        }
+        else
+            throw new Exception("Cannot encode " + value.getClass().getName());
+
+        final ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + 2 + 8 + 4 + 1 + 4 + alarm_name.length + size)
+                                            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).put(VERSION).put(type);
+        buffer.putLong(time.getEpochSecond()).putInt(time.getNano());
+        buffer.put((byte) severity.ordinal());
+        buffer.putInt(alarm_name.length).put(alarm_name);
+
+        switch (type)
+        {
+        case DOUBLE:
+            buffer.putDouble(((VNumber) value).getValue().doubleValue());
+            break;
+        case LONG:
+            buffer.putLong(((VNumber) value).getValue().longValue());
+            break;
+        case STRING:
+            putString(buffer, ((VString) value).getValue());
+            break;
+        case ENUM:
+            buffer.putInt(((VEnum) value).getIndex());
+            putStrings(buffer, strings);
+            break;
+        case STRING_ARRAY:
+            putStrings(buffer, strings);
+            break;
+        default:
+            putNumbers(buffer, type, numbers);
+        }
+        if (buffer.position() == buffer.capacity())
+            return buffer.array();
+        final byte[] result = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, result, 0, result.length);
+        return result;
+    }
+
+    private static void putString(final ByteBuffer buffer, final String text)
+    {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static void putStrings(final ByteBuffer buffer, final List<String> strings)
+    {
+        buffer.putInt(strings.size());
+        for (String s : strings)
+            putString(buffer, s);
+    }
+
+    private static void putNumbers(final ByteBuffer buffer, final byte type, final ListNumber numbers)
+    {
+        final int N = numbers.size();
+        buffer.putInt(N);
+        switch (type)
+        {
+        case BYTE_ARRAY:
+            for (int i=0; i<N; ++i)
+                buffer.put(numbers.getByte(i));
+            break;
+        case SHORT_ARRAY:
+            for (int i=0; i<N; ++i)
+                buffer.putShort(numbers.getShort(i));
+            break;
+        case INT_ARRAY:
+            for (int i=0; i<N; ++i)
+                buffer.putInt(numbers.getInt(i));
+            break;
+        case LONG_ARRAY:
+            for (int i=0; i<N; ++i)
+                buffer.putLong(numbers.getLong(i));
+            break;
+        case FLOAT_ARRAY:
+            for (int i=0; i<N; ++i)
+                buffer.putFloat(numbers.getFloat(i));
+            break;
+        default:
+            for (int i=0; i<N; ++i)
+                buffer.putDouble(numbers.getDouble(i));
+        }
+    }
+
+    /** @param payload Binary payload
+     *  @return Decoded value
+     *  @throws Exception on error
+     */
+    public static VType fromBytes(final byte[] payload) throws Exception
+    {
+        if (! isBinary(payload))
+            throw new Exception("Not a binary VType");
+        final ByteBuffer buffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(MAGIC.length);
+        try
+        {
+            final byte version = buffer.get();
+            if (version != VERSION)
+                throw new Exception("Cannot decode binary VType version " + version);
+            final byte type = buffer.get();
+            final long seconds = buffer.getLong();
+            final int nano = buffer.getInt();
+            final int severity = buffer.get();
+            if (severity < 0  ||  severity >= AlarmSeverity.values().length)
+                throw new Exception("Invalid alarm severity " + severity);
+            final Alarm alarm = ValueFactory.newAlarm(AlarmSeverity.values()[severity], getString(buffer));
+            final Time time = ValueFactory.newTime(Instant.ofEpochSecond(seconds, nano));
+
+            switch (type)
+            {
+            case DOUBLE:
+                return ValueFactory.newVDouble(buffer.getDouble(), alarm, time, ValueFactory.displayNone());
+            case LONG:
+                return ValueFactory.newVLong(buffer.getLong(), alarm, time, ValueFactory.displayNone());
+            case STRING:
+                return ValueFactory.newVString(getString(buffer), alarm, time);
+            case ENUM:
+            {
+                final int index = buffer.getInt();
+                return ValueFactory.newVEnum(index, getStrings(buffer), alarm, time);
+            }
+            case STRING_ARRAY:
+                return ValueFactory.newVStringArray(getStrings(buffer), alarm, time);
+            default:
+                return ValueFactory.newVNumberArray(getNumbers(buffer, type), alarm, time, ValueFactory.displayNone());
+            }
+        }
+        catch (BufferUnderflowException ex)
+        {
+            throw new Exception("Binary VType is truncated", ex);
+        }
+    }
+
+    private static int getLength(final ByteBuffer buffer, final int element_size) throws Exception
+    {
+        final int length = buffer.getInt();
+        if (length < 0  ||  (long)length * element_size > buffer.remaining())
+            throw new Exception("Invalid length " + length);
+        return length;
+    }
+
+    private static String getString(final ByteBuffer buffer) throws Exception
+    {
+        final int length = getLength(buffer, 1);
+        final String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+
+    private static List<String> getStrings(final ByteBuffer buffer) throws Exception
+    {
+        // Each string needs at least its length
+        final int N = getLength(buffer, 4);
+        final List<String> strings = new ArrayList<>(N);
+        for (int i=0; i<N; ++i)
+            strings.add(getString(buffer));
+        return strings;
+    }
+
+    private static ListNumber getNumbers(final ByteBuffer buffer, final byte type) throws Exception
+    {
+        switch (type)
+        {
+        case BYTE_ARRAY:
+        {
+            final byte[] data = new byte[getLength(buffer, 1)];
+            buffer.get(data);
+            return new ArrayByte(data);
+        }
+        case SHORT_ARRAY:
+        {
+            final short[] data = new short[getLength(buffer, 2)];
+            buffer.asShortBuffer().get(data);
+            return new ArrayShort(data);
+        }
+        case INT_ARRAY:
+        {
+            final int[] data = new int[getLength(buffer, 4)];
+            buffer.asIntBuffer().get(data);
+            return new ArrayInt(data);
+        }
+        case LONG_ARRAY:
+        {
+            final long[] data = new long[getLength(buffer, 8)];
+            buffer.asLongBuffer().get(data);
+            return new ArrayLong(data);
+        }
+        case FLOAT_ARRAY:
+        {
+            final float[] data = new float[getLength(buffer, 4)];
+            buffer.asFloatBuffer().get(data);
+            return new ArrayFloat(data);
+        }
+        case DOUBLE_ARRAY:
+        {
+            final double[] data = new double[getLength(buffer, 8)];
+            buffer.asDoubleBuffer().get(data);
+            return new ArrayDouble(data);
+        }
+        default:
+            throw new Exception("Unknown binary VType " + type);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.pva;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+
+import javax.imageio.ImageIO;
+
+/** Decompression of compressed NTNDArray data
+ *
+ *  <p>Supports the codecs used by the areaDetector 'Codec' plugin:
+ *  LZ4 blocks, blosc frames that use LZ4 with optional byte shuffle,
+ *  and JPEG.
+ *  Multi-byte data is in little endian byte order.
+ */
+@SuppressWarnings("nls")
+public class ImageCodecs
+{
+    /** Size of the blosc header */
+    public static final int BLOSC_HEADER = 16;
+
+    private static final int BLOSC_DOSHUFFLE = 0x1,
+                             BLOSC_MEMCPYED = 0x2,
+                             BLOSC_DOBITSHUFFLE = 0x4,
+                             BLOSC_DONT_SPLIT = 0x10;
+    private static final int BLOSC_LZ4 = 1;
+    private static final int BLOSC_MAX_SPLITS = 16, BLOSC_MIN_BUFFERSIZE = 128;
+
+    /** Decompress LZ4 block
+     *  @param src Compressed data
+     *  @param src_off Start of compressed data
+     *  @param src_len Length of compressed data
+     *  @param dst Buffer for decompressed data
+     *  @param dst_off Start of decompressed data
+     *  @param dst_len Available space for decompressed data
+     *  @return Number of decompressed bytes
+     *  @throws Exception on error in compressed data
+     */
+    public static int lz4(final byte[] src, final int src_off, final int src_len,
+                          final byte[] dst, final int dst_off, final int dst_len) throws Exception
+    {
+        final int src_end = src_off + src_len, dst_end = dst_off + dst_len;
+        int sp = src_off, dp = dst_off;
+        try
+        {
+            while (sp < src_end)
+            {
+                final int token = src[sp++] & 0xFF;
+                // Literals
+                int length = token >>> 4;
+                if (length == 15)
+                {
+                    int b;
+                    do
+                        length += (b = src[sp++] & 0xFF);
+                    while (b == 255);
+                }
+                if (sp + length > src_end  ||  dp + length > dst_end)
+                    throw new Exception("LZ4 literals exceed buffer");
+                System.arraycopy(src, sp, dst, dp, length);
+                sp += length;
+                dp += length;
+                // Last sequence has no match
+                if (sp >= src_end)
+                    break;
+
+                // Match
+                final int offset = (src[sp] & 0xFF) | (src[sp+1] & 0xFF) << 8;
+                sp += 2;
+                if (offset == 0  ||  offset > dp - dst_off)
+                    throw new Exception("LZ4 match offset " + offset + " invalid");
+                length = token & 0x0F;
+                if (length == 15)
+                {
+                    int b;
+                    do
+                        length += (b = src[sp++] & 0xFF);
+                    while (b == 255);
+                }
+                length += 4;
+                if (dp + length > dst_end)
+                    throw new Exception("LZ4 match exceeds buffer");
+                int match = dp - offset;
+                if (offset >= length)
+                {
+                    System.arraycopy(dst, match, dst, dp, length);
+                    dp += length;
+                }
+                else
+                {   // Overlapping match repeats the last 'offset' bytes
+                    for (int i=0; i<length; ++i)
+                        dst[dp++] = dst[match++];
+                }
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException ex)
+        {
+            throw new Exception("LZ4 data is truncated", ex);
+        }
+        return dp - dst_off;
+    }
+
+    /** @param src Blosc frame
+     *  @return Size of the decompressed data
+     *  @throws Exception if frame is too short
+     */
+    public static int bloscSize(final byte[] src) throws Exception
+    {
+        if (src.length < BLOSC_HEADER)
+            throw new Exception("Blosc frame is too short");
+        return getInt(src, 4);
+    }
+
+    /** @param src Blosc frame
+     *  @return Size of blocks, i.e. minimum size of scratch buffer for {@link #blosc}
+     *  @throws Exception if frame is too short
+     */
+    public static int bloscBlockSize(final byte[] src) throws Exception
+    {
+        if (src.length < BLOSC_HEADER)
+            throw new Exception("Blosc frame is too short");
+        return getInt(src, 8);
+    }
+
+    /** Decompress blosc frame
+     *  @param src Blosc frame
+     *  @param src_len Length of the blosc frame
+     *  @param dst Buffer for decompressed data, see {@link #bloscSize(byte[])}
+     *  @param scratch Buffer used to remove byte shuffle, see {@link #bloscBlockSize(byte[])}
+     *  @return Number of decompressed bytes
+     *  @throws Exception on error or unsupported blosc options
+     */
+    public static int blosc(final byte[] src, final int src_len, final byte[] dst, final byte[] scratch) throws Exception
+    {
+        if (src_len < BLOSC_HEADER)
+            throw new Exception("Blosc frame is too short");
+        final int flags = src[2] & 0xFF;
+        final int typesize = src[3] & 0xFF;
+        final int nbytes = getInt(src, 4);
+        final int blocksize = getInt(src, 8);
+        final int cbytes = getInt(src, 12);
+        if (cbytes > src_len)
+            throw new Exception("Blosc frame has " + src_len + " bytes, expected " + cbytes);
+        if (dst.length < nbytes)
+            throw new Exception("Blosc data needs " + nbytes + " bytes");
+        if ((flags & BLOSC_MEMCPYED) != 0)
+        {
+            if (BLOSC_HEADER + nbytes > src_len)
+                throw new Exception("Blosc data is truncated");
+            System.arraycopy(src, BLOSC_HEADER, dst, 0, nbytes);
+            return nbytes;
+        }
+        final int compressor = flags >>> 5;
+        if (compressor != BLOSC_LZ4)
+            throw new Exception("Blosc compressor " + compressor + " is not supported, only LZ4");
+        if ((flags & BLOSC_DOBITSHUFFLE) != 0  &&  typesize > 1)
+            throw new Exception("Blosc bit shuffle is not supported");
+        if (blocksize <= 0  ||  typesize <= 0)
+            throw new Exception("Blosc block size " + blocksize + ", type size " + typesize);
+        final boolean shuffle = (flags & BLOSC_DOSHUFFLE) != 0  &&  typesize > 1;
+        if (shuffle  &&  scratch.length < blocksize)
+            throw new Exception("Blosc data needs scratch buffer of " + blocksize + " bytes");
+        final boolean dont_split = (flags & BLOSC_DONT_SPLIT) != 0;
+
+        final int leftover = nbytes % blocksize;
+        final int nblocks = nbytes / blocksize + (leftover > 0 ? 1 : 0);
+        for (int block=0; block<nblocks; ++block)
+        {
+            final boolean leftover_block = leftover > 0  &&  block == nblocks-1;
+            final int bsize = leftover_block ? leftover : blocksize;
+            final int dst_off = block * blocksize;
+            // Blocks are split into one stream per byte of the type
+            final int nsplits = (!dont_split  &&  !leftover_block  &&
+                                 typesize <= BLOSC_MAX_SPLITS  &&  bsize / typesize >= BLOSC_MIN_BUFFERSIZE)
+                              ? typesize : 1;
+            final int neblock = bsize / nsplits;
+            final byte[] out = shuffle ? scratch : dst;
+            final int out_off = shuffle ? 0 : dst_off;
+            int pos = getInt(src, BLOSC_HEADER + 4*block);
+            for (int split=0; split<nsplits; ++split)
+            {
+                if (pos + 4 > src_len)
+                    throw new Exception("Blosc data is truncated");
+                final int csize = getInt(src, pos);
+                pos += 4;
+                if (csize <= 0  ||  pos + csize > src_len)
+                    throw new Exception("Blosc stream size " + csize + " is not supported");
+                if (csize == neblock)
+                    System.arraycopy(src, pos, out, out_off + split*neblock, neblock);
+                else if (lz4(src, pos, csize, out, out_off + split*neblock, neblock) != neblock)
+                    throw new Exception("Blosc stream is incomplete");
+                pos += csize;
+            }
+            if (shuffle)
+                unshuffle(scratch, bsize, typesize, dst, dst_off);
+        }
+        return nbytes;
+    }
+
+    /** Undo byte shuffle
+     *  @param src Shuffled data: First byte of all elements, then second byte, ...
+     *  @param size Number of bytes
+     *  @param typesize Size of one element
+     *  @param dst Buffer for unshuffled data
+     *  @param dst_off Start of unshuffled data
+     */
+    private static void unshuffle(final byte[] src, final int size, final int typesize, final byte[] dst, final int dst_off)
+    {
+        final int elements = size / typesize;
+        for (int i=0; i<elements; ++i)
+            for (int b=0; b<typesize; ++b)
+                dst[dst_off + i*typesize + b] = src[b*elements + i];
+        // Remaining bytes are not shuffled
+        final int done = elements * typesize;
+        System.arraycopy(src, done, dst, dst_off + done, size - done);
+    }
+
+    /** Decode JPEG
+     *  @param src JPEG data
+     *  @param src_len Length of JPEG data
+     *  @return Unsigned bytes, one per pixel for mono images,
+     *          otherwise one per color of each pixel (RGB1)
+     *  @throws Exception on error
+     */
+    public static byte[] jpeg(final byte[] src, final int src_len) throws Exception
+    {
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(src, 0, src_len));
+        if (image == null)
+            throw new Exception("Cannot decode JPEG");
+        final Raster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY  &&
+            raster.getDataBuffer() instanceof DataBufferByte  &&
+            raster.getDataBuffer().getSize() == image.getWidth() * image.getHeight())
+            return ((DataBufferByte) raster.getDataBuffer()).getData();
+
+        // Samples are in band order, i.e. RGB for color images
+        final int[] samples = raster.getPixels(0, 0, raster.getWidth(), raster.getHeight(), (int[]) null);
+        final byte[] result = new byte[samples.length];
+        for (int i=0; i<samples.length; ++i)
+            result[i] = (byte) samples[i];
+        return result;
+    }
+
+    private static int getInt(final byte[] data, final int pos)
+    {
+        return (data[pos] & 0xFF)            |
+               (data[pos+1] & 0xFF) <<  8    |
+               (data[pos+2] & 0xFF) << 16    |
+               (data[pos+3] & 0xFF) << 24;
+    }
+}
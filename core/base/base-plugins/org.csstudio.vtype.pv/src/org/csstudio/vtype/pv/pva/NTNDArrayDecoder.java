@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.pva;
+
+import static org.csstudio.vtype.pv.PV.logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import org.diirt.vtype.VType;
+import org.epics.pvdata.factory.PVDataFactory;
+import org.epics.pvdata.pv.PVField;
+import org.epics.pvdata.pv.PVStructure;
+
+/** Decoder for compressed NTNDArray images of one PV
+ *
+ *  <p>Images are decompressed on a shared pool of worker threads
+ *  so that the PVA monitor thread is not delayed.
+ *  When images arrive faster than they can be decompressed,
+ *  only the most recent image is decoded and older pending images are dropped.
+ *
+ *  <p>When the PV disconnects or closes, pending images are dropped,
+ *  and images that are being decoded at that time are not delivered.
+ *
+ *  <p>Uncompressed images are not handled by this decoder.
+ *  They are decoded on the monitor thread as before.
+ */
+@SuppressWarnings("nls")
+class NTNDArrayDecoder
+{
+    /** Shared worker threads */
+    private static final ExecutorService workers;
+
+    static
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        workers = Executors.newFixedThreadPool(threads, target ->
+        {
+            final Thread thread = new Thread(target, "NTNDArrayDecoder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    final private String name;
+
+    final private Consumer<VType> handler;
+
+    /** Buffers, only used by the one worker that decodes images of this PV */
+    final private VImageForNTNDArray.Buffers buffers = new VImageForNTNDArray.Buffers();
+
+    final private AtomicLong received = new AtomicLong(), decoded = new AtomicLong(),
+                             dropped = new AtomicLong(), failed = new AtomicLong(),
+                             decode_nanos = new AtomicLong();
+
+    /** Decoder for image waiting to be decoded. SYNC on this */
+    private Callable<VType> pending = null;
+
+    /** Is a worker decoding images of this PV? SYNC on this */
+    private boolean busy = false;
+
+    /** Incremented to discard pending and in-flight images. SYNC on this */
+    private long generation = 0;
+
+    /** Set when the PV is closed. SYNC on this */
+    private boolean closed = false;
+
+    /** Held while a decoded image is delivered */
+    final private Object delivery = new Object();
+
+    /** @param name PV name
+     *  @param handler Will be called with each decoded image
+     */
+    NTNDArrayDecoder(final String name, final Consumer<VType> handler)
+    {
+        this.name = name;
+        this.handler = handler;
+    }
+
+    /** @param struct Received structure
+     *  @param value_offset Offset of the value in the structure
+     *  @return Compressed NTNDArray or <code>null</code>
+     */
+    static PVStructure getCompressedImage(final PVStructure struct, final int value_offset)
+    {
+        final PVStructure image;
+        if (value_offset <= 0)
+            image = struct;
+        else
+        {
+            final PVField field = struct.getSubField(value_offset);
+            if (! (field instanceof PVStructure))
+                return null;
+            image = (PVStructure) field;
+        }
+        String type = image.getStructure().getID();
+        if (type.startsWith("epics:nt/"))
+            type = type.substring(9);
+        if (type.equals("NTNDArray:1.0")  &&  ! VImageForNTNDArray.getCodec(image).isEmpty())
+            return image;
+        return null;
+    }
+
+    /** Decode image in background
+     *  @param struct Received structure
+     *  @param value_offset Offset of the value in the structure
+     *  @return <code>true</code> if the structure is a compressed image that will be decoded in background,
+     *          <code>false</code> if it needs to be handled by the caller
+     */
+    boolean decode(final PVStructure struct, final int value_offset)
+    {
+        final PVStructure image = getCompressedImage(struct, value_offset);
+        if (image == null)
+            return false;
+        received.incrementAndGet();
+        // The monitor re-uses the received structure, so decode a copy.
+        // Compressed data is small compared to the decompressed image.
+        final PVStructure copy = PVDataFactory.getPVDataCreate().createPVStructure(image);
+        submit(() -> new VImageForNTNDArray(copy, buffers));
+        return true;
+    }
+
+    /** Decode image in background
+     *  @param decoder Decodes the image, replaces an image that is still pending
+     */
+    void submit(final Callable<VType> decoder)
+    {
+        synchronized (this)
+        {
+            if (closed)
+            {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (pending != null)
+                dropped.incrementAndGet();
+            pending = decoder;
+            if (busy)
+                return;
+            busy = true;
+        }
+        workers.execute(this::decodePending);
+    }
+
+    /** Decode images until none are pending, called by worker */
+    private void decodePending()
+    {
+        while (true)
+        {
+            final Callable<VType> decoder;
+            final long image_generation;
+            synchronized (this)
+            {
+                decoder = pending;
+                pending = null;
+                image_generation = generation;
+                if (decoder == null)
+                {
+                    busy = false;
+                    return;
+                }
+            }
+            final long start = System.nanoTime();
+            final VType value;
+            try
+            {
+                value = decoder.call();
+            }
+            catch (Exception ex)
+            {
+                failed.incrementAndGet();
+                logger.log(Level.WARNING, "Cannot decode image for " + name, ex);
+                continue;
+            }
+            final long nanos = System.nanoTime() - start;
+            decode_nanos.addAndGet(nanos);
+            decoded.incrementAndGet();
+            if (logger.isLoggable(Level.FINER))
+                logger.log(Level.FINER, "{0} image decoded in {1} ms",
+                           new Object[] { name, nanos / 1e6 });
+            synchronized (delivery)
+            {
+                synchronized (this)
+                {   // Drop image if PV disconnected or closed while decoding
+                    if (image_generation != generation)
+                    {
+                        dropped.incrementAndGet();
+                        continue;
+                    }
+                }
+                handler.accept(value);
+            }
+        }
+    }
+
+    /** Drop pending images and images that are being decoded.
+     *  Call before notifying listeners of a disconnect.
+     *  Returns once an image that is being delivered has been handled.
+     */
+    void reset()
+    {
+        synchronized (this)
+        {
+            ++generation;
+            if (pending != null)
+            {
+                dropped.incrementAndGet();
+                pending = null;
+            }
+        }
+        synchronized (delivery)
+        {
+            // Wait for delivery in progress
+        }
+    }
+
+    /** Drop pending and in-flight images, ignore further images */
+    void close()
+    {
+        synchronized (this)
+        {
+            closed = true;
+        }
+        reset();
+        logger.log(Level.FINE, "{0}", this);
+    }
+
+    /** @return Number of images that were not delivered */
+    long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /** @return Average time for decoding an image in milliseconds, 0 if none were decoded */
+    double getAverageDecodeTime()
+    {
+        final long count = decoded.get();
+        return count > 0 ? decode_nanos.get() / 1e6 / count : 0.0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s: %d compressed images, %d decoded (%.1f ms average), %d dropped, %d failed",
+                             name, received.get(), decoded.get(), getAverageDecodeTime(), dropped.get(), failed.get());
+    }
+}
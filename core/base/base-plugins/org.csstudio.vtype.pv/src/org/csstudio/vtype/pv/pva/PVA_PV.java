@@ -58,6 +58,9 @@ class PVA_PV extends PV implements ChannelRequester, MonitorRequester
 
     private Monitor value_monitor = null;
 
+    /** Decoder for compressed images */
+    final private NTNDArrayDecoder image_decoder;
+
     /** Initialize
      *  @param name Full name, may include "pva://"
      *  @param base_name Base name without optional prefix
@@ -77,6 +80,7 @@ class PVA_PV extends PV implements ChannelRequester, MonitorRequester
         read_request = request_creater.createRequest(request_helper.getReadRequest());
         write_request = request_creater.createRequest(request_helper.getWriteRequest());
         value_offset = getValueOffset(read_request);
+        image_decoder = new NTNDArrayDecoder(name, this::notifyListenersOfValue);
 
         channel = PVA_Context.getInstance().getProvider()
                              .createChannel(request_helper.getChannel(), this, priority);
@@ -173,6 +177,7 @@ class PVA_PV extends PV implements ChannelRequester, MonitorRequester
             subscribe();
             break;
         case DISCONNECTED:
+            image_decoder.reset();
             notifyListenersOfDisconnect();
         default:
             // Ignore
@@ -225,7 +230,11 @@ class PVA_PV extends PV implements ChannelRequester, MonitorRequester
         {
             try
             {
-                handleValueUpdate(update.getPVStructure());
+                // Compressed images are decoded in background,
+                // everything else right away
+                final PVStructure struct = update.getPVStructure();
+                if (! image_decoder.decode(struct, value_offset))
+                    handleValueUpdate(struct);
             }
             catch (Exception ex)
             {
@@ -296,6 +305,7 @@ class PVA_PV extends PV implements ChannelRequester, MonitorRequester
     @Override
     protected void close()
     {
+        image_decoder.close();
         channel.destroy();
     }
 }
\ No newline at end of file
@@ -7,6 +7,10 @@
  ******************************************************************************/
 package org.csstudio.vtype.pv.pva;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 import org.diirt.util.array.ArrayByte;
 import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayLong;
@@ -15,11 +19,13 @@ import org.diirt.util.array.ListNumber;
 import org.diirt.vtype.VImage;
 import org.diirt.vtype.VImageDataType;
 import org.diirt.vtype.VImageType;
+import org.epics.pvdata.pv.ByteArrayData;
 import org.epics.pvdata.pv.PVByteArray;
 import org.epics.pvdata.pv.PVField;
 import org.epics.pvdata.pv.PVInt;
 import org.epics.pvdata.pv.PVIntArray;
 import org.epics.pvdata.pv.PVLongArray;
+import org.epics.pvdata.pv.PVScalar;
 import org.epics.pvdata.pv.PVScalarArray;
 import org.epics.pvdata.pv.PVShortArray;
 import org.epics.pvdata.pv.PVString;
@@ -30,9 +36,14 @@ import org.epics.pvdata.pv.PVUIntArray;
 import org.epics.pvdata.pv.PVULongArray;
 import org.epics.pvdata.pv.PVUShortArray;
 import org.epics.pvdata.pv.PVUnion;
+import org.epics.pvdata.pv.ScalarType;
 import org.epics.pvdata.pv.StructureArrayData;
 
 /** VImage for a ListNumber
+ *
+ *  <p>Compressed data, indicated by the 'codec' of the NTNDArray,
+ *  is decompressed via {@link ImageCodecs}.
+ *
  *  @author Kay Kasemir
  *  @author Amanda Carpenter - handle unsigned VImageDataType, detect VImageType
  */
@@ -51,7 +62,48 @@ class VImageForNTNDArray extends VTypeTimeAlarmBase implements VImage
             VImageType.TYPE_RGB1, VImageType.TYPE_RGB2, VImageType.TYPE_RGB3, VImageType.TYPE_YUV444,
             VImageType.TYPE_YUV422, VImageType.TYPE_YUV411 };
 
+    /** Buffers that are re-used while decompressing images
+     *
+     *  <p>Only hold intermediate data.
+     *  Each image receives its own copy of the data,
+     *  since listeners might keep the image.
+     *  Not thread-safe, use one instance per decoding thread or PV.
+     */
+    static class Buffers
+    {
+        private byte[] bytes = new byte[0], scratch = new byte[0];
+
+        /** @param size Minimum size
+         *  @return Buffer for decompressed bytes
+         */
+        byte[] getBytes(final int size)
+        {
+            if (bytes.length < size)
+                bytes = new byte[size];
+            return bytes;
+        }
+
+        /** @param size Minimum size
+         *  @return Buffer for intermediate data of a codec
+         */
+        byte[] getScratch(final int size)
+        {
+            if (scratch.length < size)
+                scratch = new byte[size];
+            return scratch;
+        }
+    }
+
     public VImageForNTNDArray(final PVStructure struct) throws Exception
+    {
+        this(struct, new Buffers());
+    }
+
+    /** @param struct NTNDArray
+     *  @param buffers Buffers to use for decompression
+     *  @throws Exception on error
+     */
+    VImageForNTNDArray(final PVStructure struct, final Buffers buffers) throws Exception
     {
         // Decode timestamp, alarm
         super(struct);
@@ -150,7 +202,14 @@ class VImageForNTNDArray extends VTypeTimeAlarmBase implements VImage
         }
 
         // Get data and data type
-        if (value instanceof PVByteArray)
+        final String codec = getCodec(struct);
+        if (! codec.isEmpty())
+        {
+            final ScalarType type = getDecompressedType(struct, (PVScalarArray) value);
+            data_type = getDataType(type);
+            data = decompress(codec, (PVScalarArray) value, type, size, buffers);
+        }
+        else if (value instanceof PVByteArray)
         {
             final byte[] values = new byte[size];
             PVStructureHelper.convert.toByteArray((PVByteArray) value, 0, size, values, 0);
@@ -210,6 +269,147 @@ class VImageForNTNDArray extends VTypeTimeAlarmBase implements VImage
             throw new Exception("Cannot decode NTNDArray type of value " + value);
     }
 
+    /** @param struct NTNDArray
+     *  @return Name of codec, empty for uncompressed data
+     */
+    static String getCodec(final PVStructure struct)
+    {
+        final PVStructure codec = struct.getSubField(PVStructure.class, "codec");
+        if (codec == null)
+            return "";
+        final PVString name = codec.getStringField("name");
+        return name == null ? "" : name.get();
+    }
+
+    /** @param struct NTNDArray
+     *  @param value Compressed value
+     *  @return Type of the decompressed data
+     *  @throws Exception on error
+     */
+    private static ScalarType getDecompressedType(final PVStructure struct, final PVScalarArray value) throws Exception
+    {
+        // Codec parameter holds the original type
+        final PVStructure codec = struct.getSubField(PVStructure.class, "codec");
+        final PVUnion parameters = codec == null ? null : codec.getUnionField("parameters");
+        final PVField parameter = parameters == null ? null : parameters.get();
+        if (parameter instanceof PVScalar)
+        {
+            final int ordinal = PVStructureHelper.convert.toInt((PVScalar) parameter);
+            if (ordinal >= 0  &&  ordinal < ScalarType.values().length)
+                return ScalarType.values()[ordinal];
+            throw new Exception("Invalid NTNDArray codec data type " + ordinal);
+        }
+        return value.getScalarArray().getElementType();
+    }
+
+    private static VImageDataType getDataType(final ScalarType type) throws Exception
+    {
+        switch (type)
+        {
+        case pvByte:   return VImageDataType.pvByte;
+        case pvUByte:  return VImageDataType.pvUByte;
+        case pvShort:  return VImageDataType.pvShort;
+        case pvUShort: return VImageDataType.pvUShort;
+        case pvInt:    return VImageDataType.pvInt;
+        case pvUInt:   return VImageDataType.pvUInt;
+        case pvLong:   return VImageDataType.pvLong;
+        case pvULong:  return VImageDataType.pvULong;
+        default:
+            throw new Exception("Cannot decode compressed NTNDArray data of type " + type);
+        }
+    }
+
+    private static int getElementSize(final ScalarType type)
+    {
+        switch (type)
+        {
+        case pvShort:
+        case pvUShort: return 2;
+        case pvInt:
+        case pvUInt:   return 4;
+        case pvLong:
+        case pvULong:  return 8;
+        default:       return 1;
+        }
+    }
+
+    /** @param codec Name of codec
+     *  @param value Compressed value
+     *  @param type Type of the decompressed data
+     *  @param size Number of elements
+     *  @param buffers Buffers for intermediate data
+     *  @return Decompressed data
+     *  @throws Exception on error
+     */
+    private static ListNumber decompress(final String codec, final PVScalarArray value, final ScalarType type,
+                                         final int size, final Buffers buffers) throws Exception
+    {
+        // Access the compressed bytes without copying them
+        final ByteArrayData compressed = new ByteArrayData();
+        final int length = value.getLength();
+        if (value instanceof PVUByteArray)
+            ((PVUByteArray) value).get(0, length, compressed);
+        else if (value instanceof PVByteArray)
+            ((PVByteArray) value).get(0, length, compressed);
+        else
+            throw new Exception("Expected bytes for compressed NTNDArray, got " + value);
+        if (compressed.offset != 0)
+            throw new Exception("Cannot decode compressed NTNDArray at offset " + compressed.offset);
+
+        // Byte data is decompressed into the data of the image,
+        // other types use a buffer which is then converted
+        final int element_size = getElementSize(type);
+        final int nbytes = size * element_size;
+        byte[] bytes;
+        int decoded;
+        switch (codec.toLowerCase())
+        {
+        case "lz4":
+            bytes = element_size == 1 ? new byte[nbytes] : buffers.getBytes(nbytes);
+            decoded = ImageCodecs.lz4(compressed.data, 0, length, bytes, 0, nbytes);
+            break;
+        case "blosc":
+            final int blosc_size = ImageCodecs.bloscSize(compressed.data);
+            bytes = element_size == 1 ? new byte[blosc_size] : buffers.getBytes(blosc_size);
+            decoded = ImageCodecs.blosc(compressed.data, length, bytes,
+                                        buffers.getScratch(ImageCodecs.bloscBlockSize(compressed.data)));
+            break;
+        case "jpeg":
+            bytes = ImageCodecs.jpeg(compressed.data, length);
+            decoded = bytes.length;
+            break;
+        default:
+            throw new Exception("NTNDArray codec '" + codec + "' is not supported");
+        }
+        if (decoded < nbytes)
+            throw new Exception("NTNDArray codec '" + codec + "' provided " + decoded + " bytes, expected " + nbytes);
+
+        if (element_size == 1)
+            return new ArrayByte(bytes.length == size ? bytes : Arrays.copyOf(bytes, size));
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, nbytes).order(ByteOrder.LITTLE_ENDIAN);
+        switch (element_size)
+        {
+        case 2:
+        {
+            final short[] values = new short[size];
+            buffer.asShortBuffer().get(values);
+            return new ArrayShort(values);
+        }
+        case 4:
+        {
+            final int[] values = new int[size];
+            buffer.asIntBuffer().get(values);
+            return new ArrayInt(values);
+        }
+        default:
+        {
+            final long[] values = new long[size];
+            buffer.asLongBuffer().get(values);
+            return new ArrayLong(values);
+        }
+        }
+    }
+
     @Override
     public int getHeight()
     {
@@ -8,6 +8,7 @@
 package org.csstudio.autocomplete;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -113,4 +114,44 @@ public class AutoCompleteTest {
         Assert.assertFalse(matcher.matches());
     }
 
+    @Test
+    public void testPVNameIndex() {
+        PVNameIndex index = new PVNameIndex();
+        index.setNames(Arrays.asList("UTIL-C4PS-AF92:BUSBAR1.CALC",
+                "CWS-PTU:PV1", "CWS-PTV:PV2", "UTIL-C4PS-AF92:BUSBAR2",
+                "CWS-PTU:PV1", "CW"));
+        Assert.assertEquals(5, index.size());
+
+        // Prefix search in alphabetical order
+        PVNameIndex.Matches matches = index.findPrefix("CWS-", 10);
+        Assert.assertEquals(Arrays.asList("CWS-PTU:PV1", "CWS-PTV:PV2"), matches.getNames());
+        matches = index.findPrefix("C", 2);
+        Assert.assertEquals(3, matches.getCount());
+        Assert.assertEquals(Arrays.asList("CW", "CWS-PTU:PV1"), matches.getNames());
+        Assert.assertEquals(0, index.findPrefix("X", 10).getCount());
+
+        // Infix search in the order of the names
+        matches = index.find("C4PS", 10);
+        Assert.assertEquals(Arrays.asList("UTIL-C4PS-AF92:BUSBAR1.CALC", "UTIL-C4PS-AF92:BUSBAR2"), matches.getNames());
+        matches = index.find("PV", 1);
+        Assert.assertEquals(2, matches.getCount());
+        Assert.assertEquals(Arrays.asList("CWS-PTU:PV1"), matches.getNames());
+
+        // Same matches as the wildcard pattern
+        for (String name : Arrays.asList("C4PS*.CALC", "CWS-PT?:PV", "BUS*2", "W", "", "CALC*X")) {
+            Pattern pattern = AutoCompleteHelper.convertToPattern(name);
+            List<String> expected = new ArrayList<String>();
+            for (String entry : index.getNames())
+                if (pattern.matcher(entry).find())
+                    expected.add(entry);
+            Assert.assertEquals(name, expected, index.find(name, 10).getNames());
+        }
+
+        // Added names follow the existing ones
+        index.addNames(Arrays.asList("CWS-PTW:PV3", "CW"));
+        Assert.assertEquals(6, index.size());
+        Assert.assertEquals(Arrays.asList("CWS-PTU:PV1", "CWS-PTV:PV2", "CWS-PTW:PV3"),
+                index.find("CWS-PT", 10).getNames());
+    }
+
 }
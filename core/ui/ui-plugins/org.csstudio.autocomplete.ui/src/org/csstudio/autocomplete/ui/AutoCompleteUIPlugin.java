@@ -13,6 +13,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Logger;
 
+import org.csstudio.autocomplete.AutoCompleteService;
+import org.csstudio.autocomplete.PVNameIndex;
+import org.csstudio.autocomplete.ui.history.AutoCompleteHistoryProvider;
 import org.csstudio.autocomplete.ui.util.UIHelper;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtensionRegistry;
@@ -130,7 +133,10 @@ public class AutoCompleteUIPlugin extends AbstractUIPlugin {
         IDialogSettings ds = plugin.getDialogSettings();
         if (ds != null)
             settings = ds.addNewSection(HISTORY_TAG);
+        for (String type : fifos.keySet())
+            getHistoryIndex(type).setNames(new LinkedList<String>());
         fifos.clear();
+        AutoCompleteService.getInstance().clearCache(AutoCompleteHistoryProvider.NAME);
     }
 
     public synchronized LinkedList<String> getHistory(final String type) {
@@ -144,10 +150,25 @@ public class AutoCompleteUIPlugin extends AbstractUIPlugin {
                         fifo.addFirst(values[i]);
             }
             fifos.put(type, fifo);
+            getHistoryIndex(type).setNames(fifo);
         }
         return fifos.get(type);
     }
 
+    /**
+     * @return Index of the history entries, updated by
+     *         {@link #historyChanged(String)}
+     */
+    public PVNameIndex getHistoryIndex(final String type) {
+        return PVNameIndex.getIndex(AutoCompleteHistoryProvider.NAME + "." + type);
+    }
+
+    /** Update the index after the history has changed. */
+    public synchronized void historyChanged(final String type) {
+        getHistoryIndex(type).setNames(getHistory(type));
+        AutoCompleteService.getInstance().clearCache(AutoCompleteHistoryProvider.NAME);
+    }
+
     /**
      * Load the <code>Image</code> from the given path in the given plugin.
      *
@@ -118,6 +118,7 @@ public class AutoCompleteHistory {
             return;
         if (Preferences.getHistorySize() == 0) {
             fifo.clear();
+            AutoCompleteUIPlugin.getDefault().historyChanged(entryType);
             return;
         }
         // Remove if present, so that is re-added on top
@@ -131,6 +132,7 @@ public class AutoCompleteHistory {
 
         // Add at the top
         fifo.addFirst(newEntry);
+        AutoCompleteUIPlugin.getDefault().historyChanged(entryType);
     }
 
 }
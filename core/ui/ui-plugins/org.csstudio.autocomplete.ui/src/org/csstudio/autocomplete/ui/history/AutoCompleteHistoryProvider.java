@@ -7,13 +7,13 @@
  ******************************************************************************/
 package org.csstudio.autocomplete.ui.history;
 
-import java.util.LinkedList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.csstudio.autocomplete.AutoCompleteHelper;
 import org.csstudio.autocomplete.AutoCompleteResult;
 import org.csstudio.autocomplete.IAutoCompleteProvider;
+import org.csstudio.autocomplete.PVNameIndex;
 import org.csstudio.autocomplete.parser.ContentDescriptor;
 import org.csstudio.autocomplete.parser.ContentType;
 import org.csstudio.autocomplete.preferences.Preferences;
@@ -26,7 +26,8 @@ import org.csstudio.autocomplete.ui.AutoCompleteUIPlugin;
 /**
  * History proposal provider. Retrieves matching proposals from history. Always
  * handles the full auto-completed content by using {@link ContentDescriptor}
- * originalValue and ignore wildcards.
+ * originalValue and ignore wildcards. Entries are searched in the
+ * {@link PVNameIndex} of the history.
  *
  * @author Fred Arnaud (Sopra Group) - ITER
  */
@@ -58,28 +59,31 @@ public class AutoCompleteHistoryProvider implements IAutoCompleteProvider {
         if (content.startsWith("="))
             entryType = AutoCompleteTypes.Formula;
 
-        LinkedList<String> fifo = new LinkedList<String>();
-        fifo.addAll(AutoCompleteUIPlugin.getDefault().getHistory(entryType));
-        if (fifo.isEmpty())
+        // Make sure the history is loaded
+        AutoCompleteUIPlugin.getDefault().getHistory(entryType);
+        PVNameIndex index = AutoCompleteUIPlugin.getDefault().getHistoryIndex(entryType);
+        // All matches are needed for the top proposals
+        PVNameIndex.Matches matches = index.find(cleanedName, Integer.MAX_VALUE);
+        if (matches.getCount() == 0)
             return result; // Empty result
 
         int count = 0;
-        for (String entry : fifo) {
+        for (String entry : matches.getNames()) {
+            if (count >= limit)
+                break;
             Matcher m = namePattern.matcher(entry);
             if (m.find()) {
-                if (count < limit) {
-                    Proposal proposal = new Proposal(entry, false);
-                    proposal.addStyle(ProposalStyle.getDefault(m.start(), m.end() - 1));
-                    proposal.setInsertionPos(startIndex);
-                    result.addProposal(proposal);
-                }
-                count++;
+                Proposal proposal = new Proposal(entry, false);
+                proposal.addStyle(ProposalStyle.getDefault(m.start(), m.end() - 1));
+                proposal.setInsertionPos(startIndex);
+                result.addProposal(proposal);
             }
+            count++;
         }
-        result.setCount(count);
+        result.setCount(matches.getCount());
 
         TopProposalFinder trf = new TopProposalFinder(Preferences.getSeparators());
-        for (Proposal p : trf.getTopProposals(Pattern.quote(cleanedName), fifo))
+        for (Proposal p : trf.getTopProposals(Pattern.quote(cleanedName), matches.getNames()))
             result.addTopProposal(p);
 
         return result;
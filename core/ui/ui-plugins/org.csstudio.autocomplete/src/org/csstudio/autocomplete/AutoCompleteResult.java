@@ -53,6 +53,21 @@ public class AutoCompleteResult {
         this.count = 0;
     }
 
+    /**
+     * Copy a result, including its proposals, so that the copy can be
+     * modified without changing the original.
+     */
+    public AutoCompleteResult(AutoCompleteResult result) {
+        this();
+        for (Proposal p : result.proposals)
+            proposals.add(new Proposal(p));
+        for (Proposal p : result.topProposals)
+            topProposals.add(new Proposal(p));
+        tooltips.addAll(result.tooltips);
+        this.count = result.count;
+        this.provider = result.provider;
+    }
+
     public void addProposal(Proposal p) {
         proposals.add(p);
     }
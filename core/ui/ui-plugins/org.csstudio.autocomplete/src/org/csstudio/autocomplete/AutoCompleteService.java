@@ -11,10 +11,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.autocomplete.impl.DataSourceProvider;
@@ -33,6 +39,11 @@ import org.osgi.framework.ServiceReference;
  * Service which handles content parsing (see {@link IContentParser}) and
  * requesting proposals from defined providers (see
  * {@link IAutoCompleteProvider}.
+ * <p>
+ * Providers run on a bounded thread pool. Canceled tasks are removed from the
+ * pool or interrupted. Results are cached by provider and content for a few
+ * seconds, so that typing and deleting a character or re-opening a field does
+ * not query the providers again.
  *
  * @author Fred Arnaud (Sopra Group) - ITER
  */
@@ -50,7 +61,8 @@ public class AutoCompleteService {
         private final ContentDescriptor desc;
         private final ProviderSettings settings;
         private final IAutoCompleteResultListener listener;
-        private boolean canceled = false;
+        private volatile boolean canceled = false;
+        private Future<?> future;
 
         public ProviderTask(final Long uniqueId, final Integer index,
                 final ContentDescriptor desc, final ProviderSettings settings,
@@ -64,21 +76,44 @@ public class AutoCompleteService {
 
         @Override
         public void run() {
-            AutoCompleteResult result = settings.getProvider().listResult(desc, settings.getMaxResults());
-            if (result != null
-                    && !settings.getName().equals(DataSourceProvider.NAME))
-                // TODO: find a better solution to hide DataSourceProvider...
-                result.setProvider(settings.getName());
-            if (!canceled)
-                listener.handleResult(uniqueId, index, result);
-            synchronized (workQueue) {
-                workQueue.remove(this);
+            try {
+                if (canceled)
+                    return;
+                final String key = getCacheKey();
+                AutoCompleteResult result = getCachedResult(key);
+                if (result == null) {
+                    result = settings.getProvider().listResult(desc, settings.getMaxResults());
+                    if (result != null
+                            && !settings.getName().equals(DataSourceProvider.NAME))
+                        // TODO: find a better solution to hide DataSourceProvider...
+                        result.setProvider(settings.getName());
+                    // Result of an interrupted provider may be incomplete
+                    if (result != null && !canceled
+                            && !Thread.currentThread().isInterrupted())
+                        putCachedResult(key, result);
+                }
+                if (!canceled)
+                    listener.handleResult(uniqueId, index, result);
+            } finally {
+                synchronized (workQueue) {
+                    workQueue.remove(this);
+                }
             }
         }
 
         public void cancel() {
-            settings.getProvider().cancel();
             canceled = true;
+            settings.getProvider().cancel();
+            if (future != null)
+                future.cancel(true);
+        }
+
+        private String getCacheKey() {
+            return settings.getName() + "\n" + settings.getMaxResults() + "\n"
+                    + desc.getAutoCompleteType() + "\n" + desc.getContentType()
+                    + "\n" + desc.getDefaultDataSource() + "\n"
+                    + desc.getStartIndex() + "\n" + desc.getOriginalContent()
+                    + "\n" + desc.getValue();
         }
 
         @Override
@@ -143,12 +178,28 @@ public class AutoCompleteService {
         }
     }
 
+    private static class CachedResult {
+        public final long time;
+        public final AutoCompleteResult result;
+
+        public CachedResult(AutoCompleteResult result) {
+            this.time = System.currentTimeMillis();
+            this.result = result;
+        }
+    }
+
+    /** Maximum number of cached provider results */
+    private static final int CACHE_SIZE = 200;
+
     private static AutoCompleteService instance;
     private Map<String, ProviderSettings> providerByName;
     private Map<String, List<ProviderSettings>> providersByType;
     private ProviderSettings defaultProvider;
     private List<ProviderTask> workQueue;
     private List<IContentParser> parsers;
+    private final ExecutorService executor;
+    private final Map<String, CachedResult> resultCache;
+    private final long cacheTimeout;
 
     private AutoCompleteService() {
         try {
@@ -164,6 +215,26 @@ public class AutoCompleteService {
         }
         providersByType = new TreeMap<String, List<ProviderSettings>>();
         workQueue = new ArrayList<ProviderTask>();
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "AutoComplete-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        executor = Executors.newFixedThreadPool(Preferences.getProviderThreads(), threadFactory);
+        cacheTimeout = Preferences.getCacheTimeout() * 1000L;
+        resultCache = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
     }
 
     public static AutoCompleteService getInstance() {
@@ -217,8 +288,8 @@ public class AutoCompleteService {
                     sc.desc, sc.settings, listener);
             synchronized (workQueue) {
                 workQueue.add(task);
+                task.future = executor.submit(task);
             }
-            new Thread(task).start();
             index++;
         }
         return index;
@@ -230,6 +301,52 @@ public class AutoCompleteService {
         synchronized (workQueue) {
             for (ProviderTask task : workQueue)
                 task.cancel();
+            // Tasks canceled before they started do not remove themselves
+            workQueue.clear();
+        }
+    }
+
+    /**
+     * Remove cached results of a provider, for example because the names it
+     * provides have changed.
+     *
+     * @param provider Provider name, <code>null</code> for all providers
+     */
+    public void clearCache(final String provider) {
+        synchronized (resultCache) {
+            if (provider == null) {
+                resultCache.clear();
+                return;
+            }
+            Iterator<String> it = resultCache.keySet().iterator();
+            while (it.hasNext())
+                if (it.next().startsWith(provider + "\n"))
+                    it.remove();
+        }
+    }
+
+    /* Get a copy of the cached result, or null */
+    private AutoCompleteResult getCachedResult(final String key) {
+        if (cacheTimeout <= 0)
+            return null;
+        synchronized (resultCache) {
+            CachedResult cached = resultCache.get(key);
+            if (cached == null)
+                return null;
+            if (System.currentTimeMillis() - cached.time > cacheTimeout) {
+                resultCache.remove(key);
+                return null;
+            }
+            // Listeners may update the proposals
+            return new AutoCompleteResult(cached.result);
+        }
+    }
+
+    private void putCachedResult(final String key, final AutoCompleteResult result) {
+        if (cacheTimeout <= 0)
+            return;
+        synchronized (resultCache) {
+            resultCache.put(key, new CachedResult(new AutoCompleteResult(result)));
         }
     }
 
@@ -12,8 +12,9 @@ import org.csstudio.autocomplete.parser.ContentType;
 
 /**
  * Interface for auto-complete providers. Each parser is provided via OSGI
- * services. The listResult method is executed by {@link AutoCompleteService} in
- * a dedicated thread.
+ * services. The listResult method is executed by {@link AutoCompleteService} on
+ * a thread pool. The thread is interrupted when the request is canceled.
+ * Providers can use a {@link PVNameIndex} to search names in memory.
  *
  * @author Fred Arnaud (Sopra Group) - ITER
  */
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2016 ITER Organization.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of names which can be shared between providers.
+ * <p>
+ * Names are kept in a sorted array for prefix searches and in a trigram index
+ * for searches with wildcards, so a query only has to check the names which
+ * contain all the trigrams of the searched name. Names keep the order in which
+ * they were provided, which is the order of the results.
+ * <p>
+ * Queries work on an immutable snapshot and do not block while the index is
+ * updated. A thread interrupted during a query stops it and receives the
+ * matches found so far.
+ */
+public class PVNameIndex {
+
+    /** Result of a query. */
+    public static class Matches {
+
+        private final List<String> names;
+        private final int count;
+
+        Matches(List<String> names, int count) {
+            this.names = names;
+            this.count = count;
+        }
+
+        /** @return Matching names, up to the requested limit */
+        public List<String> getNames() {
+            return names;
+        }
+
+        /** @return Total number of matching names */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return "Matches [count=" + count + ", names=" + names + "]";
+        }
+    }
+
+    /** Immutable content of the index. */
+    private static class Snapshot {
+
+        /** Names in the order provided, the position is the name id */
+        final String[] names;
+        /** Name ids sorted by name */
+        final int[] sorted;
+        /** Ascending name ids by trigram */
+        final Map<Long, int[]> trigrams;
+
+        Snapshot(final String[] names) {
+            this.names = names;
+            final Integer[] ids = new Integer[names.length];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = i;
+            Arrays.sort(ids, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return names[a].compareTo(names[b]);
+                }
+            });
+            sorted = new int[ids.length];
+            for (int i = 0; i < ids.length; i++)
+                sorted[i] = ids[i];
+
+            final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+            for (int id = 0; id < names.length; id++) {
+                final String name = names[id];
+                for (int i = 0; i + 3 <= name.length(); i++) {
+                    final Long key = trigram(name, i);
+                    Postings list = postings.get(key);
+                    if (list == null) {
+                        list = new Postings();
+                        postings.put(key, list);
+                    }
+                    list.add(id);
+                }
+            }
+            trigrams = new HashMap<Long, int[]>(postings.size() * 4 / 3 + 1);
+            for (Map.Entry<Long, Postings> entry : postings.entrySet())
+                trigrams.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /** Growing list of ascending name ids. */
+    private static class Postings {
+
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        void add(int id) {
+            // Same trigram found twice in one name
+            if (size > 0 && ids[size - 1] == id)
+                return;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /** Number of names checked between tests for interruption */
+    private static final int CHECK_INTERRUPT = 1024;
+
+    private static final Map<String, PVNameIndex> indices = new ConcurrentHashMap<String, PVNameIndex>();
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0]);
+
+    /**
+     * @param name Name of a shared index
+     * @return Index with that name, created when first requested
+     */
+    public static PVNameIndex getIndex(final String name) {
+        PVNameIndex index = indices.get(name);
+        if (index == null) {
+            indices.putIfAbsent(name, new PVNameIndex());
+            index = indices.get(name);
+        }
+        return index;
+    }
+
+    /**
+     * Replace the content of the index.
+     *
+     * @param names Names in the order in which they should be returned,
+     *            duplicates are ignored
+     */
+    public synchronized void setNames(final Collection<String> names) {
+        final Set<String> unique = new LinkedHashSet<String>(names);
+        unique.remove(null);
+        snapshot = new Snapshot(unique.toArray(new String[unique.size()]));
+    }
+
+    /**
+     * Add names after the ones already in the index.
+     *
+     * @param names Names to add, those already in the index are ignored
+     */
+    public synchronized void addNames(final Collection<String> names) {
+        final Set<String> unique = new LinkedHashSet<String>(Arrays.asList(snapshot.names));
+        final int before = unique.size();
+        unique.addAll(names);
+        unique.remove(null);
+        if (unique.size() != before)
+            snapshot = new Snapshot(unique.toArray(new String[unique.size()]));
+    }
+
+    /** @return Names in the index, in the order in which they were provided */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(snapshot.names));
+    }
+
+    /** @return Number of names in the index */
+    public int size() {
+        return snapshot.names.length;
+    }
+
+    /**
+     * Find names that start with a prefix.
+     *
+     * @param prefix Start of the names, no wildcards
+     * @param limit Maximum number of names to return
+     * @return Matching names in alphabetical order
+     */
+    public Matches findPrefix(final String prefix, final int limit) {
+        final Snapshot data = snapshot;
+        final int start = lowerBound(data, prefix);
+        int end = start;
+        // Names that start with the prefix are sorted right after it
+        int step = 1;
+        while (end + step <= data.sorted.length
+                && data.names[data.sorted[end + step - 1]].startsWith(prefix)) {
+            end += step;
+            step *= 2;
+        }
+        while (step > 0) {
+            if (end + step <= data.sorted.length
+                    && data.names[data.sorted[end + step - 1]].startsWith(prefix))
+                end += step;
+            step /= 2;
+        }
+        final List<String> names = new ArrayList<String>(Math.min(limit, end - start));
+        for (int i = start; i < end && names.size() < limit; i++)
+            names.add(data.names[data.sorted[i]]);
+        return new Matches(names, end - start);
+    }
+
+    /**
+     * Find names that contain a name with wildcards, the same as matching them
+     * with the pattern from {@link AutoCompleteHelper#convertToPattern(String)}.
+     *
+     * @param name Name with optional wildcards '*' and '?'
+     * @param limit Maximum number of names to return
+     * @return Matching names in the order in which they were provided
+     */
+    public Matches find(final String name, final int limit) {
+        final Snapshot data = snapshot;
+        final List<String> names = new ArrayList<String>();
+        if (name.isEmpty()) {
+            for (int id = 0; id < data.names.length && id < limit; id++)
+                names.add(data.names[id]);
+            return new Matches(names, data.names.length);
+        }
+        final boolean literal = name.indexOf('*') < 0 && name.indexOf('?') < 0;
+        final Pattern pattern = literal ? null : AutoCompleteHelper.convertToPattern(name);
+        if (!literal && pattern == null)
+            return new Matches(names, 0);
+
+        final int[] candidates = candidates(data, name);
+        final int total = candidates == null ? data.names.length : candidates.length;
+        int count = 0;
+        for (int i = 0; i < total; i++) {
+            if (i % CHECK_INTERRUPT == CHECK_INTERRUPT - 1
+                    && Thread.currentThread().isInterrupted())
+                break;
+            final String candidate = data.names[candidates == null ? i : candidates[i]];
+            if (literal ? candidate.contains(name) : pattern.matcher(candidate).find()) {
+                if (count < limit)
+                    names.add(candidate);
+                count++;
+            }
+        }
+        return new Matches(names, count);
+    }
+
+    /**
+     * @return Ascending ids of the names which contain all trigrams of the
+     *         literal parts of the name, or <code>null</code> when those parts
+     *         are too short to use the index
+     */
+    private static int[] candidates(final Snapshot data, final String name) {
+        final List<int[]> lists = new ArrayList<int[]>();
+        final Set<Long> keys = new LinkedHashSet<Long>();
+        for (String part : name.split("[\\*\\?]+"))
+            for (int i = 0; i + 3 <= part.length(); i++)
+                keys.add(trigram(part, i));
+        if (keys.isEmpty())
+            return null;
+        for (Long key : keys) {
+            final int[] ids = data.trigrams.get(key);
+            if (ids == null)
+                return new int[0];
+            lists.add(ids);
+        }
+        // Start with the shortest list, which bounds the result
+        Collections.sort(lists, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return Integer.compare(a.length, b.length);
+            }
+        });
+        int[] result = lists.get(0);
+        for (int l = 1; l < lists.size() && result.length > 0; l++)
+            result = intersect(result, lists.get(l));
+        return result;
+    }
+
+    /** @return Ids found in both ascending arrays */
+    private static int[] intersect(final int[] small, final int[] large) {
+        final int[] result = new int[small.length];
+        int size = 0, j = 0;
+        for (int i = 0; i < small.length && j < large.length; i++) {
+            final int id = small[i];
+            // Gallop ahead in the large list
+            int step = 1;
+            while (j + step < large.length && large[j + step] < id) {
+                j += step;
+                step *= 2;
+            }
+            while (j < large.length && large[j] < id)
+                j++;
+            if (j < large.length && large[j] == id)
+                result[size++] = id;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /** @return Position of the first name in sort order that is not before the given name */
+    private static int lowerBound(final Snapshot data, final String name) {
+        int low = 0, high = data.sorted.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (data.names[data.sorted[mid]].compareTo(name) < 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** @return Three characters of the text starting at index, packed into one key */
+    private static Long trigram(final String text, final int index) {
+        return Long.valueOf(((long) text.charAt(index) << 32)
+                | ((long) text.charAt(index + 1) << 16)
+                | text.charAt(index + 2));
+    }
+
+}
@@ -25,6 +25,8 @@ public class Preferences {
     final public static String PROVIDERS = "providers";
     final public static String SEPARATORS = "separators";
     final public static String MAX_TOP_RESULTS = "max_top_results";
+    final public static String PROVIDER_THREADS = "provider_threads";
+    final public static String CACHE_TIMEOUT = "cache_timeout";
 
     /**
      * @param setting Preference identifier
@@ -79,4 +81,22 @@ public class Preferences {
                 null);
     }
 
+    /** @return number of threads that run the providers */
+    public static int getProviderThreads() {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return 4; // default
+        return Math.max(1, service.getInt(AutoCompletePlugin.PLUGIN_ID,
+                PROVIDER_THREADS, 4, null));
+    }
+
+    /** @return seconds to keep provider results, 0 to disable the cache */
+    public static int getCacheTimeout() {
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service == null)
+            return 30; // default
+        return service.getInt(AutoCompletePlugin.PLUGIN_ID, CACHE_TIMEOUT, 30,
+                null);
+    }
+
 }
@@ -80,6 +80,19 @@ public class Proposal implements Comparable<Proposal> {
         this.tooltips = new ArrayList<TooltipData>();
     }
 
+    public Proposal(Proposal p) {
+        this.value = p.value;
+        this.description = p.description;
+        this.styles = new ArrayList<ProposalStyle>(p.styles);
+        this.isPartial = p.isPartial;
+        this.isFunction = p.isFunction;
+        this.startWithContent = p.startWithContent;
+        this.occurrence = p.occurrence;
+        this.insertionPos = p.insertionPos;
+        this.originalValue = p.originalValue;
+        this.tooltips = new ArrayList<TooltipData>(p.tooltips);
+    }
+
     public int getInsertionPos() {
         return insertionPos < 0 ? 0 : insertionPos;
     }